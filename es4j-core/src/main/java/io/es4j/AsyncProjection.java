@@ -4,12 +4,15 @@ import com.cronutils.model.Cron;
 import com.cronutils.model.CronType;
 import com.cronutils.model.definition.CronDefinitionBuilder;
 import com.cronutils.parser.CronParser;
+import io.es4j.core.objects.CatchUpPolicy;
+import io.es4j.core.objects.CheckpointPolicy;
 import io.es4j.core.objects.EventJournalFilter;
 import io.smallrye.mutiny.Uni;
 import io.es4j.core.objects.AggregateEvent;
 import io.vertx.core.json.JsonObject;
 import io.vertx.mutiny.core.Vertx;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -48,6 +51,68 @@ public interface AsyncProjection {
       .parse("*/1 * * * *");
   }
 
+  /**
+   * Push mode, the projection is drained as soon as events are appended to the journal instead of waiting for the
+   * next polling tick, the polling policy then only acts as a safety net for missed signals.
+   *
+   * @return true to react to journal appends. Defaults to false.
+   */
+  default boolean pushUpdates() {
+    return false;
+  }
+
+  /**
+   * Number of shards the projection is split into, events are spread on the hash of their aggregate id so the events
+   * of an aggregate are still applied in order. Every shard keeps its own offset and is leased to one node at a time,
+   * changing the number of shards starts the projection over.
+   * Falls back to a single shard when the event store can't shard its journal.
+   *
+   * @return the number of shards. Defaults to 1.
+   */
+  default int shards() {
+    return 1;
+  }
+
+  /**
+   * How long a node keeps the lease of a shard before handing it back, shorter leases spread shards over new nodes
+   * sooner at the cost of more lock traffic. Ignored for unsharded projections.
+   *
+   * @return the lease duration. Defaults to 5 minutes.
+   */
+  default Duration leaseDuration() {
+    return Duration.ofMinutes(5);
+  }
+
+  /**
+   * Defines how often the offset is stored while the projection catches up, a crash replays the events applied since
+   * the last checkpoint. Ignored when the offset store commits the offset together with the projection.
+   *
+   * @return the checkpoint policy. Defaults to a checkpoint after every batch.
+   */
+  default CheckpointPolicy checkpointPolicy() {
+    return CheckpointPolicy.everyBatch();
+  }
+
+  /**
+   * Defines how the projection catches up once it finds itself a full batch behind the journal, after an offset reset
+   * for instance, the poller goes back to live batches as soon as it reaches the head.
+   *
+   * @return the catch-up policy. Defaults to ranges of 10k events applied as a single slice.
+   */
+  default CatchUpPolicy catchUpPolicy() {
+    return CatchUpPolicy.defaults();
+  }
+
+  /**
+   * Projections that can only be applied by the offset store, within the transaction that moves their offset. Such
+   * projections are rejected at deploy time unless the offset store is transactional for them.
+   *
+   * @return true when {@link #apply(List)} isn't supported. Defaults to false.
+   */
+  default boolean appliedByOffsetStore() {
+    return false;
+  }
+
   /**
    * Setup the projection with the given Vertx and configuration.
    *
@@ -5,8 +5,11 @@ import com.cronutils.model.CronType;
 import com.cronutils.model.definition.CronDefinitionBuilder;
 import com.cronutils.parser.CronParser;
 import io.es4j.core.objects.AggregateState;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 
+import java.util.List;
+
 /**
  * An interface for polling state projections of aggregates in an event sourcing system.
  *
@@ -29,6 +32,22 @@ public interface AsyncStateTransfer<T extends Aggregate> {
    */
   Uni<Void> update(AggregateState<T> currentState);
 
+  /**
+   * Updates the current state of a batch of aggregates, at most one state per aggregate.
+   *
+   * <p>The default implementation updates the aggregates one by one, implementors able to write the whole batch
+   * at once should override it.</p>
+   *
+   * @param currentStates the current states of the aggregates
+   * @return a Uni<Void> which represents the completion of the update operation
+   */
+  default Uni<Void> update(List<AggregateState<T>> currentStates) {
+    return Multi.createFrom().iterable(currentStates)
+      .onItem().transformToUniAndMerge(this::update)
+      .collect().asList()
+      .replaceWithVoid();
+  }
+
 
   /**
    * Returns the polling policy for this polling state projection.
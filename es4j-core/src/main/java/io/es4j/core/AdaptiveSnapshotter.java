@@ -0,0 +1,156 @@
+package io.es4j.core;
+
+import io.es4j.Aggregate;
+import io.es4j.core.objects.AggregateConfiguration;
+import io.es4j.core.objects.AggregateState;
+import io.es4j.core.objects.ResponseMode;
+import io.es4j.core.objects.TakeSnapshot;
+import io.es4j.infrastructure.models.AggregatePlainKey;
+import io.vertx.mutiny.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Background snapshots for the aggregates handled by a verticle.
+ * <p>
+ * The command handler reports how many events each aggregate accumulated since its last snapshot and how long
+ * replays take, the replay cost is averaged per aggregate class. Every {@link AggregateConfiguration#snapshotInterval()}
+ * the aggregates touched since the previous sweep are evaluated and a {@link TakeSnapshot} is queued in their mailbox when
+ * <ul>
+ *   <li>replaying the pending events is estimated above {@link AggregateConfiguration#snapshotReplayBudget()}</li>
+ *   <li>or, as fallback, the pending events reached {@link AggregateConfiguration#snapshotThreshold()}, halved for hot
+ *   aggregates that received {@value #HOT_COMMANDS} commands or more during the sweep</li>
+ * </ul>
+ * Aggregates with less than {@value #MIN_EVENTS} pending events are never snapshot. Aggregates that don't qualify are
+ * evaluated again on the next sweeps, with the replay cost known by then, until they are snapshot or fall under
+ * {@value #MIN_EVENTS} pending events. The snapshotter is disabled unless both the budget and the interval are set.
+ *
+ * @param <T> the aggregate handled by the snapshotter
+ */
+public class AdaptiveSnapshotter<T extends Aggregate> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveSnapshotter.class);
+  private static final Map<Class<? extends Aggregate>, ReplayCost> REPLAY_COSTS = new ConcurrentHashMap<>();
+  public static final int MIN_EVENTS = 10;
+  public static final int HOT_COMMANDS = 10;
+
+  private final Vertx vertx;
+  private final Class<T> aggregateClass;
+  private final Integer snapshotThreshold;
+  private final long replayBudgetNanos;
+  private final long intervalMillis;
+  private final Map<AggregatePlainKey, Candidate> candidates = new ConcurrentHashMap<>();
+  private Long timerId = null;
+
+  public AdaptiveSnapshotter(Vertx vertx, Class<T> aggregateClass, AggregateConfiguration aggregateConfiguration) {
+    this.vertx = vertx;
+    this.aggregateClass = aggregateClass;
+    this.snapshotThreshold = aggregateConfiguration.snapshotThreshold();
+    this.replayBudgetNanos = Objects.requireNonNullElse(aggregateConfiguration.snapshotReplayBudget(), Duration.ZERO).toNanos();
+    this.intervalMillis = Objects.requireNonNullElse(aggregateConfiguration.snapshotInterval(), Duration.ZERO).toMillis();
+  }
+
+  /**
+   * When disabled the command handler falls back to writing snapshots inline every {@link AggregateConfiguration#snapshotThreshold()} events.
+   */
+  public boolean enabled() {
+    return replayBudgetNanos > 0 && intervalMillis > 0;
+  }
+
+  public void start() {
+    if (enabled()) {
+      this.timerId = vertx.setPeriodic(intervalMillis, id -> sweep());
+    }
+  }
+
+  public void stop() {
+    if (timerId != null) {
+      vertx.cancelTimer(timerId);
+      timerId = null;
+    }
+    candidates.clear();
+  }
+
+  public void replayed(AggregateState<T> state, int events, long nanos) {
+    if (!enabled() || state.state() == null) {
+      return;
+    }
+    if (events > 0) {
+      REPLAY_COSTS.computeIfAbsent(aggregateClass, aClass -> new ReplayCost()).sample(nanos / events);
+    }
+    candidate(state).eventsSinceSnapshot = state.eventsSinceSnapshot();
+  }
+
+  public void processed(AggregateState<T> state) {
+    if (!enabled() || state.state() == null) {
+      return;
+    }
+    final var candidate = candidate(state);
+    candidate.eventsSinceSnapshot = state.eventsSinceSnapshot();
+    candidate.commands++;
+  }
+
+  private Candidate candidate(AggregateState<T> state) {
+    return candidates.computeIfAbsent(
+      new AggregatePlainKey(aggregateClass.getName(), state.state().aggregateId(), state.state().tenant()),
+      key -> new Candidate()
+    );
+  }
+
+  private void sweep() {
+    final var replayCost = REPLAY_COSTS.get(aggregateClass);
+    final var nanosPerEvent = replayCost == null ? 0L : replayCost.nanosPerEvent;
+    candidates.forEach((key, candidate) -> {
+        if (candidate.eventsSinceSnapshot < MIN_EVENTS) {
+          candidates.remove(key);
+          return;
+        }
+        final var snapshot = shouldSnapshot(candidate, nanosPerEvent);
+        // commands are counted per sweep, an aggregate is hot while it keeps receiving them
+        candidate.commands = 0;
+        if (snapshot) {
+          candidates.remove(key);
+          LOGGER.debug("Requesting snapshot for {}::{} after {} events", aggregateClass.getSimpleName(), key.aggregateId(), candidate.eventsSinceSnapshot);
+          final var takeSnapshot = new TakeSnapshot(key.aggregateId(), key.tenantId());
+          CommandMailbox.dispatch(aggregateClass, takeSnapshot, takeSnapshot.uniqueId(), ResponseMode.ACK)
+            .subscribe()
+            .with(
+              avoid -> LOGGER.debug("Snapshot taken for {}::{}", aggregateClass.getSimpleName(), key.aggregateId()),
+              throwable -> LOGGER.warn("Unable to snapshot {}::{}", aggregateClass.getSimpleName(), key.aggregateId(), throwable)
+            );
+        }
+      }
+    );
+  }
+
+  private boolean shouldSnapshot(Candidate candidate, long nanosPerEvent) {
+    if (candidate.eventsSinceSnapshot < MIN_EVENTS) {
+      return false;
+    }
+    if (candidate.eventsSinceSnapshot * nanosPerEvent >= replayBudgetNanos) {
+      return true;
+    }
+    final long threshold = snapshotThreshold == null ? Long.MAX_VALUE : snapshotThreshold;
+    return candidate.eventsSinceSnapshot >= (candidate.commands >= HOT_COMMANDS ? threshold / 2 : threshold);
+  }
+
+  private static class Candidate {
+    private long eventsSinceSnapshot = 0;
+    private int commands = 0;
+  }
+
+  private static class ReplayCost {
+    private volatile long nanosPerEvent = 0;
+
+    private synchronized void sample(long sample) {
+      // exponentially weighted, recent replays weigh 20%
+      nanosPerEvent = nanosPerEvent == 0 ? sample : (sample + 4 * nanosPerEvent) / 5;
+    }
+  }
+
+}
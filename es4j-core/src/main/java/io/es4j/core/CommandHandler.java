@@ -11,8 +11,6 @@ import io.vertx.core.json.JsonArray;
 import io.vertx.core.tracing.TracingPolicy;
 import io.es4j.infrastructure.misc.EventParser;
 import io.es4j.core.exceptions.CommandRejected;
-import io.es4j.core.exceptions.UnknownCommand;
-import io.es4j.core.exceptions.UnknownEvent;
 import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.core.Vertx;
 import org.slf4j.Logger;
@@ -20,109 +18,135 @@ import org.slf4j.LoggerFactory;
 import io.vertx.core.json.JsonObject;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.IntStream;
 
 public class CommandHandler<T extends Aggregate> {
-  private final List<BehaviourWrap> behaviours;
-  private final List<AggregatorWrap> aggregators;
+  private final DispatchPlan<T> dispatchPlan;
+  private final EventFolder<T> eventFolder;
   private final Infrastructure infrastructure;
   private static final Logger LOGGER = LoggerFactory.getLogger(CommandHandler.class);
+  private static final Map<AggregatePlainKey, CompletableFuture<AggregateState<?>>> IN_FLIGHT_LOADS = new ConcurrentHashMap<>();
   private final Class<T> aggregateClass;
   private final AggregateConfiguration aggregateConfiguration;
   private final Vertx vertx;
+  private final AdaptiveSnapshotter<T> snapshotter;
 
   public CommandHandler(
     final Vertx vertx,
     final Class<T> aggregateClass,
-    final List<AggregatorWrap> aggregatorWraps,
-    final List<BehaviourWrap> behaviourWraps,
+    final DispatchPlan<T> dispatchPlan,
     final Infrastructure infrastructure,
-    final AggregateConfiguration aggregateConfiguration
+    final AggregateConfiguration aggregateConfiguration,
+    final AdaptiveSnapshotter<T> snapshotter
   ) {
     this.vertx = vertx;
+    this.snapshotter = snapshotter;
     this.infrastructure = infrastructure;
     this.aggregateClass = aggregateClass;
-    this.aggregators = aggregatorWraps;
-    this.behaviours = behaviourWraps;
-    if (behaviourWraps.isEmpty()) {
-      throw new IllegalStateException("Empty behaviours");
-    }
-    if (aggregatorWraps.isEmpty()) {
-      throw new IllegalStateException("Empty behaviours");
-    }
+    this.dispatchPlan = dispatchPlan;
+    this.eventFolder = new EventFolder<>(dispatchPlan);
     this.aggregateConfiguration = aggregateConfiguration;
   }
 
-  private Uni<JsonObject> replay(LoadAggregate loadAggregate) {
+  private Uni<CommandReply> replay(LoadAggregate loadAggregate) {
     if (Objects.nonNull(loadAggregate.dateTo()) || Objects.nonNull(loadAggregate.versionTo())) {
-      return replayAndAggregate(loadAggregate).map(AggregateState::toJson);
+      return replayAndAggregate(loadAggregate).map(CommandReply.class::cast);
     }
-    return replayAggregateAndCache(loadAggregate.aggregateId(), loadAggregate.tenant()).map(AggregateState::toJson);
+    return replayAggregateAndCache(loadAggregate.aggregateId(), loadAggregate.tenant()).<CommandReply>map(AggregateState::copy);
+  }
+
+  public Uni<CommandReply> process(Command command) {
+    return process(command, ResponseMode.STATE);
   }
 
-  public Uni<JsonObject> process(Command command) {
-    // todo should not return aggregate state but instead void
-    // todo add fire and forget command
+  /**
+   * Processes the command and replies either with the full aggregate state or, in {@link ResponseMode#ACK},
+   * with a {@link CommandAck} that only carries the new version and the emitted event types.
+   */
+  public Uni<CommandReply> process(Command command, ResponseMode responseMode) {
+    return process(command, command.uniqueId(), responseMode);
+  }
+
+  /**
+   * {@link Command#uniqueId()} may hand out a new id on every call, the id is resolved once by the caller and
+   * used for the idempotency check and on every event the command emits.
+   */
+  public Uni<CommandReply> process(Command command, String commandId, ResponseMode responseMode) {
     // todo add rejected command store
     if (command instanceof LoadAggregate loadAggregate) {
       return replay(loadAggregate);
     }
+    if (command instanceof TakeSnapshot takeSnapshot) {
+      return snapshot(takeSnapshot, commandId);
+    }
     if (command.options().simulate()) {
-      return replayAndSimulate(command);
+      return replayAndSimulate(command, commandId).map(processed -> reply(processed, responseMode));
     }
-    return replayAndAppend(command);
+    return replayAndAppend(command, commandId).map(processed -> reply(processed, responseMode));
+  }
+
+  private CommandReply reply(ProcessedCommand<T> processed, ResponseMode responseMode) {
+    if (responseMode == ResponseMode.ACK) {
+      return new CommandAck(
+        processed.state().state().aggregateId(),
+        processed.state().state().tenant(),
+        processed.state().currentVersion(),
+        processed.state().currentJournalOffset(),
+        processed.events().stream()
+          .map(io.es4j.infrastructure.models.Event::eventType)
+          .filter(eventType -> !DispatchPlan.SNAPSHOT_EVENT_TYPE.equals(eventType))
+          .toList()
+      );
+    }
+    return processed.state().copy();
   }
 
-
-  private Uni<JsonObject> replayAndAppend(Command command) {
+  /**
+   * Every attempt after a conflict catches up from the state reached by the previous one, retries only read the
+   * events appended since and never fold them twice.
+   */
+  private Uni<ProcessedCommand<T>> replayAndAppend(Command command, String commandId) {
     return replayAggregateAndCache(command.aggregateId(), command.tenant())
-      .flatMap(aggregateState -> processCommand(aggregateState, command)
-        .onFailure(ConcurrentAppend.class).recoverWithUni(
-          () -> playFromLastSnapshot(command.aggregateId(), command.tenant(), aggregateState)
-            .flatMap(reconstructedState -> processCommand(reconstructedState, command))
-            .onFailure(ConcurrentAppend.class).retry().atMost(5)
-        )
-        .onFailure().invoke(throwable -> logRejectedCommand(throwable, command, aggregateState))
-      )
-      .map(AggregateState::toJson);
+      .flatMap(aggregateState -> {
+          final var latest = new AtomicReference<>(aggregateState);
+          return processCommand(aggregateState.fork(), command, commandId)
+            .onFailure(ConcurrentAppend.class).recoverWithUni(
+              () -> Uni.createFrom().deferred(() -> catchUp(command.aggregateId(), command.tenant(), latest.get()))
+                .invoke(latest::set)
+                .flatMap(caughtUpState -> processCommand(caughtUpState.fork(), command, commandId))
+                .onFailure(ConcurrentAppend.class).retry().atMost(5)
+            )
+            .onFailure().invoke(throwable -> logRejectedCommand(throwable, command, aggregateState));
+        }
+      );
   }
 
-  private Uni<JsonObject> replayAndSimulate(Command command) {
+  private Uni<ProcessedCommand<T>> replayAndSimulate(Command command, String commandId) {
     return replayAggregateAndCache(command.aggregateId(), command.tenant())
+      .map(AggregateState::fork)
       .map(aggregateState -> {
-          checkCommandId(aggregateState, command);
-          final var events = applyCommandBehaviour(aggregateState, command);
+          checkCommandId(aggregateState, commandId);
+          final var events = applyCommandBehaviour(aggregateState, command, commandId);
           aggregateEvents(aggregateState, events);
-          return aggregateState.toJson();
+          return new ProcessedCommand<>(aggregateState, events);
         }
       );
   }
 
   private T aggregateEvent(T aggregateState, final Event event, Integer eventSchemaVersion) {
-    Event finalEvent = event;
-    final var aggregator = findAggregator(event);
-    LOGGER.debug("Applying {} schema versionTo {} ", aggregator.delegate().getClass().getSimpleName(), aggregator.delegate().schemaVersion());
-    if (aggregator.delegate().schemaVersion() != eventSchemaVersion) {
-      LOGGER.debug("Schema versionTo mismatch, migrating event {} {} ", event.getClass().getName(), JsonObject.mapFrom(event).encodePrettily());
-      finalEvent = aggregator.delegate().migrate(eventSchemaVersion, JsonObject.mapFrom(event));
-    }
-    final var newAggregateState = (T) aggregator.delegate().apply(aggregateState, finalEvent);
-    LOGGER.debug("State after aggregation {}", newAggregateState);
-    return newAggregateState;
+    return eventFolder.aggregate(aggregateState, event, eventSchemaVersion);
   }
 
   private AggregatorWrap findAggregator(Event event) {
-    return aggregators.stream()
-      .filter(aggregator -> aggregator.eventClass().isAssignableFrom(event.getClass()))
-      .findFirst()
-      .orElseThrow(() -> UnknownEvent.unknown(event));
+    return dispatchPlan.aggregator(event);
   }
 
   private AggregatorWrap findAggregator(String eventType) {
-    return aggregators.stream()
-      .filter(aggregator -> aggregator.delegate().eventType().equals(eventType))
-      .findFirst()
-      .orElseThrow();
+    return dispatchPlan.aggregator(eventType);
   }
 
   private List<Event> applyCommandBehaviour(final T aggregateState, final Command command) {
@@ -135,10 +159,7 @@ public class CommandHandler<T extends Aggregate> {
 
 
   private BehaviourWrap findBehaviour(Command command) {
-    return behaviours.stream()
-      .filter(behaviour -> behaviour.commandClass().getName().equals(command.getClass().getName()))
-      .findFirst()
-      .orElseThrow(() -> UnknownCommand.unknown(command.getClass()));
+    return dispatchPlan.behaviour(command);
   }
 
   private Uni<AggregateState<T>> replayAggregateAndCache(String aggregateId, String tenant) {
@@ -150,25 +171,214 @@ public class CommandHandler<T extends Aggregate> {
     }
     if (state == null) {
       LOGGER.debug("Fetching from event-store {}", key);
-      return playFromLastSnapshot(aggregateId, tenant, new AggregateState<>(aggregateClass));
+      // joins or starts the replay once subscribed, a resubscription never gets a flight that already ended
+      return Uni.createFrom().deferred(() -> singleFlightReplay(aggregateId, tenant));
     } else {
       return Uni.createFrom().item(state);
     }
   }
 
+  /**
+   * Commands of an aggregate are already serialized by its {@link CommandMailbox}, loads can still overlap across
+   * verticles while mailboxes are registered or unregistered. Concurrent loads of the same aggregate on this node
+   * share a single replay, every caller gets its own fork of the replayed state and is resumed on its own context.
+   * The replay is shared through a completion stage rather than a memoized uni, a caller cancelling doesn't cancel
+   * the replay for the others.
+   */
+  @SuppressWarnings("unchecked")
+  private Uni<AggregateState<T>> singleFlightReplay(String aggregateId, String tenant) {
+    final var key = new AggregatePlainKey(aggregateClass.getName(), aggregateId, tenant);
+    final var context = io.vertx.core.Vertx.currentContext();
+    final var flight = new CompletableFuture<AggregateState<?>>();
+    final var running = IN_FLIGHT_LOADS.putIfAbsent(key, flight);
+    if (running == null) {
+      playFromLastSnapshot(aggregateId, tenant, newState())
+        .subscribe().with(
+          state -> {
+            IN_FLIGHT_LOADS.remove(key, flight);
+            flight.complete(state);
+          },
+          throwable -> {
+            IN_FLIGHT_LOADS.remove(key, flight);
+            flight.completeExceptionally(throwable);
+          }
+        );
+    }
+    final var replay = running == null ? flight : running;
+    return Uni.createFrom().emitter(emitter -> replay.whenComplete((state, throwable) -> {
+        final Runnable resume = () -> {
+          if (throwable != null) {
+            emitter.fail(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+          } else {
+            emitter.complete(((AggregateState<T>) state).fork());
+          }
+        };
+        if (context == null || io.vertx.core.Vertx.currentContext() == context) {
+          resume.run();
+        } else {
+          context.runOnContext(avoid -> resume.run());
+        }
+      }
+    ));
+  }
+
   private Uni<AggregateState<T>> playFromLastSnapshot(String aggregateId, String tenant, AggregateState<T> state) {
-    final var instruction = streamInstruction(aggregateId, tenant, state, true);
+    final var start = System.nanoTime();
+    final Uni<Integer> replay;
+    if (state.currentVersion() == null && infrastructure.eventStore().streamHeads()) {
+      replay = infrastructure.eventStore().head(new AggregateKey<>(aggregateClass, aggregateId, tenant))
+        .flatMap(head -> head
+          .map(streamHead -> replayFromHead(aggregateId, tenant, state, streamHead))
+          // the stream doesn't exist yet, there is nothing to replay
+          .orElseGet(() -> Uni.createFrom().item(0))
+        );
+    } else {
+      replay = restoreSnapshot(aggregateId, tenant, state)
+        .flatMap(avoid -> replayJournal(aggregateId, tenant, state, nextVersion(state), infrastructure.snapshotStore().isEmpty()));
+    }
+    return replay.map(replayedEvents -> {
+        snapshotter.replayed(state, replayedEvents, System.nanoTime() - start);
+        return cacheState(state);
+      }
+    );
+  }
+
+  /**
+   * The head tells whether the stream was ever snapshotted and at which version, journal snapshots are read
+   * starting at that version instead of looking the last snapshot id up in the journal.
+   */
+  private Uni<Integer> replayFromHead(String aggregateId, String tenant, AggregateState<T> state, AggregateStreamHead head) {
+    LOGGER.debug("Replaying {}::{} from head {}", aggregateClass.getSimpleName(), aggregateId, head);
+    if (Objects.requireNonNullElse(head.lastSnapshotVersion(), 0L) == 0L) {
+      return replayJournal(aggregateId, tenant, state, null, false);
+    }
+    if (infrastructure.snapshotStore().isEmpty()) {
+      return replayJournal(aggregateId, tenant, state, head.lastSnapshotVersion(), false);
+    }
+    return restoreSnapshot(aggregateId, tenant, state)
+      .flatMap(avoid -> {
+          if (state.currentVersion() == null) {
+            // the head points to a snapshot written in the journal before the snapshot store was in place
+            return replayJournal(aggregateId, tenant, state, null, true);
+          }
+          if (state.currentVersion() >= head.currentVersion()) {
+            return Uni.createFrom().item(0);
+          }
+          return replayJournal(aggregateId, tenant, state, nextVersion(state), false);
+        }
+      );
+  }
+
+  private Uni<Integer> replayJournal(String aggregateId, String tenant, AggregateState<T> state, Long versionFrom, Boolean replayFromSnapshot) {
+    final var instruction = streamInstruction(aggregateId, tenant, versionFrom, state.currentJournalOffset(), replayFromSnapshot);
     LOGGER.debug("Playing aggregate stream with instruction {}", instruction.toJson().encodePrettily());
+    return replayPages(instruction, state, 0);
+  }
+
+  private static Long nextVersion(AggregateState<?> state) {
+    return state.currentVersion() == null ? null : state.currentVersion() + 1;
+  }
+
+  /**
+   * Fresh states start from the latest entry of the {@link io.es4j.infrastructure.SnapshotStore}, the journal is
+   * then only read after the snapshot version. States that already hold a version are caught up from the journal.
+   */
+  private Uni<Void> restoreSnapshot(String aggregateId, String tenant, AggregateState<T> state) {
+    if (infrastructure.snapshotStore().isEmpty() || state.currentVersion() != null) {
+      return Uni.createFrom().voidItem();
+    }
+    return infrastructure.snapshotStore().get().latest(new AggregateKey<>(aggregateClass, aggregateId, tenant))
+      .invoke(snapshot -> snapshot.ifPresent(aggregateSnapshot -> applySnapshot(state, aggregateSnapshot)))
+      .replaceWithVoid();
+  }
+
+  private void applySnapshot(AggregateState<T> state, AggregateSnapshot snapshot) {
+    LOGGER.debug("Restoring {}::{} from snapshot version {}", aggregateClass.getSimpleName(), snapshot.aggregateId(), snapshot.version());
+    var aggregate = snapshot.state().mapTo(aggregateClass);
+    if (!Objects.equals(aggregate.schemaVersion(), snapshot.schemaVersion())) {
+      LOGGER.debug("Aggregate schema versionTo mismatch, migrating snapshot from {} to {}", snapshot.schemaVersion(), aggregate.schemaVersion());
+      aggregate = aggregateClass.cast(aggregate.transformSnapshot(snapshot.schemaVersion(), snapshot.state()));
+    }
+    state.knownCommands().clear();
+    state.knownCommands().decode(snapshot.knownCommandIds());
+    state.setState(aggregate)
+      .setLastSnapshotVersion(snapshot.version())
+      .setCurrentVersion(snapshot.version())
+      .setCurrentJournalOffset(snapshot.journalOffset());
+  }
+
+  /**
+   * Brings the state up to date with the events appended after its version, used when an append conflicts.
+   * The cached state is untouched by the rejected attempt, so only the missing events are read. They are applied to
+   * a fork, the cached instance is shared with concurrent loads and the off-heap tier and is only replaced by a fully
+   * caught-up copy.
+   */
+  private Uni<AggregateState<T>> catchUp(String aggregateId, String tenant, AggregateState<T> cachedState) {
+    final var state = cachedState.fork();
+    if (state.currentVersion() == null) {
+      return playFromLastSnapshot(aggregateId, tenant, state);
+    }
+    LOGGER.debug("Catching up {}::{} after version {}", aggregateClass.getSimpleName(), aggregateId, state.currentVersion());
+    return replayPages(AggregateEventStream.after(aggregateId, tenant, state.currentVersion(), aggregateConfiguration.snapshotThreshold()), state, 0)
+      .map(replayedEvents -> cacheState(state));
+  }
+
+  /**
+   * Fetches are capped to the snapshot threshold, background snapshots can lag behind it so full pages are followed
+   * by another fetch starting after the last applied version.
+   */
+  private Uni<Integer> replayPages(AggregateEventStream<T> instruction, AggregateState<T> state, int replayedEvents) {
     return infrastructure.eventStore().fetch(instruction)
-      .map(events -> {
+      .flatMap(events -> {
           events.forEach(ev -> applyEvent(state, ev));
-          return cacheState(state);
+          final var replayed = replayedEvents + events.size();
+          if (events.isEmpty() || instruction.maxSize() == null || events.size() < instruction.maxSize()) {
+            return Uni.createFrom().item(replayed);
+          }
+          return replayPages(
+            new AggregateEventStream<>(
+              instruction.aggregateId(),
+              instruction.tenantId(),
+              state.currentVersion() + 1,
+              state.currentJournalOffset(),
+              instruction.startFromSnapshot(),
+              instruction.maxSize()
+            ),
+            state,
+            replayed
+          );
         }
       );
   }
 
+  private Uni<CommandReply> snapshot(TakeSnapshot takeSnapshot, String commandId) {
+    return replayAggregateAndCache(takeSnapshot.aggregateId(), takeSnapshot.tenant())
+      .flatMap(state -> {
+          if (state.state() == null || state.eventsSinceSnapshot() == 0) {
+            return Uni.createFrom().item(state);
+          }
+          if (infrastructure.snapshotStore().isPresent()) {
+            return storeSnapshot(state);
+          }
+          final var snapshot = snapshotEvent(state, takeSnapshot, commandId);
+          return appendEvents(state, List.of(snapshot))
+            .map(avoid -> cacheState(state
+                .setCurrentVersion(snapshot.eventVersion())
+                .setLastSnapshotVersion(snapshot.eventVersion())
+              )
+            )
+            .onFailure(ConcurrentAppend.class).recoverWithItem(throwable -> {
+                LOGGER.debug("Snapshot of {}::{} lost the race against a command, skipping", aggregateClass.getSimpleName(), takeSnapshot.aggregateId());
+                return state;
+              }
+            );
+        }
+      )
+      .map(AggregateState::copy);
+  }
+
   private Uni<AggregateState<T>> replayAndAggregate(LoadAggregate loadAggregate) {
-    final var state = new AggregateState<>(aggregateClass);
+    final var state = newState();
     final var instruction = eventStreamInstruction(loadAggregate);
     LOGGER.debug("Playing aggregate stream with instruction {}", instruction);
     return infrastructure.eventStore().stream(instruction, event -> applyEvent(state, event)).replaceWith(state);
@@ -183,12 +393,12 @@ public class CommandHandler<T extends Aggregate> {
       .build();
   }
 
-  private AggregateEventStream<T> streamInstruction(String aggregateId, String tenant, AggregateState<T> state, Boolean replayFromSnapshot) {
+  private AggregateEventStream<T> streamInstruction(String aggregateId, String tenant, Long versionFrom, Long journalOffset, Boolean replayFromSnapshot) {
     return new AggregateEventStream<>(
       aggregateId,
       tenant,
-      state.currentVersion(),
-      state.currentJournalOffset(),
+      versionFrom,
+      journalOffset,
       replayFromSnapshot,
       aggregateConfiguration.snapshotThreshold()
     );
@@ -198,7 +408,7 @@ public class CommandHandler<T extends Aggregate> {
     events.stream()
       .sorted(Comparator.comparingLong(io.es4j.infrastructure.models.Event::eventVersion))
       .forEachOrdered(event -> {
-          if (event.eventType().equals("snapshot")) {
+          if (event.eventType().equals(DispatchPlan.SNAPSHOT_EVENT_TYPE)) {
             applySnapshot(state, event, event.event().mapTo(SnapshotEvent.class), event.schemaVersion());
           } else {
             final var aggregator = findAggregator(event.eventType());
@@ -215,9 +425,8 @@ public class CommandHandler<T extends Aggregate> {
 
   private void applyEvent(AggregateState<T> state, io.es4j.infrastructure.models.Event event, Event parsedEvent) {
     final var newState = aggregateEvent(state.state(), parsedEvent, event.schemaVersion());
-    if (state.knownCommands().stream().noneMatch(txId -> txId.equals(event.commandId()))) {
+    if (state.knownCommands().add(event.commandId())) {
       LOGGER.debug("Acknowledging command {}", event.commandId());
-      state.knownCommands().add(event.commandId());
     }
     state.setState(newState);
   }
@@ -234,35 +443,16 @@ public class CommandHandler<T extends Aggregate> {
   }
 
   private void applyEvent(final AggregateState<T> state, final io.es4j.infrastructure.models.Event event) {
-    LOGGER.info("Aggregating event {} ", event);
-    if (event.eventType().equals("snapshot")) {
-      final var snapshot = event.event().mapTo(SnapshotEvent.class);
-      state.knownCommands().clear();
-      state.setState(JsonObject.mapFrom(snapshot.state()).mapTo(state.aggregateClass()))
-        .addKnownCommands(snapshot.knownCommands())
-        .setCurrentVersion(event.eventVersion())
-        .setCurrentJournalOffset(event.journalOffset());
-    } else {
-      final var aggregator = findAggregator(event.eventType());
-      final var parsedEvent = EventParser.getEvent(aggregator.eventClass(), event.event());
-      final var newState = aggregateEvent(state.state(), parsedEvent, event.schemaVersion());
-      LOGGER.debug("State after aggregation {} ", JsonObject.mapFrom(newState).encodePrettily());
-      state.setState(newState)
-        .addKnownCommand(event.commandId())
-        .setCurrentJournalOffset(event.journalOffset())
-        .setCurrentVersion(event.eventVersion());
-    }
+    eventFolder.apply(state, event);
   }
 
-  private List<io.es4j.infrastructure.models.Event> applyCommandBehaviour(final AggregateState<T> state, final Command finalCommand) {
+  private List<io.es4j.infrastructure.models.Event> applyCommandBehaviour(final AggregateState<T> state, final Command finalCommand, final String commandId) {
     final var events = applyCommandBehaviour(state.state(), finalCommand);
     final var array = events.toArray(new Event[0]);
-    final var resultingEvents = transformEvents(state, finalCommand, array);
-    addOptionalSnapshot(state, finalCommand, resultingEvents);
-    return resultingEvents;
+    return transformEvents(state, finalCommand, commandId, array);
   }
 
-  public <X extends Aggregate> ArrayList<io.es4j.infrastructure.models.Event> transformEvents(AggregateState<X> state, Command finalCommand, Event[] array) {
+  public <X extends Aggregate> ArrayList<io.es4j.infrastructure.models.Event> transformEvents(AggregateState<X> state, Command finalCommand, String commandId, Event[] array) {
     final var currentVersion = Objects.requireNonNullElse(state.currentVersion(), 0L);
     return new ArrayList<>(IntStream.range(1, array.length + 1)
       .mapToObj(index -> {
@@ -274,7 +464,7 @@ public class CommandHandler<T extends Aggregate> {
             currentVersion + index,
             JsonObject.mapFrom(ev),
             finalCommand.tenant(),
-            finalCommand.uniqueId(),
+            commandId,
             ev.tags(),
             aggregator.delegate().schemaVersion()
           );
@@ -283,43 +473,90 @@ public class CommandHandler<T extends Aggregate> {
     );
   }
 
-  private void addOptionalSnapshot(AggregateState<T> state, Command finalCommand, ArrayList<io.es4j.infrastructure.models.Event> resultingEvents) {
-    if (state.state() != null && Objects.nonNull(aggregateConfiguration.snapshotThreshold())) {
-      final var shouldSnapshot = resultingEvents.stream().anyMatch(event -> isShouldSnapshot(aggregateConfiguration.snapshotThreshold(), event.eventVersion()));
-      if (shouldSnapshot) {
-        final var snapshotEvent = new SnapshotEvent(
-          JsonObject.mapFrom(state.state()).getMap(),
-          state.knownCommands().stream().toList(),
-          state.currentVersion()
-        );
-        LOGGER.debug("Appending a snapshot {}", JsonObject.mapFrom(snapshotEvent).encodePrettily());
-        resultingEvents.add(new io.es4j.infrastructure.models.Event(
-          finalCommand.aggregateId(),
-          "snapshot",
-          resultingEvents.stream().map(io.es4j.infrastructure.models.Event::eventVersion).max(Long::compareTo).orElseThrow() + 1,
-          JsonObject.mapFrom(
-            snapshotEvent),
-          finalCommand.tenant(),
-          finalCommand.uniqueId(),
-          List.of("system-snapshot"),
-          state.state().schemaVersion()
-        ));
-      }
-    }
+  /**
+   * Inline snapshots are only written when the {@link AdaptiveSnapshotter} is disabled,
+   * the snapshot is taken after the command events have been applied.
+   */
+  private boolean inlineSnapshotDue(AggregateState<T> state, List<io.es4j.infrastructure.models.Event> resultingEvents) {
+    return !snapshotter.enabled() && state.state() != null && Objects.nonNull(aggregateConfiguration.snapshotThreshold())
+      && resultingEvents.stream().anyMatch(event -> isShouldSnapshot(aggregateConfiguration.snapshotThreshold(), event.eventVersion()));
+  }
+
+  /**
+   * Without a snapshot store the snapshot is appended to the journal together with the command events.
+   */
+  private void addOptionalSnapshot(AggregateState<T> state, Command finalCommand, String commandId, List<io.es4j.infrastructure.models.Event> resultingEvents) {
+    final var snapshot = snapshotEvent(state, finalCommand, commandId);
+    resultingEvents.add(snapshot);
+    state.setCurrentVersion(snapshot.eventVersion())
+      .setLastSnapshotVersion(snapshot.eventVersion());
+  }
+
+  private Uni<AggregateState<T>> storeSnapshot(AggregateState<T> state) {
+    final var snapshot = new AggregateSnapshot(
+      state.state().aggregateId(),
+      state.state().tenant(),
+      state.currentVersion(),
+      state.currentJournalOffset(),
+      state.state().schemaVersion(),
+      JsonObject.mapFrom(state.state()),
+      state.knownCommands().encode()
+    );
+    LOGGER.debug("Storing snapshot of {}::{} at version {}", aggregateClass.getSimpleName(), snapshot.aggregateId(), snapshot.version());
+    return infrastructure.snapshotStore().orElseThrow().put(snapshot)
+      .map(avoid -> cacheState(state.setLastSnapshotVersion(snapshot.version())))
+      .onFailure().recoverWithItem(throwable -> {
+          LOGGER.warn("Unable to store snapshot of {}::{}", aggregateClass.getSimpleName(), snapshot.aggregateId(), throwable);
+          return state;
+        }
+      );
+  }
+
+  private io.es4j.infrastructure.models.Event snapshotEvent(AggregateState<T> state, Command command, String commandId) {
+    final var snapshotEvent = new SnapshotEvent(
+      JsonObject.mapFrom(state.state()).getMap(),
+      List.of(),
+      state.currentVersion(),
+      state.knownCommands().encode()
+    );
+    LOGGER.debug("Appending a snapshot {}", JsonObject.mapFrom(snapshotEvent).encodePrettily());
+    return new io.es4j.infrastructure.models.Event(
+      command.aggregateId(),
+      DispatchPlan.SNAPSHOT_EVENT_TYPE,
+      state.currentVersion() + 1,
+      JsonObject.mapFrom(snapshotEvent),
+      command.tenant(),
+      commandId,
+      List.of("system-snapshot"),
+      state.state().schemaVersion()
+    );
   }
 
   public static boolean isShouldSnapshot(int snapshotThreshold, Long currentEvent) {
     return currentEvent % snapshotThreshold == 0;
   }
 
-  private <C extends Command> Uni<AggregateState<T>> processCommand(final AggregateState<T> state, final C command) {
-    checkCommandId(state, command);
-    final var events = applyCommandBehaviour(state, command);
+  private <C extends Command> Uni<ProcessedCommand<T>> processCommand(final AggregateState<T> state, final C command, final String commandId) {
+    checkCommandId(state, commandId);
+    final var events = applyCommandBehaviour(state, command, commandId);
     aggregateEvents(state, events);
+    final var snapshotDue = inlineSnapshotDue(state, events);
+    if (snapshotDue && infrastructure.snapshotStore().isEmpty()) {
+      addOptionalSnapshot(state, command, commandId, events);
+    }
     return appendEvents(state, events)
+      .flatMap(avoid -> snapshotDue && infrastructure.snapshotStore().isPresent() ? storeSnapshot(state) : Uni.createFrom().item(state))
       .map(avoid -> cacheState(state))
+      .invoke(snapshotter::processed)
       .invoke(avoid -> publishToEventStream(state, events))
-      .invoke(avoid -> publishToStateStream(state));
+      .invoke(avoid -> publishToStateStream(state))
+      .map(avoid -> new ProcessedCommand<>(state, events));
+  }
+
+  private record ProcessedCommand<T extends Aggregate>(
+    AggregateState<T> state,
+    List<io.es4j.infrastructure.models.Event> events
+  ) {
   }
 
   private void publishToEventStream(AggregateState<T> state, List<io.es4j.infrastructure.models.Event> events) {
@@ -354,22 +591,36 @@ public class CommandHandler<T extends Aggregate> {
     LOGGER.debug("State update published for {}::{} to address {}", state.aggregateClass().getSimpleName(), state.state().aggregateId(), address);
   }
 
-  private <C extends Command> void checkCommandId(AggregateState<T> state, C command) {
-    if (state.knownCommands() != null && !state.knownCommands().isEmpty()) {
-      state.knownCommands().stream().filter(txId -> txId.equals(command.uniqueId()))
-        .findAny()
-        .ifPresent(duplicatedCommand -> {
-            throw new CommandRejected(new Es4jError(
-              "Command was already processed",
-              "Command was already processed by aggregate",
-              400
-            )
-            );
-          }
-        );
+  /**
+   * Wakes local projections up, appends made on other nodes are signalled by the event store when it supports it.
+   */
+  private void publishToJournalStream(AggregateState<T> state) {
+    final var address = EventbusLiveStreams.journalLiveStream(aggregateClass);
+    try {
+      vertx.eventBus().publish(address, state.currentJournalOffset(), new DeliveryOptions().setLocalOnly(true));
+    } catch (Exception exception) {
+      LOGGER.error("Unable to signal journal append for {}::{} on address {}", aggregateClass.getSimpleName(), state.state().aggregateId(), address);
+    }
+  }
+
+  private void checkCommandId(AggregateState<T> state, String commandId) {
+    if (state.isKnownCommand(commandId)) {
+      throw new CommandRejected(new Es4jError(
+        "Command was already processed",
+        "Command was already processed by aggregate",
+        400
+      )
+      );
     }
   }
 
+  private AggregateState<T> newState() {
+    return new AggregateState<>(
+      aggregateClass,
+      Objects.requireNonNullElse(aggregateConfiguration.commandIdempotencyThreshold(), AggregateState.DEFAULT_KNOWN_COMMANDS)
+    );
+  }
+
   private AggregateState<T> cacheState(AggregateState<T> state) {
     if (state.state() != null) {
       infrastructure.cache().ifPresent(
@@ -407,7 +658,15 @@ public class CommandHandler<T extends Aggregate> {
           )
         )
       )
-      .invoke(avoid -> dumpToSecondaryStore(state, events));
+      .invoke(offsets -> {
+          if (!offsets.isEmpty() && offsets.get(offsets.size() - 1) != null) {
+            state.setCurrentJournalOffset(offsets.get(offsets.size() - 1));
+          }
+        }
+      )
+      .invoke(avoid -> publishToJournalStream(state))
+      .invoke(avoid -> dumpToSecondaryStore(state, events))
+      .replaceWithVoid();
   }
 
   private void dumpToSecondaryStore(AggregateState<T> state, List<io.es4j.infrastructure.models.Event> events) {
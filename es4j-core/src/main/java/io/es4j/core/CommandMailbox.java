@@ -0,0 +1,225 @@
+package io.es4j.core;
+
+import io.es4j.Aggregate;
+import io.es4j.Command;
+import io.es4j.core.exceptions.CommandRejected;
+import io.es4j.core.exceptions.NodeUnavailable;
+import io.es4j.core.objects.CommandReply;
+import io.es4j.core.objects.ErrorSource;
+import io.es4j.core.objects.Es4jError;
+import io.es4j.core.objects.ResponseMode;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.core.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Per aggregate-id mailboxes bound to the event loop of a single aggregate verticle.
+ * <p>
+ * Every verticle of a node registers its mailbox, commands are pinned to a mailbox by hashing
+ * the aggregate id so all commands of an aggregate run on the same event loop. Inside a mailbox
+ * commands of the same aggregate are applied strictly one after the other on the cached state,
+ * concurrent appends are only possible across nodes while the hash ring is rebalancing.
+ * <p>
+ * While an aggregate has commands outstanding it stays claimed by the mailbox they were routed to, commands
+ * dispatched meanwhile follow them even if mailboxes are registered or unregistered, the hash only decides for idle
+ * aggregates. Queues are bounded, commands over capacity and commands whose requester already gave up are failed
+ * instead of processed, and queued commands are failed when the mailbox is closed.
+ *
+ * @param <T> the aggregate handled by the mailbox
+ */
+public class CommandMailbox<T extends Aggregate> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CommandMailbox.class);
+  public static final int DEFAULT_CAPACITY = 1000;
+  private static final Map<Class<? extends Aggregate>, List<CommandMailbox<?>>> NODE_MAILBOXES = new ConcurrentHashMap<>();
+  private static final Map<String, Claim> CLAIMS = new ConcurrentHashMap<>();
+
+  private final Context context;
+  private final CommandHandler<T> commandHandler;
+  private final int capacity;
+  private final Map<String, Deque<PendingCommand>> mailboxes = new HashMap<>();
+  private boolean closed = false;
+
+  public CommandMailbox(Context context, CommandHandler<T> commandHandler) {
+    this(context, commandHandler, DEFAULT_CAPACITY);
+  }
+
+  public CommandMailbox(Context context, CommandHandler<T> commandHandler, int capacity) {
+    this.context = context;
+    this.commandHandler = commandHandler;
+    this.capacity = capacity;
+  }
+
+  public static void register(Class<? extends Aggregate> aggregateClass, CommandMailbox<?> mailbox) {
+    NODE_MAILBOXES.computeIfAbsent(aggregateClass, aClass -> new CopyOnWriteArrayList<>()).add(mailbox);
+  }
+
+  /**
+   * Takes the mailbox out of routing and fails the commands still queued in it, the command being processed
+   * completes normally.
+   */
+  public static void unregister(Class<? extends Aggregate> aggregateClass, CommandMailbox<?> mailbox) {
+    NODE_MAILBOXES.computeIfPresent(aggregateClass, (aClass, mailboxList) -> {
+        mailboxList.remove(mailbox);
+        return mailboxList.isEmpty() ? null : mailboxList;
+      }
+    );
+    mailbox.context.runOnContext(avoid -> mailbox.close());
+  }
+
+  public static Uni<CommandReply> dispatch(Class<? extends Aggregate> aggregateClass, Command command, String commandId, ResponseMode responseMode) {
+    return dispatch(aggregateClass, command, commandId, responseMode, null);
+  }
+
+  /**
+   * Enqueues the command in the mailbox of its aggregate, the returned uni is completed on the
+   * mailbox event loop once the command has been processed. Commands still queued once the timeout
+   * elapsed are failed without being processed.
+   */
+  public static Uni<CommandReply> dispatch(Class<? extends Aggregate> aggregateClass, Command command, String commandId, ResponseMode responseMode, Duration timeout) {
+    return Uni.createFrom().emitter(emitter -> {
+        final var claimKey = aggregateClass.getName() + "::" + mailboxKey(command);
+        final CommandMailbox<?> mailbox;
+        try {
+          mailbox = claim(aggregateClass, claimKey, command);
+        } catch (NodeUnavailable nodeUnavailable) {
+          emitter.fail(nodeUnavailable);
+          return;
+        }
+        final var deadline = timeout == null ? Long.MAX_VALUE : System.currentTimeMillis() + timeout.toMillis();
+        final var pendingCommand = new PendingCommand(command, commandId, responseMode, deadline, claimKey, emitter);
+        mailbox.context.runOnContext(avoid -> mailbox.enqueue(pendingCommand));
+      }
+    );
+  }
+
+  private static CommandMailbox<?> claim(Class<? extends Aggregate> aggregateClass, String claimKey, Command command) {
+    return CLAIMS.compute(claimKey, (key, claim) -> {
+        if (claim != null) {
+          claim.outstanding++;
+          return claim;
+        }
+        final var mailboxList = NODE_MAILBOXES.get(aggregateClass);
+        if (mailboxList == null || mailboxList.isEmpty()) {
+          throw new NodeUnavailable(command.aggregateId());
+        }
+        return new Claim(mailboxList.get(Math.floorMod(mailboxKey(command).hashCode(), mailboxList.size())));
+      }
+    ).mailbox;
+  }
+
+  private static void release(String claimKey) {
+    CLAIMS.computeIfPresent(claimKey, (key, claim) -> --claim.outstanding == 0 ? null : claim);
+  }
+
+  private void enqueue(PendingCommand pendingCommand) {
+    if (closed) {
+      fail(pendingCommand, new NodeUnavailable(pendingCommand.command().aggregateId()));
+      return;
+    }
+    final var key = mailboxKey(pendingCommand.command());
+    final var mailbox = mailboxes.get(key);
+    if (mailbox == null) {
+      mailboxes.put(key, new ArrayDeque<>());
+      process(key, pendingCommand);
+    } else if (mailbox.size() >= capacity) {
+      LOGGER.warn("Mailbox of {} is full, rejecting {}", key, pendingCommand.command().getClass().getSimpleName());
+      fail(pendingCommand, rejected("Aggregate mailbox is full", "Too many commands queued for " + key, 429));
+    } else {
+      LOGGER.debug("Aggregate {} busy, queueing command {} behind {} others", key, pendingCommand.command().getClass().getSimpleName(), mailbox.size());
+      mailbox.add(pendingCommand);
+    }
+  }
+
+  private void process(String key, PendingCommand pendingCommand) {
+    if (System.currentTimeMillis() > pendingCommand.deadline()) {
+      LOGGER.debug("Dropping {} for {}, its requester timed out", pendingCommand.command().getClass().getSimpleName(), key);
+      fail(pendingCommand, rejected("Command timed out", "Command expired while queued for " + key, 408));
+      context.runOnContext(avoid -> next(key));
+      return;
+    }
+    Uni<CommandReply> processing;
+    try {
+      processing = commandHandler.process(pendingCommand.command(), pendingCommand.commandId(), pendingCommand.responseMode());
+    } catch (Exception exception) {
+      processing = Uni.createFrom().failure(exception);
+    }
+    processing.subscribe()
+      .with(
+        result -> {
+          release(pendingCommand.claimKey());
+          pendingCommand.emitter().complete(result);
+          context.runOnContext(avoid -> next(key));
+        },
+        throwable -> {
+          fail(pendingCommand, throwable);
+          context.runOnContext(avoid -> next(key));
+        }
+      );
+  }
+
+  private void next(String key) {
+    final var mailbox = mailboxes.get(key);
+    if (mailbox == null) {
+      return;
+    }
+    final var pendingCommand = mailbox.poll();
+    if (pendingCommand == null) {
+      mailboxes.remove(key);
+    } else {
+      process(key, pendingCommand);
+    }
+  }
+
+  private void close() {
+    closed = true;
+    mailboxes.forEach((key, mailbox) -> {
+        if (!mailbox.isEmpty()) {
+          LOGGER.info("Failing {} commands queued for {}, mailbox closed", mailbox.size(), key);
+        }
+        mailbox.forEach(pendingCommand -> fail(pendingCommand, new NodeUnavailable(pendingCommand.command().aggregateId())));
+        mailbox.clear();
+      }
+    );
+  }
+
+  private static void fail(PendingCommand pendingCommand, Throwable throwable) {
+    release(pendingCommand.claimKey());
+    pendingCommand.emitter().fail(throwable);
+  }
+
+  private static CommandRejected rejected(String cause, String hint, int code) {
+    return new CommandRejected(new Es4jError(ErrorSource.INFRASTRUCTURE, CommandMailbox.class.getName(), cause, hint, String.valueOf(code), code));
+  }
+
+  private static String mailboxKey(Command command) {
+    return command.tenant() + "::" + command.aggregateId();
+  }
+
+  private static final class Claim {
+    private final CommandMailbox<?> mailbox;
+    private int outstanding = 1;
+
+    private Claim(CommandMailbox<?> mailbox) {
+      this.mailbox = mailbox;
+    }
+  }
+
+  private record PendingCommand(
+    Command command,
+    String commandId,
+    ResponseMode responseMode,
+    long deadline,
+    String claimKey,
+    UniEmitter<? super CommandReply> emitter
+  ) {
+  }
+
+}
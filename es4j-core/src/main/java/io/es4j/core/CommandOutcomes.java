@@ -0,0 +1,72 @@
+package io.es4j.core;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.es4j.Command;
+import io.es4j.core.objects.CommandState;
+import io.es4j.core.objects.CommandStatus;
+import io.es4j.core.objects.Es4jError;
+import io.es4j.infrastructure.EventStore;
+import io.es4j.infrastructure.models.EventStreamBuilder;
+import io.smallrye.mutiny.Uni;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcomes of commands submitted without waiting for a reply, kept in memory on the node owning the aggregate.
+ * <p>
+ * Submissions are best effort, a command is acknowledged once it is queued in the mailbox and nothing is persisted
+ * before it is processed, a node going down loses the commands it queued. Entries are bounded and expire, the only
+ * durable outcome is a processed command, which is found in the journal through the command id on its events.
+ * Rejections and commands that emitted no event are reported as unknown once their entry is gone.
+ */
+public class CommandOutcomes {
+
+  private CommandOutcomes() {
+  }
+
+  private static final Cache<String, CommandStatus> OUTCOMES = Caffeine.newBuilder()
+    .maximumSize(100_000)
+    .expireAfterWrite(Duration.ofMinutes(10))
+    .build();
+
+  public static void accepted(String commandId, Command command) {
+    OUTCOMES.put(key(commandId, command.tenant()), new CommandStatus(commandId, command.aggregateId(), command.tenant(), CommandState.ACCEPTED, null));
+  }
+
+  public static void processed(String commandId, Command command) {
+    OUTCOMES.put(key(commandId, command.tenant()), new CommandStatus(commandId, command.aggregateId(), command.tenant(), CommandState.PROCESSED, null));
+  }
+
+  public static void rejected(String commandId, Command command, Es4jError error) {
+    OUTCOMES.put(key(commandId, command.tenant()), new CommandStatus(commandId, command.aggregateId(), command.tenant(), CommandState.REJECTED, error));
+  }
+
+  public static CommandStatus get(String commandId, String aggregateId, String tenant) {
+    final var status = OUTCOMES.getIfPresent(key(commandId, tenant));
+    return status != null ? status : CommandStatus.unknown(commandId, aggregateId, tenant);
+  }
+
+  /**
+   * Falls back to the journal once the entry is gone, or was never on this node.
+   */
+  public static Uni<CommandStatus> get(EventStore eventStore, String commandId, String aggregateId, String tenant) {
+    final var status = get(commandId, aggregateId, tenant);
+    if (status.state() != CommandState.UNKNOWN) {
+      return Uni.createFrom().item(status);
+    }
+    return eventStore.fetch(EventStreamBuilder.builder()
+        .aggregateIds(List.of(aggregateId))
+        .tenantId(tenant)
+        .commandIds(List.of(commandId))
+        .batchSize(1)
+        .build()
+      )
+      .map(events -> events.isEmpty() ? status : new CommandStatus(commandId, aggregateId, tenant, CommandState.PROCESSED, null));
+  }
+
+  private static String key(String commandId, String tenant) {
+    return tenant + "::" + commandId;
+  }
+}
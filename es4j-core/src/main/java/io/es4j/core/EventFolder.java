@@ -0,0 +1,65 @@
+package io.es4j.core;
+
+import io.es4j.Aggregate;
+import io.es4j.Event;
+import io.es4j.core.objects.AggregateState;
+import io.es4j.core.objects.DispatchPlan;
+import io.es4j.core.objects.SnapshotEvent;
+import io.es4j.infrastructure.misc.EventParser;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Folds journal events onto an aggregate state with the aggregators of a {@link DispatchPlan}, snapshots replace the
+ * state altogether. Shared by command handling and state projections so both rebuild aggregates the same way.
+ */
+public class EventFolder<T extends Aggregate> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EventFolder.class);
+  private final DispatchPlan<T> dispatchPlan;
+
+  public EventFolder(DispatchPlan<T> dispatchPlan) {
+    this.dispatchPlan = dispatchPlan;
+  }
+
+  public void apply(final AggregateState<T> state, final io.es4j.infrastructure.models.Event event) {
+    LOGGER.debug("Aggregating event {} ", event);
+    if (event.eventType().equals(DispatchPlan.SNAPSHOT_EVENT_TYPE)) {
+      final var snapshot = event.event().mapTo(SnapshotEvent.class);
+      snapshot.restoreKnownCommands(state.knownCommands());
+      state.setState(JsonObject.mapFrom(snapshot.state()).mapTo(state.aggregateClass()))
+        .setLastSnapshotVersion(event.eventVersion())
+        .setCurrentVersion(event.eventVersion())
+        .setCurrentJournalOffset(event.journalOffset());
+    } else {
+      final var aggregator = dispatchPlan.aggregator(event.eventType());
+      final var parsedEvent = EventParser.getEvent(aggregator.eventClass(), event.event());
+      final var newState = aggregate(state.state(), parsedEvent, event.schemaVersion());
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("State after aggregation {} ", JsonObject.mapFrom(newState).encodePrettily());
+      }
+      state.setState(newState)
+        .addKnownCommand(event.commandId())
+        .setCurrentJournalOffset(event.journalOffset())
+        .setCurrentVersion(event.eventVersion());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public T aggregate(T aggregateState, final Event event, Integer eventSchemaVersion) {
+    Event finalEvent = event;
+    final var aggregator = dispatchPlan.aggregator(event);
+    LOGGER.debug("Applying {} schema versionTo {} ", aggregator.delegate().getClass().getSimpleName(), aggregator.delegate().schemaVersion());
+    if (aggregator.delegate().schemaVersion() != eventSchemaVersion) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("Schema versionTo mismatch, migrating event {} {} ", event.getClass().getName(), JsonObject.mapFrom(event).encodePrettily());
+      }
+      finalEvent = aggregator.delegate().migrate(eventSchemaVersion, JsonObject.mapFrom(event));
+    }
+    final var newAggregateState = (T) aggregator.delegate().apply(aggregateState, finalEvent);
+    LOGGER.debug("State after aggregation {}", newAggregateState);
+    return newAggregateState;
+  }
+
+}
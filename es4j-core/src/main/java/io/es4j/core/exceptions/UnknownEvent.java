@@ -14,4 +14,8 @@ public class UnknownEvent extends Es4jException {
     return new UnknownEvent(new Es4jError("Event Behaviour not found", event.getClass().getSimpleName() + " has not behaviour bind %s".formatted(event), 400));
   }
 
+  public static UnknownEvent unknown(String eventType) {
+    return new UnknownEvent(new Es4jError("Event Behaviour not found", "Aggregator not found for event type -> " + eventType, 400));
+  }
+
 }
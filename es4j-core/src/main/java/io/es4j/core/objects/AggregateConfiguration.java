@@ -1,12 +1,32 @@
 package io.es4j.core.objects;
 
 
+import io.soabase.recordbuilder.core.RecordBuilder;
+
 import java.time.Duration;
 
+@RecordBuilder
 public record AggregateConfiguration(
   Duration cacheTtl,
   Integer snapshotThreshold,
-  Integer commandIdempotencyThreshold
+  Integer commandIdempotencyThreshold,
+  Duration appendBatchWindow,
+  Integer appendBatchSize,
+  Duration snapshotReplayBudget,
+  Duration snapshotInterval,
+  Long cacheMaxWeight,
+  Long offHeapCacheSize,
+  Integer mailboxCapacity
 ) {
 
+  public static final long DEFAULT_CACHE_MAX_WEIGHT = 256L * 1024 * 1024;
+
+  /**
+   * Snapshots stay inline every {@code snapshotThreshold} events, the adaptive snapshotter is opted in by setting both
+   * {@link #snapshotReplayBudget()} and {@link #snapshotInterval()}.
+   */
+  public AggregateConfiguration(Duration cacheTtl, Integer snapshotThreshold, Integer commandIdempotencyThreshold) {
+    this(cacheTtl, snapshotThreshold, commandIdempotencyThreshold, Duration.ZERO, 1, null, null, DEFAULT_CACHE_MAX_WEIGHT, 0L, 1000);
+  }
+
 }
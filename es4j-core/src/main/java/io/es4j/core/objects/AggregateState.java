@@ -1,27 +1,44 @@
 package io.es4j.core.objects;
 
 
-import com.google.common.collect.EvictingQueue;
 import io.vertx.core.json.JsonObject;
 import io.es4j.Aggregate;
 
-import io.vertx.core.shareddata.Shareable;
-
 import java.util.List;
+import java.util.Objects;
 
-public class AggregateState<T extends Aggregate> implements Shareable {
+public class AggregateState<T extends Aggregate> implements CommandReply {
 
   private final Class<T> aggregateClass;
   private T state = null;
-  private final EvictingQueue<String> knownCommands = EvictingQueue.create(100);
+  public static final int DEFAULT_KNOWN_COMMANDS = 100;
+  private final CommandIdWindow knownCommands;
   private Long currentVersion = null;
 
   private Long currentJournalOffset = 0L;
+  private Long lastSnapshotVersion = 0L;
+  private long measuredSize = -1;
+  private long measuredVersion = 0L;
 
   public AggregateState(
     Class<T> aggregateClass
+  ) {
+    this(aggregateClass, DEFAULT_KNOWN_COMMANDS);
+  }
+
+  public AggregateState(
+    Class<T> aggregateClass,
+    int knownCommandsWindow
+  ) {
+    this(aggregateClass, new CommandIdWindow(knownCommandsWindow));
+  }
+
+  private AggregateState(
+    Class<T> aggregateClass,
+    CommandIdWindow knownCommands
   ) {
     this.aggregateClass = aggregateClass;
+    this.knownCommands = knownCommands;
   }
 
 
@@ -48,21 +65,36 @@ public class AggregateState<T extends Aggregate> implements Shareable {
     return this;
   }
 
-  public EvictingQueue<String> knownCommands() {
+  public CommandIdWindow knownCommands() {
     return knownCommands;
   }
 
+  public Long lastSnapshotVersion() {
+    return lastSnapshotVersion;
+  }
+
+  public AggregateState<T> setLastSnapshotVersion(Long lastSnapshotVersion) {
+    this.lastSnapshotVersion = lastSnapshotVersion;
+    return this;
+  }
+
+  public long eventsSinceSnapshot() {
+    return Objects.requireNonNullElse(currentVersion, 0L) - Objects.requireNonNullElse(lastSnapshotVersion, 0L);
+  }
+
+  public boolean isKnownCommand(String commandId) {
+    return knownCommands.contains(commandId);
+  }
+
   public AggregateState<T> addKnownCommand(String commandId) {
-    if (!knownCommands.contains(commandId)) {
-      knownCommands.add(commandId);
-    }
+    knownCommands.add(commandId);
     return this;
   }
 
   public AggregateState<T> addKnownCommands(List<String> commandIds) {
-    commandIds.stream()
-      .filter(cmd -> !knownCommands.contains(cmd))
-      .forEach(knownCommands::add);
+    if (commandIds != null) {
+      commandIds.forEach(knownCommands::add);
+    }
     return this;
   }
 
@@ -83,6 +115,46 @@ public class AggregateState<T extends Aggregate> implements Shareable {
     return this;
   }
 
+  /**
+   * Shallow copy handed to local consumers, aggregates are immutable but the holder is updated in place by its command handler.
+   */
+  public AggregateState<T> copy() {
+    return new AggregateState<>(aggregateClass)
+      .setState(state)
+      .setCurrentVersion(currentVersion)
+      .setCurrentJournalOffset(currentJournalOffset);
+  }
+
+  /**
+   * Full copy including the command id window, commands are applied to a fork so a failed append
+   * leaves the cached state as it was.
+   */
+  public AggregateState<T> fork() {
+    return new AggregateState<>(aggregateClass, knownCommands.copy())
+      .setState(state)
+      .setCurrentVersion(currentVersion)
+      .setCurrentJournalOffset(currentJournalOffset)
+      .setLastSnapshotVersion(lastSnapshotVersion)
+      .setMeasuredSize(measuredSize, measuredVersion);
+  }
+
+  /**
+   * Serialized size of the aggregate as last measured by the cache, -1 until measured.
+   */
+  public long measuredSize() {
+    return measuredSize;
+  }
+
+  public long measuredVersion() {
+    return measuredVersion;
+  }
+
+  public AggregateState<T> setMeasuredSize(long measuredSize, long measuredVersion) {
+    this.measuredSize = measuredSize;
+    this.measuredVersion = measuredVersion;
+    return this;
+  }
+
   public JsonObject toJson() {
     try {
       return new JsonObject()
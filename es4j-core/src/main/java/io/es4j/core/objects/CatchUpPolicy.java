@@ -0,0 +1,22 @@
+package io.es4j.core.objects;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+/**
+ * How a projection that fell behind the journal catches up.
+ * <p>
+ * Ranges of {@code batchSize} events are read ahead while the previous one is applied, decoded by {@code decoders}
+ * worker threads and applied as {@code parallelism} concurrent slices split on the aggregate id, events of an
+ * aggregate always go to the same slice. A batch size no larger than the live batch keeps the projection in live mode.
+ */
+@RecordBuilder
+public record CatchUpPolicy(
+  Integer batchSize,
+  Integer decoders,
+  Integer parallelism
+) {
+
+  public static CatchUpPolicy defaults() {
+    return new CatchUpPolicy(10_000, null, 1);
+  }
+}
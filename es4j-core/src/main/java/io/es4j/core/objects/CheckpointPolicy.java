@@ -0,0 +1,27 @@
+package io.es4j.core.objects;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+import java.time.Duration;
+
+/**
+ * How often a projection stores its offset while catching up, the offset is written once either bound is reached and
+ * always when the projection is caught up. Without bounds the offset is written after every batch.
+ */
+@RecordBuilder
+public record CheckpointPolicy(
+  Integer events,
+  Duration interval
+) {
+
+  public static CheckpointPolicy everyBatch() {
+    return new CheckpointPolicy(null, null);
+  }
+
+  public boolean due(long pendingEvents, long pendingMillis) {
+    if (events == null && interval == null) {
+      return true;
+    }
+    return (events != null && pendingEvents >= events) || (interval != null && pendingMillis >= interval.toMillis());
+  }
+}
@@ -0,0 +1,15 @@
+package io.es4j.core.objects;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+import java.util.List;
+
+@RecordBuilder
+public record CommandAck(
+  String aggregateId,
+  String tenant,
+  Long version,
+  Long journalOffset,
+  List<String> eventTypes
+) implements CommandReply {
+}
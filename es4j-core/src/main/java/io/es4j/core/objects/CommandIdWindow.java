@@ -0,0 +1,206 @@
+package io.es4j.core.objects;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Sliding window over the last command ids processed by an aggregate.
+ * <p>
+ * Ids are kept as 128-bit values in a ring, UUIDs are stored as is and any other id is reduced with murmur3.
+ * Membership goes through an open addressing table that points into the ring, so lookups and inserts are
+ * constant time regardless of the window size. Storage grows with the ids seen up to the window capacity,
+ * once full the oldest id is evicted. The window serializes to a compact base64 string for snapshots.
+ */
+public class CommandIdWindow {
+
+  private static final long[] NO_IDS = new long[0];
+  private static final int[] NO_SLOTS = new int[0];
+  private static final int INITIAL_LENGTH = 8;
+
+  private final int capacity;
+  // two longs per id, most significant bits first
+  private long[] ring = NO_IDS;
+  // ring position + 1, 0 marks an empty slot
+  private int[] slots = NO_SLOTS;
+  private int size = 0;
+  private int head = 0;
+
+  public CommandIdWindow(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Command id window capacity must be positive");
+    }
+    this.capacity = capacity;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean contains(String commandId) {
+    if (commandId == null || size == 0) {
+      return false;
+    }
+    final var id = toBits(commandId);
+    return find(id[0], id[1]) >= 0;
+  }
+
+  /**
+   * @return false if the id was already part of the window
+   */
+  public boolean add(String commandId) {
+    if (commandId == null) {
+      return false;
+    }
+    final var id = toBits(commandId);
+    return add(id[0], id[1]);
+  }
+
+  public CommandIdWindow copy() {
+    final var copy = new CommandIdWindow(capacity);
+    copy.ring = ring.length == 0 ? NO_IDS : ring.clone();
+    copy.slots = slots.length == 0 ? NO_SLOTS : slots.clone();
+    copy.size = size;
+    copy.head = head;
+    return copy;
+  }
+
+  public void clear() {
+    ring = NO_IDS;
+    slots = NO_SLOTS;
+    size = 0;
+    head = 0;
+  }
+
+  public String encode() {
+    final var buffer = ByteBuffer.allocate(size * 16);
+    final var length = ring.length / 2;
+    final var oldest = size < length ? 0 : head;
+    for (int i = 0; i < size; i++) {
+      final var position = (oldest + i) % length;
+      buffer.putLong(ring[position * 2]).putLong(ring[position * 2 + 1]);
+    }
+    return Base64.getEncoder().encodeToString(buffer.array());
+  }
+
+  public CommandIdWindow decode(String encoded) {
+    if (encoded == null || encoded.isEmpty()) {
+      return this;
+    }
+    final var buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+    while (buffer.remaining() >= 16) {
+      add(buffer.getLong(), buffer.getLong());
+    }
+    return this;
+  }
+
+  private boolean add(long most, long least) {
+    if (size > 0 && find(most, least) >= 0) {
+      return false;
+    }
+    final var length = ring.length / 2;
+    if (size == length) {
+      if (length < capacity) {
+        grow();
+      } else {
+        // full at capacity, head points to the oldest id
+        removeSlot(head);
+        size--;
+      }
+    }
+    ring[head * 2] = most;
+    ring[head * 2 + 1] = least;
+    insertSlot(head);
+    head = (head + 1) % (ring.length / 2);
+    size++;
+    return true;
+  }
+
+  private void grow() {
+    // the ring never wraps before reaching capacity, ids are already in insertion order
+    final var length = Math.min(capacity, Math.max(INITIAL_LENGTH, ring.length));
+    ring = Arrays.copyOf(ring, length * 2);
+    slots = new int[Integer.highestOneBit(Math.max(1, length * 2 - 1)) << 1];
+    for (int position = 0; position < size; position++) {
+      insertSlot(position);
+    }
+    head = size;
+  }
+
+  private int find(long most, long least) {
+    final var mask = slots.length - 1;
+    var slot = hash(most, least) & mask;
+    while (slots[slot] != 0) {
+      final var position = slots[slot] - 1;
+      if (ring[position * 2] == most && ring[position * 2 + 1] == least) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void insertSlot(int position) {
+    final var mask = slots.length - 1;
+    var slot = hash(ring[position * 2], ring[position * 2 + 1]) & mask;
+    while (slots[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    slots[slot] = position + 1;
+  }
+
+  private void removeSlot(int position) {
+    final var mask = slots.length - 1;
+    var hole = find(ring[position * 2], ring[position * 2 + 1]);
+    if (hole < 0) {
+      return;
+    }
+    // backward shift deletion keeps every probe sequence intact without tombstones
+    var next = hole;
+    while (true) {
+      next = (next + 1) & mask;
+      if (slots[next] == 0) {
+        slots[hole] = 0;
+        return;
+      }
+      final var entry = slots[next] - 1;
+      final var home = hash(ring[entry * 2], ring[entry * 2 + 1]) & mask;
+      final var stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+      if (!stays) {
+        slots[hole] = slots[next];
+        hole = next;
+      }
+    }
+  }
+
+  private static int hash(long most, long least) {
+    final var mixed = (most ^ least) * 0x9E3779B97F4A7C15L;
+    return (int) (mixed ^ (mixed >>> 32));
+  }
+
+  private static long[] toBits(String commandId) {
+    if (commandId.length() == 36) {
+      try {
+        final var uuid = UUID.fromString(commandId);
+        return new long[]{uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()};
+      } catch (IllegalArgumentException notUuid) {
+        // fall through to hashing
+      }
+    }
+    final var bytes = ByteBuffer.wrap(Hashing.murmur3_128().hashString(commandId, StandardCharsets.UTF_8).asBytes());
+    return new long[]{bytes.getLong(), bytes.getLong()};
+  }
+
+}
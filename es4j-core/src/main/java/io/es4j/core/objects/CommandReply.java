@@ -0,0 +1,9 @@
+package io.es4j.core.objects;
+
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Reply sent back by an aggregate once a command has been processed, either the {@link AggregateState} or a {@link CommandAck}.
+ */
+public interface CommandReply extends Shareable {
+}
@@ -0,0 +1,8 @@
+package io.es4j.core.objects;
+
+public enum CommandState {
+  ACCEPTED,
+  PROCESSED,
+  REJECTED,
+  UNKNOWN
+}
@@ -0,0 +1,17 @@
+package io.es4j.core.objects;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+@RecordBuilder
+public record CommandStatus(
+  String commandId,
+  String aggregateId,
+  String tenant,
+  CommandState state,
+  Es4jError error
+) {
+
+  public static CommandStatus unknown(String commandId, String aggregateId, String tenant) {
+    return new CommandStatus(commandId, aggregateId, tenant, CommandState.UNKNOWN, null);
+  }
+}
@@ -0,0 +1,137 @@
+package io.es4j.core.objects;
+
+import io.es4j.Aggregate;
+import io.es4j.Command;
+import io.es4j.Event;
+import io.es4j.core.exceptions.UnknownCommand;
+import io.es4j.core.exceptions.UnknownEvent;
+
+import java.util.*;
+
+/**
+ * Routing table for the behaviours and aggregators of a single aggregate class.
+ * The table is compiled once when the aggregate verticle loads its behaviours and aggregators,
+ * lookups are constant time and never fall back to comparing class names.
+ *
+ * @param <T> the aggregate the table belongs to
+ */
+public class DispatchPlan<T extends Aggregate> {
+
+  public static final String SNAPSHOT_EVENT_TYPE = "snapshot";
+
+  private final Class<T> aggregateClass;
+  private final Map<Class<?>, BehaviourWrap> behavioursByCommand;
+  private final Map<Class<?>, AggregatorWrap> aggregatorsByEvent;
+  private final Map<String, AggregatorWrap> aggregatorsByType;
+
+  private DispatchPlan(
+    Class<T> aggregateClass,
+    Map<Class<?>, BehaviourWrap> behavioursByCommand,
+    Map<Class<?>, AggregatorWrap> aggregatorsByEvent,
+    Map<String, AggregatorWrap> aggregatorsByType
+  ) {
+    this.aggregateClass = aggregateClass;
+    this.behavioursByCommand = behavioursByCommand;
+    this.aggregatorsByEvent = aggregatorsByEvent;
+    this.aggregatorsByType = aggregatorsByType;
+  }
+
+  public static <T extends Aggregate> DispatchPlan<T> compile(
+    Class<T> aggregateClass,
+    List<AggregatorWrap> aggregatorWraps,
+    List<BehaviourWrap> behaviourWraps
+  ) {
+    if (behaviourWraps.isEmpty()) {
+      throw new IllegalStateException("Empty behaviours for " + aggregateClass.getSimpleName());
+    }
+    if (aggregatorWraps.isEmpty()) {
+      throw new IllegalStateException("Empty aggregators for " + aggregateClass.getSimpleName());
+    }
+    final var behavioursByCommand = new IdentityHashMap<Class<?>, BehaviourWrap>(behaviourWraps.size());
+    behaviourWraps.forEach(behaviourWrap -> {
+        final var previous = behavioursByCommand.put(behaviourWrap.commandClass(), behaviourWrap);
+        if (previous != null) {
+          throw new IllegalStateException("Command %s is bound to more than one behaviour in %s [%s, %s]".formatted(
+            behaviourWrap.commandClass().getName(),
+            aggregateClass.getSimpleName(),
+            previous.delegate().getClass().getName(),
+            behaviourWrap.delegate().getClass().getName()
+          ));
+        }
+      }
+    );
+    final var aggregatorsByEvent = new IdentityHashMap<Class<?>, AggregatorWrap>(aggregatorWraps.size());
+    final var aggregatorsByType = new HashMap<String, AggregatorWrap>(aggregatorWraps.size());
+    aggregatorWraps.forEach(aggregatorWrap -> {
+        final var eventType = aggregatorWrap.delegate().eventType();
+        if (eventType == null || eventType.isBlank()) {
+          throw new IllegalStateException("Aggregator %s must declare an event type".formatted(aggregatorWrap.delegate().getClass().getName()));
+        }
+        if (SNAPSHOT_EVENT_TYPE.equals(eventType)) {
+          throw new IllegalStateException("Event type %s is reserved, used by %s".formatted(SNAPSHOT_EVENT_TYPE, aggregatorWrap.delegate().getClass().getName()));
+        }
+        final var previousType = aggregatorsByType.put(eventType, aggregatorWrap);
+        if (previousType != null) {
+          throw new IllegalStateException("Event type %s is bound to more than one aggregator in %s [%s, %s]".formatted(
+            eventType,
+            aggregateClass.getSimpleName(),
+            previousType.delegate().getClass().getName(),
+            aggregatorWrap.delegate().getClass().getName()
+          ));
+        }
+        final var previousClass = aggregatorsByEvent.put(aggregatorWrap.eventClass(), aggregatorWrap);
+        if (previousClass != null) {
+          throw new IllegalStateException("Event %s is bound to more than one aggregator in %s [%s, %s]".formatted(
+            aggregatorWrap.eventClass().getName(),
+            aggregateClass.getSimpleName(),
+            previousClass.delegate().getClass().getName(),
+            aggregatorWrap.delegate().getClass().getName()
+          ));
+        }
+      }
+    );
+    return new DispatchPlan<>(
+      aggregateClass,
+      Collections.unmodifiableMap(behavioursByCommand),
+      Collections.unmodifiableMap(aggregatorsByEvent),
+      Collections.unmodifiableMap(aggregatorsByType)
+    );
+  }
+
+  public Class<T> aggregateClass() {
+    return aggregateClass;
+  }
+
+  public BehaviourWrap behaviour(Command command) {
+    final var behaviour = behavioursByCommand.get(command.getClass());
+    if (behaviour == null) {
+      throw UnknownCommand.unknown(command.getClass());
+    }
+    return behaviour;
+  }
+
+  public AggregatorWrap aggregator(Event event) {
+    final var aggregator = aggregatorsByEvent.get(event.getClass());
+    if (aggregator != null) {
+      return aggregator;
+    }
+    // events extending a bound event class are rare, they are resolved by assignability
+    return aggregatorsByEvent.values().stream()
+      .filter(wrap -> wrap.eventClass().isAssignableFrom(event.getClass()))
+      .findFirst()
+      .orElseThrow(() -> UnknownEvent.unknown(event));
+  }
+
+  public AggregatorWrap aggregator(String eventType) {
+    final var aggregator = aggregatorsByType.get(eventType);
+    if (aggregator == null) {
+      throw UnknownEvent.unknown(eventType);
+    }
+    return aggregator;
+  }
+
+  public Set<String> eventTypes() {
+    return aggregatorsByType.keySet();
+  }
+
+}
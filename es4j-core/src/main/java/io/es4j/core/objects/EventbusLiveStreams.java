@@ -10,6 +10,7 @@ public class EventbusLiveStreams {
 
   public static final String STATE_STREAM = "state-stream";
   public static final String EVENT_STREAM = "event-stream";
+  public static final String JOURNAL_STREAM = "journal-stream";
 
   public static String stateLiveStream(Class<? extends Aggregate> aggregateClass, String aggregateId, String tenantId) {
     return new StringJoiner("/", "/","")
@@ -29,5 +30,14 @@ public class EventbusLiveStreams {
       .toString();
   }
 
+  /**
+   * Signals appends to the journal of an aggregate, carries the last journal offset written.
+   */
+  public static String journalLiveStream(Class<? extends Aggregate> aggregateClass) {
+    return new StringJoiner("/", "/", "")
+      .add(JOURNAL_STREAM)
+      .add(CommandHandler.camelToKebab(aggregateClass.getSimpleName()))
+      .toString();
+  }
 
 }
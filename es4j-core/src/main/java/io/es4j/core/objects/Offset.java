@@ -25,4 +25,12 @@ public record Offset(
       .orElseThrow();
     return new Offset(consumer, tenantId, eventIdOffset, null, Instant.now(), creationDate);
   }
+
+  /**
+   * The offset is the last journal id consumed, journal reads are inclusive of their offset so the next read
+   * starts one id further.
+   */
+  public Long nextIdOffset() {
+    return idOffSet == null ? null : idOffSet + 1;
+  }
 }
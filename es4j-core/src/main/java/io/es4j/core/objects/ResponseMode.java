@@ -0,0 +1,6 @@
+package io.es4j.core.objects;
+
+public enum ResponseMode {
+  STATE,
+  ACK
+}
@@ -11,7 +11,22 @@ import java.util.Map;
 public record SnapshotEvent(
   Map<String, Object> state,
   List<String> knownCommands,
-  Long currentVersion
+  Long currentVersion,
+  String knownCommandIds
 ) implements Event {
 
+  public SnapshotEvent(Map<String, Object> state, List<String> knownCommands, Long currentVersion) {
+    this(state, knownCommands, currentVersion, null);
+  }
+
+  /**
+   * Snapshots written before the compact window only carry the plain {@link #knownCommands()} list.
+   */
+  public CommandIdWindow restoreKnownCommands(CommandIdWindow window) {
+    window.clear();
+    if (knownCommands != null) {
+      knownCommands.forEach(window::add);
+    }
+    return window.decode(knownCommandIds);
+  }
 }
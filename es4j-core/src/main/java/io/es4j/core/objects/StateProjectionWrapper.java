@@ -5,6 +5,8 @@ import io.es4j.AsyncStateTransfer;
 import io.smallrye.mutiny.Uni;
 import org.slf4j.Logger;
 
+import java.util.List;
+
 public record StateProjectionWrapper<T extends Aggregate>(
   AsyncStateTransfer<T> asyncStateTransfer,
   Class<T> entityAggregateClass,
@@ -13,4 +15,8 @@ public record StateProjectionWrapper<T extends Aggregate>(
   public Uni<Void> update(AggregateState<T> state) {
     return asyncStateTransfer.update(state);
   }
+
+  public Uni<Void> update(List<AggregateState<T>> states) {
+    return asyncStateTransfer.update(states);
+  }
 }
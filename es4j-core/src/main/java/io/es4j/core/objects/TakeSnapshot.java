@@ -0,0 +1,9 @@
+package io.es4j.core.objects;
+
+import io.es4j.Command;
+
+public record TakeSnapshot(
+  String aggregateId,
+  String tenant
+) implements Command {
+}
@@ -1,77 +1,291 @@
 package io.es4j.core.tasks;
 
 
-import io.es4j.core.objects.AggregateEvent;
+import io.es4j.Aggregate;
+import io.es4j.core.objects.EventbusLiveStreams;
 import io.es4j.core.objects.Offset;
 import io.es4j.core.objects.OffsetKey;
 import io.es4j.infrastructure.EventStore;
 import io.es4j.infrastructure.OffsetStore;
-import io.es4j.infrastructure.models.Event;
 import io.es4j.infrastructure.models.EventStreamBuilder;
 import io.es4j.task.CronTask;
 import io.es4j.task.CronTaskConfiguration;
 import io.es4j.task.CronTaskConfigurationBuilder;
 import io.es4j.task.LockLevel;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Context;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.core.eventbus.MessageConsumer;
+import io.vertx.mutiny.core.shareddata.Lock;
 import io.es4j.AsyncProjection;
-import io.es4j.infrastructure.misc.EventParser;
 import io.es4j.infrastructure.models.EventStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 
+/**
+ * Polls the journal on behalf of an {@link AsyncProjection}, every run drains the journal until the projection is caught up.
+ * <p>
+ * Projections in push mode also listen to the journal live stream of their aggregate, appends wake the poller up right
+ * away and the cron tick is only kept as a safety net for signals that got lost. Signals arriving while a drain is
+ * running are coalesced into a single follow-up drain. Drains are run by a {@link ProjectionCatchUp}, a projection
+ * that fell behind, after an offset reset for instance, catches up in large ranges before going back to live batches.
+ * <p>
+ * A sharded projection gets a poller per shard, each one reads only the aggregates hashed into its shard and keeps
+ * its own offset. Shards are leased, the node that gets the lock of a shard keeps it across drains for the
+ * {@link AsyncProjection#leaseDuration()} and then hands it back so shards spread over nodes that joined meanwhile,
+ * nodes without the lease skip the shard without waiting. Every shard is drained on the event loop of a verticle
+ * deployed for it.
+ */
 public class EventProjectionPoller implements CronTask {
   private static final Logger logger = LoggerFactory.getLogger(EventProjectionPoller.class);
+  private static final long PUSH_LOCK_TIMEOUT = 1000L;
+  private static final long LEASE_LOCK_TIMEOUT = 100L;
+  private final Vertx vertx;
+  private final Class<? extends Aggregate> aggregateClass;
   private final AsyncProjection asyncProjection;
   private final EventStore eventStore;
   private final OffsetStore offsetStore;
+  private final int shard;
+  private final int shards;
+  private ShardVerticle shardVerticle;
+  private Lock lease;
+  private long leaseExpiry;
+  private boolean leaseDraining = false;
+  private final ProjectionCatchUp catchUp;
+  private final AtomicBoolean draining = new AtomicBoolean(false);
+  private final AtomicBoolean pending = new AtomicBoolean(false);
+  private MessageConsumer<Long> journalConsumer;
 
   public EventProjectionPoller(
+    Vertx vertx,
+    Class<? extends Aggregate> aggregateClass,
     AsyncProjection asyncProjections,
     EventStore eventStore,
     OffsetStore offsetStore
   ) {
+    this(vertx, aggregateClass, asyncProjections, 0, 1, eventStore, offsetStore);
+  }
+
+  public EventProjectionPoller(
+    Vertx vertx,
+    Class<? extends Aggregate> aggregateClass,
+    AsyncProjection asyncProjections,
+    int shard,
+    int shards,
+    EventStore eventStore,
+    OffsetStore offsetStore
+  ) {
+    this.vertx = vertx;
+    this.aggregateClass = aggregateClass;
     this.asyncProjection = asyncProjections;
+    this.shard = shard;
+    this.shards = shards;
     this.eventStore = eventStore;
     this.offsetStore = offsetStore;
+    this.catchUp = new ProjectionCatchUp(vertx, asyncProjections, eventStore, offsetStore, consumer(), this::streamStatement);
+  }
+
+  /**
+   * Deploys the verticle the shard is drained on, unsharded projections run on the context of the caller.
+   */
+  public Uni<Void> start() {
+    if (shards <= 1 || Objects.nonNull(shardVerticle)) {
+      return Uni.createFrom().voidItem();
+    }
+    final var verticle = new ShardVerticle();
+    return vertx.deployVerticle(verticle)
+      .invoke(deploymentId -> this.shardVerticle = verticle)
+      .replaceWithVoid();
   }
 
   @Override
   public Uni<Void> performTask() {
-    return offsetStore.get(getOffset())
-      .flatMap(journalOffset -> eventStore.fetch(streamStatement(asyncProjection, journalOffset))
-        .flatMap(events -> asyncProjection.apply(parseEvents(events))
-          .flatMap(avoid -> offsetStore.put(journalOffset.updateOffset(events)))
-        )
+    return onShardContext(this::leasedDrain)
+      .onFailure().invoke(throwable -> logger.error("Unable to update projection {}", consumer(), throwable));
+  }
+
+  @Override
+  public String name() {
+    return EventProjectionPoller.class.getName() + "::" + consumer();
+  }
+
+  /**
+   * An unsharded projection keeps the consumer name it always had, shards are suffixed with their position.
+   */
+  private String consumer() {
+    if (shards <= 1) {
+      return asyncProjection.getClass().getName();
+    }
+    return asyncProjection.getClass().getName() + "#" + shard + "/" + shards;
+  }
+
+  private Uni<Void> onShardContext(Supplier<Uni<Void>> task) {
+    if (Objects.isNull(shardVerticle)) {
+      return task.get();
+    }
+    return Uni.createFrom().emitter(emitter -> shardVerticle.context().runOnContext(avoid -> task.get()
+        .subscribe()
+        .with(emitter::complete, emitter::fail)
       )
-      .onFailure().invoke(throwable -> logger.error("Unable to update projection {}", asyncProjection.getClass().getName(), throwable))
+    );
+  }
+
+  public void listen() {
+    if (asyncProjection.pushUpdates() && Objects.isNull(journalConsumer)) {
+      this.journalConsumer = vertx.eventBus().<Long>localConsumer(EventbusLiveStreams.journalLiveStream(aggregateClass))
+        .handler(message -> signal());
+    }
+  }
+
+  public Uni<Void> close() {
+    Uni<Void> closed = Uni.createFrom().voidItem();
+    if (Objects.nonNull(journalConsumer)) {
+      final var consumer = journalConsumer;
+      this.journalConsumer = null;
+      closed = consumer.unregister();
+    }
+    if (Objects.isNull(shardVerticle)) {
+      return closed;
+    }
+    final var verticle = shardVerticle;
+    return closed
+      .flatMap(avoid -> onShardContext(() -> {
+          releaseLease();
+          return Uni.createFrom().voidItem();
+        }
+      ))
+      .invoke(avoid -> this.shardVerticle = null)
+      .flatMap(avoid -> vertx.undeploy(verticle.deploymentID()));
+  }
+
+  private void signal() {
+    if (!draining.compareAndSet(false, true)) {
+      pending.set(true);
+      return;
+    }
+    pending.set(false);
+    final Uni<Void> push = shards > 1 ?
+      onShardContext(this::leasedDrain)
+      : lock().flatMap(lock -> drain().onTermination().invoke(lock::release));
+    push.subscribe()
+      .with(
+        avoid -> drained(),
+        throwable -> {
+          logger.debug("Push update of projection {} skipped", consumer(), throwable);
+          drained();
+        }
+      );
+  }
+
+  private void drained() {
+    draining.set(false);
+    if (pending.getAndSet(false)) {
+      signal();
+    }
+  }
+
+  /**
+   * Push drains share the lock of the cron tick, a projection is still applied by a single poller at a time.
+   */
+  private Uni<Lock> lock() {
+    return switch (configuration().lockLevel()) {
+      case CLUSTER_WIDE -> vertx.sharedData().getLockWithTimeout(name(), PUSH_LOCK_TIMEOUT);
+      case LOCAL -> vertx.sharedData().getLocalLockWithTimeout(name(), PUSH_LOCK_TIMEOUT);
+      case NONE -> Uni.createFrom().item(Lock.newInstance(() -> {
+      }));
+    };
+  }
+
+  /**
+   * Sharded drains run on the shard context under the lease of the shard, a drain already running on this node
+   * makes the next one a no-op.
+   */
+  private Uni<Void> leasedDrain() {
+    if (shards <= 1) {
+      return drain();
+    }
+    if (leaseDraining) {
+      return Uni.createFrom().voidItem();
+    }
+    return lease().flatMap(leased -> {
+        if (!leased) {
+          return Uni.createFrom().voidItem();
+        }
+        leaseDraining = true;
+        return drain().onTermination().invoke(() -> leaseDraining = false);
+      }
+    );
+  }
+
+  private Uni<Boolean> lease() {
+    if (Objects.nonNull(lease)) {
+      if (System.currentTimeMillis() < leaseExpiry) {
+        return Uni.createFrom().item(true);
+      }
+      logger.info("Lease on {} expired, handing it back", consumer());
+      releaseLease();
+      return Uni.createFrom().item(false);
+    }
+    return vertx.sharedData().getLockWithTimeout(name(), LEASE_LOCK_TIMEOUT)
+      .map(lock -> {
+          this.lease = lock;
+          this.leaseExpiry = System.currentTimeMillis() + asyncProjection.leaseDuration().toMillis();
+          logger.info("Leased {}", consumer());
+          return true;
+        }
+      )
+      .onFailure().recoverWithItem(throwable -> {
+          logger.debug("{} is leased by another node", consumer());
+          return false;
+        }
+      );
+  }
+
+  private void releaseLease() {
+    if (Objects.nonNull(lease)) {
+      lease.release();
+      this.lease = null;
+    }
+  }
+
+  private Uni<Void> drain() {
+    return offsetStore.get(getOffset())
+      .flatMap(catchUp::drain)
       .replaceWithVoid();
   }
 
   private OffsetKey getOffset() {
-    return new OffsetKey(asyncProjection.getClass().getName(), "default");
+    return new OffsetKey(consumer(), "default");
   }
 
-  private static EventStream streamStatement(AsyncProjection asyncProjection, Offset offset) {
+  private EventStream streamStatement(Offset offset, Integer batchSize) {
     AtomicReference<EventStream> eventStream = new AtomicReference<>();
     asyncProjection.filter().ifPresentOrElse(
       filter -> eventStream.set(
         EventStreamBuilder.builder()
           .eventTypes(filter.eventTypes())
           .tenantId(filter.tenant())
-          .offset(offset.idOffSet())
-          .batchSize(1000)
+          .offset(offset.nextIdOffset())
+          .batchSize(batchSize)
           .tags(filter.tags())
+          .shard(shards > 1 ? shard : null)
+          .shards(shards > 1 ? shards : null)
           .build()
       ),
       () -> eventStream.set(
         EventStreamBuilder.builder()
-          .offset(offset.idOffSet())
-          .batchSize(1000)
+          .offset(offset.nextIdOffset())
+          .batchSize(batchSize)
+          .shard(shards > 1 ? shard : null)
+          .shards(shards > 1 ? shards : null)
           .build()
       )
     );
@@ -79,25 +293,23 @@ public class EventProjectionPoller implements CronTask {
   }
 
 
-  private List<AggregateEvent> parseEvents(List<Event> events) {
-    return events.stream()
-      .map(event -> new AggregateEvent(
-          event.aggregateId(),
-          event.tenantId(),
-          event.journalOffset(),
-          event.eventVersion(),
-          EventParser.getEvent(event.eventType(), event.event())
-        )
-      )
-      .toList();
-  }
-
+  /**
+   * Shards take their lease themselves, the cron tick only locks unsharded projections.
+   */
   @Override
   public CronTaskConfiguration configuration() {
     return CronTaskConfigurationBuilder.builder()
-      .lockLevel(LockLevel.CLUSTER_WIDE)
+      .lockLevel(shards > 1 ? LockLevel.NONE : LockLevel.CLUSTER_WIDE)
       .cron(asyncProjection.pollingPolicy())
       .build();
   }
 
+  private static class ShardVerticle extends AbstractVerticle {
+
+    private Context context() {
+      return context;
+    }
+
+  }
+
 }
@@ -0,0 +1,281 @@
+package io.es4j.core.tasks;
+
+import io.es4j.AsyncProjection;
+import io.es4j.core.objects.AggregateEvent;
+import io.es4j.core.objects.CatchUpPolicy;
+import io.es4j.core.objects.Offset;
+import io.es4j.infrastructure.EventStore;
+import io.es4j.infrastructure.OffsetStore;
+import io.es4j.infrastructure.misc.EventParser;
+import io.es4j.infrastructure.models.Event;
+import io.es4j.infrastructure.models.EventStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.impl.cpu.CpuCoreSensor;
+import io.vertx.micrometer.backends.BackendRegistries;
+import io.vertx.mutiny.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Drains the journal into an {@link AsyncProjection}.
+ * <p>
+ * In live mode events are read in small batches and applied on the event loop. When a batch comes back full the
+ * projection is behind, the drain switches to catch-up mode as defined by {@link AsyncProjection#catchUpPolicy()}:
+ * keyset ranges on the journal offset are read ahead of the one being applied, decoded on worker threads and applied
+ * in large batches, optionally in concurrent slices of aggregates. The first range that comes back short means the
+ * head was reached and the drain ends, the next one starts in live mode again.
+ * <p>
+ * Progress is published per projection: applied events, the offset reached, the rate of the last range and whether
+ * a catch-up is running.
+ */
+public class ProjectionCatchUp {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProjectionCatchUp.class);
+  public static final int LIVE_BATCH_SIZE = 1000;
+  private final Vertx vertx;
+  private final AsyncProjection asyncProjection;
+  private final EventStore eventStore;
+  private final OffsetStore offsetStore;
+  private final String consumer;
+  private final BiFunction<Offset, Integer, EventStream> ranges;
+  private final int batchSize;
+  private final int decoders;
+  private final int parallelism;
+  private final AtomicLong reachedOffset = new AtomicLong();
+  private final AtomicLong eventsPerSecond = new AtomicLong();
+  private final AtomicInteger catchingUp = new AtomicInteger();
+  private final Counter appliedEvents;
+
+  public ProjectionCatchUp(
+    Vertx vertx,
+    AsyncProjection asyncProjection,
+    EventStore eventStore,
+    OffsetStore offsetStore,
+    String consumer,
+    BiFunction<Offset, Integer, EventStream> ranges
+  ) {
+    this.vertx = vertx;
+    this.asyncProjection = asyncProjection;
+    this.eventStore = eventStore;
+    this.offsetStore = offsetStore;
+    this.consumer = consumer;
+    this.ranges = ranges;
+    final var policy = Objects.requireNonNullElse(asyncProjection.catchUpPolicy(), CatchUpPolicy.defaults());
+    this.batchSize = Objects.requireNonNullElse(policy.batchSize(), LIVE_BATCH_SIZE);
+    this.decoders = Math.max(1, Objects.requireNonNullElse(policy.decoders(), CpuCoreSensor.availableProcessors()));
+    // slices would commit separately, a projection sharing the offset transaction is applied as a whole
+    this.parallelism = offsetStore.transactional(asyncProjection) ? 1 : Math.max(1, Objects.requireNonNullElse(policy.parallelism(), 1));
+    final var registry = BackendRegistries.getDefaultNow();
+    if (registry != null) {
+      this.appliedEvents = Counter.builder("es4j.projection.events")
+        .tag("projection", consumer)
+        .register(registry);
+      Gauge.builder("es4j.projection.offset", reachedOffset, AtomicLong::get)
+        .tag("projection", consumer)
+        .register(registry);
+      Gauge.builder("es4j.projection.catchup.rate", eventsPerSecond, AtomicLong::get)
+        .tag("projection", consumer)
+        .baseUnit("events/s")
+        .register(registry);
+      Gauge.builder("es4j.projection.catchup.active", catchingUp, AtomicInteger::get)
+        .tag("projection", consumer)
+        .register(registry);
+    } else {
+      this.appliedEvents = null;
+    }
+  }
+
+  /**
+   * Starts from the given offset and leaves the stored offset up to date, checkpoints skipped by the policy never
+   * outlive the drain.
+   */
+  public Uni<Offset> drain(Offset journalOffset) {
+    final var run = new Run(journalOffset);
+    return next(run, eventStore.fetch(ranges.apply(journalOffset, LIVE_BATCH_SIZE)));
+  }
+
+  private Uni<Offset> next(Run run, Uni<List<Event>> fetched) {
+    return fetched.flatMap(events -> {
+        if (events.isEmpty()) {
+          return finish(run);
+        }
+        final var full = events.size() >= (run.catchingUp ? batchSize : LIVE_BATCH_SIZE);
+        if (full && !run.catchingUp && batchSize > LIVE_BATCH_SIZE) {
+          startCatchUp(run);
+        }
+        final var nextOffset = run.offset.updateOffset(events);
+        final var range = run.catchingUp ? batchSize : LIVE_BATCH_SIZE;
+        // the next range is read while this one is applied
+        final var readAhead = full && run.catchingUp ? readAhead(nextOffset, range) : null;
+        return decode(events, run.catchingUp)
+          .flatMap(decoded -> apply(run, decoded, nextOffset))
+          .invoke(avoid -> progress(run, events.size()))
+          // events applied so far are checkpointed before giving up, failures of later ranges don't come through here
+          .onFailure().call(() -> checkpoint(run))
+          .flatMap(avoid -> {
+              if (!full) {
+                return finish(run);
+              }
+              return next(run, Objects.requireNonNullElseGet(readAhead, () -> eventStore.fetch(ranges.apply(run.offset, range))));
+            }
+          );
+      }
+    );
+  }
+
+  /**
+   * The fetch is started right away and its outcome kept in a completion stage, a memoized uni completing
+   * synchronously within the nested drains hands its item to the wrong subscriber.
+   */
+  private Uni<List<Event>> readAhead(Offset offset, int range) {
+    final var fetch = eventStore.fetch(ranges.apply(offset, range)).subscribeAsCompletionStage();
+    fetch.whenComplete((events, throwable) -> {
+        if (throwable != null) {
+          LOGGER.debug("Read ahead of {} failed", consumer, throwable);
+        } else {
+          LOGGER.debug("Read ahead {} events of {}", events.size(), consumer);
+        }
+      }
+    );
+    return Uni.createFrom().completionStage(fetch);
+  }
+
+  private Uni<List<AggregateEvent>> decode(List<Event> events, boolean parallel) {
+    if (!parallel || decoders == 1) {
+      return Uni.createFrom().item(() -> parseEvents(events));
+    }
+    final var chunkSize = (events.size() + decoders - 1) / decoders;
+    final var chunks = new ArrayList<Uni<List<AggregateEvent>>>(decoders);
+    for (int from = 0; from < events.size(); from += chunkSize) {
+      final var chunk = events.subList(from, Math.min(from + chunkSize, events.size()));
+      chunks.add(vertx.executeBlocking(Uni.createFrom().item(() -> parseEvents(chunk)), false));
+    }
+    return Uni.join().all(chunks).andFailFast()
+      .map(decoded -> decoded.stream().flatMap(List::stream).toList());
+  }
+
+  private Uni<Void> apply(Run run, List<AggregateEvent> events, Offset nextOffset) {
+    if (offsetStore.transactional(asyncProjection)) {
+      return offsetStore.apply(asyncProjection, events, nextOffset)
+        .invoke(stored -> {
+            run.offset = stored;
+            run.checkpointed();
+          }
+        )
+        .replaceWithVoid();
+    }
+    return applySlices(events, run.catchingUp)
+      .flatMap(avoid -> {
+          run.offset = nextOffset;
+          run.pending += events.size();
+          if (asyncProjection.checkpointPolicy().due(run.pending, System.currentTimeMillis() - run.lastCheckpoint)) {
+            return checkpoint(run);
+          }
+          return Uni.createFrom().voidItem();
+        }
+      );
+  }
+
+  private Uni<Void> applySlices(List<AggregateEvent> events, boolean sliced) {
+    if (!sliced || parallelism == 1) {
+      return asyncProjection.apply(events);
+    }
+    final var slices = new ArrayList<List<AggregateEvent>>(parallelism);
+    for (int slice = 0; slice < parallelism; slice++) {
+      slices.add(new ArrayList<>());
+    }
+    events.forEach(event -> slices.get(Math.floorMod(event.aggregateId().hashCode(), parallelism)).add(event));
+    return Uni.join().all(slices.stream().filter(slice -> !slice.isEmpty()).map(asyncProjection::apply).toList())
+      .andFailFast()
+      .replaceWithVoid();
+  }
+
+  private Uni<Void> checkpoint(Run run) {
+    if (run.pending == 0) {
+      return Uni.createFrom().voidItem();
+    }
+    return offsetStore.put(run.offset)
+      .invoke(stored -> run.checkpointed())
+      .replaceWithVoid();
+  }
+
+  private Uni<Offset> finish(Run run) {
+    return checkpoint(run)
+      .invoke(avoid -> {
+          if (run.catchingUp) {
+            final var elapsed = Math.max(1L, System.currentTimeMillis() - run.catchUpStart);
+            LOGGER.info("Projection {} caught up at offset {}, {} events in {} ms, {} events/s",
+              consumer, run.offset.idOffSet(), run.caughtUpEvents, elapsed, run.caughtUpEvents * 1000 / elapsed
+            );
+            catchingUp.set(0);
+          }
+        }
+      )
+      .onFailure().invoke(() -> catchingUp.set(0))
+      .replaceWith(() -> run.offset);
+  }
+
+  private void startCatchUp(Run run) {
+    LOGGER.info("Projection {} is behind at offset {}, catching up in ranges of {} events", consumer, run.offset.idOffSet(), batchSize);
+    run.catchingUp = true;
+    run.catchUpStart = System.currentTimeMillis();
+    run.rangeStart = run.catchUpStart;
+    catchingUp.set(1);
+  }
+
+  private void progress(Run run, int events) {
+    reachedOffset.set(run.offset.idOffSet());
+    if (appliedEvents != null) {
+      appliedEvents.increment(events);
+    }
+    if (run.catchingUp) {
+      final var now = System.currentTimeMillis();
+      run.caughtUpEvents += events;
+      eventsPerSecond.set(events * 1000L / Math.max(1L, now - run.rangeStart));
+      run.rangeStart = now;
+      LOGGER.debug("Projection {} at offset {}, {} events/s", consumer, run.offset.idOffSet(), eventsPerSecond.get());
+    }
+  }
+
+  public static List<AggregateEvent> parseEvents(List<Event> events) {
+    return events.stream()
+      .map(event -> new AggregateEvent(
+          event.aggregateId(),
+          event.tenantId(),
+          event.journalOffset(),
+          event.eventVersion(),
+          EventParser.getEvent(event.eventType(), event.event())
+        )
+      )
+      .toList();
+  }
+
+  private static final class Run {
+    private Offset offset;
+    private long pending = 0L;
+    private long lastCheckpoint = System.currentTimeMillis();
+    private boolean catchingUp = false;
+    private long catchUpStart = 0L;
+    private long rangeStart = 0L;
+    private long caughtUpEvents = 0L;
+
+    private Run(Offset offset) {
+      this.offset = offset;
+    }
+
+    private void checkpointed() {
+      this.pending = 0L;
+      this.lastCheckpoint = System.currentTimeMillis();
+    }
+  }
+
+}
@@ -1,8 +1,16 @@
 package io.es4j.core.tasks;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.es4j.Aggregate;
+import io.es4j.core.EventFolder;
+import io.es4j.core.objects.AggregateState;
+import io.es4j.core.objects.DispatchPlan;
+import io.es4j.core.objects.Offset;
 import io.es4j.infrastructure.EventStore;
 import io.es4j.infrastructure.OffsetStore;
+import io.es4j.infrastructure.models.AggregatePlainKey;
+import io.es4j.infrastructure.models.Event;
 import io.es4j.infrastructure.models.EventStreamBuilder;
 import io.es4j.task.CronTask;
 import io.es4j.task.CronTaskConfiguration;
@@ -10,75 +18,122 @@ import io.es4j.task.CronTaskConfigurationBuilder;
 import io.es4j.task.LockLevel;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
-import io.smallrye.mutiny.tuples.Tuple2;
 import io.es4j.core.objects.LoadAggregate;
 import io.es4j.infrastructure.proxy.AggregateEventBusPoxy;
 import io.es4j.core.objects.OffsetKey;
 import io.es4j.core.objects.StateProjectionWrapper;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Objects;
 
-import static java.util.stream.Collectors.groupingBy;
-
+/**
+ * Keeps an {@link io.es4j.AsyncStateTransfer} up to date from the journal.
+ * <p>
+ * The poller keeps a durable offset and the last state it projected for each aggregate, new events are folded onto
+ * that state with the aggregators. Owners are only asked to load an aggregate when the poller holds no state for it
+ * or the state it holds isn't contiguous with the events read, the states of a batch are transferred together.
+ * Transfers get copies, the projected states keep being folded in place.
+ */
 public class StateProjectionPoller<T extends Aggregate> implements CronTask {
 
+  private static final int BATCH_SIZE = 5000;
+  private static final long MAX_PROJECTED_STATES = 10_000L;
   private final StateProjectionWrapper<T> stateProjectionWrapper;
   private final AggregateEventBusPoxy<T> proxy;
   private final EventStore eventStore;
   private final OffsetStore offsetStore;
   private final Class<T> aggregateClass;
+  private final EventFolder<T> eventFolder;
+  private final Cache<AggregatePlainKey, AggregateState<T>> projectedStates = Caffeine.newBuilder()
+    .maximumSize(MAX_PROJECTED_STATES)
+    .build();
 
   public StateProjectionPoller(
     final Class<T> aggregateClass,
     final StateProjectionWrapper<T> stateProjectionWrapper,
     final AggregateEventBusPoxy<T> proxy,
+    final EventFolder<T> eventFolder,
     final EventStore eventStore,
     final OffsetStore offsetStore
   ) {
     this.aggregateClass = aggregateClass;
     this.stateProjectionWrapper = stateProjectionWrapper;
     this.proxy = proxy;
+    this.eventFolder = eventFolder;
     this.eventStore = eventStore;
     this.offsetStore = offsetStore;
   }
 
   @Override
   public Uni<Void> performTask() {
-    // polling would have to be done one aggregate at the time
-    // polling will have to be moved to a queue
-    // a new entry must be inserted in the queue for each one of the updated streams
     stateProjectionWrapper.logger().debug("Polling events");
     return offsetStore.get(new OffsetKey(stateProjectionWrapper.asyncStateTransfer().getClass().getName(), "default"))
-      .flatMap(journalOffset -> {
-          stateProjectionWrapper.logger().debug("Journal idOffset at {}", journalOffset.idOffSet());
-          return eventStore.fetch(EventStreamBuilder.builder()
-            .offset(journalOffset.idOffSet())
-            .batchSize(5000)
-            .build()
-          );
-        }
+      .flatMap(this::drain);
+  }
+
+  @Override
+  public String name() {
+    return StateProjectionPoller.class.getName() + "::" + stateProjectionWrapper.asyncStateTransfer().getClass().getName();
+  }
+
+  private Uni<Void> drain(Offset journalOffset) {
+    stateProjectionWrapper.logger().debug("Journal idOffset at {}", journalOffset.idOffSet());
+    return eventStore.fetch(EventStreamBuilder.builder()
+        .offset(journalOffset.nextIdOffset())
+        .batchSize(BATCH_SIZE)
+        .build()
       )
       .flatMap(events -> {
-          final var aggregateIds = events.stream()
-            .collect(groupingBy(event -> Tuple2.of(event.aggregateId(), event.tenantId())))
-            .keySet();
-          stateProjectionWrapper.logger().debug("Updating {} IDs : {}", aggregateClass.getSimpleName(), aggregateIds);
-          return Multi.createFrom().iterable(aggregateIds)
-            .onItem().transformToUniAndMerge(
-              tuple2 -> proxy.proxyCommand(new LoadAggregate(
-                    tuple2.getItem1(),
-                  tuple2.getItem2(),
-                    null,
-                    null
-                  )
-                )
-                .flatMap(stateProjectionWrapper::update)
-            )
+          if (events.isEmpty()) {
+            return Uni.createFrom().voidItem();
+          }
+          final var streams = new LinkedHashMap<AggregatePlainKey, List<Event>>();
+          events.forEach(event -> streams.computeIfAbsent(
+              new AggregatePlainKey(aggregateClass.getName(), event.aggregateId(), event.tenantId()),
+              key -> new ArrayList<>()
+            ).add(event)
+          );
+          stateProjectionWrapper.logger().debug("Updating {} {} streams", streams.size(), aggregateClass.getSimpleName());
+          return Multi.createFrom().iterable(streams.entrySet())
+            .onItem().transformToUniAndMerge(stream -> project(stream.getKey(), stream.getValue()))
             .collect().asList()
-            .replaceWithVoid();
+            .map(states -> states.stream().filter(Objects::nonNull).map(AggregateState::copy).toList())
+            .flatMap(states -> states.isEmpty() ? Uni.createFrom().voidItem() : stateProjectionWrapper.update(states))
+            .flatMap(avoid -> offsetStore.put(journalOffset.updateOffset(events)))
+            .flatMap(offset -> events.size() < BATCH_SIZE ? Uni.createFrom().voidItem() : drain(offset));
         }
-      )
-      .replaceWithVoid();
+      );
+  }
+
+  /**
+   * @return the state after the events, or null when the events were already part of the projected state
+   */
+  private Uni<AggregateState<T>> project(AggregatePlainKey key, List<Event> events) {
+    final var first = events.get(0);
+    final var lastVersion = events.get(events.size() - 1).eventVersion();
+    final var projected = projectedStates.getIfPresent(key);
+    if (projected != null && projected.currentVersion() != null && projected.currentVersion() >= lastVersion) {
+      return Uni.createFrom().nullItem();
+    }
+    AggregateState<T> state = null;
+    if (projected != null && projected.currentVersion() != null && projected.currentVersion() >= first.eventVersion() - 1) {
+      state = projected;
+    } else if (first.eventVersion() == 1 || DispatchPlan.SNAPSHOT_EVENT_TYPE.equals(first.eventType())) {
+      state = new AggregateState<>(aggregateClass);
+    }
+    if (state == null) {
+      stateProjectionWrapper.logger().debug("No projected state for {}::{}, loading it", key.tenantId(), key.aggregateId());
+      return proxy.proxyCommand(new LoadAggregate(key.aggregateId(), key.tenantId(), null, null))
+        .invoke(loaded -> projectedStates.put(key, loaded));
+    }
+    final var folded = state;
+    events.stream()
+      .filter(event -> folded.currentVersion() == null || event.eventVersion() > folded.currentVersion())
+      .forEachOrdered(event -> eventFolder.apply(folded, event));
+    projectedStates.put(key, folded);
+    return Uni.createFrom().item(folded);
   }
 
   @Override
@@ -4,18 +4,24 @@ package io.es4j.core.verticles;
 import io.es4j.*;
 import io.es4j.Event;
 import io.es4j.core.objects.*;
+import io.es4j.infrastructure.bus.Es4jMessageCodec;
 import io.es4j.infrastructure.bus.Es4jService;
+import io.es4j.infrastructure.journal.GroupCommitEventStore;
 import io.es4j.infrastructure.misc.Es4jServiceLoader;
 import io.reactiverse.contextual.logging.ContextualData;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.tuples.Tuple2;
+import io.es4j.core.AdaptiveSnapshotter;
 import io.es4j.core.CommandHandler;
+import io.es4j.core.CommandMailbox;
+import io.es4j.core.CommandOutcomes;
 import io.es4j.core.exceptions.Es4jException;
 import io.es4j.infrastructure.Infrastructure;
 import io.es4j.infrastructure.bus.AggregateBus;
 import io.es4j.launcher.Es4jMain;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.vertx.core.AbstractVerticle;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.mutiny.core.eventbus.Message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +30,7 @@ import io.vertx.mutiny.core.eventbus.DeliveryContext;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.time.Duration;
 import java.util.*;
 
 import static io.es4j.core.CommandHandler.camelToKebab;
@@ -37,8 +44,11 @@ public class AggregateVerticle<T extends Aggregate> extends AbstractVerticle {
   private final String nodeDeploymentID;
   private final Es4jDeployment es4jDeployment;
   private CommandHandler<T> commandHandler;
+  private CommandMailbox<T> commandMailbox;
+  private AdaptiveSnapshotter<T> snapshotter;
   private List<BehaviourWrap> behaviourWraps;
   private List<AggregatorWrap> aggregatorWraps;
+  private DispatchPlan<T> dispatchPlan;
   private Infrastructure infrastructure;
   private Es4jService es4jService;
 
@@ -58,22 +68,33 @@ public class AggregateVerticle<T extends Aggregate> extends AbstractVerticle {
     LOGGER.info("Es4j starting aggregate {} nodeID={} verticleID={}", aggregateClass.getSimpleName(), this.nodeDeploymentID, this.localDeploymentID);
     this.aggregatorWraps = loadAggregators(aggregateClass);
     this.behaviourWraps = loadBehaviours(aggregateClass);
+    this.dispatchPlan = DispatchPlan.compile(aggregateClass, aggregatorWraps, behaviourWraps);
     this.infrastructure = new Infrastructure(
       Es4jServiceLoader.loadCache(),
-      Es4jServiceLoader.loadEventStore(),
+      new GroupCommitEventStore(vertx, Es4jServiceLoader.loadEventStore(), es4jDeployment.aggregateConfiguration()),
       Optional.empty(),
-      Es4jServiceLoader.loadOffsetStore()
+      Es4jServiceLoader.loadOffsetStore(),
+      Es4jServiceLoader.loadSnapshotStore()
     );
     infrastructure.start(es4jDeployment, vertx, config());
+    Es4jMessageCodec.register(vertx);
     vertx.eventBus().addInboundInterceptor(this::addContextualData);
+    this.snapshotter = new AdaptiveSnapshotter<>(vertx, aggregateClass, es4jDeployment.aggregateConfiguration());
     this.commandHandler = new CommandHandler<>(
       vertx,
       aggregateClass,
-      aggregatorWraps,
-      behaviourWraps,
+      dispatchPlan,
       infrastructure,
-      es4jDeployment.aggregateConfiguration()
+      es4jDeployment.aggregateConfiguration(),
+      snapshotter
+    );
+    this.commandMailbox = new CommandMailbox<>(
+      context,
+      commandHandler,
+      Objects.requireNonNullElse(es4jDeployment.aggregateConfiguration().mailboxCapacity(), CommandMailbox.DEFAULT_CAPACITY)
     );
+    CommandMailbox.register(aggregateClass, commandMailbox);
+    snapshotter.start();
     this.es4jService = new Es4jService(
       infrastructure.offsetStore(),
       infrastructure.eventStore(),
@@ -97,15 +118,22 @@ public class AggregateVerticle<T extends Aggregate> extends AbstractVerticle {
         )
       )
       .collect().asList()
+      .flatMap(avoid -> AggregateBus.registerCommandStatusConsumer(vertx, aggregateClass, nodeDeploymentID, infrastructure.eventStore()))
       .flatMap(avoid -> AggregateBus.waitForRegistration(nodeDeploymentID, aggregateClass))
       .replaceWithVoid();
   }
 
-  private <A extends Aggregate, C extends Command> void messageHandler(BehaviourWrap<A, C> cmdBehaviour, Message<JsonObject> message) {
-    commandHandler.process(parseCommand(cmdBehaviour.commandClass(), message))
+  private <A extends Aggregate, C extends Command> void messageHandler(BehaviourWrap<A, C> cmdBehaviour, Message<Object> message) {
+    final var command = parseCommand(cmdBehaviour.commandClass(), message);
+    final var commandId = Objects.requireNonNullElseGet(message.headers().get(AggregateBus.COMMAND_ID), command::uniqueId);
+    if (AggregateBus.ASYNC_SUBMISSION.equals(message.headers().get(AggregateBus.SUBMISSION_MODE))) {
+      submitHandler(command, commandId, message);
+      return;
+    }
+    CommandMailbox.dispatch(aggregateClass, command, commandId, AggregateBus.responseMode(message.headers()), Duration.ofMillis(AggregateBus.REQUEST_TIMEOUT))
       .subscribe()
       .with(
-        message::reply,
+        commandReply -> message.reply(commandReply, new DeliveryOptions().setCodecName(Es4jMessageCodec.NAME)),
         throwable -> {
           if (throwable instanceof Es4jException vertxServiceException) {
             message.fail(vertxServiceException.error().externalErrorCode(), JsonObject.mapFrom(vertxServiceException.error()).encodePrettily());
@@ -117,10 +145,32 @@ public class AggregateVerticle<T extends Aggregate> extends AbstractVerticle {
       );
   }
 
-  private static Command parseCommand(Class<? extends Command> cmdClass, Message<JsonObject> message) {
+  private void submitHandler(Command command, String commandId, Message<Object> message) {
+    CommandOutcomes.accepted(commandId, command);
+    message.reply(new JsonObject().put("commandId", commandId));
+    CommandMailbox.dispatch(aggregateClass, command, commandId, ResponseMode.ACK)
+      .subscribe()
+      .with(
+        state -> CommandOutcomes.processed(commandId, command),
+        throwable -> {
+          if (throwable instanceof Es4jException es4jException) {
+            CommandOutcomes.rejected(commandId, command, es4jException.error());
+          } else {
+            LOGGER.error("Unexpected exception raised processing submitted command {}", commandId, throwable);
+            CommandOutcomes.rejected(commandId, command, new Es4jError(throwable.getMessage(), throwable.getLocalizedMessage(), 500));
+          }
+        }
+      );
+  }
+
+  private static Command parseCommand(Class<? extends Command> cmdClass, Message<Object> message) {
+    if (message.body() instanceof Command command) {
+      return command;
+    }
     try {
-      LOGGER.debug("Parsing command {} {}", cmdClass.getName(), message.body().encodePrettily());
-      return message.body().mapTo(cmdClass);
+      final var body = (JsonObject) message.body();
+      LOGGER.debug("Parsing command {} {}", cmdClass.getName(), body.encodePrettily());
+      return body.mapTo(cmdClass);
     } catch (Exception e) {
       message.fail(400, JsonObject.mapFrom(
           Es4jErrorBuilder.builder()
@@ -242,6 +292,8 @@ public class AggregateVerticle<T extends Aggregate> extends AbstractVerticle {
   @Override
   public Uni<Void> asyncStop() {
     LOGGER.info("Stopping {} {}", aggregateClass.getSimpleName(), nodeDeploymentID);
+    CommandMailbox.unregister(aggregateClass, commandMailbox);
+    snapshotter.stop();
     AggregateBus.stop(vertx, aggregateClass, nodeDeploymentID);
     return infrastructure.stop();
   }
@@ -0,0 +1,16 @@
+package io.es4j.infrastructure;
+
+/**
+ * Serializer used by the event bus codec when commands and replies leave the JVM.
+ * Implementations are discovered with the {@link java.util.ServiceLoader} and selected by {@link #name()}
+ * through the BUS_SERIALIZER environment variable, every node of a cluster must use the same serializer.
+ */
+public interface BusSerializer {
+
+  String name();
+
+  byte[] serialize(Object object);
+
+  <T> T deserialize(byte[] bytes, Class<T> type);
+
+}
@@ -3,12 +3,14 @@ package io.es4j.infrastructure;
 import io.es4j.Aggregate;
 import io.es4j.Es4jDeployment;
 import io.es4j.infrastructure.models.*;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import io.vertx.core.json.JsonObject;
 import io.vertx.mutiny.core.Vertx;
 
 
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Consumer;
 
 public interface EventStore {
@@ -18,8 +20,62 @@ public interface EventStore {
   Uni<List<Event>> fetch(EventStream eventStream);
   Uni<Void> stream(EventStream eventStream, Consumer<Event> consumer);
 
-  // todo make this return the last eventID so that journal might be used more efficiently from the start.
-  <T extends Aggregate> Uni<Void> append(AppendInstruction<T> appendInstruction);
+  /**
+   * @return the journal offsets assigned to the events, in the order of the instruction
+   */
+  <T extends Aggregate> Uni<List<Long>> append(AppendInstruction<T> appendInstruction);
+
+  /**
+   * Appends the instructions of several aggregate streams in one write.
+   * When {@link #atomicBatchAppend()} is true either every instruction is persisted or none of them,
+   * a version conflict in any instruction fails the whole batch with {@link ConcurrentAppend}.
+   * The default implementation appends the instructions one after the other.
+   *
+   * @return the journal offsets assigned to the events of every instruction, in the order of the instructions
+   */
+  default Uni<List<Long>> appendBatch(List<AppendInstruction<?>> appendInstructions) {
+    return Multi.createFrom().iterable(appendInstructions)
+      .onItem().transformToUniAndConcatenate(this::append)
+      .onItem().<Long>disjoint()
+      .collect().asList();
+  }
+
+  default boolean atomicBatchAppend() {
+    return false;
+  }
+
+  /**
+   * Stores that keep a head per aggregate stream, updated atomically with every append,
+   * can tell where a stream stands without reading the journal.
+   */
+  default boolean streamHeads() {
+    return false;
+  }
+
+  /**
+   * Stores that can split {@link EventStream} reads into shards on the hash of the aggregate id, every aggregate
+   * always lands in the same shard.
+   */
+  default boolean journalShards() {
+    return false;
+  }
+
+  /**
+   * @return the head of the stream or an empty optional if no event was ever appended to it
+   */
+  default <T extends Aggregate> Uni<Optional<AggregateStreamHead>> head(AggregateKey<T> aggregateKey) {
+    return Uni.createFrom().failure(new UnsupportedOperationException(getClass().getSimpleName() + " doesn't keep stream heads"));
+  }
+
+  /**
+   * Loads events that already carry their versions, meant for migrations and backfills rather than command processing.
+   * Events of an aggregate must arrive in version order, contiguous with each other and with what the stream already
+   * holds, the load is written in a single transaction and fails as a whole otherwise.
+   */
+  default Uni<BulkLoadReport> bulkLoad(Multi<Event> events) {
+    return Uni.createFrom().failure(new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support bulk loads"));
+  }
+
   <T extends Aggregate> Uni<Void> startStream(StartStream<T> appendInstruction);
 
   Uni<Void> stop();
@@ -12,7 +12,8 @@ public record Infrastructure(
   Optional<AggregateCache> cache,
   EventStore eventStore,
   Optional<SecondaryEventStore> secondaryEventStore,
-  OffsetStore offsetStore
+  OffsetStore offsetStore,
+  Optional<SnapshotStore> snapshotStore
 ) {
 
   public Uni<Void> stop() {
@@ -21,6 +22,7 @@ public record Infrastructure(
     secondaryEventStore.ifPresent(secondaryEventStore -> list.add(secondaryEventStore.stop()));
     list.add(eventStore.stop());
     list.add(offsetStore.stop());
+    snapshotStore.ifPresent(store -> list.add(store.stop()));
     return Uni.join().all(list).andFailFast().replaceWithVoid();
   }
 
@@ -30,6 +32,7 @@ public record Infrastructure(
     secondaryEventStore.ifPresent(secondaryEventStore -> list.add(secondaryEventStore.setup(es4jDeployment, vertx, infrastructureConfiguration)));
     list.add(eventStore.setup(es4jDeployment, vertx, infrastructureConfiguration));
     list.add(offsetStore.setup(es4jDeployment, vertx, infrastructureConfiguration));
+    snapshotStore.ifPresent(store -> list.add(store.setup(es4jDeployment, vertx, infrastructureConfiguration)));
     return Uni.join().all(list).andFailFast().replaceWithVoid();
   }
 
@@ -38,5 +41,6 @@ public record Infrastructure(
     eventStore.start(es4jDeployment, vertx, configuration);
     offsetStore.start(es4jDeployment, vertx, configuration);
     secondaryEventStore.ifPresent(ses -> ses.start(es4jDeployment, vertx, configuration));
+    snapshotStore.ifPresent(store -> store.start(es4jDeployment, vertx, configuration));
   }
 }
@@ -1,7 +1,9 @@
 package io.es4j.infrastructure;
 
 
+import io.es4j.AsyncProjection;
 import io.es4j.Es4jDeployment;
+import io.es4j.core.objects.AggregateEvent;
 import io.es4j.core.objects.Offset;
 import io.es4j.infrastructure.models.OffsetFilter;
 import io.smallrye.mutiny.Uni;
@@ -17,6 +19,21 @@ public interface OffsetStore {
   Uni<Offset> get(OffsetKey journalOffset);
   Uni<Offset> reset(Offset offset);
 
+  /**
+   * Stores that can commit the projection changes and the offset atomically for the given projection.
+   */
+  default boolean transactional(AsyncProjection asyncProjection) {
+    return false;
+  }
+
+  /**
+   * Applies the events to the projection and stores the offset they lead to, atomically when the store is
+   * {@link #transactional(AsyncProjection)} for the projection.
+   */
+  default Uni<Offset> apply(AsyncProjection asyncProjection, List<AggregateEvent> events, Offset offset) {
+    return asyncProjection.apply(events).flatMap(avoid -> put(offset));
+  }
+
   Uni<List<Offset>> projections(OffsetFilter offsetFilter);
   Uni<Void> stop();
   void start(Es4jDeployment es4jDeployment, Vertx vertx, JsonObject configuration);
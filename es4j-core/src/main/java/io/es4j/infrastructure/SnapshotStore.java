@@ -0,0 +1,34 @@
+package io.es4j.infrastructure;
+
+import io.es4j.Aggregate;
+import io.es4j.Es4jDeployment;
+import io.es4j.infrastructure.models.AggregateKey;
+import io.es4j.infrastructure.models.AggregateSnapshot;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+
+import java.util.Optional;
+
+/**
+ * Stores aggregate snapshots outside of the event journal, keyed by (aggregate_id, tenant, version).
+ * Snapshots don't consume aggregate versions, the journal only holds the events emitted by behaviours.
+ */
+public interface SnapshotStore {
+
+  /**
+   * @return the snapshot with the highest version or an empty optional if the aggregate was never snapshotted
+   */
+  <T extends Aggregate> Uni<Optional<AggregateSnapshot>> latest(AggregateKey<T> aggregateKey);
+
+  /**
+   * Storing a version that was already snapshotted is a no-op.
+   */
+  Uni<Void> put(AggregateSnapshot aggregateSnapshot);
+
+  Uni<Void> stop();
+
+  void start(Es4jDeployment es4jDeployment, Vertx vertx, JsonObject configuration);
+
+  Uni<Void> setup(Es4jDeployment es4jDeployment, Vertx vertx, JsonObject configuration);
+}
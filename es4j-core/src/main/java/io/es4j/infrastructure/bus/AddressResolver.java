@@ -35,4 +35,8 @@ public class AddressResolver {
   public static String resolveCommandConsumer(String nodeAddress, Class<? extends Command> commandClass) {
     return nodeAddress + "/" + camelToKebab(commandClass.getSimpleName());
   }
+
+  public static String commandStatus(String nodeAddress) {
+    return nodeAddress + "/command-status";
+  }
 }
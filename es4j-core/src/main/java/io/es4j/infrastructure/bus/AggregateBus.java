@@ -2,9 +2,14 @@ package io.es4j.infrastructure.bus;
 
 import io.es4j.Aggregate;
 import io.es4j.Command;
+import io.es4j.core.CommandOutcomes;
 import io.es4j.core.exceptions.Es4jException;
 import io.es4j.core.objects.AggregateState;
+import io.es4j.core.objects.CommandAck;
+import io.es4j.core.objects.CommandStatus;
+import io.es4j.core.objects.ResponseMode;
 import io.es4j.core.objects.Es4jError;
+import io.es4j.infrastructure.EventStore;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.subscription.FixedDemandPacer;
@@ -20,6 +25,7 @@ import io.es4j.core.exceptions.CommandRejected;
 import io.es4j.core.exceptions.NodeUnavailable;
 import io.es4j.core.exceptions.UnknownCommand;
 import io.es4j.core.objects.ErrorSource;
+import io.vertx.mutiny.core.MultiMap;
 import io.vertx.mutiny.core.Vertx;
 import io.vertx.mutiny.core.eventbus.Message;
 import org.ishugaliy.allgood.consistent.hash.HashRing;
@@ -39,6 +45,11 @@ import static io.es4j.infrastructure.bus.AddressResolver.commandConsumer;
 
 public class AggregateBus {
   public static final String COMMAND_BRIDGE = "command-bridge";
+  public static final String COMMAND_ID = "command-id";
+  public static final String SUBMISSION_MODE = "submission-mode";
+  public static final String ASYNC_SUBMISSION = "async";
+  public static final String RESPONSE_MODE = "response-mode";
+  public static final long REQUEST_TIMEOUT = 2000;
 
   private AggregateBus() {
   }
@@ -57,6 +68,7 @@ public class AggregateBus {
 
   public static <T extends Aggregate> Uni<Void> startChannel(Vertx vertx, Class<T> aggregateClass, String deploymentID) {
     HASH_RING_MAP.put(aggregateClass, startHashRing(aggregateClass));
+    Es4jMessageCodec.register(vertx);
     return vertx.eventBus().<String>consumer(AddressResolver.invokeChannel(aggregateClass))
       .handler(stringMessage -> broadcastActorAddress(vertx, aggregateClass, deploymentID))
       .exceptionHandler(throwable -> handlerThrowable(throwable, aggregateClass))
@@ -133,15 +145,15 @@ public class AggregateBus {
     final Vertx vertx,
     final Class<T> aggregateClass,
     final String deploymentID,
-    final Consumer<Message<JsonObject>> consumer,
+    final Consumer<Message<Object>> consumer,
     final Class<C> commandClass
   ) {
     return registerEventBusBridge(vertx, aggregateClass, commandClass)
       .flatMap(avoid -> registerEventbusCommandConsumer(vertx, aggregateClass, deploymentID, consumer, commandClass));
   }
 
-  private static <T extends Aggregate, C extends Command> Uni<Void> registerEventbusCommandConsumer(Vertx vertx, Class<T> aggregateClass, String deploymentID, Consumer<Message<JsonObject>> consumer, Class<C> commandClass) {
-    return vertx.eventBus().<JsonObject>consumer(commandConsumer(aggregateClass, deploymentID, commandClass))
+  private static <T extends Aggregate, C extends Command> Uni<Void> registerEventbusCommandConsumer(Vertx vertx, Class<T> aggregateClass, String deploymentID, Consumer<Message<Object>> consumer, Class<C> commandClass) {
+    return vertx.eventBus().consumer(commandConsumer(aggregateClass, deploymentID, commandClass))
       .handler(consumer)
       .exceptionHandler(throwable -> dropped(aggregateClass, throwable, commandClass))
       .completionHandler()
@@ -152,23 +164,66 @@ public class AggregateBus {
     return vertx.eventBus().<JsonObject>consumer(commandBridge(aggregateClass, commandClass))
       .handler(message -> {
         final var command = message.body().mapTo(commandClass);
+        if (ASYNC_SUBMISSION.equals(message.headers().get(SUBMISSION_MODE))) {
+          submit(vertx, aggregateClass, command)
+            .subscribe()
+            .with(
+              commandId -> message.reply(new JsonObject().put("commandId", commandId)),
+              throwable -> bridgeFailure(message, throwable)
+            );
+          return;
+        }
+        if (responseMode(message.headers()) == ResponseMode.ACK) {
+          acknowledge(vertx, aggregateClass, command)
+            .subscribe()
+            .with(
+              commandAck -> message.reply(JsonObject.mapFrom(commandAck)),
+              throwable -> bridgeFailure(message, throwable)
+            );
+          return;
+        }
         request(vertx, aggregateClass, command)
           .subscribe()
           .with(
             jsonBody -> message.reply(jsonBody.toJson()),
-            throwable -> {
-              if (throwable instanceof Es4jException es4jException) {
-                message.fail(es4jException.error().externalErrorCode(), JsonObject.mapFrom(es4jException.error()).encode());
-              } else {
-                message.fail(400, throwable.getMessage());
-              }
-            }
+            throwable -> bridgeFailure(message, throwable)
           );
       })
       .exceptionHandler(throwable -> dropped(aggregateClass, throwable, commandClass))
       .completionHandler();
   }
 
+  private static void bridgeFailure(Message<JsonObject> message, Throwable throwable) {
+    if (throwable instanceof Es4jException es4jException) {
+      message.fail(es4jException.error().externalErrorCode(), JsonObject.mapFrom(es4jException.error()).encode());
+    } else {
+      message.fail(400, throwable.getMessage());
+    }
+  }
+
+  public static <T extends Aggregate> Uni<Void> registerCommandStatusConsumer(
+    final Vertx vertx,
+    final Class<T> aggregateClass,
+    final String deploymentID,
+    final EventStore eventStore
+  ) {
+    return vertx.eventBus().<JsonObject>consumer(AddressResolver.commandStatus(AddressResolver.nodeAddress(aggregateClass, deploymentID)))
+      .handler(message -> CommandOutcomes.get(
+          eventStore,
+          message.body().getString("commandId"),
+          message.body().getString("aggregateId"),
+          message.body().getString("tenant")
+        )
+        .subscribe()
+        .with(
+          status -> message.reply(JsonObject.mapFrom(status)),
+          throwable -> bridgeFailure(message, throwable)
+        )
+      )
+      .exceptionHandler(throwable -> handlerThrowable(throwable, aggregateClass))
+      .completionHandler();
+  }
+
   private static void dropped(Class<?> entityClass, final Throwable throwable, Class<? extends Command> commandClass) {
     LOGGER.error("[-- {} channel had to drop an exception during the handling of command {} --]", entityClass.getSimpleName(), commandClass.getName(), throwable);
   }
@@ -191,18 +246,109 @@ public class AggregateBus {
       command.aggregateId(),
       command.tenant()
     );
-    final var encodedCommand = JsonObject.mapFrom(command);
     final var address = AggregateBus.resolveNode(aggregateClass, aggregateKey, command);
-    LOGGER.debug("Proxying  {} -> {}", address, encodedCommand.encodePrettily());
+    LOGGER.debug("Proxying  {} -> {}", address, command);
+    return vertx.eventBus().request(
+        address,
+        command,
+        new DeliveryOptions()
+          .setCodecName(Es4jMessageCodec.NAME)
+          .setTracingPolicy(TracingPolicy.ALWAYS)
+          .setLocalOnly(!vertx.isClustered())
+          .setSendTimeout(REQUEST_TIMEOUT)
+      )
+      .map(response -> (AggregateState<T>) response.body())
+      .onFailure().transform(Unchecked.function(AggregateBus::transformError));
+  }
+
+  /**
+   * Sends the command and waits for it to be processed, the reply only carries the new version, the journal offset
+   * and the emitted event types instead of the whole aggregate state.
+   */
+  public static <T extends Aggregate> Uni<CommandAck> acknowledge(
+    final Vertx vertx,
+    final Class<T> aggregateClass,
+    final Command command
+  ) {
+    final var aggregateKey = new AggregatePlainKey(
+      aggregateClass.getName(),
+      command.aggregateId(),
+      command.tenant()
+    );
+    final var address = AggregateBus.resolveNode(aggregateClass, aggregateKey, command);
+    LOGGER.debug("Proxying  {} -> {}", address, command);
+    return vertx.eventBus().request(
+        address,
+        command,
+        new DeliveryOptions()
+          .setCodecName(Es4jMessageCodec.NAME)
+          .setTracingPolicy(TracingPolicy.ALWAYS)
+          .setLocalOnly(!vertx.isClustered())
+          .setSendTimeout(REQUEST_TIMEOUT)
+          .addHeader(RESPONSE_MODE, ResponseMode.ACK.name())
+      )
+      .map(response -> (CommandAck) response.body())
+      .onFailure().transform(Unchecked.function(AggregateBus::transformError));
+  }
+
+  public static ResponseMode responseMode(MultiMap headers) {
+    return ResponseMode.ACK.name().equalsIgnoreCase(headers.get(RESPONSE_MODE)) ? ResponseMode.ACK : ResponseMode.STATE;
+  }
+
+  /**
+   * Submits the command without waiting for it to be processed.
+   * The returned command id is available as soon as the owner node has queued the command in the aggregate mailbox,
+   * the outcome can be checked with {@link #commandStatus(Vertx, Class, String, String, String)}. Submissions are best
+   * effort, the command isn't persisted before it is processed and is lost if the owner node goes down meanwhile.
+   */
+  public static <T extends Aggregate> Uni<String> submit(
+    final Vertx vertx,
+    final Class<T> aggregateClass,
+    final Command command
+  ) {
+    final var aggregateKey = new AggregatePlainKey(
+      aggregateClass.getName(),
+      command.aggregateId(),
+      command.tenant()
+    );
+    final var commandId = command.uniqueId();
+    final var address = AggregateBus.resolveNode(aggregateClass, aggregateKey, command);
+    LOGGER.debug("Submitting {} -> {} {}", address, commandId, command);
     return vertx.eventBus().<JsonObject>request(
         address,
-        encodedCommand,
+        command,
         new DeliveryOptions()
+          .setCodecName(Es4jMessageCodec.NAME)
           .setTracingPolicy(TracingPolicy.ALWAYS)
           .setLocalOnly(!vertx.isClustered())
-          .setSendTimeout(2000)
+          .setSendTimeout(REQUEST_TIMEOUT)
+          .addHeader(SUBMISSION_MODE, ASYNC_SUBMISSION)
+          .addHeader(COMMAND_ID, commandId)
       )
-      .map(response -> AggregateState.fromJson(response.body(), aggregateClass))
+      .map(response -> response.body().getString("commandId"))
+      .onFailure().transform(Unchecked.function(AggregateBus::transformError));
+  }
+
+  public static <T extends Aggregate> Uni<CommandStatus> commandStatus(
+    final Vertx vertx,
+    final Class<T> aggregateClass,
+    final String aggregateId,
+    final String tenant,
+    final String commandId
+  ) {
+    final var address = AddressResolver.commandStatus(resolveNodeAddress(aggregateClass, aggregateId));
+    return vertx.eventBus().<JsonObject>request(
+        address,
+        new JsonObject()
+          .put("commandId", commandId)
+          .put("aggregateId", aggregateId)
+          .put("tenant", tenant),
+        new DeliveryOptions()
+          .setTracingPolicy(TracingPolicy.ALWAYS)
+          .setLocalOnly(!vertx.isClustered())
+          .setSendTimeout(REQUEST_TIMEOUT)
+      )
+      .map(response -> response.body().mapTo(CommandStatus.class))
       .onFailure().transform(Unchecked.function(AggregateBus::transformError));
   }
 
@@ -217,21 +363,21 @@ public class AggregateBus {
       command.aggregateId(),
       command.tenant()
     );
-    final var encodedCommand = JsonObject.mapFrom(command);
     final var address = AggregateBus.resolveNode(aggregateClass, aggregateKey, command);
     final var stringJoiner = new StringJoiner(",");
     roles.forEach(stringJoiner::add);
-    LOGGER.debug("Proxying  {} -> {}", address, encodedCommand.encodePrettily());
-    return vertx.eventBus().<JsonObject>request(
+    LOGGER.debug("Proxying  {} -> {}", address, command);
+    return vertx.eventBus().request(
         address,
-        encodedCommand,
+        command,
         new DeliveryOptions()
+          .setCodecName(Es4jMessageCodec.NAME)
           .setTracingPolicy(TracingPolicy.ALWAYS)
           .setLocalOnly(!vertx.isClustered())
-          .setSendTimeout(2000)
+          .setSendTimeout(REQUEST_TIMEOUT)
           .addHeader("auth-roles", stringJoiner.toString())
       )
-      .map(response -> AggregateState.fromJson(response.body(), aggregateClass))
+      .map(response -> (AggregateState<T>) response.body())
       .onFailure().transform(Unchecked.function(AggregateBus::transformError));
   }
 
@@ -269,12 +415,15 @@ public class AggregateBus {
   }
 
   public static <T extends Aggregate> String resolveNode(Class<T> entityClass, AggregatePlainKey key, Command command) {
-    final var node = HASH_RING_MAP.get(entityClass).locate(entityClass.getSimpleName() + key.aggregateId());
-    final var nodeAddress = node.orElse(HASH_RING_MAP.get(entityClass).getNodes().stream().findFirst()
-        .orElseThrow(() -> new NodeUnavailable(key.aggregateId()))
+    return AddressResolver.resolveCommandConsumer(resolveNodeAddress(entityClass, key.aggregateId()), command.getClass());
+  }
+
+  private static <T extends Aggregate> String resolveNodeAddress(Class<T> entityClass, String aggregateId) {
+    final var node = HASH_RING_MAP.get(entityClass).locate(entityClass.getSimpleName() + aggregateId);
+    return node.orElse(HASH_RING_MAP.get(entityClass).getNodes().stream().findFirst()
+        .orElseThrow(() -> new NodeUnavailable(aggregateId))
       )
       .getKey();
-    return AddressResolver.resolveCommandConsumer(nodeAddress, command.getClass());
   }
 
   private static void handlerThrowable(final Throwable throwable, Class<?> entityClass) {
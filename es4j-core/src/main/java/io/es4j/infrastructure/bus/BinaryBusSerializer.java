@@ -0,0 +1,302 @@
+package io.es4j.infrastructure.bus;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.auto.service.AutoService;
+import io.es4j.infrastructure.BusSerializer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.jackson.DatabindCodec;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary wire format driven by the Vert.x object mapper.
+ * <p>
+ * Objects are walked as Jackson tokens, every token is a one byte tag followed by its payload. Strings and binary
+ * values are length-prefixed with a varint, integers are zigzag varints and floating point values are written in
+ * their IEEE form. Field names are written once per message and then referred to by index, so lists of objects
+ * don't repeat their keys. Decoding replays the tokens into the mapper, any type the mapper can bind is supported.
+ */
+@AutoService(BusSerializer.class)
+public class BinaryBusSerializer implements BusSerializer {
+
+  public static final String NAME = "binary";
+  private static final byte START_OBJECT = 1;
+  private static final byte END_OBJECT = 2;
+  private static final byte START_ARRAY = 3;
+  private static final byte END_ARRAY = 4;
+  private static final byte FIELD_NAME = 5;
+  private static final byte FIELD_NAME_REF = 6;
+  private static final byte STRING = 7;
+  private static final byte INTEGER = 8;
+  private static final byte BIG_INTEGER = 9;
+  private static final byte DOUBLE = 10;
+  private static final byte FLOAT = 11;
+  private static final byte BIG_DECIMAL = 12;
+  private static final byte TRUE = 13;
+  private static final byte FALSE = 14;
+  private static final byte NULL = 15;
+  private static final byte BINARY = 16;
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte[] serialize(Object object) {
+    try {
+      final var tokens = new TokenBuffer(DatabindCodec.mapper(), false);
+      DatabindCodec.mapper().writeValue(tokens, object);
+      final var output = new Output();
+      final var names = new HashMap<String, Integer>();
+      try (final var parser = tokens.asParser()) {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+          writeToken(output, names, parser, token);
+        }
+      }
+      return output.toByteArray();
+    } catch (IOException e) {
+      throw new EncodeException("Unable to serialize " + object.getClass().getName() + " : " + e.getMessage());
+    }
+  }
+
+  @Override
+  public <T> T deserialize(byte[] bytes, Class<T> type) {
+    try {
+      final var tokens = new TokenBuffer(DatabindCodec.mapper(), false);
+      final var input = new Input(bytes);
+      final var names = new ArrayList<String>();
+      while (input.remaining()) {
+        readToken(input, names, tokens);
+      }
+      try (final var parser = tokens.asParser()) {
+        return DatabindCodec.mapper().readValue(parser, type);
+      }
+    } catch (IOException | RuntimeException e) {
+      throw new DecodeException("Unable to deserialize " + type.getName() + " : " + e.getMessage(), e);
+    }
+  }
+
+  private static void writeToken(Output output, Map<String, Integer> names, JsonParser parser, JsonToken token) throws IOException {
+    switch (token) {
+      case START_OBJECT -> output.write(START_OBJECT);
+      case END_OBJECT -> output.write(END_OBJECT);
+      case START_ARRAY -> output.write(START_ARRAY);
+      case END_ARRAY -> output.write(END_ARRAY);
+      case FIELD_NAME -> {
+        final var name = parser.currentName();
+        final var index = names.get(name);
+        if (index != null) {
+          output.write(FIELD_NAME_REF);
+          output.writeVarLong(index);
+        } else {
+          names.put(name, names.size());
+          output.write(FIELD_NAME);
+          output.writeBytes(name.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+      case VALUE_STRING -> {
+        output.write(STRING);
+        output.writeBytes(parser.getText().getBytes(StandardCharsets.UTF_8));
+      }
+      case VALUE_NUMBER_INT -> {
+        if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+          output.write(BIG_INTEGER);
+          output.writeBytes(parser.getBigIntegerValue().toByteArray());
+        } else {
+          output.write(INTEGER);
+          output.writeVarLong(zigZag(parser.getLongValue()));
+        }
+      }
+      case VALUE_NUMBER_FLOAT -> {
+        switch (parser.getNumberType()) {
+          case FLOAT -> {
+            output.write(FLOAT);
+            output.writeInt(Float.floatToIntBits(parser.getFloatValue()));
+          }
+          case BIG_DECIMAL -> {
+            final var decimal = parser.getDecimalValue();
+            output.write(BIG_DECIMAL);
+            output.writeVarLong(zigZag(decimal.scale()));
+            output.writeBytes(decimal.unscaledValue().toByteArray());
+          }
+          default -> {
+            output.write(DOUBLE);
+            output.writeLong(Double.doubleToLongBits(parser.getDoubleValue()));
+          }
+        }
+      }
+      case VALUE_TRUE -> output.write(TRUE);
+      case VALUE_FALSE -> output.write(FALSE);
+      case VALUE_NULL -> output.write(NULL);
+      case VALUE_EMBEDDED_OBJECT -> {
+        if (!(parser.getEmbeddedObject() instanceof byte[] binary)) {
+          throw new IOException("Unsupported embedded value " + parser.getEmbeddedObject());
+        }
+        output.write(BINARY);
+        output.writeBytes(binary);
+      }
+      default -> throw new IOException("Unsupported token " + token);
+    }
+  }
+
+  private static void readToken(Input input, List<String> names, TokenBuffer tokens) throws IOException {
+    final var tag = input.read();
+    switch (tag) {
+      case START_OBJECT -> tokens.writeStartObject();
+      case END_OBJECT -> tokens.writeEndObject();
+      case START_ARRAY -> tokens.writeStartArray();
+      case END_ARRAY -> tokens.writeEndArray();
+      case FIELD_NAME -> {
+        final var name = new String(input.readBytes(), StandardCharsets.UTF_8);
+        names.add(name);
+        tokens.writeFieldName(name);
+      }
+      case FIELD_NAME_REF -> tokens.writeFieldName(names.get((int) input.readVarLong()));
+      case STRING -> tokens.writeString(new String(input.readBytes(), StandardCharsets.UTF_8));
+      case INTEGER -> {
+        final var value = unZigZag(input.readVarLong());
+        if (value == (int) value) {
+          tokens.writeNumber((int) value);
+        } else {
+          tokens.writeNumber(value);
+        }
+      }
+      case BIG_INTEGER -> tokens.writeNumber(new BigInteger(input.readBytes()));
+      case DOUBLE -> tokens.writeNumber(Double.longBitsToDouble(input.readLong()));
+      case FLOAT -> tokens.writeNumber(Float.intBitsToFloat(input.readInt()));
+      case BIG_DECIMAL -> {
+        final var scale = (int) unZigZag(input.readVarLong());
+        tokens.writeNumber(new BigDecimal(new BigInteger(input.readBytes()), scale));
+      }
+      case TRUE -> tokens.writeBoolean(true);
+      case FALSE -> tokens.writeBoolean(false);
+      case NULL -> tokens.writeNull();
+      case BINARY -> tokens.writeBinary(input.readBytes());
+      default -> throw new IOException("Unknown tag " + tag);
+    }
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static final class Output {
+    private byte[] bytes = new byte[256];
+    private int length = 0;
+
+    private void write(int value) {
+      ensure(1);
+      bytes[length++] = (byte) value;
+    }
+
+    private void writeVarLong(long value) {
+      ensure(10);
+      while ((value & ~0x7FL) != 0) {
+        bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[length++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+      ensure(4);
+      for (int shift = 24; shift >= 0; shift -= 8) {
+        bytes[length++] = (byte) (value >>> shift);
+      }
+    }
+
+    private void writeLong(long value) {
+      ensure(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        bytes[length++] = (byte) (value >>> shift);
+      }
+    }
+
+    private void writeBytes(byte[] value) {
+      writeVarLong(value.length);
+      ensure(value.length);
+      System.arraycopy(value, 0, bytes, length, value.length);
+      length += value.length;
+    }
+
+    private void ensure(int extra) {
+      if (length + extra > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+      }
+    }
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(bytes, length);
+    }
+  }
+
+  private static final class Input {
+    private final byte[] bytes;
+    private int position = 0;
+
+    private Input(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    private boolean remaining() {
+      return position < bytes.length;
+    }
+
+    private byte read() {
+      return bytes[position++];
+    }
+
+    private long readVarLong() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        final var current = bytes[position++];
+        value |= (long) (current & 0x7F) << shift;
+        if ((current & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IllegalArgumentException("Malformed varint at " + position);
+    }
+
+    private int readInt() {
+      var value = 0;
+      for (int index = 0; index < 4; index++) {
+        value = (value << 8) | (bytes[position++] & 0xFF);
+      }
+      return value;
+    }
+
+    private long readLong() {
+      var value = 0L;
+      for (int index = 0; index < 8; index++) {
+        value = (value << 8) | (bytes[position++] & 0xFF);
+      }
+      return value;
+    }
+
+    private byte[] readBytes() {
+      final var length = (int) readVarLong();
+      final var value = Arrays.copyOfRange(bytes, position, position + length);
+      position += length;
+      return value;
+    }
+  }
+
+}
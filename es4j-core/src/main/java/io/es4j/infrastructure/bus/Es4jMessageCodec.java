@@ -0,0 +1,168 @@
+package io.es4j.infrastructure.bus;
+
+import io.es4j.Aggregate;
+import io.es4j.Command;
+import io.es4j.core.objects.AggregateState;
+import io.es4j.core.objects.CommandReply;
+import io.es4j.infrastructure.BusSerializer;
+import io.es4j.infrastructure.misc.Es4jServiceLoader;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.mutiny.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Event bus codec for commands and command replies.
+ * <p>
+ * Local deliveries hand over the instance itself, {@link AggregateState} is the only mutable reply and is copied.
+ * Clustered deliveries write the target class name followed by the bytes of the configured {@link BusSerializer},
+ * the receiver decodes straight into that class. States also carry their versions and known command ids.
+ * <p>
+ * The codec is registered once per Vert.x instance when aggregates or proxies are set up, see {@link #register(Vertx)}.
+ */
+public class Es4jMessageCodec implements MessageCodec<Object, Object> {
+
+  public static final String NAME = "es4j";
+  public static final String BUS_SERIALIZER = System.getenv().getOrDefault("BUS_SERIALIZER", BinaryBusSerializer.NAME);
+  private static final Logger LOGGER = LoggerFactory.getLogger(Es4jMessageCodec.class);
+  private static final Set<io.vertx.core.Vertx> REGISTERED = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+  private static final byte OBJECT = 0;
+  private static final byte AGGREGATE_STATE = 1;
+  private static final long NULL_LONG = Long.MIN_VALUE;
+
+  private final BusSerializer busSerializer;
+
+  public Es4jMessageCodec(BusSerializer busSerializer) {
+    this.busSerializer = busSerializer;
+  }
+
+  /**
+   * Called once per Vert.x instance at deploy time, registering again is a no-op.
+   */
+  public static void register(Vertx vertx) {
+    if (REGISTERED.add(vertx.getDelegate())) {
+      final var busSerializer = Es4jServiceLoader.loadBusSerializer(BUS_SERIALIZER);
+      LOGGER.info("Registering {} event bus codec with {} serializer", NAME, busSerializer.name());
+      vertx.getDelegate().eventBus().registerCodec(new Es4jMessageCodec(busSerializer));
+    }
+  }
+
+  @Override
+  public void encodeToWire(Buffer buffer, Object object) {
+    if (object instanceof AggregateState<?> aggregateState) {
+      buffer.appendByte(AGGREGATE_STATE);
+      appendString(buffer, aggregateState.aggregateClass().getName());
+      buffer.appendLong(aggregateState.currentVersion() == null ? NULL_LONG : aggregateState.currentVersion());
+      buffer.appendLong(aggregateState.currentJournalOffset() == null ? NULL_LONG : aggregateState.currentJournalOffset());
+      buffer.appendLong(aggregateState.lastSnapshotVersion() == null ? NULL_LONG : aggregateState.lastSnapshotVersion());
+      buffer.appendInt(aggregateState.knownCommands().capacity());
+      appendString(buffer, aggregateState.knownCommands().encode());
+      appendBytes(buffer, aggregateState.state() == null ? null : busSerializer.serialize(aggregateState.state()));
+    } else {
+      buffer.appendByte(OBJECT);
+      appendString(buffer, object.getClass().getName());
+      appendBytes(buffer, busSerializer.serialize(object));
+    }
+  }
+
+  @Override
+  public Object decodeFromWire(int pos, Buffer buffer) {
+    final var kind = buffer.getByte(pos);
+    pos += 1;
+    final var classNameLength = buffer.getInt(pos);
+    pos += 4;
+    final var className = buffer.getString(pos, pos + classNameLength, StandardCharsets.UTF_8.name());
+    pos += classNameLength;
+    if (kind == AGGREGATE_STATE) {
+      final var aggregateClass = loadClass(className, Aggregate.class);
+      final var currentVersion = buffer.getLong(pos);
+      pos += 8;
+      final var currentJournalOffset = buffer.getLong(pos);
+      pos += 8;
+      final var lastSnapshotVersion = buffer.getLong(pos);
+      pos += 8;
+      final var knownCommandsWindow = buffer.getInt(pos);
+      pos += 4;
+      final var knownCommandsLength = buffer.getInt(pos);
+      pos += 4;
+      final var knownCommands = buffer.getString(pos, pos + knownCommandsLength, StandardCharsets.UTF_8.name());
+      pos += knownCommandsLength;
+      final var state = decodeState(aggregateClass, knownCommandsWindow, readBytes(pos, buffer))
+        .setCurrentVersion(currentVersion == NULL_LONG ? null : currentVersion)
+        .setCurrentJournalOffset(currentJournalOffset == NULL_LONG ? null : currentJournalOffset)
+        .setLastSnapshotVersion(lastSnapshotVersion == NULL_LONG ? null : lastSnapshotVersion);
+      state.knownCommands().decode(knownCommands);
+      return state;
+    }
+    final var type = loadClass(className, Object.class);
+    if (!Command.class.isAssignableFrom(type) && !CommandReply.class.isAssignableFrom(type)) {
+      throw new IllegalArgumentException("Type not allowed on the aggregate bus " + className);
+    }
+    return busSerializer.deserialize(readBytes(pos, buffer), type);
+  }
+
+  private <T extends Aggregate> AggregateState<T> decodeState(Class<T> aggregateClass, int knownCommandsWindow, byte[] payload) {
+    return new AggregateState<>(aggregateClass, knownCommandsWindow)
+      .setState(payload == null ? null : busSerializer.deserialize(payload, aggregateClass));
+  }
+
+  @Override
+  public Object transform(Object object) {
+    if (object instanceof AggregateState<?> aggregateState) {
+      return aggregateState.copy();
+    }
+    if (object instanceof Shareable) {
+      return object;
+    }
+    // non shareable objects are isolated by a serialization round trip
+    return busSerializer.deserialize(busSerializer.serialize(object), object.getClass());
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte systemCodecID() {
+    return -1;
+  }
+
+  private static void appendString(Buffer buffer, String value) {
+    final var bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer.appendInt(bytes.length).appendBytes(bytes);
+  }
+
+  private static void appendBytes(Buffer buffer, byte[] bytes) {
+    if (bytes == null) {
+      buffer.appendInt(-1);
+    } else {
+      buffer.appendInt(bytes.length).appendBytes(bytes);
+    }
+  }
+
+  private static byte[] readBytes(int pos, Buffer buffer) {
+    final var length = buffer.getInt(pos);
+    if (length < 0) {
+      return null;
+    }
+    return buffer.getBytes(pos + 4, pos + 4 + length);
+  }
+
+  private static <T> Class<? extends T> loadClass(String className, Class<T> bound) {
+    try {
+      final var classLoader = Thread.currentThread().getContextClassLoader();
+      return Class.forName(className, false, classLoader != null ? classLoader : Es4jMessageCodec.class.getClassLoader()).asSubclass(bound);
+    } catch (ClassNotFoundException | ClassCastException e) {
+      throw new IllegalArgumentException("Unable to resolve " + className, e);
+    }
+  }
+
+}
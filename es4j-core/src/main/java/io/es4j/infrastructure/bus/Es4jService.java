@@ -156,7 +156,7 @@ public class Es4jService {
     return offsetStore.get(new OffsetKey(eventStreamQuery.projectionId(), eventStreamQuery.tenantId()))
       .flatMap(journalOffset -> eventStore.fetch(
             EventStreamBuilder.builder()
-              .offset(journalOffset.idOffSet())
+              .offset(journalOffset.nextIdOffset())
               .batchSize(eventStreamQuery.batchSize())
               .tenantId(eventStreamQuery.tenantId())
               .tags(eventStreamQuery.tags())
@@ -0,0 +1,41 @@
+package io.es4j.infrastructure.bus;
+
+import com.google.auto.service.AutoService;
+import io.es4j.infrastructure.BusSerializer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.jackson.DatabindCodec;
+
+import java.io.IOException;
+
+/**
+ * Writes objects straight to bytes with the Vert.x object mapper, skipping the intermediate JsonObject tree.
+ */
+@AutoService(BusSerializer.class)
+public class JacksonBusSerializer implements BusSerializer {
+
+  public static final String NAME = "json";
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte[] serialize(Object object) {
+    try {
+      return DatabindCodec.mapper().writeValueAsBytes(object);
+    } catch (IOException e) {
+      throw new EncodeException("Unable to serialize " + object.getClass().getName() + " : " + e.getMessage());
+    }
+  }
+
+  @Override
+  public <T> T deserialize(byte[] bytes, Class<T> type) {
+    try {
+      return DatabindCodec.mapper().readValue(bytes, type);
+    } catch (IOException e) {
+      throw new DecodeException("Unable to deserialize " + type.getName() + " : " + e.getMessage(), e);
+    }
+  }
+}
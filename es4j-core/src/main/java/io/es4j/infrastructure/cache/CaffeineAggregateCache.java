@@ -26,7 +26,7 @@ public class CaffeineAggregateCache implements AggregateCache {
 
   @Override
   public Uni<Void> setup(Class<? extends Aggregate> aggregateClass, AggregateConfiguration configuration) {
-    CaffeineWrapper.setUp(configuration);
+    CaffeineWrapper.setUp(aggregateClass, configuration);
     return Uni.createFrom().voidItem();
   }
 
@@ -2,52 +2,166 @@ package io.es4j.infrastructure.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
 import io.es4j.Aggregate;
 import io.es4j.core.objects.AggregateConfiguration;
 import io.es4j.core.objects.AggregateState;
 import io.es4j.infrastructure.models.AggregatePlainKey;
-import io.vertx.core.json.JsonObject;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.vertx.core.json.jackson.DatabindCodec;
+import io.vertx.micrometer.backends.BackendRegistries;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static io.es4j.core.CommandHandler.camelToKebab;
+
+/**
+ * One cache per aggregate class, bounded by {@link AggregateConfiguration#cacheMaxWeight()}.
+ * Entries are weighed by the serialized size of the aggregate, re-measured every few versions, plus the command id
+ * window, statistics are published to the default micrometer registry when metrics are enabled.
+ * <p>
+ * When {@link AggregateConfiguration#offHeapCacheSize()} is set, entries evicted for size are demoted to an
+ * {@link OffHeapAggregateTier} that is looked up on heap misses.
+ */
 public class CaffeineWrapper {
   private CaffeineWrapper() {
   }
 
   private static final Logger logger = LoggerFactory.getLogger(CaffeineWrapper.class);
-  public static Cache<AggregatePlainKey, Object> CAFFEINE;
-
-  public static synchronized void setUp(AggregateConfiguration aggregateConfiguration) {
-    if (Objects.isNull(CAFFEINE)) {
-      CAFFEINE = Caffeine.newBuilder()
-        .expireAfterAccess(aggregateConfiguration.cacheTtl())
-        .initialCapacity(500)
-        .evictionListener((key, value, reason) -> logger.info("Aggregate evicted from cache {}", new JsonObject().put("reason", reason).put("key", key).encodePrettily()))
-        .removalListener((key, value, reason) -> logger.info("Aggregate removed from cache {}", new JsonObject().put("reason", reason).put("key", key).encodePrettily()))
-        .build();
+  private static final Duration DEFAULT_TTL = Duration.ofHours(1);
+  private static final int ENTRY_OVERHEAD = 256;
+  private static final int KNOWN_COMMAND_WEIGHT = 32;
+  private static final long REMEASURE_VERSIONS = 64;
+  private static final Map<String, Cache<AggregatePlainKey, Object>> CACHES = new ConcurrentHashMap<>();
+  private static final Map<String, OffHeapAggregateTier<?>> OFF_HEAP_TIERS = new ConcurrentHashMap<>();
+
+  public static void setUp(Class<? extends Aggregate> aggregateClass, AggregateConfiguration aggregateConfiguration) {
+    CACHES.computeIfAbsent(aggregateClass.getName(), className -> {
+        final var offHeapCacheSize = Objects.requireNonNullElse(aggregateConfiguration.offHeapCacheSize(), 0L);
+        if (offHeapCacheSize > 0) {
+          final var tier = new OffHeapAggregateTier<>(
+            aggregateClass,
+            Objects.requireNonNullElse(aggregateConfiguration.commandIdempotencyThreshold(), AggregateState.DEFAULT_KNOWN_COMMANDS),
+            offHeapCacheSize
+          );
+          OFF_HEAP_TIERS.put(className, tier);
+          final var registry = BackendRegistries.getDefaultNow();
+          if (registry != null) {
+            tier.monitor(registry, camelToKebab(aggregateClass.getSimpleName()));
+          }
+          logger.info("Off-heap aggregate tier for {} sized to {} bytes", aggregateClass.getSimpleName(), offHeapCacheSize);
+        }
+        return build(aggregateClass.getSimpleName(), aggregateConfiguration);
+      }
+    );
+  }
+
+  private static Cache<AggregatePlainKey, Object> build(String aggregateName, AggregateConfiguration aggregateConfiguration) {
+    final var ttl = aggregateConfiguration != null ? Objects.requireNonNullElse(aggregateConfiguration.cacheTtl(), DEFAULT_TTL) : DEFAULT_TTL;
+    final var maxWeight = aggregateConfiguration != null ?
+      Objects.requireNonNullElse(aggregateConfiguration.cacheMaxWeight(), AggregateConfiguration.DEFAULT_CACHE_MAX_WEIGHT)
+      : AggregateConfiguration.DEFAULT_CACHE_MAX_WEIGHT;
+    final Cache<AggregatePlainKey, Object> cache = Caffeine.newBuilder()
+      .expireAfterAccess(ttl)
+      .initialCapacity(500)
+      .maximumWeight(maxWeight)
+      .weigher(CaffeineWrapper::weigh)
+      .recordStats()
+      .evictionListener((key, value, reason) -> {
+          logger.debug("Aggregate {} evicted from cache, {}", key, reason);
+          if (reason == RemovalCause.SIZE && key != null && value instanceof AggregateState<?> aggregateState) {
+            final var tier = OFF_HEAP_TIERS.get(key.aggregateClass());
+            if (tier != null) {
+              tier.demote(key, aggregateState);
+            }
+          }
+        }
+      )
+      .build();
+    final var registry = BackendRegistries.getDefaultNow();
+    if (registry != null) {
+      CaffeineCacheMetrics.monitor(registry, cache, camelToKebab(aggregateName));
     }
+    logger.info("Aggregate cache for {} bounded to {} bytes, ttl {}", aggregateName, maxWeight, ttl);
+    return cache;
+  }
+
+  /**
+   * Estimates the retained size of an entry. The aggregate is serialized, without buffering the output, the first
+   * time it is weighed and again once it moved {@link #REMEASURE_VERSIONS} versions past the last measure, puts in
+   * between reuse the size carried by the state.
+   */
+  private static int weigh(AggregatePlainKey key, Object value) {
+    if (value instanceof AggregateState<?> aggregateState && aggregateState.state() != null) {
+      final var weight = ENTRY_OVERHEAD + stateSize(key, aggregateState) + (long) aggregateState.knownCommands().size() * KNOWN_COMMAND_WEIGHT;
+      return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+    return ENTRY_OVERHEAD;
+  }
+
+  private static long stateSize(AggregatePlainKey key, AggregateState<?> aggregateState) {
+    final var version = Objects.requireNonNullElse(aggregateState.currentVersion(), 0L);
+    if (aggregateState.measuredSize() >= 0 && version - aggregateState.measuredVersion() < REMEASURE_VERSIONS) {
+      return aggregateState.measuredSize();
+    }
+    final var counter = new CountingOutputStream(ByteStreams.nullOutputStream());
+    try {
+      DatabindCodec.mapper().writeValue(counter, aggregateState.state());
+    } catch (IOException | RuntimeException exception) {
+      logger.debug("Unable to weigh {}", key, exception);
+    }
+    aggregateState.setMeasuredSize(counter.getCount(), version);
+    return counter.getCount();
+  }
+
+  private static Cache<AggregatePlainKey, Object> cache(AggregatePlainKey k) {
+    return CACHES.computeIfAbsent(k.aggregateClass(), className -> build(className.substring(className.lastIndexOf('.') + 1), null));
   }
 
   public static <T extends Aggregate> AggregateState<T> get(AggregatePlainKey k) {
-    logger.debug("Fetching from cache {}", JsonObject.mapFrom(k).encodePrettily());
-    final var valueObject = CAFFEINE.getIfPresent(k);
+    final var cache = cache(k);
+    final var valueObject = cache.getIfPresent(k);
     if (valueObject != null) {
-      logger.debug("Cache hit for {}", JsonObject.mapFrom(k).encodePrettily());
+      logger.debug("Cache hit for {}", k);
       return (AggregateState<T>) valueObject;
     }
-    logger.debug("Cache miss for {}", JsonObject.mapFrom(k).encodePrettily());
+    final var tier = OFF_HEAP_TIERS.get(k.aggregateClass());
+    if (tier != null) {
+      final var promoted = tier.promote(k);
+      if (promoted != null) {
+        logger.debug("Off-heap hit for {}", k);
+        cache.put(k, promoted);
+        return (AggregateState<T>) promoted;
+      }
+    }
+    logger.debug("Cache miss for {}", k);
     return null;
   }
 
   public static <T extends Aggregate> void put(AggregatePlainKey k, AggregateState<T> v) {
-    logger.debug("Adding {}::{}", k, v);
-    CAFFEINE.put(k, v);
+    logger.debug("Adding {}", k);
+    cache(k).put(k, v);
+    invalidateOffHeap(k);
   }
 
   public static <T extends Aggregate> void invalidate(Class<T> aggregateClass, AggregatePlainKey k) {
     logger.debug("Invalidating {}::{}", aggregateClass.getName(), k);
-    CAFFEINE.invalidate(k);
+    cache(k).invalidate(k);
+    invalidateOffHeap(k);
+  }
+
+  private static void invalidateOffHeap(AggregatePlainKey k) {
+    final var tier = OFF_HEAP_TIERS.get(k.aggregateClass());
+    if (tier != null) {
+      tier.invalidate(k);
+    }
   }
 }
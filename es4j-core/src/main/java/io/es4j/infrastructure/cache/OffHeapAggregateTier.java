@@ -0,0 +1,131 @@
+package io.es4j.infrastructure.cache;
+
+import io.es4j.Aggregate;
+import io.es4j.core.objects.AggregateState;
+import io.es4j.infrastructure.models.AggregatePlainKey;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.jackson.DatabindCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Second cache tier holding aggregates evicted from the heap cache in serialized form.
+ * Entries are promoted back to the heap cache on a hit, which removes them from this tier.
+ *
+ * @param <T> the aggregate held by the tier
+ */
+public class OffHeapAggregateTier<T extends Aggregate> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapAggregateTier.class);
+  private static final long NULL_LONG = Long.MIN_VALUE;
+
+  private final Class<T> aggregateClass;
+  private final int knownCommandsWindow;
+  private final OffHeapStateStore<AggregatePlainKey> store;
+
+  public OffHeapAggregateTier(Class<T> aggregateClass, int knownCommandsWindow, long capacity) {
+    this.aggregateClass = aggregateClass;
+    this.knownCommandsWindow = knownCommandsWindow;
+    this.store = new OffHeapStateStore<>(capacity);
+  }
+
+  public void demote(AggregatePlainKey key, AggregateState<?> aggregateState) {
+    if (aggregateState.state() == null) {
+      return;
+    }
+    try {
+      if (!store.put(key, encode(aggregateState))) {
+        LOGGER.debug("Aggregate {} too large for the off-heap tier", key);
+      }
+    } catch (Exception exception) {
+      // the holder may be concurrently updated by its command handler, the entry is simply not demoted
+      LOGGER.debug("Unable to demote {}", key, exception);
+    }
+  }
+
+  public AggregateState<T> promote(AggregatePlainKey key) {
+    final var payload = store.remove(key);
+    if (payload == null) {
+      return null;
+    }
+    try {
+      return decode(payload);
+    } catch (Exception exception) {
+      LOGGER.warn("Unable to decode off-heap entry {}", key, exception);
+      return null;
+    }
+  }
+
+  public void invalidate(AggregatePlainKey key) {
+    store.invalidate(key);
+  }
+
+  public void monitor(MeterRegistry registry, String cacheName) {
+    Gauge.builder("es4j.aggregate.offheap.size", store, OffHeapStateStore::size)
+      .tag("cache", cacheName)
+      .register(registry);
+    Gauge.builder("es4j.aggregate.offheap.capacity", store, OffHeapStateStore::capacity)
+      .tag("cache", cacheName)
+      .baseUnit("bytes")
+      .register(registry);
+    FunctionCounter.builder("es4j.aggregate.offheap.hits", store, OffHeapStateStore::hits)
+      .tag("cache", cacheName)
+      .register(registry);
+    FunctionCounter.builder("es4j.aggregate.offheap.misses", store, OffHeapStateStore::misses)
+      .tag("cache", cacheName)
+      .register(registry);
+    FunctionCounter.builder("es4j.aggregate.offheap.evictions", store, OffHeapStateStore::evictions)
+      .tag("cache", cacheName)
+      .register(registry);
+  }
+
+  private static byte[] encode(AggregateState<?> aggregateState) throws IOException {
+    final var knownCommands = aggregateState.knownCommands().encode();
+    final var buffer = Buffer.buffer()
+      .appendLong(orNull(aggregateState.currentVersion()))
+      .appendLong(orNull(aggregateState.currentJournalOffset()))
+      .appendLong(orNull(aggregateState.lastSnapshotVersion()));
+    appendString(buffer, knownCommands);
+    buffer.appendBytes(DatabindCodec.mapper().writeValueAsBytes(aggregateState.state()));
+    return buffer.getBytes();
+  }
+
+  private AggregateState<T> decode(byte[] payload) throws IOException {
+    final var buffer = Buffer.buffer(payload);
+    final var state = new AggregateState<>(aggregateClass, knownCommandsWindow)
+      .setCurrentVersion(nullable(buffer.getLong(0)))
+      .setCurrentJournalOffset(nullable(buffer.getLong(8)))
+      .setLastSnapshotVersion(nullable(buffer.getLong(16)));
+    final var knownCommandsLength = buffer.getInt(24);
+    var position = 28;
+    if (knownCommandsLength >= 0) {
+      state.knownCommands().decode(buffer.getString(position, position + knownCommandsLength, StandardCharsets.UTF_8.name()));
+      position += knownCommandsLength;
+    }
+    return state.setState(DatabindCodec.mapper().readValue(payload, position, payload.length - position, aggregateClass));
+  }
+
+  private static void appendString(Buffer buffer, String value) {
+    if (value == null) {
+      buffer.appendInt(-1);
+    } else {
+      final var bytes = value.getBytes(StandardCharsets.UTF_8);
+      buffer.appendInt(bytes.length).appendBytes(bytes);
+    }
+  }
+
+  private static long orNull(Long value) {
+    return value == null ? NULL_LONG : value;
+  }
+
+  private static Long nullable(long value) {
+    return value == NULL_LONG ? null : value;
+  }
+
+}
@@ -0,0 +1,129 @@
+package io.es4j.infrastructure.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Circular log of serialized entries in direct memory.
+ * <p>
+ * The capacity is split in segments that are written one after the other, when the log wraps around the oldest
+ * segment is reclaimed as a whole and every entry still pointing into it is evicted. Only the index lives on heap.
+ *
+ * @param <K> the key of the entries
+ */
+public class OffHeapStateStore<K> {
+
+  private static final int HEADER = Integer.BYTES;
+  private static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private final int segmentSize;
+  private final ByteBuffer[] segments;
+  private final List<List<K>> segmentKeys;
+  private final Map<K, Long> index = new HashMap<>();
+  private int segment = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  public OffHeapStateStore(long capacity) {
+    final var segmentCount = (int) Math.max(2, (capacity + MAX_SEGMENT_SIZE - 1) / MAX_SEGMENT_SIZE);
+    this.segmentSize = (int) Math.min(MAX_SEGMENT_SIZE, capacity / segmentCount);
+    this.segments = new ByteBuffer[segmentCount];
+    this.segmentKeys = new ArrayList<>(segmentCount);
+    for (int i = 0; i < segmentCount; i++) {
+      segmentKeys.add(new ArrayList<>());
+    }
+  }
+
+  /**
+   * @return false if the payload doesn't fit in a segment and was not stored
+   */
+  public synchronized boolean put(K key, byte[] payload) {
+    final var size = HEADER + payload.length;
+    if (size > segmentSize) {
+      index.remove(key);
+      return false;
+    }
+    if (segment(segment).remaining() < size) {
+      advance();
+    }
+    final var buffer = segment(segment);
+    final var offset = buffer.position();
+    buffer.putInt(payload.length).put(payload);
+    segmentKeys.get(segment).add(key);
+    index.put(key, ((long) segment << 32) | offset);
+    return true;
+  }
+
+  public synchronized byte[] get(K key) {
+    final var location = index.get(key);
+    if (location == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    final var buffer = segments[(int) (location >>> 32)];
+    final var offset = (int) location.longValue();
+    final var payload = new byte[buffer.getInt(offset)];
+    buffer.get(offset + HEADER, payload);
+    return payload;
+  }
+
+  public synchronized byte[] remove(K key) {
+    final var payload = get(key);
+    index.remove(key);
+    return payload;
+  }
+
+  public synchronized void invalidate(K key) {
+    index.remove(key);
+  }
+
+  public synchronized int size() {
+    return index.size();
+  }
+
+  public synchronized long hits() {
+    return hits;
+  }
+
+  public synchronized long misses() {
+    return misses;
+  }
+
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  public long capacity() {
+    return (long) segmentSize * segments.length;
+  }
+
+  private void advance() {
+    segment = (segment + 1) % segments.length;
+    final var reclaimed = segment;
+    final var keys = segmentKeys.get(reclaimed);
+    keys.forEach(key -> {
+        final var location = index.get(key);
+        if (location != null && (int) (location >>> 32) == reclaimed) {
+          index.remove(key);
+          evictions++;
+        }
+      }
+    );
+    keys.clear();
+    segment(reclaimed).clear();
+  }
+
+  private ByteBuffer segment(int position) {
+    if (segments[position] == null) {
+      // segments are only reserved once the log reaches them
+      segments[position] = ByteBuffer.allocateDirect(segmentSize);
+    }
+    return segments[position];
+  }
+
+}
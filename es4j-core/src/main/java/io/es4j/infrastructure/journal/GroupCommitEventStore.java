@@ -0,0 +1,244 @@
+package io.es4j.infrastructure.journal;
+
+import io.es4j.Aggregate;
+import io.es4j.Es4jDeployment;
+import io.es4j.core.objects.AggregateConfiguration;
+import io.es4j.infrastructure.EventStore;
+import io.es4j.infrastructure.models.*;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Group commit stage in front of an {@link EventStore}.
+ * <p>
+ * Group commit is opt-in through {@link AggregateConfiguration#appendBatchSize()}. An append issued while no batch
+ * is being written goes straight to the store, appends issued while a batch is in flight are collected, up to
+ * {@link AggregateConfiguration#appendBatchSize()}, and written with a single {@link EventStore#appendBatch(List)}
+ * once it completes or once {@link AggregateConfiguration#appendBatchWindow()} elapses. A lone append therefore never
+ * waits for a timer.
+ * When the batch hits a version conflict it is split and every instruction is appended on its own, so each caller
+ * still gets its own success or {@link ConcurrentAppend}.
+ * Stores that can't write a batch atomically are called straight through.
+ * <p>
+ * A stage belongs to a single aggregate verticle and is only used from its event loop.
+ */
+public class GroupCommitEventStore implements EventStore {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitEventStore.class);
+  private final EventStore delegate;
+  private final Vertx vertx;
+  private final long windowMillis;
+  private final int maxBatchSize;
+  private final List<Uni<Void>> inFlight = new ArrayList<>();
+  private List<PendingAppend> pending = new ArrayList<>();
+  private Long flushTimer = null;
+
+  public GroupCommitEventStore(Vertx vertx, EventStore delegate, AggregateConfiguration aggregateConfiguration) {
+    this.vertx = vertx;
+    this.delegate = delegate;
+    this.windowMillis = Objects.requireNonNullElse(aggregateConfiguration.appendBatchWindow(), Duration.ZERO).toMillis();
+    this.maxBatchSize = Objects.requireNonNullElse(aggregateConfiguration.appendBatchSize(), 1);
+  }
+
+  @Override
+  public <T extends Aggregate> Uni<List<Long>> append(AppendInstruction<T> appendInstruction) {
+    if (!enabled()) {
+      return delegate.append(appendInstruction);
+    }
+    return Uni.createFrom().emitter(emitter -> enqueue(new PendingAppend(appendInstruction, emitter)));
+  }
+
+  private boolean enabled() {
+    return maxBatchSize > 1 && delegate.atomicBatchAppend();
+  }
+
+  private void enqueue(PendingAppend pendingAppend) {
+    pending.add(pendingAppend);
+    if (inFlight.isEmpty() || pending.size() >= maxBatchSize) {
+      flush();
+    } else if (flushTimer == null && windowMillis > 0) {
+      flushTimer = vertx.setTimer(windowMillis, timerId -> timedFlush());
+    }
+  }
+
+  private void timedFlush() {
+    flushTimer = null;
+    flush();
+  }
+
+  private void flush() {
+    if (flushTimer != null) {
+      vertx.cancelTimer(flushTimer);
+      flushTimer = null;
+    }
+    if (pending.isEmpty()) {
+      return;
+    }
+    final var batch = pending;
+    pending = new ArrayList<>();
+    final var write = write(batch).memoize().indefinitely();
+    inFlight.add(write);
+    write.subscribe().with(
+      avoid -> written(write),
+      throwable -> written(write)
+    );
+  }
+
+  /**
+   * Appends queued behind the batch that just completed are written right away.
+   */
+  private void written(Uni<Void> write) {
+    inFlight.remove(write);
+    if (inFlight.isEmpty()) {
+      flush();
+    }
+  }
+
+  private Uni<Void> write(List<PendingAppend> batch) {
+    if (batch.size() == 1) {
+      return appendSingle(batch.get(0));
+    }
+    LOGGER.debug("Group committing {} append instructions", batch.size());
+    return delegate.appendBatch(batch.stream().<AppendInstruction<?>>map(PendingAppend::instruction).toList())
+      .onItem().invoke(offsets -> complete(batch, offsets))
+      .replaceWithVoid()
+      .onFailure().recoverWithUni(throwable -> {
+          if (throwable instanceof ConcurrentAppend) {
+            LOGGER.debug("Group commit of {} instructions conflicted, appending individually", batch.size());
+            return Uni.join().all(batch.stream().map(this::appendSingle).toList()).andCollectFailures().replaceWithVoid();
+          }
+          batch.forEach(pendingAppend -> pendingAppend.emitter().fail(throwable));
+          return Uni.createFrom().voidItem();
+        }
+      );
+  }
+
+  /**
+   * Offsets of a batch follow the order of its instructions, each caller gets the slice of its own events.
+   */
+  private static void complete(List<PendingAppend> batch, List<Long> offsets) {
+    var from = 0;
+    for (final var pendingAppend : batch) {
+      final var to = Math.min(from + pendingAppend.instruction().events().size(), offsets.size());
+      pendingAppend.emitter().complete(new ArrayList<>(offsets.subList(from, to)));
+      from = to;
+    }
+  }
+
+  private Uni<Void> appendSingle(PendingAppend pendingAppend) {
+    return delegate.append(pendingAppend.instruction())
+      .onItemOrFailure().invoke((offsets, throwable) -> {
+          if (throwable != null) {
+            pendingAppend.emitter().fail(throwable);
+          } else {
+            pendingAppend.emitter().complete(offsets);
+          }
+        }
+      )
+      .replaceWithVoid()
+      .onFailure().recoverWithNull();
+  }
+
+  @Override
+  public Uni<List<Long>> appendBatch(List<AppendInstruction<?>> appendInstructions) {
+    return delegate.appendBatch(appendInstructions);
+  }
+
+  @Override
+  public boolean atomicBatchAppend() {
+    return delegate.atomicBatchAppend();
+  }
+
+  @Override
+  public boolean streamHeads() {
+    return delegate.streamHeads();
+  }
+
+  @Override
+  public boolean journalShards() {
+    return delegate.journalShards();
+  }
+
+  @Override
+  public <T extends Aggregate> Uni<Optional<AggregateStreamHead>> head(AggregateKey<T> aggregateKey) {
+    return delegate.head(aggregateKey);
+  }
+
+  @Override
+  public Uni<BulkLoadReport> bulkLoad(Multi<Event> events) {
+    return delegate.bulkLoad(events);
+  }
+
+  @Override
+  public <T extends Aggregate> Uni<List<Event>> fetch(AggregateEventStream<T> aggregateEventStream) {
+    return delegate.fetch(aggregateEventStream);
+  }
+
+  @Override
+  public <T extends Aggregate> Uni<Void> stream(AggregateEventStream<T> aggregateEventStream, Consumer<Event> consumer) {
+    return delegate.stream(aggregateEventStream, consumer);
+  }
+
+  @Override
+  public Uni<List<Event>> fetch(EventStream eventStream) {
+    return delegate.fetch(eventStream);
+  }
+
+  @Override
+  public Uni<Void> stream(EventStream eventStream, Consumer<Event> consumer) {
+    return delegate.stream(eventStream, consumer);
+  }
+
+  @Override
+  public <T extends Aggregate> Uni<Void> startStream(StartStream<T> appendInstruction) {
+    return delegate.startStream(appendInstruction);
+  }
+
+  /**
+   * Queued appends are flushed and the store is only stopped once every batch in flight is written.
+   */
+  @Override
+  public Uni<Void> stop() {
+    flush();
+    if (inFlight.isEmpty()) {
+      return delegate.stop();
+    }
+    return Uni.join().all(new ArrayList<>(inFlight)).andCollectFailures()
+      .onFailure().recoverWithNull()
+      .flatMap(avoid -> delegate.stop());
+  }
+
+  @Override
+  public void start(Es4jDeployment es4jDeployment, Vertx vertx, JsonObject configuration) {
+    delegate.start(es4jDeployment, vertx, configuration);
+  }
+
+  @Override
+  public Uni<Void> setup(Es4jDeployment es4jDeployment, Vertx vertx, JsonObject configuration) {
+    return delegate.setup(es4jDeployment, vertx, configuration);
+  }
+
+  @Override
+  public <T extends Aggregate> Uni<Void> trim(PruneEventStream<T> trim) {
+    return delegate.trim(trim);
+  }
+
+  private record PendingAppend(
+    AppendInstruction<?> instruction,
+    UniEmitter<? super List<Long>> emitter
+  ) {
+  }
+
+}
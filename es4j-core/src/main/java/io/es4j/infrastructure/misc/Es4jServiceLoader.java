@@ -59,6 +59,14 @@ public class Es4jServiceLoader {
       .toList();
   }
 
+  public static BusSerializer loadBusSerializer(String name) {
+    return ServiceLoader.load(BusSerializer.class).stream()
+      .map(ServiceLoader.Provider::get)
+      .filter(busSerializer -> busSerializer.name().equals(name))
+      .findFirst()
+      .orElseThrow(() -> new IllegalStateException("BusSerializer " + name + " not found"));
+  }
+
   public static OffsetStore loadOffsetStore() {
     return ServiceLoader.load(OffsetStore.class).stream()
       .findFirst()
@@ -66,6 +74,12 @@ public class Es4jServiceLoader {
       .orElseThrow(() -> new IllegalStateException("OffsetStore not found"));
   }
 
+  public static Optional<SnapshotStore> loadSnapshotStore() {
+    return ServiceLoader.load(SnapshotStore.class).stream()
+      .findFirst()
+      .map(ServiceLoader.Provider::get);
+  }
+
   public static List<Aggregator> loadAggregators() {
     return ServiceLoader.load(Aggregator.class).stream()
       .map(ServiceLoader.Provider::get)
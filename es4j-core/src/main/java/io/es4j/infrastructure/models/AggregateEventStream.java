@@ -14,6 +14,13 @@ public record AggregateEventStream<T extends Aggregate>(
   Boolean startFromSnapshot,
   Integer maxSize
 ) {
+  /**
+   * Events of the aggregate strictly after the given version, the snapshot isn't looked up.
+   */
+  public static <T extends Aggregate> AggregateEventStream<T> after(String aggregateId, String tenantId, long version, Integer maxSize) {
+    return new AggregateEventStream<>(aggregateId, tenantId, version + 1, null, false, maxSize);
+  }
+
   public JsonObject toJson() {
     return new JsonObject()
       .put("aggregateId", aggregateId)
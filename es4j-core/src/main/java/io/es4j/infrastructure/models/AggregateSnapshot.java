@@ -0,0 +1,16 @@
+package io.es4j.infrastructure.models;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+import io.vertx.core.json.JsonObject;
+
+@RecordBuilder
+public record AggregateSnapshot(
+  String aggregateId,
+  String tenantId,
+  Long version,
+  Long journalOffset,
+  Integer schemaVersion,
+  JsonObject state,
+  String knownCommandIds
+) {
+}
@@ -0,0 +1,13 @@
+package io.es4j.infrastructure.models;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+@RecordBuilder
+public record AggregateStreamHead(
+  String aggregateId,
+  String tenantId,
+  Long currentVersion,
+  Long lastSnapshotVersion,
+  Long journalOffset
+) {
+}
@@ -0,0 +1,18 @@
+package io.es4j.infrastructure.models;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+import java.time.Duration;
+
+@RecordBuilder
+public record BulkLoadReport(
+  Long events,
+  Long aggregates,
+  Duration elapsed
+) {
+
+  public double eventsPerSecond() {
+    return elapsed.isZero() ? events : events * 1_000_000_000D / elapsed.toNanos();
+  }
+
+}
@@ -5,4 +5,12 @@ public class ConcurrentAppend extends RuntimeException {
   public ConcurrentAppend(Throwable throwable) {
     super(throwable);
   }
+
+  /**
+   * Conflicts detected from the outcome of the append rather than from an error, they are expected under
+   * contention and recovered from, no stack trace is filled in.
+   */
+  public ConcurrentAppend(String message) {
+    super(message, null, false, false);
+  }
 }
@@ -16,6 +16,9 @@ public record EventStream(
   Instant from,
   Instant to,
   Long versionFrom,
-  Long versionTo
+  Long versionTo,
+  List<String> commandIds,
+  Integer shard,
+  Integer shards
 ) {
 }
@@ -4,6 +4,7 @@ import io.es4j.Aggregate;
 import io.es4j.Command;
 import io.es4j.core.objects.*;
 import io.es4j.infrastructure.bus.AggregateBus;
+import io.es4j.infrastructure.bus.Es4jMessageCodec;
 import io.es4j.infrastructure.bus.Es4jService;
 import io.es4j.infrastructure.models.Event;
 import io.es4j.infrastructure.models.EventFilter;
@@ -31,6 +32,7 @@ public class AggregateEventBusPoxy<T extends Aggregate> {
   ) {
     this.vertx = vertx;
     this.aggregateClass = aggregateClass;
+    Es4jMessageCodec.register(vertx);
   }
 
 
@@ -50,6 +52,32 @@ public class AggregateEventBusPoxy<T extends Aggregate> {
     );
   }
 
+  public Uni<CommandAck> acknowledgeCommand(Command command) {
+    return AggregateBus.acknowledge(
+      vertx,
+      aggregateClass,
+      command
+    );
+  }
+
+  public Uni<String> submitCommand(Command command) {
+    return AggregateBus.submit(
+      vertx,
+      aggregateClass,
+      command
+    );
+  }
+
+  public Uni<CommandStatus> commandStatus(String aggregateId, String tenant, String commandId) {
+    return AggregateBus.commandStatus(
+      vertx,
+      aggregateClass,
+      aggregateId,
+      tenant,
+      commandId
+    );
+  }
+
   public Uni<List<Event>> fetch(EventFilter eventStreamQuery) {
     return vertx.eventBus().<JsonArray>request(Es4jService.fetchEventsAddress(aggregateClass), JsonObject.mapFrom(eventStreamQuery))
       .map(jsonArrayMessage -> jsonArrayMessage.body().stream().map(JsonObject::mapFrom).map(jsonObject -> jsonObject.mapTo(Event.class)).toList());
@@ -3,8 +3,11 @@ package io.es4j.launcher;
 import io.es4j.Aggregate;
 
 
+import io.es4j.AsyncProjection;
 import io.es4j.Es4jDeployment;
 import io.es4j.AsyncStateTransfer;
+import io.es4j.core.EventFolder;
+import io.es4j.core.objects.DispatchPlan;
 import io.es4j.core.tasks.AggregateHeartbeat;
 import io.es4j.core.verticles.AggregateVerticle;
 import io.es4j.infrastructure.*;
@@ -30,8 +33,11 @@ import io.vertx.mutiny.core.Vertx;
 
 import java.util.*;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import static io.es4j.core.CommandHandler.camelToKebab;
+import static io.es4j.core.verticles.AggregateVerticle.loadAggregators;
+import static io.es4j.core.verticles.AggregateVerticle.loadBehaviours;
 import static io.es4j.infrastructure.bus.AggregateBus.startChannel;
 
 public class AggregateDeployer<T extends Aggregate> {
@@ -46,6 +52,7 @@ public class AggregateDeployer<T extends Aggregate> {
   private final Stack<String> deployed = new Stack<>();
   private CronTaskDeployer cronTaskDeployer;
   private TimerTaskDeployer timerTaskDeployer;
+  private List<EventProjectionPoller> eventProjections = List.of();
 
   public AggregateDeployer(
     final Class<T> aggregateClass,
@@ -71,9 +78,9 @@ public class AggregateDeployer<T extends Aggregate> {
           )
           .call(injector -> {
               addHeartBeat();
-              addProjections();
               final Supplier<Verticle> supplier = () -> new AggregateVerticle<>(es4jDeploymentConfiguration, aggregateClass, nodeDeploymentID);
-              return startChannel(vertx, es4jDeploymentConfiguration.aggregateClass(), nodeDeploymentID)
+              return addProjections()
+                .flatMap(avoid -> startChannel(vertx, es4jDeploymentConfiguration.aggregateClass(), nodeDeploymentID))
                 .flatMap(avoid -> Multi.createBy().repeating().uni(() ->vertx.deployVerticle(supplier, new DeploymentOptions()
                       .setConfig(infrastructureConfiguration)
                     )
@@ -118,8 +125,8 @@ public class AggregateDeployer<T extends Aggregate> {
       Optional.of(new CaffeineAggregateCache()),
       Es4jServiceLoader.loadEventStore(),
       Optional.empty(),
-      Es4jServiceLoader.loadOffsetStore()
-
+      Es4jServiceLoader.loadOffsetStore(),
+      Es4jServiceLoader.loadSnapshotStore()
     );
     if (Objects.isNull(cronTaskDeployer)) {
       cronTaskDeployer = new CronTaskDeployer(vertx);
@@ -132,8 +139,9 @@ public class AggregateDeployer<T extends Aggregate> {
   }
 
 
-  private void addProjections() {
+  private Uni<Void> addProjections() {
     final var aggregateProxy = new AggregateEventBusPoxy<>(vertx, aggregateClass);
+    final var eventFolder = new EventFolder<>(DispatchPlan.compile(aggregateClass, loadAggregators(aggregateClass), loadBehaviours(aggregateClass)));
     final var stateProjections = Es4jServiceLoader.stateProjections().stream()
       .filter(cc -> Es4jServiceLoader.getFirstGenericType(cc).isAssignableFrom(es4jDeploymentConfiguration.aggregateClass()))
       .map(cc -> gettStateProjectionWrapper(cc, aggregateClass))
@@ -141,21 +149,58 @@ public class AggregateDeployer<T extends Aggregate> {
         aggregateClass,
         tStateProjectionWrapper,
         aggregateProxy,
+        eventFolder,
         infrastructure.eventStore(),
         infrastructure.offsetStore()
       ))
       .toList();
-    final var eventProjections = Es4jServiceLoader.pollingEventProjections().stream()
+    final var asyncProjections = Es4jServiceLoader.pollingEventProjections().stream()
       .filter(cc -> cc.aggregateClass().isAssignableFrom(es4jDeploymentConfiguration.aggregateClass()))
-      .map(eventProjection -> new EventProjectionPoller(
-          eventProjection,
-          infrastructure.eventStore(),
-          infrastructure.offsetStore()
-        )
+      .toList();
+    final var unsupported = asyncProjections.stream()
+      .filter(asyncProjection -> asyncProjection.appliedByOffsetStore() && !infrastructure.offsetStore().transactional(asyncProjection))
+      .map(asyncProjection -> asyncProjection.getClass().getName())
+      .toList();
+    if (!unsupported.isEmpty()) {
+      return Uni.createFrom().failure(new IllegalStateException(
+        unsupported + " can only be applied within the offset transaction, " + infrastructure.offsetStore().getClass().getSimpleName() + " doesn't support it"
+      ));
+    }
+    this.eventProjections = asyncProjections.stream()
+      .flatMap(eventProjection -> {
+          final var shards = projectionShards(eventProjection);
+          return IntStream.range(0, shards).mapToObj(shard -> new EventProjectionPoller(
+              vertx,
+              es4jDeploymentConfiguration.aggregateClass(),
+              eventProjection,
+              shard,
+              shards,
+              infrastructure.eventStore(),
+              infrastructure.offsetStore()
+            )
+          );
+        }
       )
       .toList();
-    eventProjections.forEach(cronTaskDeployer::deploy);
     stateProjections.forEach(cronTaskDeployer::deploy);
+    if (eventProjections.isEmpty()) {
+      return Uni.createFrom().voidItem();
+    }
+    return Uni.join().all(eventProjections.stream().map(EventProjectionPoller::start).toList()).andFailFast()
+      .invoke(avoid -> {
+          eventProjections.forEach(cronTaskDeployer::deploy);
+          eventProjections.forEach(EventProjectionPoller::listen);
+        }
+      )
+      .replaceWithVoid();
+  }
+
+  private int projectionShards(AsyncProjection asyncProjection) {
+    if (asyncProjection.shards() > 1 && !infrastructure.eventStore().journalShards()) {
+      LOGGER.warn("{} can't shard the journal, {} runs on a single shard", infrastructure.eventStore().getClass().getSimpleName(), asyncProjection.getClass().getSimpleName());
+      return 1;
+    }
+    return Math.max(1, asyncProjection.shards());
   }
 
   private StateProjectionWrapper<T> gettStateProjectionWrapper(AsyncStateTransfer cc, Class<T> aggregateClass) {
@@ -174,6 +219,7 @@ public class AggregateDeployer<T extends Aggregate> {
     if (Objects.nonNull(timerTaskDeployer)) {
       timerTaskDeployer.close();
     }
+    closeUnis.addAll(eventProjections.stream().map(EventProjectionPoller::close).toList());
     if (Objects.nonNull(aggregateServices) && !aggregateServices.isEmpty()) {
       closeUnis.addAll(aggregateServices.stream().map(AggregateServices::stop).toList());
     }
@@ -23,5 +23,8 @@ public class Constants {
 
   public static final String APPLICATION_JSON = "application/json";
   public static final String CONTENT_TYPE = "content-type";
+  public static final String PREFER = "Prefer";
+  public static final String RESPOND_ASYNC = "respond-async";
+  public static final String RETURN_MINIMAL = "return=minimal";
 
 }
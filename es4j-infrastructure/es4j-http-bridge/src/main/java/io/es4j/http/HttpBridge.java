@@ -7,6 +7,7 @@ import io.es4j.Es4jDeployment;
 import io.es4j.Command;
 import io.es4j.core.objects.DefaultFilters;
 import io.es4j.core.objects.Es4jError;
+import io.es4j.core.objects.LoadAggregate;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 
@@ -176,24 +177,61 @@ public class HttpBridge implements Bridge {
             getAuthHandler(command).ifPresentOrElse(
               httpBridgeAuth -> {
                 final var roles = httpBridgeAuth.extractRoles(routingContext);
-                proxies.get(key).proxyCommand(command)
-                  .subscribe()
-                  .with(
-                    state -> okJson(routingContext, state.toJson()),
-                    routingContext::fail
-                  );
+                dispatchCommand(routingContext, key, command);
               },
-              () -> proxies.get(key).proxyCommand(command)
-                .subscribe()
-                .with(
-                  state -> okJson(routingContext, state.toJson()),
-                  routingContext::fail
-                )
+              () -> dispatchCommand(routingContext, key, command)
             );
           }
         )
       )
     );
+    Es4jMain.AGGREGATE_COMMANDS.keySet().forEach(aggregateClass -> router.get(commandStatusPath(aggregateClass))
+      .produces(Constants.APPLICATION_JSON)
+      .handler(routingContext -> proxies.get(aggregateClass).commandStatus(
+            routingContext.queryParam("aggregateId").stream().findFirst()
+              .orElseThrow(() -> new RouterException("aggregateId query parameter is required", "", 400)),
+            routingContext.queryParam("tenant").stream().findFirst().orElse("default"),
+            routingContext.pathParam("commandId")
+          )
+          .subscribe()
+          .with(
+            commandStatus -> ok(routingContext, commandStatus),
+            routingContext::fail
+          )
+      )
+    );
+  }
+
+  /**
+   * Requests carrying {@code Prefer: respond-async} are only queued in memory on the owner node and answered with
+   * {@code 202 Accepted} and the command id, the command isn't persisted until it is processed.
+   * Other commands wait to be processed and are answered with the full aggregate state, clients sending
+   * {@code Prefer: return=minimal} get a {@link io.es4j.core.objects.CommandAck} instead.
+   */
+  private void dispatchCommand(RoutingContext routingContext, Class<? extends Aggregate> aggregateClass, Command command) {
+    final var prefer = Objects.requireNonNullElse(routingContext.request().getHeader(Constants.PREFER), "").toLowerCase();
+    if (prefer.contains(Constants.RESPOND_ASYNC)) {
+      proxies.get(aggregateClass).submitCommand(command)
+        .subscribe()
+        .with(
+          commandId -> accepted(routingContext, new JsonObject().put("commandId", commandId)),
+          routingContext::fail
+        );
+    } else if (prefer.contains(Constants.RETURN_MINIMAL) && !(command instanceof LoadAggregate)) {
+      proxies.get(aggregateClass).acknowledgeCommand(command)
+        .subscribe()
+        .with(
+          commandAck -> ok(routingContext, commandAck),
+          routingContext::fail
+        );
+    } else {
+      proxies.get(aggregateClass).proxyCommand(command)
+        .subscribe()
+        .with(
+          state -> okJson(routingContext, state.toJson()),
+          routingContext::fail
+        );
+    }
   }
 
   public Optional<HttpBridgeAuth> getAuthHandler(Command command) {
@@ -207,6 +245,14 @@ public class HttpBridge implements Bridge {
       .toString();
   }
 
+  public static String commandStatusPath(Class<? extends Aggregate> aggregateClass) {
+    return new StringJoiner("/", "/", "")
+      .add(camelToKebab(aggregateClass.getSimpleName()))
+      .add("command-status")
+      .add(":commandId")
+      .toString();
+  }
+
   @Override
   public Uni<Void> stop() {
     return httpServer.close();
@@ -301,6 +347,12 @@ public class HttpBridge implements Bridge {
     routingContext.response().setStatusCode(202).sendAndForget();
   }
 
+  public static void accepted(RoutingContext routingContext, JsonObject o) {
+    routingContext.response().setStatusCode(202)
+      .putHeader(Constants.CONTENT_TYPE, Constants.APPLICATION_JSON)
+      .sendAndForget(o.encode());
+  }
+
   public static void noContent(RoutingContext routingContext) {
     routingContext.response().setStatusCode(204).sendAndForget();
   }
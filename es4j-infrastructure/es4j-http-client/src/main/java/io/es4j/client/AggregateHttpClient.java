@@ -4,6 +4,7 @@ import io.es4j.Aggregate;
 import io.es4j.Command;
 import io.es4j.core.CommandHandler;
 import io.es4j.core.objects.AggregateState;
+import io.es4j.core.objects.CommandAck;
 import io.es4j.core.objects.Es4jError;
 import io.smallrye.mutiny.Uni;
 import org.slf4j.Logger;
@@ -16,6 +17,7 @@ import io.vertx.mutiny.ext.web.client.WebClient;
 
 import java.util.Objects;
 import java.util.StringJoiner;
+import java.util.function.Function;
 
 public class AggregateHttpClient<T extends Aggregate> {
 
@@ -41,7 +43,20 @@ public class AggregateHttpClient<T extends Aggregate> {
   public <C extends Command> Uni<AggregateState<T>> forward(C command) {
     return webClient.post(parsePath(aggregateClass, command.getClass()))
       .sendJson(JsonObject.mapFrom(Objects.requireNonNull(command, "command must not be null")))
-      .map(this::parseResponse);
+      .map(response -> parseResponse(response, body -> AggregateState.fromJson(body, aggregateClass)));
+  }
+
+  /**
+   * Forwards command to aggregate and only waits for the acknowledgement
+   * @param command
+   * @return
+   * @param <C>
+   */
+  public <C extends Command> Uni<CommandAck> acknowledge(C command) {
+    return webClient.post(parsePath(aggregateClass, command.getClass()))
+      .putHeader("Prefer", "return=minimal")
+      .sendJson(JsonObject.mapFrom(Objects.requireNonNull(command, "command must not be null")))
+      .map(response -> parseResponse(response, body -> body.mapTo(CommandAck.class)));
   }
 
   private static String parsePath(Class<? extends Aggregate> aggregateClass, Class<? extends Command> commandClass) {
@@ -51,10 +66,10 @@ public class AggregateHttpClient<T extends Aggregate> {
       .toString();
   }
 
-  private AggregateState<T> parseResponse(HttpResponse<Buffer> response) {
+  private <R> R parseResponse(HttpResponse<Buffer> response, Function<JsonObject, R> mapper) {
 //    logger.debug("Retrieved object {}", response.bodyAsJsonObject().encodePrettily());
     if (response.statusCode() == 200) {
-      return AggregateState.fromJson(response.bodyAsJsonObject(), aggregateClass);
+      return mapper.apply(response.bodyAsJsonObject());
     }
     logger.debug("Command rejected {} {} {}", response.body().toString(), response.statusCode(), response.statusMessage());
     final var error = response.bodyAsJsonObject().mapTo(Es4jError.class);
@@ -0,0 +1,232 @@
+package io.es4j.infra.pg;
+
+import io.es4j.core.objects.DispatchPlan;
+import io.es4j.infrastructure.models.BulkLoadReport;
+import io.es4j.infrastructure.models.ConcurrentAppend;
+import io.es4j.infrastructure.models.Event;
+import io.es4j.infrastructure.models.EventStoreExeception;
+import io.es4j.sql.RepositoryHandler;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.unchecked.Unchecked;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.pgclient.PgConnectOptions;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Bulk loads into the event journal through COPY FROM STDIN.
+ * <p>
+ * The reactive client can't speak the copy protocol, the load runs on a dedicated jdbc connection on a worker thread,
+ * opened with the connect options of the pool so it reaches the same server with the same ssl mode.
+ * Rows are streamed in text format as they arrive and the whole load is one transaction, stream heads are advanced
+ * at the end with the same base version guard used by regular appends.
+ */
+public class EventJournalCopy {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EventJournalCopy.class);
+  private static final int CHUNK_SIZE = 10_000;
+  private static final String COPY = "copy event_store (aggregate_id, event_class, event_version, schema_version, event, command_id, tags, tenant) from stdin (format text)";
+  // streams without a head must be loaded from their first version, partitions of the journal can't enforce unique
+  // versions so the head points at the last copy of its version and the base version guard rejects the load
+  private static final String ADVANCE_HEAD = "insert into aggregate_stream (aggregate_id, tenant, current_version, last_snapshot_version, journal_offset)" +
+    " select ?, ?, ?, ?, (select max(id) from event_store where aggregate_id = ? and tenant = ? and event_version = ?)" +
+    " where ? = 0 or exists (select 1 from aggregate_stream where aggregate_id = ? and tenant = ?)" +
+    " on conflict (aggregate_id, tenant) do update set" +
+    " current_version = excluded.current_version," +
+    " last_snapshot_version = greatest(aggregate_stream.last_snapshot_version, excluded.last_snapshot_version)," +
+    " journal_offset = excluded.journal_offset," +
+    " updated = current_timestamp," +
+    " rec_version = aggregate_stream.rec_version + 1" +
+    " where aggregate_stream.current_version = ?";
+
+  private final Vertx vertx;
+  private final JsonObject configuration;
+  private final String schema;
+  private final String notificationChannel;
+
+  public EventJournalCopy(Vertx vertx, JsonObject configuration, String schema, String notificationChannel) {
+    this.vertx = vertx;
+    this.configuration = configuration;
+    this.schema = schema;
+    this.notificationChannel = notificationChannel;
+  }
+
+  public Uni<BulkLoadReport> load(Multi<Event> events) {
+    final var start = System.nanoTime();
+    final var streams = new HashMap<String, StreamRange>();
+    return vertx.executeBlocking(Uni.createFrom().item(Unchecked.supplier(this::open)))
+      .flatMap(copy -> events.group().intoLists().of(CHUNK_SIZE)
+        .onItem().transformToUniAndConcatenate(chunk -> vertx.executeBlocking(Uni.createFrom().item(Unchecked.supplier(() -> write(copy, chunk, streams)))))
+        .collect().last()
+        .flatMap(avoid -> vertx.executeBlocking(Uni.createFrom().item(Unchecked.supplier(() -> finish(copy, streams)))))
+        .onFailure().call(throwable -> vertx.executeBlocking(Uni.createFrom().item(() -> abort(copy))))
+      )
+      .map(rows -> {
+          final var report = new BulkLoadReport(rows, (long) streams.size(), Duration.ofNanos(System.nanoTime() - start));
+          LOGGER.info("Bulk loaded {} events of {} streams into {} in {} ms, {} events/s",
+            report.events(), report.aggregates(), schema, report.elapsed().toMillis(), Math.round(report.eventsPerSecond())
+          );
+          return report;
+        }
+      );
+  }
+
+  private Copy open() throws SQLException {
+    final var options = RepositoryHandler.connectionOptions(configuration);
+    final var connection = DriverManager.getConnection(jdbcUrl(options), connectionProperties(options));
+    connection.setSchema(schema);
+    connection.setAutoCommit(false);
+    return new Copy(connection, connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY));
+  }
+
+  static String jdbcUrl(PgConnectOptions options) {
+    return "jdbc:postgresql://" + options.getHost() + ":" + options.getPort() + "/" + options.getDatabase();
+  }
+
+  static Properties connectionProperties(PgConnectOptions options) {
+    final var properties = new Properties();
+    properties.setProperty("user", options.getUser());
+    properties.setProperty("password", options.getPassword());
+    properties.setProperty("sslmode", options.getSslMode().value);
+    properties.setProperty("ApplicationName", options.getProperties().getOrDefault("application_name", "es4j"));
+    return properties;
+  }
+
+  private long write(Copy copy, List<Event> chunk, Map<String, StreamRange> streams) throws SQLException {
+    final var rows = new StringBuilder(chunk.size() * 256);
+    chunk.forEach(event -> {
+        track(event, streams);
+        field(rows, event.aggregateId()).append('\t');
+        field(rows, event.eventType()).append('\t');
+        rows.append(event.eventVersion()).append('\t');
+        field(rows, event.schemaVersion() == null ? null : String.valueOf(event.schemaVersion())).append('\t');
+        field(rows, event.event().encode()).append('\t');
+        field(rows, event.commandId()).append('\t');
+        field(rows, arrayLiteral(event.tags())).append('\t');
+        field(rows, Objects.requireNonNullElse(event.tenantId(), "default")).append('\n');
+      }
+    );
+    final var bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+    copy.copyIn().writeToCopy(bytes, 0, bytes.length);
+    return chunk.size();
+  }
+
+  private static void track(Event event, Map<String, StreamRange> streams) {
+    final var tenant = Objects.requireNonNullElse(event.tenantId(), "default");
+    final var range = streams.computeIfAbsent(tenant + "::" + event.aggregateId(), key -> new StreamRange(event.aggregateId(), tenant, event.eventVersion()));
+    if (range.lastVersion != null && event.eventVersion() != range.lastVersion + 1) {
+      throw new EventStoreExeception(new IllegalArgumentException("Stream %s::%s jumps from version %d to %d".formatted(
+        tenant, event.aggregateId(), range.lastVersion, event.eventVersion()
+      )));
+    }
+    range.lastVersion = event.eventVersion();
+    if (DispatchPlan.SNAPSHOT_EVENT_TYPE.equals(event.eventType())) {
+      range.lastSnapshotVersion = event.eventVersion();
+    }
+  }
+
+  private long finish(Copy copy, Map<String, StreamRange> streams) throws SQLException {
+    final var rows = copy.copyIn().endCopy();
+    try (final var statement = copy.connection().prepareStatement(ADVANCE_HEAD)) {
+      final var ranges = new ArrayList<>(streams.values());
+      for (final var range : ranges) {
+        statement.setString(1, range.aggregateId);
+        statement.setString(2, range.tenant);
+        statement.setLong(3, range.lastVersion);
+        statement.setLong(4, range.lastSnapshotVersion);
+        statement.setString(5, range.aggregateId);
+        statement.setString(6, range.tenant);
+        statement.setLong(7, range.lastVersion);
+        statement.setLong(8, range.firstVersion - 1);
+        statement.setString(9, range.aggregateId);
+        statement.setString(10, range.tenant);
+        statement.setLong(11, range.firstVersion - 1);
+        statement.addBatch();
+      }
+      final var updated = statement.executeBatch();
+      for (int index = 0; index < updated.length; index++) {
+        if (updated[index] == 0) {
+          final var range = ranges.get(index);
+          throw new ConcurrentAppend(new IllegalStateException("Stream %s::%s isn't at version %d".formatted(range.tenant, range.aggregateId, range.firstVersion - 1)));
+        }
+      }
+    }
+    if (notificationChannel != null) {
+      try (final var statement = copy.connection().prepareStatement("select pg_notify(?, '')")) {
+        statement.setString(1, notificationChannel);
+        statement.execute();
+      }
+    }
+    copy.connection().commit();
+    copy.connection().close();
+    return rows;
+  }
+
+  private Void abort(Copy copy) {
+    try {
+      if (copy.copyIn().isActive()) {
+        copy.copyIn().cancelCopy();
+      }
+      copy.connection().rollback();
+      copy.connection().close();
+    } catch (SQLException sqlException) {
+      LOGGER.warn("Unable to roll the bulk load of {} back", schema, sqlException);
+    }
+    return null;
+  }
+
+  private static String arrayLiteral(List<String> values) {
+    if (values == null) {
+      return null;
+    }
+    final var literal = new StringJoiner(",", "{", "}");
+    values.forEach(value -> literal.add("\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\""));
+    return literal.toString();
+  }
+
+  private static StringBuilder field(StringBuilder row, String value) {
+    if (value == null) {
+      return row.append("\\N");
+    }
+    for (int index = 0; index < value.length(); index++) {
+      final var character = value.charAt(index);
+      switch (character) {
+        case '\\' -> row.append("\\\\");
+        case '\t' -> row.append("\\t");
+        case '\n' -> row.append("\\n");
+        case '\r' -> row.append("\\r");
+        default -> row.append(character);
+      }
+    }
+    return row;
+  }
+
+  private record Copy(Connection connection, CopyIn copyIn) {
+  }
+
+  private static class StreamRange {
+    private final String aggregateId;
+    private final String tenant;
+    private final long firstVersion;
+    private Long lastVersion = null;
+    private long lastSnapshotVersion = 0L;
+
+    private StreamRange(String aggregateId, String tenant, long firstVersion) {
+      this.aggregateId = aggregateId;
+      this.tenant = tenant;
+      this.firstVersion = firstVersion;
+    }
+  }
+
+}
@@ -0,0 +1,213 @@
+package io.es4j.infra.pg;
+
+import io.es4j.infra.pg.mappers.EventStoreMapper;
+import io.es4j.sql.LiquibaseHandler;
+import io.es4j.sql.RepositoryHandler;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Layout of the event_store journal.
+ * <p>
+ * By default the journal is a single heap. With {@code journalPartitioning} set to {@code id} or {@code time} the table
+ * is range partitioned on the journal id or on the insertion time, each range can be hash sub-partitioned on the
+ * aggregate id with {@code journalHashPartitions}. Partitions are created ahead of time, {@code journalPartitionsAhead}
+ * ranges past the current one are kept in place, so the hot partitions stay small and old ones can be detached.
+ * The layout is picked when the schema is created, an existing journal isn't converted.
+ */
+public class EventJournalPartitions {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EventJournalPartitions.class);
+  private static final DateTimeFormatter PARTITION_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+  public enum Strategy {NONE, ID, TIME}
+
+  private final String schema;
+  private final Strategy strategy;
+  private final long idRange;
+  private final ChronoUnit timeRange;
+  private final int hashPartitions;
+  private final int partitionsAhead;
+  private final long maintenanceInterval;
+  private Long maintenanceTimer = null;
+
+  private EventJournalPartitions(String schema, Strategy strategy, long idRange, ChronoUnit timeRange, int hashPartitions, int partitionsAhead, long maintenanceInterval) {
+    this.schema = schema;
+    this.strategy = strategy;
+    this.idRange = idRange;
+    this.timeRange = timeRange;
+    this.hashPartitions = hashPartitions;
+    this.partitionsAhead = partitionsAhead;
+    this.maintenanceInterval = maintenanceInterval;
+  }
+
+  public static EventJournalPartitions from(String schema, JsonObject configuration) {
+    final var timeRange = ChronoUnit.valueOf(configuration.getString("journalPartitionInterval", ChronoUnit.MONTHS.name()).toUpperCase());
+    if (timeRange != ChronoUnit.DAYS && timeRange != ChronoUnit.WEEKS && timeRange != ChronoUnit.MONTHS) {
+      throw new IllegalArgumentException("Unsupported journal partition interval " + timeRange);
+    }
+    return new EventJournalPartitions(
+      schema,
+      Strategy.valueOf(configuration.getString("journalPartitioning", Strategy.NONE.name()).toUpperCase()),
+      configuration.getLong("journalPartitionSize", 10_000_000L),
+      timeRange,
+      configuration.getInteger("journalHashPartitions", 0),
+      configuration.getInteger("journalPartitionsAhead", 2),
+      configuration.getLong("journalPartitionMaintenance", 3_600_000L)
+    );
+  }
+
+  public boolean partitioned() {
+    return strategy != Strategy.NONE;
+  }
+
+  public Uni<Void> migrate(RepositoryHandler repositoryHandler) {
+    if (!partitioned()) {
+      return LiquibaseHandler.liquibaseString(repositoryHandler, "pg-event-store.xml", Map.of("schema", schema));
+    }
+    return LiquibaseHandler.liquibaseString(repositoryHandler, "pg-event-store-partitioned.xml", changelogParams())
+      .flatMap(avoid -> ensure(repositoryHandler));
+  }
+
+  public Uni<Void> migrate(Vertx vertx, JsonObject configuration) {
+    if (!partitioned()) {
+      return LiquibaseHandler.liquibaseString(vertx, configuration, "pg-event-store.xml", Map.of("schema", schema));
+    }
+    final var repositoryHandler = RepositoryHandler.leasePool(configuration, vertx);
+    return LiquibaseHandler.liquibaseString(vertx, configuration, "pg-event-store-partitioned.xml", changelogParams())
+      .flatMap(avoid -> ensure(repositoryHandler))
+      .onTermination().call(repositoryHandler::close);
+  }
+
+  private Map<String, String> changelogParams() {
+    return Map.of("schema", schema, "partitionColumn", partitionColumn(), "partitionKey", partitionKey());
+  }
+
+  private String partitionColumn() {
+    return switch (strategy) {
+      case ID -> EventStoreMapper.ID;
+      case TIME -> "inserted";
+      case NONE -> throw new IllegalStateException("Journal isn't partitioned");
+    };
+  }
+
+  /**
+   * A primary key on a partitioned table must include every partitioning column down the tree, hash sub-partitions
+   * add the aggregate id to it.
+   */
+  private String partitionKey() {
+    final var key = strategy == Strategy.TIME ? EventStoreMapper.ID + ", inserted" : partitionColumn();
+    return hashPartitions > 1 ? key + ", aggregate_id" : key;
+  }
+
+  /**
+   * Partitions are created on every node, the advisory lock keeps a single node at it at a time.
+   */
+  public void startMaintenance(Vertx vertx, RepositoryHandler repositoryHandler) {
+    if (!partitioned()) {
+      return;
+    }
+    maintenanceTimer = vertx.setPeriodic(maintenanceInterval, timerId -> ensure(repositoryHandler)
+      .subscribe()
+      .with(
+        avoid -> LOGGER.debug("Journal partitions of {} in place", schema),
+        throwable -> LOGGER.warn("Unable to create journal partitions of {}", schema, throwable)
+      )
+    );
+  }
+
+  public void stopMaintenance(Vertx vertx) {
+    if (maintenanceTimer != null) {
+      vertx.cancelTimer(maintenanceTimer);
+      maintenanceTimer = null;
+    }
+  }
+
+  public Uni<Void> ensure(RepositoryHandler repositoryHandler) {
+    if (!partitioned()) {
+      return Uni.createFrom().voidItem();
+    }
+    return repositoryHandler.pgPool().withTransaction(connection -> connection
+      .query("select pg_try_advisory_xact_lock(hashtext('" + schema + ".event_store'))").execute()
+      .flatMap(rows -> {
+          if (!rows.iterator().next().getBoolean(0)) {
+            LOGGER.debug("Journal partitions of {} are being created by another node", schema);
+            return Uni.createFrom().voidItem();
+          }
+          return partitionStatements(connection)
+            .flatMap(statements -> createPartitions(connection, statements, 0));
+        }
+      )
+    );
+  }
+
+  private Uni<List<String>> partitionStatements(SqlConnection connection) {
+    if (strategy == Strategy.ID) {
+      return connection.query("select last_value from \"" + schema + "\".event_journal_seq").execute()
+        .map(rows -> {
+            final var current = rows.iterator().next().getLong(0) / idRange;
+            final var statements = new ArrayList<String>();
+            for (long range = current; range <= current + partitionsAhead; range++) {
+              statements.addAll(partition("p" + range, String.valueOf(range * idRange), String.valueOf((range + 1) * idRange)));
+            }
+            return statements;
+          }
+        );
+    }
+    // the current range is taken from the clock of the database, in UTC like the insertion times
+    return connection.query("select date_trunc('" + truncation() + "', current_timestamp at time zone 'UTC')::date").execute()
+      .map(rows -> {
+          var start = rows.iterator().next().getLocalDate(0);
+          final var statements = new ArrayList<String>();
+          for (int range = 0; range <= partitionsAhead; range++) {
+            final var end = start.plus(1, timeRange);
+            statements.addAll(partition("p" + start.format(PARTITION_DATE), "'" + start + "'", "'" + end + "'"));
+            start = end;
+          }
+          return statements;
+        }
+      );
+  }
+
+  private String truncation() {
+    return switch (timeRange) {
+      case DAYS -> "day";
+      case WEEKS -> "week";
+      default -> "month";
+    };
+  }
+
+  private List<String> partition(String suffix, String from, String to) {
+    final var table = "\"" + schema + "\"." + EventStoreMapper.TABLE;
+    final var partition = "\"" + schema + "\"." + EventStoreMapper.TABLE + "_" + suffix;
+    final var statements = new ArrayList<String>();
+    statements.add("create table if not exists " + partition + " partition of " + table +
+      " for values from (" + from + ") to (" + to + ")" +
+      (hashPartitions > 1 ? " partition by hash (aggregate_id)" : ""));
+    for (int remainder = 0; hashPartitions > 1 && remainder < hashPartitions; remainder++) {
+      statements.add("create table if not exists " + partition + "_h" + remainder + " partition of " + partition +
+        " for values with (modulus " + hashPartitions + ", remainder " + remainder + ")");
+    }
+    return statements;
+  }
+
+  private Uni<Void> createPartitions(SqlConnection connection, List<String> statements, int index) {
+    if (index >= statements.size()) {
+      return Uni.createFrom().voidItem();
+    }
+    LOGGER.debug("Creating journal partition {}", statements.get(index));
+    return connection.query(statements.get(index)).execute()
+      .flatMap(avoid -> createPartitions(connection, statements, index + 1));
+  }
+
+}
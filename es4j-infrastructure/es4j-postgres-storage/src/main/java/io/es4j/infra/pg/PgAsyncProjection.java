@@ -0,0 +1,31 @@
+package io.es4j.infra.pg;
+
+import io.es4j.AsyncProjection;
+import io.es4j.core.objects.AggregateEvent;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+import java.util.List;
+
+/**
+ * Projection whose read model lives in the same postgres as the {@link PgOffsetStore}.
+ * <p>
+ * Every batch is applied on the connection of the transaction that also moves the offset past its last event, the
+ * read model and the offset are committed together so a batch is never applied twice. Tables of the read model should
+ * be schema qualified, the connection searches the aggregate schema.
+ */
+public interface PgAsyncProjection extends AsyncProjection {
+
+  Uni<Void> apply(List<AggregateEvent> events, SqlConnection connection);
+
+  @Override
+  default boolean appliedByOffsetStore() {
+    return true;
+  }
+
+  @Override
+  default Uni<Void> apply(List<AggregateEvent> events) {
+    return Uni.createFrom().failure(new UnsupportedOperationException(getClass().getSimpleName() + " is applied within the offset transaction of the PgOffsetStore"));
+  }
+
+}
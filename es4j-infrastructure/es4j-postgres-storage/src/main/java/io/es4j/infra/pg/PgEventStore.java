@@ -3,14 +3,22 @@ package io.es4j.infra.pg;
 import com.google.auto.service.AutoService;
 import io.es4j.Aggregate;
 import io.es4j.Es4jDeployment;
+import io.es4j.core.objects.DispatchPlan;
+import io.es4j.core.objects.EventbusLiveStreams;
+import io.es4j.infra.pg.mappers.AggregateStreamMapper;
+import io.es4j.infra.pg.models.AggregateStreamKey;
+import io.es4j.infra.pg.models.AggregateStreamRecord;
 import io.es4j.infra.pg.models.EventRecordKey;
 import io.es4j.infra.pg.models.EventRecordQuery;
 import io.es4j.infrastructure.models.*;
 import io.es4j.sql.LiquibaseHandler;
 import io.es4j.sql.RepositoryHandler;
 import io.es4j.sql.exceptions.Conflict;
+import io.es4j.sql.exceptions.IntegrityContraintViolation;
 import io.es4j.sql.exceptions.NotFound;
+import io.es4j.sql.models.EmptyQuery;
 import io.es4j.sql.models.QueryOptions;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import io.vertx.core.json.JsonObject;
 import io.es4j.infrastructure.EventStore;
@@ -19,13 +27,13 @@ import io.es4j.infra.pg.models.EventRecord;
 import io.es4j.sql.Repository;
 import io.es4j.sql.models.BaseRecord;
 import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.pgclient.pubsub.PgSubscriber;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import io.vertx.mutiny.sqlclient.Tuple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
 import java.util.function.Consumer;
 
 import static io.es4j.core.CommandHandler.camelToKebab;
@@ -35,51 +43,74 @@ import static io.es4j.core.CommandHandler.camelToKebab;
 public class PgEventStore implements EventStore {
 
   private Repository<EventRecordKey, EventRecord, EventRecordQuery> eventJournal;
+  private Repository<AggregateStreamKey, AggregateStreamRecord, EmptyQuery> streamHeads;
+  private EventJournalPartitions partitions;
+  private EventJournalCopy journalCopy;
+  private PgSubscriber journalSubscriber;
+  private String journalChannel;
+  private Vertx vertx;
   private final Logger LOGGER = LoggerFactory.getLogger(PgEventStore.class);
 
 
   @Override
   public void start(Es4jDeployment es4jDeployment, Vertx vertx, JsonObject configuration) {
     this.eventJournal = new Repository<>(EventStoreMapper.INSTANCE, RepositoryHandler.leasePool(configuration, vertx));
+    this.streamHeads = new Repository<>(AggregateStreamMapper.INSTANCE, eventJournal.repositoryHandler());
+    this.vertx = vertx;
+    this.partitions = EventJournalPartitions.from(camelToKebab(es4jDeployment.aggregateClass().getSimpleName()), configuration);
+    partitions.startMaintenance(vertx, eventJournal.repositoryHandler());
+    if (configuration.getBoolean("journalNotifications", false)) {
+      this.journalChannel = camelToKebab(es4jDeployment.aggregateClass().getSimpleName()) + "-journal";
+      listen(es4jDeployment.aggregateClass(), configuration);
+    }
+    this.journalCopy = new EventJournalCopy(vertx, configuration, camelToKebab(es4jDeployment.aggregateClass().getSimpleName()), journalChannel);
+  }
+
+  /**
+   * Notifications of every node are relayed to the local journal live stream, after a reconnect a signal is raised
+   * anyway since notifications sent in between are lost.
+   */
+  private void listen(Class<? extends Aggregate> aggregateClass, JsonObject configuration) {
+    final var address = EventbusLiveStreams.journalLiveStream(aggregateClass);
+    this.journalSubscriber = PgSubscriber.subscriber(vertx, RepositoryHandler.connectionOptions(configuration))
+      .reconnectPolicy(retries -> configuration.getLong("journalNotificationsReconnect", 1000L));
+    journalSubscriber.channel(journalChannel)
+      .subscribeHandler(() -> vertx.eventBus().publish(address, null))
+      .handler(payload -> vertx.eventBus().publish(address, payload.isEmpty() ? null : Long.valueOf(payload)));
+    journalSubscriber.connect()
+      .subscribe()
+      .with(
+        avoid -> LOGGER.info("Listening to journal notifications on {}", journalChannel),
+        throwable -> LOGGER.error("Unable to listen to journal notifications on {}", journalChannel, throwable)
+      );
+  }
+
+  /**
+   * The notification is delivered on commit, listeners never see offsets of a rolled back append.
+   */
+  private Uni<List<Long>> notifyAppend(SqlConnection connection, List<Long> offsets) {
+    if (Objects.isNull(journalChannel)) {
+      return Uni.createFrom().item(offsets);
+    }
+    return connection.preparedQuery("select pg_notify($1, $2)")
+      .execute(Tuple.of(journalChannel, String.valueOf(offsets.get(offsets.size() - 1))))
+      .replaceWith(offsets);
   }
 
   @Override
   public <T extends Aggregate> Uni<List<Event>> fetch(AggregateEventStream<T> aggregateEventStream) {
-    return eventJournal.query(eventJournalQuery(aggregateEventStream))
+    return eventJournal.query(aggregateStreamStatement(aggregateEventStream), aggregateStreamParams(aggregateEventStream))
       .onFailure(NotFound.class).recoverWithItem(new ArrayList<>())
-      .map(eventRecords -> eventRecords.stream()
-        .map(eventRecord -> new Event(
-            eventRecord.aggregateId(),
-            eventRecord.eventClass(),
-            eventRecord.eventVersion(),
-            eventRecord.event(),
-            eventRecord.baseRecord().tenant(),
-            eventRecord.commandId(),
-            eventRecord.tags(),
-            eventRecord.schemaVersion()
-          )
-        ).toList()
-      );
+      .map(eventRecords -> eventRecords.stream().map(PgEventStore::toEvent).toList());
   }
 
 
   @Override
   public <T extends Aggregate> Uni<Void> stream(AggregateEventStream<T> aggregateEventStream, Consumer<Event> consumer) {
     return eventJournal.stream(
-      eventRecord -> {
-        final var infraEvent = new Event(
-          eventRecord.aggregateId(),
-          eventRecord.eventClass(),
-          eventRecord.eventVersion(),
-          eventRecord.event(),
-          eventRecord.baseRecord().tenant(),
-          eventRecord.commandId(),
-          eventRecord.tags(),
-          eventRecord.schemaVersion()
-        );
-        consumer.accept(infraEvent);
-      },
-      eventJournalQuery(aggregateEventStream)
+      eventRecord -> consumer.accept(toEvent(eventRecord)),
+      aggregateStreamStatement(aggregateEventStream),
+      aggregateStreamParams(aggregateEventStream)
     );
   }
 
@@ -105,6 +136,7 @@ public class PgEventStore implements EventStore {
 
   public Uni<List<Event>> fetch(EventStream eventStream) {
     return eventJournal.query(eventJournalQuery(eventStream))
+      .onFailure(NotFound.class).recoverWithItem(new ArrayList<>())
       .map(eventRecords -> eventRecords.stream()
         .map(eventRecord -> new Event(
             eventRecord.id(),
@@ -122,15 +154,118 @@ public class PgEventStore implements EventStore {
   }
 
   @Override
-  public <T extends Aggregate> Uni<Void> append(AppendInstruction<T> appendInstruction) {
-    return eventJournal.insertBatch(parseInstruction(appendInstruction))
-      .onFailure().transform(throwable -> {
-        if (throwable instanceof Conflict conflict) {
-          throw new ConcurrentAppend(conflict);
-        } else {
-          throw new EventStoreExeception(throwable);
-        }
-      });
+  public <T extends Aggregate> Uni<List<Long>> append(AppendInstruction<T> appendInstruction) {
+    return appendBatch(List.of(appendInstruction));
+  }
+
+  /**
+   * Events and stream heads are written in the same transaction, a head never points past the journal.
+   * Conflicts are read from the outcome of the statements, an event version already taken inserts nothing and a
+   * head that moved isn't advanced, the transaction is then rolled back without postgres ever raising an error.
+   */
+  @Override
+  public Uni<List<Long>> appendBatch(List<AppendInstruction<?>> appendInstructions) {
+    final var records = appendInstructions.stream().flatMap(instruction -> parseInstruction(instruction).stream()).toList();
+    if (records.isEmpty()) {
+      return Uni.createFrom().item(List.of());
+    }
+    return eventJournal.transaction(connection -> eventJournal.queryBatch(EventStoreMapper.APPEND, records.stream().map(PgEventStore::appendParams).toList(), connection)
+        .flatMap(inserted -> {
+            if (inserted.size() != records.size()) {
+              return Uni.createFrom().failure(new ConcurrentAppend("%d of %d event versions already taken".formatted(records.size() - inserted.size(), records.size())));
+            }
+            final var offsets = inserted.stream().map(EventRecord::id).toList();
+            final var heads = headParams(appendInstructions, offsets);
+            return streamHeads.queryBatch(AggregateStreamMapper.ADVANCE_HEAD, heads, connection)
+              .flatMap(advanced -> advanced.size() != heads.size()
+                ? Uni.createFrom().failure(new ConcurrentAppend("%d of %d stream heads moved".formatted(heads.size() - advanced.size(), heads.size())))
+                : notifyAppend(connection, offsets)
+              );
+          }
+        )
+      )
+      .onFailure().transform(PgEventStore::mapAppendFailure);
+  }
+
+  private static Map<String, Object> appendParams(EventRecord eventRecord) {
+    final var params = eventRecord.baseRecord().params();
+    EventStoreMapper.INSTANCE.params(params, eventRecord);
+    return params;
+  }
+
+  /**
+   * Offsets follow the order of the instructions, the head of each stream points at the last of its events.
+   */
+  private static List<Map<String, Object>> headParams(List<AppendInstruction<?>> appendInstructions, List<Long> offsets) {
+    final var heads = new ArrayList<Map<String, Object>>(appendInstructions.size());
+    var from = 0;
+    for (final var appendInstruction : appendInstructions) {
+      if (appendInstruction.events().isEmpty()) {
+        continue;
+      }
+      final var to = from + appendInstruction.events().size();
+      final var params = new HashMap<String, Object>();
+      params.put(AggregateStreamMapper.AGGREGATE_ID, appendInstruction.aggregateId());
+      params.put("tenant", appendInstruction.tenantId());
+      params.put(AggregateStreamMapper.CURRENT_VERSION, appendInstruction.events().stream().mapToLong(Event::eventVersion).max().orElseThrow());
+      params.put(AggregateStreamMapper.BASE_VERSION, appendInstruction.events().stream().mapToLong(Event::eventVersion).min().orElseThrow() - 1);
+      params.put(AggregateStreamMapper.LAST_SNAPSHOT_VERSION, appendInstruction.events().stream()
+        .filter(event -> DispatchPlan.SNAPSHOT_EVENT_TYPE.equals(event.eventType()))
+        .mapToLong(Event::eventVersion)
+        .max()
+        .orElse(0L)
+      );
+      params.put(AggregateStreamMapper.JOURNAL_OFFSET, offsets.subList(from, to).stream().mapToLong(Long::longValue).max().orElseThrow());
+      heads.add(params);
+      from = to;
+    }
+    return heads;
+  }
+
+  @Override
+  public Uni<BulkLoadReport> bulkLoad(Multi<Event> events) {
+    return journalCopy.load(events);
+  }
+
+  @Override
+  public boolean streamHeads() {
+    return true;
+  }
+
+  @Override
+  public boolean journalShards() {
+    return true;
+  }
+
+  @Override
+  public <T extends Aggregate> Uni<Optional<AggregateStreamHead>> head(AggregateKey<T> aggregateKey) {
+    return streamHeads.selectByKey(new AggregateStreamKey(aggregateKey.aggregateId(), aggregateKey.tenantId()))
+      .map(streamRecord -> Optional.of(new AggregateStreamHead(
+            streamRecord.aggregateId(),
+            streamRecord.baseRecord().tenant(),
+            streamRecord.currentVersion(),
+            streamRecord.lastSnapshotVersion(),
+            streamRecord.journalOffset()
+          )
+        )
+      )
+      .onFailure(NotFound.class).recoverWithItem(Optional.empty());
+  }
+
+  private static Throwable mapAppendFailure(Throwable throwable) {
+    if (throwable instanceof ConcurrentAppend) {
+      return throwable;
+    }
+    // constraint violations raised by the database are still version conflicts
+    if (throwable instanceof Conflict || throwable instanceof IntegrityContraintViolation) {
+      return new ConcurrentAppend(throwable);
+    }
+    return new EventStoreExeception(throwable);
+  }
+
+  @Override
+  public boolean atomicBatchAppend() {
+    return true;
   }
 
   @Override
@@ -140,6 +275,10 @@ public class PgEventStore implements EventStore {
 
   @Override
   public Uni<Void> stop() {
+    partitions.stopMaintenance(vertx);
+    if (Objects.nonNull(journalSubscriber)) {
+      return journalSubscriber.close().flatMap(avoid -> eventJournal.repositoryHandler().close());
+    }
     return eventJournal.repositoryHandler().close();
   }
 
@@ -149,12 +288,14 @@ public class PgEventStore implements EventStore {
     final var schema = camelToKebab(es4jDeployment.aggregateClass().getSimpleName());
     LOGGER.debug("Migrating postgres schema {} configuration {}", schema, configuration);
     configuration.put("schema", schema);
-    return LiquibaseHandler.liquibaseString(
-      vertx,
-      configuration,
-      "pg-event-store.xml",
-      Map.of("schema", schema)
-    );
+    return EventJournalPartitions.from(schema, configuration).migrate(vertx, configuration)
+      .flatMap(avoid -> LiquibaseHandler.liquibaseString(
+          vertx,
+          configuration,
+          "pg-aggregate-stream.xml",
+          Map.of("schema", schema)
+        )
+      );
   }
 
   @Override
@@ -162,7 +303,7 @@ public class PgEventStore implements EventStore {
     return Uni.createFrom().voidItem();
   }
 
-  private <T extends Aggregate> List<EventRecord> parseInstruction(AppendInstruction<T> appendInstruction) {
+  private List<EventRecord> parseInstruction(AppendInstruction<?> appendInstruction) {
     return appendInstruction.events().stream()
       .map(event -> new EventRecord(
           event.aggregateId(),
@@ -177,36 +318,40 @@ public class PgEventStore implements EventStore {
       ).toList();
   }
 
-  private <T extends Aggregate> EventRecordQuery eventJournalQuery(AggregateEventStream<T> aggregateEventStream) {
-    return new EventRecordQuery(
-      List.of(aggregateEventStream.aggregateId()),
-      null,
-      null,
-      null,
-      aggregateEventStream.eventVersionOffset(),
-      null,
-      null,
-      null,
-      new QueryOptions(
-        EventStoreMapper.EVENT_VERSION,
-        false,
-        null,
-        null,
-        null,
-        null,
-        0,
-        aggregateEventStream.maxSize(),
-        startingOffset(aggregateEventStream),
-        aggregateEventStream.tenantId()
-      )
+  private static Event toEvent(EventRecord eventRecord) {
+    return new Event(
+      eventRecord.id(),
+      eventRecord.aggregateId(),
+      eventRecord.eventClass(),
+      eventRecord.eventVersion(),
+      eventRecord.event(),
+      eventRecord.baseRecord().tenant(),
+      eventRecord.commandId(),
+      eventRecord.tags(),
+      eventRecord.schemaVersion()
     );
   }
 
-  private static <T extends Aggregate> String startingOffset(AggregateEventStream<T> aggregateEventStream) {
+  /**
+   * Aggregate streams skip the query builder, pattern matching on the aggregate id and the id based snapshot
+   * offset would keep postgres off the unique index.
+   */
+  private static <T extends Aggregate> String aggregateStreamStatement(AggregateEventStream<T> aggregateEventStream) {
     if (Objects.nonNull(aggregateEventStream.startFromSnapshot()) && aggregateEventStream.startFromSnapshot()) {
-      return "(select coalesce(max(id),0) from event_store where event_class = 'snapshot' and aggregate_id ilike any(#{aggregate_id}) and tenant = #{tenant})";
+      return EventStoreMapper.AGGREGATE_STREAM_FROM_SNAPSHOT;
     }
-    return null;
+    return EventStoreMapper.AGGREGATE_STREAM;
+  }
+
+  private static <T extends Aggregate> Map<String, Object> aggregateStreamParams(AggregateEventStream<T> aggregateEventStream) {
+    final var params = new HashMap<String, Object>();
+    params.put("aggregate_id", aggregateEventStream.aggregateId());
+    params.put("tenant", aggregateEventStream.tenantId());
+    params.put(EventStoreMapper.EVENT_VERSION, Objects.requireNonNullElse(aggregateEventStream.eventVersionOffset(), 0L));
+    // a null limit reads the stream to the end
+    params.put(EventStoreMapper.JOURNAL_OFFSET, aggregateEventStream.journalOffset());
+    params.put(EventStoreMapper.MAX_SIZE, aggregateEventStream.maxSize());
+    return params;
   }
 
   private EventRecordQuery eventJournalQuery(EventStream eventStream) {
@@ -215,10 +360,13 @@ public class PgEventStore implements EventStore {
       eventStream.eventTypes(),
       null,
       eventStream.tags(),
+      eventStream.commandIds(),
       eventStream.versionFrom(),
       eventStream.versionTo(),
       eventStream.offset(),
       null,
+      eventStream.shard(),
+      eventStream.shards(),
       new QueryOptions(
         EventStoreMapper.ID,
         false,
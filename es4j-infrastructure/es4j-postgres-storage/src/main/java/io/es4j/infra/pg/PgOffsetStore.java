@@ -1,7 +1,9 @@
 package io.es4j.infra.pg;
 
 import com.google.auto.service.AutoService;
+import io.es4j.AsyncProjection;
 import io.es4j.Es4jDeployment;
+import io.es4j.core.objects.AggregateEvent;
 
 import io.es4j.core.objects.OffsetBuilder;
 import io.es4j.core.objects.OffsetKey;
@@ -12,7 +14,6 @@ import io.es4j.infra.pg.models.EventJournalOffsetFilter;
 import io.es4j.infrastructure.models.OffsetFilter;
 import io.es4j.sql.LiquibaseHandler;
 import io.es4j.sql.RepositoryHandler;
-import io.es4j.sql.exceptions.IntegrityContraintViolation;
 import io.es4j.sql.exceptions.NotFound;
 import io.es4j.sql.models.QueryOptions;
 import io.smallrye.mutiny.Uni;
@@ -51,10 +52,31 @@ public class PgOffsetStore implements OffsetStore {
 
   @Override
   public Uni<Offset> put(Offset offset) {
-    return repository.insert(getOffSet(offset))
-      .onFailure(IntegrityContraintViolation.class)
-      .recoverWithUni(repository.updateByKey(getOffSet(offset)))
-      .map(PgOffsetStore::getJournalOffset);
+    return repository.query(JournalOffsetMapper.UPSERT, upsertParams(offset))
+      .map(offsets -> getJournalOffset(offsets.get(0)));
+  }
+
+  @Override
+  public boolean transactional(AsyncProjection asyncProjection) {
+    return asyncProjection instanceof PgAsyncProjection;
+  }
+
+  @Override
+  public Uni<Offset> apply(AsyncProjection asyncProjection, List<AggregateEvent> events, Offset offset) {
+    if (asyncProjection instanceof PgAsyncProjection pgAsyncProjection) {
+      return repository.transaction(connection -> pgAsyncProjection.apply(events, connection)
+        .flatMap(avoid -> repository.query(JournalOffsetMapper.UPSERT, upsertParams(offset), connection))
+        .map(offsets -> getJournalOffset(offsets.get(0)))
+      );
+    }
+    return asyncProjection.apply(events).flatMap(avoid -> put(offset));
+  }
+
+  private static Map<String, Object> upsertParams(Offset offset) {
+    final var journalOffset = getOffSet(offset);
+    final var params = journalOffset.baseRecord().params();
+    JournalOffsetMapper.INSTANCE.params(params, journalOffset);
+    return params;
   }
 
 
@@ -8,7 +8,6 @@ import io.es4j.infra.pg.models.EventRecordKey;
 import io.es4j.infra.pg.models.EventRecordQuery;
 import io.es4j.infrastructure.SecondaryEventStore;
 import io.es4j.infrastructure.models.*;
-import io.es4j.sql.LiquibaseHandler;
 import io.es4j.sql.Repository;
 import io.es4j.sql.RepositoryHandler;
 import io.es4j.sql.models.BaseRecord;
@@ -28,6 +27,8 @@ import static io.es4j.core.CommandHandler.camelToKebab;
 public class PgSecondaryEventStore implements SecondaryEventStore {
 
   private Repository<EventRecordKey, EventRecord, EventRecordQuery> eventJournal;
+  private EventJournalPartitions partitions;
+  private Vertx vertx;
   private final Logger LOGGER = LoggerFactory.getLogger(PgEventStore.class);
 
 
@@ -76,23 +77,23 @@ public class PgSecondaryEventStore implements SecondaryEventStore {
 
   @Override
   public Uni<Void> stop() {
+    partitions.stopMaintenance(vertx);
     return eventJournal.repositoryHandler().close();
   }
 
   @Override
   public void start(Es4jDeployment es4jDeployment, Vertx vertx, JsonObject configuration) {
     this.eventJournal = new Repository<>(EventStoreMapper.INSTANCE, RepositoryHandler.leasePool(configuration, vertx));
-
+    this.vertx = vertx;
+    this.partitions = EventJournalPartitions.from(camelToKebab(es4jDeployment.aggregateClass().getSimpleName()), configuration);
+    partitions.startMaintenance(vertx, eventJournal.repositoryHandler());
   }
 
   @Override
   public Uni<Void> setup(Es4jDeployment es4jDeployment, Vertx vertx, JsonObject configuration) {
     LOGGER.debug("Migrating database for {} with configuration {}", es4jDeployment.aggregateClass().getSimpleName(), configuration);
-    return LiquibaseHandler.liquibaseString(
-      eventJournal.repositoryHandler(),
-      "pg-event-store.xml",
-      Map.of("schema", camelToKebab(es4jDeployment.aggregateClass().getSimpleName()))
-    );
+    return EventJournalPartitions.from(camelToKebab(es4jDeployment.aggregateClass().getSimpleName()), configuration)
+      .migrate(eventJournal.repositoryHandler());
   }
 
   private <T extends Aggregate> List<EventRecord> parseInstruction(AppendInstruction<T> appendInstruction) {
@@ -116,10 +117,13 @@ public class PgSecondaryEventStore implements SecondaryEventStore {
       null,
       null,
       null,
+      null,
       aggregateEventStream.eventVersionOffset(),
       null,
       null,
       null,
+      null,
+      null,
       new QueryOptions(
         EventStoreMapper.EVENT_VERSION,
         false,
@@ -149,10 +153,13 @@ public class PgSecondaryEventStore implements SecondaryEventStore {
       eventStream.eventTypes(),
       null,
       eventStream.tags(),
+      eventStream.commandIds(),
       null,
       eventStream.versionTo(),
       eventStream.offset(),
       null,
+      eventStream.shard(),
+      eventStream.shards(),
       new QueryOptions(
         EventStoreMapper.ID,
         false,
@@ -0,0 +1,119 @@
+package io.es4j.infra.pg;
+
+import com.google.auto.service.AutoService;
+import io.es4j.Aggregate;
+import io.es4j.Es4jDeployment;
+import io.es4j.infra.pg.mappers.AggregateStreamMapper;
+import io.es4j.infra.pg.mappers.SnapshotMapper;
+import io.es4j.infra.pg.models.SnapshotRecord;
+import io.es4j.infra.pg.models.SnapshotRecordKey;
+import io.es4j.infra.pg.models.SnapshotRecordQuery;
+import io.es4j.infrastructure.SnapshotStore;
+import io.es4j.infrastructure.models.AggregateKey;
+import io.es4j.infrastructure.models.AggregateSnapshot;
+import io.es4j.sql.LiquibaseHandler;
+import io.es4j.sql.Repository;
+import io.es4j.sql.RepositoryHandler;
+import io.es4j.sql.exceptions.IntegrityContraintViolation;
+import io.es4j.sql.exceptions.NotFound;
+import io.es4j.sql.models.BaseRecord;
+import io.es4j.sql.models.QueryOptions;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static io.es4j.core.CommandHandler.camelToKebab;
+
+
+@AutoService(SnapshotStore.class)
+public class PgSnapshotStore implements SnapshotStore {
+
+  private Repository<SnapshotRecordKey, SnapshotRecord, SnapshotRecordQuery> repository;
+  private final Logger LOGGER = LoggerFactory.getLogger(PgSnapshotStore.class);
+
+  @Override
+  public void start(Es4jDeployment es4jDeployment, Vertx vertx, JsonObject configuration) {
+    this.repository = new Repository<>(SnapshotMapper.INSTANCE, RepositoryHandler.leasePool(configuration, vertx));
+  }
+
+  @Override
+  public <T extends Aggregate> Uni<Optional<AggregateSnapshot>> latest(AggregateKey<T> aggregateKey) {
+    return repository.query(new SnapshotRecordQuery(
+          List.of(aggregateKey.aggregateId()),
+          new QueryOptions(
+            SnapshotMapper.VERSION,
+            true,
+            null,
+            null,
+            null,
+            null,
+            0,
+            1,
+            null,
+            aggregateKey.tenantId()
+          )
+        )
+      )
+      .map(snapshotRecords -> snapshotRecords.stream().findFirst().map(PgSnapshotStore::aggregateSnapshot))
+      .onFailure(NotFound.class).recoverWithItem(Optional.empty());
+  }
+
+  @Override
+  public Uni<Void> put(AggregateSnapshot aggregateSnapshot) {
+    final var snapshotRecord = new SnapshotRecord(
+      aggregateSnapshot.aggregateId(),
+      aggregateSnapshot.version(),
+      aggregateSnapshot.journalOffset(),
+      aggregateSnapshot.schemaVersion(),
+      aggregateSnapshot.state(),
+      aggregateSnapshot.knownCommandIds(),
+      BaseRecord.newRecord(aggregateSnapshot.tenantId())
+    );
+    final var headParams = Map.<String, Object>of(
+      AggregateStreamMapper.AGGREGATE_ID, aggregateSnapshot.aggregateId(),
+      "tenant", aggregateSnapshot.tenantId(),
+      AggregateStreamMapper.LAST_SNAPSHOT_VERSION, aggregateSnapshot.version()
+    );
+    return repository.transaction(connection -> repository.insert(snapshotRecord, connection)
+        .flatMap(avoid -> repository.update(AggregateStreamMapper.SNAPSHOT_HEAD, headParams, connection))
+      )
+      .onFailure(IntegrityContraintViolation.class).recoverWithNull();
+  }
+
+  private static AggregateSnapshot aggregateSnapshot(SnapshotRecord snapshotRecord) {
+    return new AggregateSnapshot(
+      snapshotRecord.aggregateId(),
+      snapshotRecord.baseRecord().tenant(),
+      snapshotRecord.version(),
+      snapshotRecord.journalOffset(),
+      snapshotRecord.schemaVersion(),
+      snapshotRecord.state(),
+      snapshotRecord.knownCommandIds()
+    );
+  }
+
+  @Override
+  public Uni<Void> stop() {
+    return repository.repositoryHandler().close();
+  }
+
+  @Override
+  public Uni<Void> setup(Es4jDeployment es4jDeployment, Vertx vertx, JsonObject configuration) {
+    final var schema = camelToKebab(es4jDeployment.aggregateClass().getSimpleName());
+    LOGGER.debug("Migrating postgres schema {} configuration {}", schema, configuration);
+    configuration.put("schema", schema);
+    return LiquibaseHandler.liquibaseString(
+      vertx,
+      configuration,
+      "pg-snapshot-store.xml",
+      Map.of("schema", schema)
+    );
+  }
+
+}
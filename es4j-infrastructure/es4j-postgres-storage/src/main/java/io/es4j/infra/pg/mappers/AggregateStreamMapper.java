@@ -0,0 +1,98 @@
+package io.es4j.infra.pg.mappers;
+
+import io.es4j.infra.pg.models.AggregateStreamKey;
+import io.es4j.infra.pg.models.AggregateStreamRecord;
+import io.es4j.sql.RecordMapper;
+import io.es4j.sql.generator.filters.QueryBuilder;
+import io.es4j.sql.models.EmptyQuery;
+import io.vertx.sqlclient.Row;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Head of every aggregate stream, advanced in the same transaction that appends to the journal.
+ */
+public class AggregateStreamMapper implements RecordMapper<AggregateStreamKey, AggregateStreamRecord, EmptyQuery> {
+  public static final String TABLE = "aggregate_stream";
+  public static final String AGGREGATE_ID = "aggregate_id";
+  public static final String CURRENT_VERSION = "current_version";
+  public static final String LAST_SNAPSHOT_VERSION = "last_snapshot_version";
+  public static final String JOURNAL_OFFSET = "journal_offset";
+  public static final String BASE_VERSION = "base_version";
+  public static final AggregateStreamMapper INSTANCE = new AggregateStreamMapper();
+
+  /**
+   * Heads only move forward from the version the appended events were built on, a head that moved in the meantime
+   * returns no row and the append is a conflict. This is what keeps streams consistent on a partitioned journal,
+   * where (aggregate_id, tenant, event_version) can't be declared unique.
+   */
+  public static final String ADVANCE_HEAD = "insert into " + TABLE + " (aggregate_id, tenant, current_version, last_snapshot_version, journal_offset)" +
+    " values (#{aggregate_id}, #{tenant}, #{current_version}, #{last_snapshot_version}, #{journal_offset})" +
+    " on conflict (aggregate_id, tenant) do update set" +
+    " current_version = excluded.current_version," +
+    " last_snapshot_version = greatest(" + TABLE + ".last_snapshot_version, excluded.last_snapshot_version)," +
+    " journal_offset = excluded.journal_offset," +
+    " updated = current_timestamp," +
+    " rec_version = " + TABLE + ".rec_version + 1" +
+    " where " + TABLE + ".current_version = #{base_version}" +
+    " returning *;";
+
+  /**
+   * Snapshots are kept outside of the journal, the head only records the highest snapshotted version.
+   */
+  public static final String SNAPSHOT_HEAD = "insert into " + TABLE + " (aggregate_id, tenant, current_version, last_snapshot_version)" +
+    " values (#{aggregate_id}, #{tenant}, #{last_snapshot_version}, #{last_snapshot_version})" +
+    " on conflict (aggregate_id, tenant) do update set" +
+    " last_snapshot_version = greatest(" + TABLE + ".last_snapshot_version, excluded.last_snapshot_version)," +
+    " updated = current_timestamp," +
+    " rec_version = " + TABLE + ".rec_version + 1" +
+    " returning rec_version;";
+
+  private AggregateStreamMapper() {
+  }
+
+  @Override
+  public String table() {
+    return TABLE;
+  }
+
+  @Override
+  public Set<String> columns() {
+    return Set.of(AGGREGATE_ID, CURRENT_VERSION, LAST_SNAPSHOT_VERSION, JOURNAL_OFFSET);
+  }
+
+  @Override
+  public Set<String> keyColumns() {
+    return Set.of(AGGREGATE_ID);
+  }
+
+  @Override
+  public AggregateStreamRecord rowMapper(Row row) {
+    return new AggregateStreamRecord(
+      row.getString(AGGREGATE_ID),
+      row.getLong(CURRENT_VERSION),
+      row.getLong(LAST_SNAPSHOT_VERSION),
+      row.getLong(JOURNAL_OFFSET),
+      baseRecord(row)
+    );
+  }
+
+  @Override
+  public void params(Map<String, Object> params, AggregateStreamRecord actualRecord) {
+    params.put(AGGREGATE_ID, actualRecord.aggregateId());
+    params.put(CURRENT_VERSION, actualRecord.currentVersion());
+    params.put(LAST_SNAPSHOT_VERSION, actualRecord.lastSnapshotVersion());
+    params.put(JOURNAL_OFFSET, actualRecord.journalOffset());
+  }
+
+  @Override
+  public void keyParams(Map<String, Object> params, AggregateStreamKey key) {
+    params.put(AGGREGATE_ID, key.aggregateId());
+  }
+
+  @Override
+  public void queryBuilder(EmptyQuery query, QueryBuilder builder) {
+  }
+
+}
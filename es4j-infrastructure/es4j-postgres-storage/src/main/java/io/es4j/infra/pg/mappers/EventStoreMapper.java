@@ -24,6 +24,40 @@ public class EventStoreMapper implements RecordMapper<EventRecordKey, EventRecor
   public static final String COMMAND_ID = "command_id";
   public static final String TAGS = "tags";
   public static final String SCHEMA_VERSION = "schema_version";
+  public static final String MAX_SIZE = "max_size";
+  public static final String JOURNAL_OFFSET = "journal_offset";
+
+  /**
+   * Optimistic append, an event whose version is already taken is skipped instead of raising a unique violation.
+   * Fewer returned rows than appended events is how a conflict shows up, on a partitioned journal the stream head
+   * guard catches it instead.
+   */
+  public static final String APPEND = "insert into " + TABLE + " (tenant, aggregate_id, event_class, event_version, event, command_id, tags, schema_version)" +
+    " values (#{tenant}, #{aggregate_id}, #{event_class}, #{event_version}, #{event}, #{command_id}, #{tags}, #{schema_version})" +
+    " on conflict do nothing" +
+    " returning *;";
+
+  /**
+   * Single aggregate stream read, exact equality on (aggregate_id, tenant) and a range on event_version
+   * is an ordered scan of the unique (aggregate_id, tenant, event_version) index. The text never changes
+   * so the statement is prepared once per connection and reused. Later versions always sit past the journal
+   * offset already applied, on an id partitioned journal the bound prunes the older partitions.
+   */
+  public static final String AGGREGATE_STREAM = "select * from " + TABLE +
+    " where aggregate_id = #{aggregate_id} and tenant = #{tenant} and event_version >= #{event_version}" +
+    " and id >= coalesce(#{journal_offset}, 0::bigint)" +
+    " order by event_version" +
+    " limit #{max_size}";
+
+  /**
+   * Same as {@link #AGGREGATE_STREAM} starting at the latest snapshot, the snapshot lookup is a backward scan of the same index.
+   */
+  public static final String AGGREGATE_STREAM_FROM_SNAPSHOT = "select * from " + TABLE +
+    " where aggregate_id = #{aggregate_id} and tenant = #{tenant} and event_version >= greatest(#{event_version}," +
+    " (select coalesce(max(event_version), 0) from " + TABLE +
+    " where aggregate_id = #{aggregate_id} and tenant = #{tenant} and event_class = 'snapshot'))" +
+    " order by event_version" +
+    " limit #{max_size}";
 
   private EventStoreMapper() {
   }
@@ -77,13 +111,23 @@ public class EventStoreMapper implements RecordMapper<EventRecordKey, EventRecor
 
   @Override
   public void queryBuilder(EventRecordQuery query, QueryBuilder builder) {
-    // todo add tags and commandIds to query
+    // event types and command ids are exact, tags are matched through the gin index
     builder
-      .iLike(
+      .eq(
         new QueryFilters<>(String.class)
           .filterColumn(EVENT_CLASS)
           .filterParams(query.eventClasses())
       )
+      .eq(
+        new QueryFilters<>(String.class)
+          .filterColumn(COMMAND_ID)
+          .filterParams(query.commandIds())
+      )
+      .arrayOverlaps(
+        new QueryFilters<>(String.class)
+          .filterColumn(TAGS)
+          .filterParams(query.tags())
+      )
       .iLike(
         new QueryFilters<>(String.class)
           .filterColumn(AGGREGATE_ID)
@@ -109,6 +153,7 @@ public class EventStoreMapper implements RecordMapper<EventRecordKey, EventRecor
           .filterColumn(ID)
           .filterParam(query.idTo())
       )
+      .hashBucket(AGGREGATE_ID, query.shard(), query.shards())
     ;
   }
 }
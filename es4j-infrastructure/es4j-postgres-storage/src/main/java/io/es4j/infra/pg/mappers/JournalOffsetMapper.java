@@ -22,6 +22,17 @@ public class JournalOffsetMapper implements RecordMapper<EventJournalOffSetKey,
   public static final String EVENT_OFFSET = "event_offset";
   public static final String CONSUMER = "consumer";
 
+  /**
+   * Offsets are written in a single round trip whether the consumer is new or not.
+   */
+  public static final String UPSERT = "insert into " + TABLE_NAME + " (consumer, tenant, id_offset, event_offset)" +
+    " values (#{consumer}, #{tenant}, #{id_offset}, #{event_offset})" +
+    " on conflict (consumer, tenant) do update set" +
+    " id_offset = excluded.id_offset," +
+    " event_offset = excluded.event_offset," +
+    " updated = current_timestamp," +
+    " rec_version = " + TABLE_NAME + ".rec_version + 1" +
+    " returning *;";
 
 
   private JournalOffsetMapper() {
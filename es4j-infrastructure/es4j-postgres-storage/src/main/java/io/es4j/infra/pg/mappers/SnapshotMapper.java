@@ -0,0 +1,126 @@
+package io.es4j.infra.pg.mappers;
+
+import io.es4j.infra.pg.models.SnapshotRecord;
+import io.es4j.infra.pg.models.SnapshotRecordKey;
+import io.es4j.infra.pg.models.SnapshotRecordQuery;
+import io.es4j.sql.RecordMapper;
+import io.es4j.sql.generator.filters.QueryBuilder;
+import io.es4j.sql.models.QueryFilters;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Row;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Snapshot states are stored as deflated json in a bytea column, compression favours speed over ratio.
+ */
+public class SnapshotMapper implements RecordMapper<SnapshotRecordKey, SnapshotRecord, SnapshotRecordQuery> {
+  public static final String TABLE = "aggregate_snapshot";
+  public static final String AGGREGATE_ID = "aggregate_id";
+  public static final String VERSION = "version";
+  public static final String JOURNAL_OFFSET = "journal_offset";
+  public static final String SCHEMA_VERSION = "schema_version";
+  public static final String STATE = "state";
+  public static final String KNOWN_COMMANDS = "known_commands";
+  public static final SnapshotMapper INSTANCE = new SnapshotMapper();
+
+  private SnapshotMapper() {
+  }
+
+  @Override
+  public String table() {
+    return TABLE;
+  }
+
+  @Override
+  public Set<String> columns() {
+    return Set.of(AGGREGATE_ID, VERSION, JOURNAL_OFFSET, SCHEMA_VERSION, STATE, KNOWN_COMMANDS);
+  }
+
+  @Override
+  public Set<String> keyColumns() {
+    return Set.of(AGGREGATE_ID, VERSION);
+  }
+
+  @Override
+  public SnapshotRecord rowMapper(Row row) {
+    return new SnapshotRecord(
+      row.getString(AGGREGATE_ID),
+      row.getLong(VERSION),
+      row.getLong(JOURNAL_OFFSET),
+      row.getInteger(SCHEMA_VERSION),
+      inflate(row.getBuffer(STATE)),
+      row.getString(KNOWN_COMMANDS),
+      baseRecord(row)
+    );
+  }
+
+  @Override
+  public void params(Map<String, Object> params, SnapshotRecord actualRecord) {
+    params.put(AGGREGATE_ID, actualRecord.aggregateId());
+    params.put(VERSION, actualRecord.version());
+    params.put(JOURNAL_OFFSET, actualRecord.journalOffset());
+    params.put(SCHEMA_VERSION, actualRecord.schemaVersion());
+    params.put(STATE, deflate(actualRecord.state()));
+    params.put(KNOWN_COMMANDS, actualRecord.knownCommandIds());
+  }
+
+  @Override
+  public void keyParams(Map<String, Object> params, SnapshotRecordKey key) {
+    params.put(AGGREGATE_ID, key.aggregateId());
+    params.put(VERSION, key.version());
+  }
+
+  @Override
+  public void queryBuilder(SnapshotRecordQuery query, QueryBuilder builder) {
+    builder.eq(
+      new QueryFilters<>(String.class)
+        .filterColumn(AGGREGATE_ID)
+        .filterParams(query.aggregateIds())
+    );
+  }
+
+  public static Buffer deflate(JsonObject state) {
+    final var deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(state.toBuffer().getBytes());
+      deflater.finish();
+      final var output = new ByteArrayOutputStream();
+      final var chunk = new byte[4096];
+      while (!deflater.finished()) {
+        output.write(chunk, 0, deflater.deflate(chunk));
+      }
+      return Buffer.buffer(output.toByteArray());
+    } finally {
+      deflater.end();
+    }
+  }
+
+  public static JsonObject inflate(Buffer compressed) {
+    final var inflater = new Inflater();
+    try {
+      inflater.setInput(compressed.getBytes());
+      final var output = new ByteArrayOutputStream();
+      final var chunk = new byte[4096];
+      while (!inflater.finished()) {
+        final var inflated = inflater.inflate(chunk);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IllegalStateException("Truncated snapshot state");
+        }
+        output.write(chunk, 0, inflated);
+      }
+      return new JsonObject(Buffer.buffer(output.toByteArray()));
+    } catch (DataFormatException exception) {
+      throw new IllegalStateException("Corrupted snapshot state", exception);
+    } finally {
+      inflater.end();
+    }
+  }
+
+}
@@ -0,0 +1,9 @@
+package io.es4j.infra.pg.models;
+
+import io.es4j.sql.models.RepositoryRecordKey;
+
+public record AggregateStreamKey(
+  String aggregateId,
+  String tenantId
+) implements RepositoryRecordKey {
+}
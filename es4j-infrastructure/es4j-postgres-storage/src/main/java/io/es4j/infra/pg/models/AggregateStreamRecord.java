@@ -0,0 +1,18 @@
+package io.es4j.infra.pg.models;
+
+import io.es4j.sql.models.BaseRecord;
+import io.es4j.sql.models.RepositoryRecord;
+
+public record AggregateStreamRecord(
+  String aggregateId,
+  Long currentVersion,
+  Long lastSnapshotVersion,
+  Long journalOffset,
+  BaseRecord baseRecord
+) implements RepositoryRecord<AggregateStreamRecord> {
+
+  @Override
+  public AggregateStreamRecord with(BaseRecord persistedRecord) {
+    return new AggregateStreamRecord(aggregateId, currentVersion, lastSnapshotVersion, journalOffset, persistedRecord);
+  }
+}
@@ -10,10 +10,13 @@ public record EventRecordQuery(
   List<String> eventClasses,
   List<String> aggregateClasses,
   List<String> tags,
+  List<String> commandIds,
   Long eventVersionFrom,
   Long eventVersionTo,
   Long idFrom,
   Long idTo,
+  Integer shard,
+  Integer shards,
   QueryOptions options
 ) implements Query {
 
@@ -0,0 +1,21 @@
+package io.es4j.infra.pg.models;
+
+import io.es4j.sql.models.BaseRecord;
+import io.es4j.sql.models.RepositoryRecord;
+import io.vertx.core.json.JsonObject;
+
+public record SnapshotRecord(
+  String aggregateId,
+  Long version,
+  Long journalOffset,
+  Integer schemaVersion,
+  JsonObject state,
+  String knownCommandIds,
+  BaseRecord baseRecord
+) implements RepositoryRecord<SnapshotRecord> {
+
+  @Override
+  public SnapshotRecord with(BaseRecord persistedRecord) {
+    return new SnapshotRecord(aggregateId, version, journalOffset, schemaVersion, state, knownCommandIds, persistedRecord);
+  }
+}
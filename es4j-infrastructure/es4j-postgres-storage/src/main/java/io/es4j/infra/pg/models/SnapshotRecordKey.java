@@ -0,0 +1,10 @@
+package io.es4j.infra.pg.models;
+
+import io.es4j.sql.models.RepositoryRecordKey;
+
+public record SnapshotRecordKey(
+  String aggregateId,
+  Long version,
+  String tenantId
+) implements RepositoryRecordKey {
+}
@@ -0,0 +1,12 @@
+package io.es4j.infra.pg.models;
+
+import io.es4j.sql.models.Query;
+import io.es4j.sql.models.QueryOptions;
+
+import java.util.List;
+
+public record SnapshotRecordQuery(
+  List<String> aggregateIds,
+  QueryOptions options
+) implements Query {
+}
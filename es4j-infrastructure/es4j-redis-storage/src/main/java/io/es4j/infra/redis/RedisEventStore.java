@@ -69,12 +69,22 @@ public class RedisEventStore implements EventStore {
   }
 
   @Override
-  public <T extends Aggregate> Uni<Void> append(AppendInstruction<T> appendInstruction) {
+  public <T extends Aggregate> Uni<List<Long>> append(AppendInstruction<T> appendInstruction) {
     final var streamName = aggregateStream(appendInstruction);
     return Multi.createFrom().iterable(appendInstruction.events())
       .onItem().transformToUniAndConcatenate(event -> redisApi.xadd(mapArgs(event, streamName)))
-      .collect().asList()
-      .replaceWithVoid();
+      .map(RedisEventStore::checkResponse)
+      .map(RedisEventStore::streamOffset)
+      .collect().asList();
+  }
+
+  /**
+   * Entries are added with the event version as id, the offset is the millisecond part of the id redis assigned.
+   */
+  private static Long streamOffset(Response response) {
+    final var entryId = response.toString();
+    final var separator = entryId.indexOf('-');
+    return Long.parseLong(separator < 0 ? entryId : entryId.substring(0, separator));
   }
 
   @Override
@@ -226,6 +226,16 @@ public final class Repository<K extends RepositoryRecordKey, V extends Repositor
       .replaceWithVoid();
   }
 
+  @Override
+  public Uni<List<V>> queryBatch(String statement, List<Map<String, Object>> params, SqlConnection sqlConnection) {
+    logOperations("Querying", statement, params);
+    return repositoryHandler.handleBatch(queryGeneratorMapper.actualRecordType).apply(
+      () -> SqlTemplate.forQuery(sqlConnection, statement)
+        .mapTo(queryGeneratorMapper.recordRowMapper)
+        .executeBatch(params)
+    );
+  }
+
   @Override
   public Uni<Void> updateBatch(String query, List<Map<String, Object>> params) {
     logOperations("Updating", query, params);
@@ -494,6 +504,11 @@ public final class Repository<K extends RepositoryRecordKey, V extends Repositor
   @Override
   public Uni<Void> stream(Consumer<V> handler, Q query) {
     final var tuple = queryGeneratorMapper.generateQuery(new GenerateQueryCommand<>(QueryStatementType.SELECT, query));
+    return stream(handler, tuple.getItem1(), tuple.getItem2());
+  }
+
+  @Override
+  public Uni<Void> stream(Consumer<V> handler, String statement, Map<String, Object> paramMap) {
     final var template = io.vertx.sqlclient.templates.impl.SqlTemplate.create(
       new SqlClientInternal() {
         @Override
@@ -531,11 +546,10 @@ public final class Repository<K extends RepositoryRecordKey, V extends Repositor
           return null;
         }
       },
-      tuple.getItem1()
+      statement
     );
-    final var params = Tuple.newInstance(template.mapTuple(tuple.getItem2()));
-    final var statement = template.getSql();
-    return stream(Uni.createFrom().voidItem(), handler, statement, params);
+    final var params = Tuple.newInstance(template.mapTuple(paramMap));
+    return stream(Uni.createFrom().voidItem(), handler, template.getSql(), params);
   }
 
 
@@ -196,7 +196,7 @@ public record RepositoryHandler(
   public <T> Function<Supplier<Uni<RowSet<T>>>, Uni<List<T>>> handleUpdateByKeyBatch(Class<T> tClass, int size) {
     final var start = Instant.now();
     return upstreamSupplier -> upstreamSupplier.get()
-      .onItem().transformToMulti(RowSet::toMulti).collect().asList()
+      .map(RepositoryHandler::batchRows)
       .map(Unchecked.function(list -> {
             final var end = Instant.now();
             logger.info("Fetched results in " + Duration.between(start, end).toMillis() + "ms");
@@ -260,10 +260,34 @@ public record RepositoryHandler(
       .onFailure().transform(this::mapError);
   }
 
+  /**
+   * Batched executions chain one row set per batch entry.
+   */
+  private static <T> List<T> batchRows(RowSet<T> rowSet) {
+    final var rows = new ArrayList<T>();
+    for (var next = rowSet; next != null; next = next.next()) {
+      next.forEach(rows::add);
+    }
+    return rows;
+  }
+
+  /**
+   * Batched statements whose row count is part of the outcome, nothing is enforced on the returned rows.
+   */
+  public <T> Function<Supplier<Uni<RowSet<T>>>, Uni<List<T>>> handleBatch(Class<T> tClass) {
+    final var start = Instant.now();
+    return upstreamSupplier -> upstreamSupplier.get()
+      .map(RepositoryHandler::batchRows)
+      .invoke(list -> logger.debug(tClass.getSimpleName() + " batch returned " + list.size() + " rows in " + Duration.between(start, Instant.now()).toMillis() + "ms"))
+      .onFailure(throwable -> checkError(throwable, tClass))
+      .retry().withBackOff(Duration.ofMillis(configuration.getInteger("repositoryRetryBackOff", EnvVars.REPOSITORY_RETRY_BACKOFF))).atMost(configuration.getInteger("repositoryMaxRetry", EnvVars.REPOSITORY_MAX_RETRY))
+      .onFailure().transform(this::mapError);
+  }
+
   public <T> Function<Supplier<Uni<RowSet<T>>>, Uni<List<T>>> handleInsertBatch(Class<T> tClass, int size) {
     final var start = Instant.now();
     return upstreamSupplier -> upstreamSupplier.get()
-      .onItem().transformToMulti(RowSet::toMulti).collect().asList()
+      .map(RepositoryHandler::batchRows)
       .map(Unchecked.function(list -> {
             logger.debug("Fetched results {} ", list);
             final var end = Instant.now();
@@ -104,6 +104,9 @@ public class PostgresQueryGenerator implements QueryGenerator {
         filters.iLikeFilters.forEach(filter -> SimpleFilter.addIlikeFilter(queryJoiner, paramMap, filter));
         filters.likeFilters.forEach(filter -> SimpleFilter.addLikeFilter(queryJoiner, paramMap, filter));
         filters.eqFilters.forEach(filter -> SimpleFilter.addEqFilter(queryJoiner, paramMap, filter));
+        filters.arrayOverlapFilters.forEach(filter -> ArrayColumnFilter.addOverlapFilter(queryJoiner, paramMap, filter));
+        filters.arrayContainsFilters.forEach(filter -> ArrayColumnFilter.addContainsFilter(queryJoiner, paramMap, filter));
+        filters.hashBucketFilters.forEach(filter -> HashBucketFilter.addHashBucketFilter(queryJoiner, paramMap, filter));
         filters.fromRangeFilters.forEach(filter -> RangeFilter.addFromFilter(queryJoiner, filter.getItem1(), filter.getItem2()));
         filters.toRangeFilters.forEach(filter -> RangeFilter.addToFilter(queryJoiner, filter.getItem1(), filter.getItem2()));
         filters.jsonEqFilter.forEach(filter -> JsonFilter.addFieldJson(queryJoiner, paramMap, filter));
@@ -1,15 +1,39 @@
 package io.es4j.sql.generator.filters;
 
+import io.smallrye.mutiny.tuples.Tuple2;
+
 import java.util.List;
+import java.util.Map;
 import java.util.StringJoiner;
 
+/**
+ * Array column operators, both can be served by a gin index on the column.
+ * The parameter type is inferred from the column.
+ */
 public class ArrayColumnFilter {
 
-    protected void arrayIn(StringJoiner stringJoiner, List<String> list, String column) {
-        if (list != null && !list.isEmpty()) {
-            final var searchArray = new StringJoiner(",");
-            list.forEach(tag -> searchArray.add("'" + tag + "'::varchar"));
-            stringJoiner.add(" array[" + searchArray + "] <@ " + column + " ");
-        }
+  private ArrayColumnFilter() {
+  }
+
+  /**
+   * Rows whose array shares at least one element with the params.
+   */
+  public static void addOverlapFilter(StringJoiner queryFilters, Map<String, Object> paramMap, Tuple2<String, List<?>> tuple) {
+    addArrayFilter(queryFilters, paramMap, tuple, "&&", "_overlap");
+  }
+
+  /**
+   * Rows whose array holds every one of the params.
+   */
+  public static void addContainsFilter(StringJoiner queryFilters, Map<String, Object> paramMap, Tuple2<String, List<?>> tuple) {
+    addArrayFilter(queryFilters, paramMap, tuple, "@>", "_contains");
+  }
+
+  private static void addArrayFilter(StringJoiner queryFilters, Map<String, Object> paramMap, Tuple2<String, List<?>> tuple, String operator, String suffix) {
+    if (tuple.getItem2() != null && !tuple.getItem2().isEmpty()) {
+      final var param = tuple.getItem1() + suffix;
+      paramMap.put(param, tuple.getItem2().stream().map(String::valueOf).toArray(String[]::new));
+      queryFilters.add(" " + tuple.getItem1() + " " + operator + " #{" + param + "} ");
     }
+  }
 }
@@ -0,0 +1,26 @@
+package io.es4j.sql.generator.filters;
+
+import io.smallrye.mutiny.tuples.Tuple3;
+
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Splits rows into a fixed number of buckets on the hash of a text column, a given value always lands in the same bucket.
+ */
+public class HashBucketFilter {
+
+  private HashBucketFilter() {
+  }
+
+  public static void addHashBucketFilter(StringJoiner queryFilters, Map<String, Object> paramMap, Tuple3<String, Integer, Integer> tuple) {
+    if (tuple.getItem2() != null && tuple.getItem3() != null && tuple.getItem3() > 1) {
+      final var bucket = tuple.getItem1() + "_bucket";
+      final var buckets = tuple.getItem1() + "_buckets";
+      paramMap.put(bucket, tuple.getItem2());
+      paramMap.put(buckets, tuple.getItem3());
+      // hashtext is signed, the sign bit is masked so every row maps to a bucket in [0, buckets)
+      queryFilters.add(" mod(hashtext(" + tuple.getItem1() + ") & 2147483647, #{" + buckets + "}) = #{" + bucket + "} ");
+    }
+  }
+}
@@ -8,6 +8,8 @@ import java.time.ZoneOffset;
 import java.util.HashMap;
 import java.util.StringJoiner;
 
+import static io.es4j.sql.misc.Constants.CREATION_DATE;
+import static io.es4j.sql.misc.Constants.LAST_UPDATE;
 import static io.es4j.sql.misc.Constants.TENANT;
 
 
@@ -22,19 +24,19 @@ public class OptionsFilter {
       queryFilters.add(" tenant like '%' ");
     }
     if (options.creationDateFrom() != null) {
-      queryFilters.add(" creation_date >= #{creationDateFrom} ");
+      queryFilters.add(" " + CREATION_DATE + " >= #{creationDateFrom} ");
     }
     if (options.creationDateTo() != null) {
-      queryFilters.add(" creation_date <= #{creationDateTo} ");
+      queryFilters.add(" " + CREATION_DATE + " <= #{creationDateTo} ");
     }
     if (options.idFrom() != null) {
       queryFilters.add(" id >= " + options.idFrom() + " ");
     }
     if (options.lastUpdateFrom() != null) {
-      queryFilters.add(" last_update >= #{lastUpdateDateFrom} ");
+      queryFilters.add(" " + LAST_UPDATE + " >= #{lastUpdateFrom} ");
     }
     if (options.lastUpdateTo() != null) {
-      queryFilters.add(" last_update <= #{lastUpdateDateTo} ");
+      queryFilters.add(" " + LAST_UPDATE + " <= #{lastUpdateTo} ");
     }
   }
 
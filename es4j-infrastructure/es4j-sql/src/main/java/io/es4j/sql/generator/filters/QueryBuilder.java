@@ -36,6 +36,24 @@ public class QueryBuilder {
   }
 
 
+  public <T> QueryBuilder arrayOverlaps(io.es4j.sql.models.QueryFilters<T> queryFilters) {
+    filters.arrayOverlapFilters.add(Tuple2.of(queryFilters.column(), queryFilters.params()));
+    return this;
+  }
+
+  public <T> QueryBuilder arrayContains(io.es4j.sql.models.QueryFilters<T> queryFilters) {
+    filters.arrayContainsFilters.add(Tuple2.of(queryFilters.column(), queryFilters.params()));
+    return this;
+  }
+
+  /**
+   * Keeps the rows whose column hashes into the given bucket out of the given number of buckets.
+   */
+  public QueryBuilder hashBucket(String column, Integer bucket, Integer buckets) {
+    filters.hashBucketFilters.add(Tuple3.of(column, bucket, buckets));
+    return this;
+  }
+
   private <T> void validateQueryParam(QueryFilter<T> queryParams) {
     Objects.requireNonNull(queryParams.column(),"Column shouldn't be null !");
   }
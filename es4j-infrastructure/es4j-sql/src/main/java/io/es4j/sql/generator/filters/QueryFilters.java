@@ -11,6 +11,9 @@ public class QueryFilters {
   public final List<Tuple2<String, List<?>>> eqFilters;
   public final List<Tuple2<String, List<?>>> likeFilters;
   public final List<Tuple2<String, List<?>>> iLikeFilters;
+  public final List<Tuple2<String, List<?>>> arrayOverlapFilters;
+  public final List<Tuple2<String, List<?>>> arrayContainsFilters;
+  public final List<Tuple3<String, Integer, Integer>> hashBucketFilters;
   public final List<Tuple2<String, ?>> fromRangeFilters;
   public final List<Tuple2<String, ?>> toRangeFilters;
   public final List<Tuple3<String, Queue<String>, List<?>>> jsonEqFilter;
@@ -26,6 +29,9 @@ public class QueryFilters {
     this.eqFilters = new ArrayList<>();
     this.likeFilters = new ArrayList<>();
     this.iLikeFilters = new ArrayList<>();
+    this.arrayOverlapFilters = new ArrayList<>();
+    this.arrayContainsFilters = new ArrayList<>();
+    this.hashBucketFilters = new ArrayList<>();
     this.fromRangeFilters = new ArrayList<>();
     this.toRangeFilters = new ArrayList<>();
     this.jsonEqFilter = new ArrayList<>();
@@ -42,6 +48,9 @@ public class QueryFilters {
     this.eqFilters = new ArrayList<>();
     this.likeFilters = new ArrayList<>();
     this.iLikeFilters = new ArrayList<>();
+    this.arrayOverlapFilters = new ArrayList<>();
+    this.arrayContainsFilters = new ArrayList<>();
+    this.hashBucketFilters = new ArrayList<>();
     this.fromRangeFilters = new ArrayList<>();
     this.toRangeFilters = new ArrayList<>();
     this.jsonEqFilter = new ArrayList<>();
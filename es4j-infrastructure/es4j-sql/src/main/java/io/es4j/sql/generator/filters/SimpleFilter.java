@@ -66,9 +66,12 @@ public class SimpleFilter {
         }
     }
 
+    /**
+     * Equality binds the values as they are, wildcards only mean something to the like filters.
+     */
     public static void eqString(String column, List<String> params, Map<String, Object> paramMap, StringJoiner queryString) {
         if (params != null && !params.isEmpty()) {
-            final var array = params.stream().map(s -> s.replace("*", "%")).toArray(String[]::new);
+            final var array = params.toArray(String[]::new);
             paramMap.put(column, array);
             queryString.add(" " + column + " = any(#{" + column + "}) ");
         }
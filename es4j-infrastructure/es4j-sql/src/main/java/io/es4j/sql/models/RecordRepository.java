@@ -99,6 +99,13 @@ public interface RecordRepository<K, V extends RepositoryRecord<V>, Q extends Qu
         throw GenericFailure.notImplemented();
     }
 
+    /**
+     * Executes the statement once per params entry and returns every produced row, an entry may produce none.
+     */
+    default Uni<List<V>> queryBatch(String statement, List<Map<String, Object>> params, SqlConnection sqlConnection) {
+        throw GenericFailure.notImplemented();
+    }
+
     default void insertAndForget(V value) {
         throw GenericFailure.notImplemented();
     }
@@ -165,6 +172,10 @@ public interface RecordRepository<K, V extends RepositoryRecord<V>, Q extends Qu
 
     Uni<Void> stream(Consumer<V> handler, Q query);
 
+    default Uni<Void> stream(Consumer<V> handler, String statement, Map<String, Object> params) {
+        throw GenericFailure.notImplemented();
+    }
+
 
     default <T> Uni<T> transaction(Function<SqlConnection, Uni<T>> function) {
         throw GenericFailure.notImplemented();
@@ -9,6 +9,13 @@ public interface CronTask {
 
   Uni<Void> performTask();
 
+  /**
+   * Name used for the task lock and timer, tasks deployed more than once under the same class must tell themselves apart.
+   */
+  default String name() {
+    return getClass().getName();
+  }
+
   default CronTaskConfiguration configuration() {
     return new CronTaskConfiguration(
       new CronParser(CronDefinitionBuilder.instanceDefinitionFor(CronType.UNIX)).parse("0 0 * * *"),
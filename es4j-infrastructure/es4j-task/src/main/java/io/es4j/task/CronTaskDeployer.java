@@ -17,7 +17,7 @@ import java.util.Map;
 
 public class CronTaskDeployer {
 
-  public static final Map<Class<?>, Long> timers = new HashMap<>();
+  public static final Map<String, Long> timers = new HashMap<>();
   private final Vertx vertx;
 
   public CronTaskDeployer(
@@ -27,7 +27,7 @@ public class CronTaskDeployer {
   }
 
   public void close() {
-    timers.forEach((tClass, timerId) -> vertx.cancelTimer(timerId));
+    timers.forEach((name, timerId) -> vertx.cancelTimer(timerId));
     timers.clear();
   }
 
@@ -38,14 +38,14 @@ public class CronTaskDeployer {
   }
 
   public void triggerTask(TaskWrapper taskWrapper, Vertx vertx, Duration throttle) {
-    timers.remove(taskWrapper.task().getClass());
+    timers.remove(taskWrapper.task().name());
     final var timerId = vertx.setTimer(
       throttle.toMillis(),
       delay -> {
         final var start = Instant.now();
         final var lockUni = switch (taskWrapper.task().configuration().lockLevel()) {
-          case CLUSTER_WIDE -> vertx.sharedData().getLock(taskWrapper.task().getClass().getName());
-          case LOCAL -> vertx.sharedData().getLocalLock(taskWrapper.task().getClass().getName());
+          case CLUSTER_WIDE -> vertx.sharedData().getLock(taskWrapper.task().name());
+          case LOCAL -> vertx.sharedData().getLocalLock(taskWrapper.task().name());
           case NONE -> Uni.createFrom().item(Lock.newInstance(() -> {
           }));
         };
@@ -67,7 +67,7 @@ public class CronTaskDeployer {
           );
       }
     );
-    timers.put(taskWrapper.task().getClass(), timerId);
+    timers.put(taskWrapper.task().name(), timerId);
   }
 
   public Duration nextExecution(TaskWrapper task) {
@@ -0,0 +1,188 @@
+package io.es4j.core;
+
+import io.es4j.Aggregate;
+import io.es4j.core.objects.AggregateConfiguration;
+import io.es4j.core.objects.AggregateState;
+import io.es4j.core.objects.CommandAck;
+import io.es4j.core.objects.ResponseMode;
+import io.es4j.core.objects.TakeSnapshot;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Replay costs are averaged per aggregate class, every test runs on its own aggregate class.
+ */
+class AdaptiveSnapshotterTest {
+
+  private static final Vertx vertx = Vertx.vertx();
+  private static final long MILLI = 1_000_000L;
+  private final List<Runnable> cleanup = new ArrayList<>();
+  // aggregate ids of the snapshots requested so far
+  private final List<String> snapshots = Collections.synchronizedList(new ArrayList<>());
+  private CommandHandler<?> commandHandler;
+
+  @AfterEach
+  void tearDown() {
+    cleanup.forEach(Runnable::run);
+  }
+
+  @AfterAll
+  static void stop() {
+    vertx.closeAndAwait();
+  }
+
+  @Test
+  void disabled_unless_budget_and_interval_are_set() {
+    assertFalse(new AdaptiveSnapshotter<>(vertx, CostAggregate.class, new AggregateConfiguration(Duration.ofHours(1), 100, 100)).enabled());
+    assertFalse(new AdaptiveSnapshotter<>(vertx, CostAggregate.class, configuration(Duration.ofMillis(20), null, 100)).enabled());
+    assertFalse(new AdaptiveSnapshotter<>(vertx, CostAggregate.class, configuration(null, Duration.ofSeconds(1), 100)).enabled());
+    assertTrue(new AdaptiveSnapshotter<>(vertx, CostAggregate.class, configuration(Duration.ofMillis(20), Duration.ofSeconds(1), 100)).enabled());
+  }
+
+  @Test
+  void replays_estimated_over_budget_are_snapshot() {
+    final var snapshotter = snapshotter(CostAggregate.class, Duration.ofMillis(20), null);
+    // 1ms per event
+    snapshotter.replayed(state(CostAggregate::new, "sampled", 5), 5, 5 * MILLI);
+    snapshotter.processed(state(CostAggregate::new, "over-budget", 25));
+    snapshotter.processed(state(CostAggregate::new, "under-budget", 15));
+    snapshotter.processed(state(CostAggregate::new, "too-few-events", 9));
+
+    snapshotter.start();
+
+    await(() -> snapshots.contains("over-budget"));
+    pause();
+    assertEquals(List.of("over-budget"), snapshots);
+    verify(commandHandler).process(eq(new TakeSnapshot("over-budget", "default")), anyString(), eq(ResponseMode.ACK));
+  }
+
+  @Test
+  void replay_cost_is_an_exponentially_weighted_average() {
+    final var snapshotter = snapshotter(EwmaAggregate.class, Duration.ofMillis(25), null);
+    // 1ms then 6ms per event average to 2ms, neither the first nor the last sample alone
+    snapshotter.replayed(state(EwmaAggregate::new, "first-sample", 5), 5, 5 * MILLI);
+    snapshotter.replayed(state(EwmaAggregate::new, "second-sample", 5), 5, 5 * 6 * MILLI);
+    snapshotter.processed(state(EwmaAggregate::new, "24ms", 12));
+    snapshotter.processed(state(EwmaAggregate::new, "26ms", 13));
+
+    snapshotter.start();
+
+    await(() -> snapshots.contains("26ms"));
+    pause();
+    assertEquals(List.of("26ms"), snapshots);
+  }
+
+  @Test
+  void threshold_is_the_fallback_and_is_halved_for_hot_aggregates() {
+    final var snapshotter = snapshotter(ThresholdAggregate.class, Duration.ofHours(1), 100);
+    snapshotter.processed(state(ThresholdAggregate::new, "cold", 60));
+    final var hot = state(ThresholdAggregate::new, "hot", 60);
+    for (int command = 0; command < AdaptiveSnapshotter.HOT_COMMANDS; command++) {
+      snapshotter.processed(hot);
+    }
+    snapshotter.processed(state(ThresholdAggregate::new, "threshold", 100));
+
+    snapshotter.start();
+
+    await(() -> snapshots.size() == 2);
+    pause();
+    assertEquals(List.of("hot", "threshold"), snapshots.stream().sorted().toList());
+  }
+
+  @Test
+  void candidates_not_snapshot_yet_are_evaluated_again() {
+    final var snapshotter = snapshotter(LateAggregate.class, Duration.ofMillis(20), null);
+    // the replay cost is unknown at first, the pending events alone don't qualify
+    snapshotter.processed(state(LateAggregate::new, "idle", 60));
+    snapshotter.start();
+    pause();
+    assertTrue(snapshots.isEmpty());
+
+    // the aggregate isn't touched again, a replay cost learned later still gets it snapshot
+    snapshotter.replayed(state(LateAggregate::new, "sampled", 5), 5, 5 * MILLI);
+
+    await(() -> snapshots.contains("idle"));
+    pause();
+    assertEquals(List.of("idle"), snapshots);
+  }
+
+  private <T extends Aggregate> AdaptiveSnapshotter<T> snapshotter(Class<T> aggregateClass, Duration budget, Integer threshold) {
+    final var snapshotter = new AdaptiveSnapshotter<>(vertx, aggregateClass, configuration(budget, Duration.ofMillis(50), threshold));
+    final CommandHandler<?> commandHandler = mock(CommandHandler.class);
+    this.commandHandler = commandHandler;
+    when(commandHandler.process(any(), anyString(), any())).thenAnswer(invocation -> {
+        final TakeSnapshot takeSnapshot = invocation.getArgument(0);
+        snapshots.add(takeSnapshot.aggregateId());
+        return Uni.createFrom().item(new CommandAck(takeSnapshot.aggregateId(), takeSnapshot.tenant(), 1L, 1L, List.of()));
+      }
+    );
+    final var mailbox = new CommandMailbox<>(vertx.getOrCreateContext().getDelegate(), commandHandler);
+    CommandMailbox.register(aggregateClass, mailbox);
+    cleanup.add(() -> {
+        snapshotter.stop();
+        CommandMailbox.unregister(aggregateClass, mailbox);
+      }
+    );
+    return snapshotter;
+  }
+
+  private static AggregateConfiguration configuration(Duration budget, Duration interval, Integer threshold) {
+    return new AggregateConfiguration(Duration.ZERO, threshold, 100, Duration.ZERO, 1, budget, interval, AggregateConfiguration.DEFAULT_CACHE_MAX_WEIGHT, 0L, 1000);
+  }
+
+  private static <T extends Aggregate> AggregateState<T> state(Function<String, T> aggregate, String aggregateId, long version) {
+    final var state = aggregate.apply(aggregateId);
+    @SuppressWarnings("unchecked")
+    final var aggregateState = new AggregateState<>((Class<T>) state.getClass());
+    return aggregateState.setState(state).setCurrentVersion(version);
+  }
+
+  private static void await(java.util.function.BooleanSupplier condition) {
+    final var deadline = System.currentTimeMillis() + 10_000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+      pause(10);
+    }
+  }
+
+  private static void pause() {
+    // a few sweeps
+    pause(250);
+  }
+
+  private static void pause(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public record CostAggregate(String aggregateId) implements Aggregate {
+  }
+
+  public record EwmaAggregate(String aggregateId) implements Aggregate {
+  }
+
+  public record ThresholdAggregate(String aggregateId) implements Aggregate {
+  }
+
+  public record LateAggregate(String aggregateId) implements Aggregate {
+  }
+
+}
@@ -0,0 +1,42 @@
+package io.es4j.core;
+
+import io.es4j.core.objects.CheckpointPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointPolicyTest {
+
+  @Test
+  void without_bounds_every_batch_is_due() {
+    final var policy = CheckpointPolicy.everyBatch();
+    assertTrue(policy.due(1, 0));
+    assertTrue(policy.due(0, 0));
+  }
+
+  @Test
+  void event_bound_is_due_once_reached() {
+    final var policy = new CheckpointPolicy(1000, null);
+    assertFalse(policy.due(999, Long.MAX_VALUE));
+    assertTrue(policy.due(1000, 0));
+    assertTrue(policy.due(2500, 0));
+  }
+
+  @Test
+  void interval_bound_is_due_once_elapsed() {
+    final var policy = new CheckpointPolicy(null, Duration.ofSeconds(5));
+    assertFalse(policy.due(Long.MAX_VALUE, 4999));
+    assertTrue(policy.due(1, 5000));
+  }
+
+  @Test
+  void either_bound_makes_it_due() {
+    final var policy = new CheckpointPolicy(1000, Duration.ofSeconds(5));
+    assertFalse(policy.due(999, 4999));
+    assertTrue(policy.due(1000, 0));
+    assertTrue(policy.due(1, 5000));
+  }
+
+}
@@ -0,0 +1,427 @@
+package io.es4j.core;
+
+import io.es4j.Aggregate;
+import io.es4j.behaviours.ChangeBehaviour;
+import io.es4j.behaviours.ChangedAggregator;
+import io.es4j.behaviours.CreateAggregator;
+import io.es4j.behaviours.CreateBehaviour;
+import io.es4j.core.objects.AggregateConfiguration;
+import io.es4j.core.objects.AggregateState;
+import io.es4j.core.objects.AggregatorWrap;
+import io.es4j.core.objects.BehaviourWrap;
+import io.es4j.core.objects.DispatchPlan;
+import io.es4j.core.objects.LoadAggregate;
+import io.es4j.core.objects.ResponseMode;
+import io.es4j.core.objects.SnapshotEvent;
+import io.es4j.core.objects.TakeSnapshot;
+import io.es4j.domain.FakeAggregate;
+import io.es4j.events.DataChanged;
+import io.es4j.events.DataCreated;
+import io.es4j.infrastructure.AggregateCache;
+import io.es4j.infrastructure.EventStore;
+import io.es4j.infrastructure.Infrastructure;
+import io.es4j.infrastructure.OffsetStore;
+import io.es4j.infrastructure.SnapshotStore;
+import io.es4j.infrastructure.models.AggregateEventStream;
+import io.es4j.infrastructure.models.AggregateKey;
+import io.es4j.infrastructure.models.AggregateSnapshot;
+import io.es4j.infrastructure.models.AggregateStreamHead;
+import io.es4j.infrastructure.models.AppendInstruction;
+import io.es4j.infrastructure.models.ConcurrentAppend;
+import io.es4j.infrastructure.models.Event;
+import io.es4j.saga.commands.ChangeData;
+import io.es4j.saga.commands.CreateData;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CommandHandlerTest {
+
+  private static final Vertx vertx = Vertx.vertx();
+  private static final AggregateConfiguration CONFIGURATION = new AggregateConfiguration(
+    Duration.ZERO, 100, 1000, Duration.ZERO, 1, Duration.ZERO, Duration.ZERO, AggregateConfiguration.DEFAULT_CACHE_MAX_WEIGHT, 0L, 1000
+  );
+  private EventStore eventStore;
+  private List<Event> journal;
+  private AtomicInteger fetches;
+  private List<AggregateEventStream<?>> instructions;
+  // replays wait on the gate when one is set
+  private CompletableFuture<Void> gate;
+  // appends beaten by another node
+  private final AtomicInteger racingAppends = new AtomicInteger();
+
+  @BeforeEach
+  void setup() {
+    journal = new CopyOnWriteArrayList<>();
+    fetches = new AtomicInteger();
+    instructions = new CopyOnWriteArrayList<>();
+    gate = null;
+    eventStore = mock(EventStore.class);
+    when(eventStore.streamHeads()).thenReturn(false);
+    when(eventStore.fetch(any(AggregateEventStream.class))).thenAnswer(invocation -> {
+        final AggregateEventStream<?> stream = invocation.getArgument(0);
+        fetches.incrementAndGet();
+        instructions.add(stream);
+        final var events = Uni.createFrom().item(() -> journal.stream()
+          .filter(event -> event.aggregateId().equals(stream.aggregateId()))
+          .filter(event -> stream.eventVersionOffset() == null || event.eventVersion() >= stream.eventVersionOffset())
+          .filter(event -> !Boolean.TRUE.equals(stream.startFromSnapshot()) || event.eventVersion() >= lastJournalSnapshot(stream.aggregateId()))
+          .limit(stream.maxSize() == null ? Long.MAX_VALUE : stream.maxSize())
+          .toList()
+        );
+        if (gate == null) {
+          return events;
+        }
+        return Uni.createFrom().completionStage(gate).flatMap(avoid -> events);
+      }
+    );
+  }
+
+  @AfterAll
+  static void stop() {
+    vertx.closeAndAwait();
+  }
+
+  @Test
+  void concurrent_loads_share_a_single_replay() {
+    final var aggregateId = UUID.randomUUID().toString();
+    stream(aggregateId, 3);
+    final var commandHandler = commandHandler();
+    gate = new CompletableFuture<>();
+
+    final var loads = IntStream.range(0, 10)
+      .mapToObj(i -> commandHandler.process(new LoadAggregate(aggregateId, "default", null, null)).subscribeAsCompletionStage())
+      .toList();
+    gate.complete(null);
+    final var states = loads.stream().map(CompletableFuture::join).map(reply -> (AggregateState<?>) reply).toList();
+
+    assertEquals(1, fetches.get());
+    states.forEach(state -> assertEquals(3L, state.currentVersion()));
+
+    // the flight is over, the next load replays again
+    commandHandler.process(new LoadAggregate(aggregateId, "default", null, null)).await().indefinitely();
+    assertEquals(2, fetches.get());
+  }
+
+  @Test
+  void a_failed_replay_fails_every_load_sharing_it() {
+    final var aggregateId = UUID.randomUUID().toString();
+    stream(aggregateId, 3);
+    final var commandHandler = commandHandler();
+    gate = new CompletableFuture<>();
+
+    final var loads = IntStream.range(0, 5)
+      .mapToObj(i -> commandHandler.process(new LoadAggregate(aggregateId, "default", null, null)).subscribeAsCompletionStage())
+      .toList();
+    gate.completeExceptionally(new IllegalStateException("journal unavailable"));
+
+    loads.forEach(load -> {
+        final var failure = assertThrows(CompletionException.class, load::join);
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+      }
+    );
+    assertEquals(1, fetches.get());
+    gate = null;
+    final var state = (AggregateState<?>) commandHandler.process(new LoadAggregate(aggregateId, "default", null, null)).await().indefinitely();
+    assertEquals(3L, state.currentVersion());
+  }
+
+  @Test
+  void take_snapshot_appends_the_state_at_the_next_version() {
+    final var aggregateId = UUID.randomUUID().toString();
+    stream(aggregateId, 3);
+    final var appended = appendToJournal();
+    final var commandHandler = commandHandler();
+
+    final var state = (AggregateState<?>) commandHandler.process(new TakeSnapshot(aggregateId, "default"), UUID.randomUUID().toString(), ResponseMode.STATE)
+      .await().indefinitely();
+
+    assertEquals(1, appended.size());
+    final var snapshot = appended.get(0).events().get(0);
+    assertEquals(DispatchPlan.SNAPSHOT_EVENT_TYPE, snapshot.eventType());
+    assertEquals(4L, snapshot.eventVersion());
+    assertEquals(4L, state.currentVersion());
+
+    // the cached state knows the snapshot, nothing happened since so the next request appends nothing
+    commandHandler.process(new TakeSnapshot(aggregateId, "default"), UUID.randomUUID().toString(), ResponseMode.STATE).await().indefinitely();
+    assertEquals(1, appended.size());
+  }
+
+  @Test
+  void take_snapshot_losing_the_race_against_a_command_is_skipped() {
+    final var aggregateId = UUID.randomUUID().toString();
+    stream(aggregateId, 3);
+    when(eventStore.append(any())).thenReturn(Uni.createFrom().failure(new ConcurrentAppend("version taken")));
+    final var commandHandler = commandHandler();
+
+    final var state = (AggregateState<?>) commandHandler.process(new TakeSnapshot(aggregateId, "default"), UUID.randomUUID().toString(), ResponseMode.STATE)
+      .await().indefinitely();
+
+    assertEquals(3L, state.currentVersion());
+    verify(eventStore).append(any());
+  }
+
+  @Test
+  void stored_snapshot_is_restored_and_only_later_events_are_replayed() {
+    final var aggregateId = UUID.randomUUID().toString();
+    stream(aggregateId, 3);
+    final var snapshotStore = mock(SnapshotStore.class);
+    when(snapshotStore.latest(any())).thenReturn(Uni.createFrom().item(Optional.of(new AggregateSnapshot(
+      aggregateId, "default", 3L, 3L, 0, JsonObject.mapFrom(new FakeAggregate(aggregateId, Map.of("restored", true))), ""
+    ))));
+    final var commandHandler = commandHandler(Optional.of(snapshotStore));
+
+    final var restored = load(commandHandler, aggregateId);
+
+    assertEquals(3L, restored.currentVersion());
+    assertEquals(Map.of("restored", true), ((FakeAggregate) restored.state()).data());
+    assertEquals(4L, instructions.get(0).eventVersionOffset());
+    assertFalse(instructions.get(0).startFromSnapshot());
+
+    LongStream.rangeClosed(4, 5).forEach(version ->
+      journal.add(event(aggregateId, version, "data-changed", JsonObject.mapFrom(new DataChanged(Map.of("version", version)))))
+    );
+    final var caughtUp = load(commandHandler, aggregateId);
+    assertEquals(5L, caughtUp.currentVersion());
+    assertEquals(Map.of("version", 5L), ((FakeAggregate) caughtUp.state()).data());
+  }
+
+  @Test
+  void journal_snapshot_is_restored_without_a_snapshot_store() {
+    final var aggregateId = UUID.randomUUID().toString();
+    stream(aggregateId, 2);
+    journalSnapshot(aggregateId, 3L);
+    final var commandHandler = commandHandler();
+
+    final var restored = load(commandHandler, aggregateId);
+
+    assertEquals(3L, restored.currentVersion());
+    assertEquals(Map.of("restored", true), ((FakeAggregate) restored.state()).data());
+    assertTrue(instructions.get(0).startFromSnapshot());
+  }
+
+  @Test
+  void head_pointing_at_a_journal_snapshot_is_restored_from_the_journal_when_the_store_has_none() {
+    final var aggregateId = UUID.randomUUID().toString();
+    stream(aggregateId, 2);
+    journalSnapshot(aggregateId, 3L);
+    journal.add(event(aggregateId, 4L, "data-changed", JsonObject.mapFrom(new DataChanged(Map.of("version", 4)))));
+    when(eventStore.streamHeads()).thenReturn(true);
+    when(eventStore.head(any())).thenReturn(Uni.createFrom().item(Optional.of(new AggregateStreamHead(aggregateId, "default", 4L, 3L, 4L))));
+    final var snapshotStore = mock(SnapshotStore.class);
+    when(snapshotStore.latest(any())).thenReturn(Uni.createFrom().item(Optional.empty()));
+    final var commandHandler = commandHandler(Optional.of(snapshotStore));
+
+    final var state = load(commandHandler, aggregateId);
+
+    assertEquals(4L, state.currentVersion());
+    assertEquals(Map.of("version", 4), ((FakeAggregate) state.state()).data());
+    assertTrue(instructions.get(0).startFromSnapshot());
+    verify(snapshotStore).latest(any());
+  }
+
+  @Test
+  void conflicting_append_catches_up_only_the_missing_events() {
+    final var aggregateId = UUID.randomUUID().toString();
+    stream(aggregateId, 3);
+    final var cache = new MapCache();
+    final var commandHandler = commandHandler(Optional.of(cache), Optional.empty());
+    load(commandHandler, aggregateId);
+    final var cached = cache.get(key(aggregateId));
+    final var appended = appendToJournal();
+    // another node appended meanwhile
+    LongStream.rangeClosed(4, 5).forEach(version ->
+      journal.add(event(aggregateId, version, "data-changed", JsonObject.mapFrom(new DataChanged(Map.of("version", version)))))
+    );
+
+    final var state = change(commandHandler, aggregateId);
+
+    assertEquals(6L, state.currentVersion());
+    assertEquals(List.of(4L, 6L), appended.stream().map(instruction -> instruction.events().get(0).eventVersion()).toList());
+    assertEquals(List.of(4L), catchUps());
+    assertEquals(6L, cache.get(key(aggregateId)).currentVersion());
+    assertEquals(3L, cached.currentVersion());
+    assertEquals(Map.of("version", 3L), cached.state().data());
+  }
+
+  @Test
+  void every_retry_catches_up_from_the_previous_attempt() {
+    final var aggregateId = UUID.randomUUID().toString();
+    stream(aggregateId, 3);
+    final var cache = new MapCache();
+    final var commandHandler = commandHandler(Optional.of(cache), Optional.empty());
+    load(commandHandler, aggregateId);
+    appendToJournal();
+    racingAppends.set(3);
+
+    final var state = change(commandHandler, aggregateId);
+
+    assertEquals(7L, state.currentVersion());
+    // each catch-up reads the single event the racing node appended, nothing is folded twice
+    assertEquals(List.of(4L, 5L, 6L), catchUps());
+    verify(eventStore, times(4)).append(any());
+  }
+
+  @Test
+  void exhausted_retries_fail_and_leave_the_cached_state_untouched() {
+    final var aggregateId = UUID.randomUUID().toString();
+    stream(aggregateId, 3);
+    final var cache = new MapCache();
+    final var commandHandler = commandHandler(Optional.of(cache), Optional.empty());
+    load(commandHandler, aggregateId);
+    final var cached = cache.get(key(aggregateId));
+    appendToJournal();
+    racingAppends.set(Integer.MAX_VALUE);
+
+    assertThrows(ConcurrentAppend.class, () -> change(commandHandler, aggregateId));
+
+    // the first attempt, the catch-up and five retries
+    verify(eventStore, times(7)).append(any());
+    assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L), catchUps());
+    assertEquals(3L, cached.currentVersion());
+    assertEquals(Map.of("version", 3L), cached.state().data());
+    // caught-up states may be cached, never one holding the rejected events
+    assertTrue(cache.get(key(aggregateId)).currentVersion() <= journal.size());
+    assertFalse(cache.get(key(aggregateId)).isKnownCommand("change"));
+  }
+
+  private AggregateState<FakeAggregate> change(CommandHandler<FakeAggregate> commandHandler, String aggregateId) {
+    return commandHandler.process(new ChangeData(aggregateId, Map.of("changed", true)), "change", ResponseMode.STATE)
+      .map(reply -> (AggregateState<FakeAggregate>) reply)
+      .await().indefinitely();
+  }
+
+  /**
+   * Version the catch-up reads started at, the initial replay is left out.
+   */
+  private List<Long> catchUps() {
+    return instructions.stream().skip(1).map(AggregateEventStream::eventVersionOffset).toList();
+  }
+
+  private static AggregateKey<FakeAggregate> key(String aggregateId) {
+    return new AggregateKey<>(FakeAggregate.class, aggregateId, "default");
+  }
+
+  /**
+   * Appends conflict unless they continue the journal, racing appends let another node append first.
+   */
+  private List<AppendInstruction<?>> appendToJournal() {
+    final var appended = new CopyOnWriteArrayList<AppendInstruction<?>>();
+    when(eventStore.append(any())).thenAnswer(invocation -> {
+        final AppendInstruction<?> instruction = invocation.getArgument(0);
+        appended.add(instruction);
+        final var head = journal.stream().filter(event -> event.aggregateId().equals(instruction.aggregateId())).mapToLong(Event::eventVersion).max().orElse(0L);
+        if (racingAppends.getAndDecrement() > 0) {
+          journal.add(event(instruction.aggregateId(), head + 1, "data-changed", JsonObject.mapFrom(new DataChanged(Map.of("version", head + 1)))));
+          return Uni.createFrom().failure(new ConcurrentAppend("raced"));
+        }
+        if (instruction.events().get(0).eventVersion() != head + 1) {
+          return Uni.createFrom().failure(new ConcurrentAppend("version taken"));
+        }
+        final var offsets = instruction.events().stream()
+          .map(event -> {
+              final var stored = new Event((long) journal.size() + 1, event.aggregateId(), event.eventType(), event.eventVersion(), event.event(), event.tenantId(), event.commandId(), event.tags(), event.schemaVersion());
+              journal.add(stored);
+              return stored.journalOffset();
+            }
+          )
+          .toList();
+        return Uni.createFrom().item(offsets);
+      }
+    );
+    return appended;
+  }
+
+  private CommandHandler<FakeAggregate> commandHandler() {
+    return commandHandler(Optional.empty());
+  }
+
+  private CommandHandler<FakeAggregate> commandHandler(Optional<SnapshotStore> snapshotStore) {
+    return commandHandler(Optional.empty(), snapshotStore);
+  }
+
+  private CommandHandler<FakeAggregate> commandHandler(Optional<AggregateCache> cache, Optional<SnapshotStore> snapshotStore) {
+    return new CommandHandler<>(
+      vertx,
+      FakeAggregate.class,
+      DispatchPlan.compile(
+        FakeAggregate.class,
+        List.of(
+          new AggregatorWrap<>(new CreateAggregator(), FakeAggregate.class, DataCreated.class),
+          new AggregatorWrap<>(new ChangedAggregator(), FakeAggregate.class, DataChanged.class)
+        ),
+        List.of(
+          new BehaviourWrap<>(new CreateBehaviour(), FakeAggregate.class, CreateData.class),
+          new BehaviourWrap<>(new ChangeBehaviour(), FakeAggregate.class, ChangeData.class)
+        )
+      ),
+      new Infrastructure(cache, eventStore, Optional.empty(), mock(OffsetStore.class), snapshotStore),
+      CONFIGURATION,
+      new AdaptiveSnapshotter<>(vertx, FakeAggregate.class, CONFIGURATION)
+    );
+  }
+
+  private void stream(String aggregateId, int events) {
+    journal.add(event(aggregateId, 1L, "data-created", JsonObject.mapFrom(new DataCreated(aggregateId, Map.of("version", 1)))));
+    LongStream.rangeClosed(2, events).forEach(version ->
+      journal.add(event(aggregateId, version, "data-changed", JsonObject.mapFrom(new DataChanged(Map.of("version", version)))))
+    );
+  }
+
+  private void journalSnapshot(String aggregateId, long version) {
+    final var snapshot = new SnapshotEvent(JsonObject.mapFrom(new FakeAggregate(aggregateId, Map.of("restored", true))).getMap(), List.of(), version - 1);
+    journal.add(event(aggregateId, version, DispatchPlan.SNAPSHOT_EVENT_TYPE, JsonObject.mapFrom(snapshot)));
+  }
+
+  private long lastJournalSnapshot(String aggregateId) {
+    return journal.stream()
+      .filter(event -> event.aggregateId().equals(aggregateId) && DispatchPlan.SNAPSHOT_EVENT_TYPE.equals(event.eventType()))
+      .mapToLong(Event::eventVersion)
+      .max()
+      .orElse(0L);
+  }
+
+  private static AggregateState<?> load(CommandHandler<FakeAggregate> commandHandler, String aggregateId) {
+    return (AggregateState<?>) commandHandler.process(new LoadAggregate(aggregateId, "default", null, null)).await().indefinitely();
+  }
+
+  private Event event(String aggregateId, long version, String eventType, JsonObject body) {
+    return new Event((long) journal.size() + 1, aggregateId, eventType, version, body, "default", "command-" + aggregateId + "-" + version, List.of(), 0);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static final class MapCache implements AggregateCache {
+    private final Map<AggregateKey<?>, AggregateState<?>> states = new ConcurrentHashMap<>();
+
+    @Override
+    public <T extends Aggregate> AggregateState<T> get(AggregateKey<T> aggregateKey) {
+      return (AggregateState<T>) states.get(aggregateKey);
+    }
+
+    @Override
+    public <T extends Aggregate> void put(AggregateKey<T> aggregateKey, AggregateState<T> aggregate) {
+      states.put(aggregateKey, aggregate);
+    }
+  }
+
+}
@@ -0,0 +1,129 @@
+package io.es4j.core;
+
+import io.es4j.core.objects.CommandIdWindow;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandIdWindowTest {
+
+  private static List<String> ids(int count) {
+    return IntStream.range(0, count)
+      .mapToObj(i -> i % 3 == 0 ? "command-" + i : UUID.randomUUID().toString())
+      .toList();
+  }
+
+  @Test
+  void ring_grows_up_to_capacity_then_evicts_the_oldest() {
+    final var window = new CommandIdWindow(20);
+    final var ids = ids(25);
+    for (int i = 0; i < 20; i++) {
+      assertTrue(window.add(ids.get(i)));
+      assertEquals(i + 1, window.size());
+      final var added = i;
+      IntStream.rangeClosed(0, added).forEach(seen -> assertTrue(window.contains(ids.get(seen)), "lost id " + seen + " after " + added));
+    }
+    for (int i = 20; i < 25; i++) {
+      assertTrue(window.add(ids.get(i)));
+      assertEquals(20, window.size());
+      assertFalse(window.contains(ids.get(i - 20)));
+    }
+    ids.subList(5, 25).forEach(id -> assertTrue(window.contains(id)));
+  }
+
+  @Test
+  void duplicates_are_not_added() {
+    final var window = new CommandIdWindow(4);
+    final var id = UUID.randomUUID().toString();
+    assertTrue(window.add(id));
+    assertFalse(window.add(id));
+    assertFalse(window.add(null));
+    assertFalse(window.contains(null));
+    assertEquals(1, window.size());
+  }
+
+  @Test
+  void backward_shift_deletion_keeps_probe_chains_intact() {
+    // long runs of evictions on a small table go through every wrap-around case of the shift
+    for (final var capacity : List.of(1, 2, 7, 8, 9, 64)) {
+      final var window = new CommandIdWindow(capacity);
+      final var ids = ids(capacity * 200);
+      for (int i = 0; i < ids.size(); i++) {
+        window.add(ids.get(i));
+        final var oldest = Math.max(0, i - capacity + 1);
+        if (oldest > 0) {
+          assertFalse(window.contains(ids.get(oldest - 1)), "evicted id still found, capacity " + capacity);
+        }
+        for (int kept = oldest; kept <= i; kept++) {
+          assertTrue(window.contains(ids.get(kept)), "kept id lost, capacity " + capacity);
+        }
+      }
+      assertEquals(capacity, window.size());
+    }
+  }
+
+  @Test
+  void encode_is_oldest_first_once_the_ring_wrapped() {
+    final var ids = ids(37);
+    final var wrapped = new CommandIdWindow(16);
+    ids.forEach(wrapped::add);
+    final var fresh = new CommandIdWindow(16);
+    ids.subList(21, 37).forEach(fresh::add);
+
+    assertEquals(fresh.encode(), wrapped.encode());
+  }
+
+  @Test
+  void decode_restores_the_window_in_order() {
+    final var ids = ids(30);
+    final var window = new CommandIdWindow(30);
+    ids.forEach(window::add);
+    final var decoded = new CommandIdWindow(30).decode(window.encode());
+    assertEquals(30, decoded.size());
+    assertEquals(window.encode(), decoded.encode());
+
+    // the next id evicts the oldest one, as it would have in the original window
+    decoded.add(UUID.randomUUID().toString());
+    assertFalse(decoded.contains(ids.get(0)));
+    ids.subList(1, 30).forEach(id -> assertTrue(decoded.contains(id)));
+
+    // a smaller window keeps the newest ids
+    final var smaller = new CommandIdWindow(10).decode(window.encode());
+    assertEquals(10, smaller.size());
+    ids.subList(0, 20).forEach(id -> assertFalse(smaller.contains(id)));
+    ids.subList(20, 30).forEach(id -> assertTrue(smaller.contains(id)));
+  }
+
+  @Test
+  void empty_window_round_trip() {
+    final var window = new CommandIdWindow(8);
+    assertEquals("", window.encode());
+    assertTrue(new CommandIdWindow(8).decode(window.encode()).isEmpty());
+    assertTrue(new CommandIdWindow(8).decode(null).isEmpty());
+  }
+
+  @Test
+  void copies_are_independent() {
+    final var ids = ids(12);
+    final var window = new CommandIdWindow(8);
+    ids.subList(0, 6).forEach(window::add);
+    final var copy = window.copy();
+    ids.subList(6, 12).forEach(copy::add);
+
+    assertEquals(6, window.size());
+    ids.subList(6, 12).forEach(id -> assertFalse(window.contains(id)));
+    ids.subList(0, 6).forEach(id -> assertTrue(window.contains(id)));
+    assertEquals(8, copy.size());
+    assertFalse(copy.contains(ids.get(0)));
+  }
+
+  @Test
+  void capacity_must_be_positive() {
+    assertThrows(IllegalArgumentException.class, () -> new CommandIdWindow(0));
+  }
+
+}
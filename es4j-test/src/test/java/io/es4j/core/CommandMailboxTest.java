@@ -0,0 +1,249 @@
+package io.es4j.core;
+
+import io.es4j.Aggregate;
+import io.es4j.core.exceptions.CommandRejected;
+import io.es4j.core.exceptions.NodeUnavailable;
+import io.es4j.core.objects.CommandAck;
+import io.es4j.core.objects.CommandReply;
+import io.es4j.core.objects.ResponseMode;
+import io.es4j.saga.commands.ChangeData;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Mailboxes and claims are registered per aggregate class, every test runs on its own aggregate class.
+ */
+class CommandMailboxTest {
+
+  private static final Vertx vertx = Vertx.vertx();
+  private final List<Runnable> cleanup = new ArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    cleanup.forEach(Runnable::run);
+  }
+
+  @AfterAll
+  static void stop() {
+    vertx.closeAndAwait();
+  }
+
+  @Test
+  void commands_of_an_aggregate_are_processed_one_after_the_other() {
+    final var handler = new RecordingHandler();
+    mailbox(OrderAggregate.class, handler, CommandMailbox.DEFAULT_CAPACITY);
+
+    final var first = dispatch(OrderAggregate.class, "aggregate", "first", null);
+    final var second = dispatch(OrderAggregate.class, "aggregate", "second", null);
+    final var third = dispatch(OrderAggregate.class, "aggregate", "third", null);
+    final var other = dispatch(OrderAggregate.class, "other", "other", null);
+
+    // other aggregates don't wait behind a busy one
+    await(() -> handler.calls.containsAll(List.of("first", "other")));
+    pause();
+    assertEquals(List.of("first", "other"), handler.calls.stream().sorted().toList());
+
+    handler.complete("first");
+    await(() -> handler.calls.contains("second"));
+    pause();
+    assertFalse(handler.calls.contains("third"));
+    handler.complete("second");
+    await(() -> handler.calls.contains("third"));
+    handler.complete("third");
+    handler.complete("other");
+
+    List.of(first, second, third, other).forEach(CompletableFuture::join);
+    assertEquals(List.of("first", "second", "third"), handler.calls.stream().filter(call -> !call.equals("other")).toList());
+  }
+
+  @Test
+  void an_aggregate_with_commands_outstanding_stays_claimed_by_its_mailbox() {
+    final var claimed = new RecordingHandler();
+    mailbox(ClaimAggregate.class, claimed, CommandMailbox.DEFAULT_CAPACITY);
+    // hashed to the second mailbox once it is registered
+    final var aggregateId = IntStream.range(0, 100)
+      .mapToObj(i -> "aggregate-" + i)
+      .filter(id -> Math.floorMod(("default::" + id).hashCode(), 2) == 1)
+      .findFirst()
+      .orElseThrow();
+
+    final var first = dispatch(ClaimAggregate.class, aggregateId, "first", null);
+    await(() -> claimed.calls.contains("first"));
+    final var rehashed = new RecordingHandler();
+    mailbox(ClaimAggregate.class, rehashed, CommandMailbox.DEFAULT_CAPACITY);
+    final var second = dispatch(ClaimAggregate.class, aggregateId, "second", null);
+
+    claimed.complete("first");
+    await(() -> claimed.calls.contains("second"));
+    claimed.complete("second");
+    first.join();
+    second.join();
+    assertTrue(rehashed.calls.isEmpty());
+
+    // idle again, the hash decides
+    final var third = dispatch(ClaimAggregate.class, aggregateId, "third", null);
+    await(() -> rehashed.calls.contains("third"));
+    rehashed.complete("third");
+    third.join();
+    assertEquals(List.of("first", "second"), claimed.calls);
+  }
+
+  @Test
+  void commands_over_capacity_are_rejected() {
+    final var handler = new RecordingHandler();
+    mailbox(CapacityAggregate.class, handler, 2);
+
+    final var processing = dispatch(CapacityAggregate.class, "aggregate", "processing", null);
+    final var queued = List.of(
+      dispatch(CapacityAggregate.class, "aggregate", "queued-1", null),
+      dispatch(CapacityAggregate.class, "aggregate", "queued-2", null)
+    );
+    final var rejected = dispatch(CapacityAggregate.class, "aggregate", "rejected", null);
+
+    assertEquals(429, rejection(rejected, CommandRejected.class).error().externalErrorCode());
+    handler.complete("processing");
+    await(() -> handler.calls.contains("queued-1"));
+    handler.complete("queued-1");
+    await(() -> handler.calls.contains("queued-2"));
+    handler.complete("queued-2");
+    processing.join();
+    queued.forEach(CompletableFuture::join);
+    assertEquals(List.of("processing", "queued-1", "queued-2"), handler.calls);
+  }
+
+  @Test
+  void commands_expired_while_queued_are_failed_without_being_processed() {
+    final var handler = new RecordingHandler();
+    mailbox(DeadlineAggregate.class, handler, CommandMailbox.DEFAULT_CAPACITY);
+
+    final var processing = dispatch(DeadlineAggregate.class, "aggregate", "processing", null);
+    final var expired = dispatch(DeadlineAggregate.class, "aggregate", "expired", Duration.ofMillis(50));
+    final var patient = dispatch(DeadlineAggregate.class, "aggregate", "patient", Duration.ofSeconds(30));
+    await(() -> handler.calls.contains("processing"));
+    pause();
+    handler.complete("processing");
+
+    assertEquals(408, rejection(expired, CommandRejected.class).error().externalErrorCode());
+    await(() -> handler.calls.contains("patient"));
+    handler.complete("patient");
+    processing.join();
+    patient.join();
+    assertEquals(List.of("processing", "patient"), handler.calls);
+  }
+
+  @Test
+  void unregistering_fails_the_queued_commands_and_lets_the_running_one_finish() {
+    final var handler = new RecordingHandler();
+    final var mailbox = mailbox(CloseAggregate.class, handler, CommandMailbox.DEFAULT_CAPACITY);
+
+    final var processing = dispatch(CloseAggregate.class, "aggregate", "processing", null);
+    final var queued = dispatch(CloseAggregate.class, "aggregate", "queued", null);
+    await(() -> handler.calls.contains("processing"));
+    CommandMailbox.unregister(CloseAggregate.class, mailbox);
+
+    rejection(queued, NodeUnavailable.class);
+    handler.complete("processing");
+    processing.join();
+
+    rejection(dispatch(CloseAggregate.class, "aggregate", "late", null), NodeUnavailable.class);
+    assertEquals(List.of("processing"), handler.calls);
+  }
+
+  private <T extends Aggregate> CommandMailbox<?> mailbox(Class<T> aggregateClass, RecordingHandler handler, int capacity) {
+    final var mailbox = new CommandMailbox<>(vertx.getOrCreateContext().getDelegate(), handler.commandHandler, capacity);
+    CommandMailbox.register(aggregateClass, mailbox);
+    cleanup.add(() -> CommandMailbox.unregister(aggregateClass, mailbox));
+    return mailbox;
+  }
+
+  private static CompletableFuture<CommandReply> dispatch(Class<? extends Aggregate> aggregateClass, String aggregateId, String commandId, Duration timeout) {
+    return CommandMailbox.dispatch(aggregateClass, new ChangeData(aggregateId, Map.of()), commandId, ResponseMode.ACK, timeout)
+      .subscribeAsCompletionStage();
+  }
+
+  private static <E extends Throwable> E rejection(CompletableFuture<CommandReply> reply, Class<E> failure) {
+    final var exception = assertThrows(CompletionException.class, reply::join);
+    return assertInstanceOf(failure, exception.getCause());
+  }
+
+  private static void await(BooleanSupplier condition) {
+    final var deadline = System.currentTimeMillis() + 10_000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+      pause(10);
+    }
+  }
+
+  private static void pause() {
+    pause(100);
+  }
+
+  private static void pause(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Records the ids of the commands it processes, each one completes only when the test says so.
+   */
+  private static final class RecordingHandler {
+    private final CommandHandler<?> commandHandler = mock(CommandHandler.class);
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final Map<String, CompletableFuture<CommandReply>> replies = new ConcurrentHashMap<>();
+
+    private RecordingHandler() {
+      when(commandHandler.process(any(), anyString(), any())).thenAnswer(invocation -> {
+          final String commandId = invocation.getArgument(1);
+          calls.add(commandId);
+          return Uni.createFrom().completionStage(reply(commandId));
+        }
+      );
+    }
+
+    private CompletableFuture<CommandReply> reply(String commandId) {
+      return replies.computeIfAbsent(commandId, id -> new CompletableFuture<>());
+    }
+
+    private void complete(String commandId) {
+      reply(commandId).complete(new CommandAck(commandId, "default", 1L, 1L, List.of()));
+    }
+  }
+
+  public record OrderAggregate(String aggregateId) implements Aggregate {
+  }
+
+  public record ClaimAggregate(String aggregateId) implements Aggregate {
+  }
+
+  public record CapacityAggregate(String aggregateId) implements Aggregate {
+  }
+
+  public record DeadlineAggregate(String aggregateId) implements Aggregate {
+  }
+
+  public record CloseAggregate(String aggregateId) implements Aggregate {
+  }
+
+}
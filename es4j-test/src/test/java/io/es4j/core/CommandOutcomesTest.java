@@ -0,0 +1,113 @@
+package io.es4j.core;
+
+import io.es4j.core.objects.CommandState;
+import io.es4j.core.objects.CommandStatus;
+import io.es4j.core.objects.Es4jError;
+import io.es4j.events.DataChanged;
+import io.es4j.infrastructure.EventStore;
+import io.es4j.infrastructure.models.Event;
+import io.es4j.infrastructure.models.EventStream;
+import io.es4j.saga.commands.ChangeDataWithConfig;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CommandOutcomesTest {
+
+  private EventStore eventStore;
+  private String aggregateId;
+  private ChangeDataWithConfig command;
+
+  @BeforeEach
+  void setup() {
+    eventStore = mock(EventStore.class);
+    when(eventStore.fetch(any(EventStream.class))).thenReturn(Uni.createFrom().item(List.of()));
+    aggregateId = UUID.randomUUID().toString();
+    command = new ChangeDataWithConfig(aggregateId, Map.of());
+  }
+
+  @Test
+  void outcomes_follow_the_submitted_command() {
+    final var commandId = UUID.randomUUID().toString();
+    CommandOutcomes.accepted(commandId, command);
+    assertEquals(CommandState.ACCEPTED, status(commandId).state());
+
+    CommandOutcomes.processed(commandId, command);
+    assertEquals(CommandState.PROCESSED, status(commandId).state());
+    // outcomes still held in memory don't go to the journal
+    verifyNoInteractions(eventStore);
+  }
+
+  @Test
+  void rejections_carry_their_error() {
+    final var commandId = UUID.randomUUID().toString();
+    final var error = new Es4jError("rejected", "rejected by behaviour", 400);
+    CommandOutcomes.accepted(commandId, command);
+    CommandOutcomes.rejected(commandId, command, error);
+
+    final var status = status(commandId);
+    assertEquals(CommandState.REJECTED, status.state());
+    assertEquals(error, status.error());
+  }
+
+  @Test
+  void outcomes_are_kept_per_tenant() {
+    final var commandId = UUID.randomUUID().toString();
+    CommandOutcomes.processed(commandId, command);
+
+    assertEquals(CommandState.UNKNOWN, CommandOutcomes.get(commandId, aggregateId, "other-tenant").state());
+  }
+
+  @Test
+  void processed_commands_are_found_in_the_journal_once_the_outcome_is_gone() {
+    final var commandId = UUID.randomUUID().toString();
+    when(eventStore.fetch(any(EventStream.class))).thenReturn(Uni.createFrom().item(List.of(new Event(
+        1L,
+        aggregateId,
+        DataChanged.class.getName(),
+        1L,
+        JsonObject.mapFrom(new DataChanged(new HashMap<>())),
+        "default",
+        commandId,
+        List.of(),
+        0
+      )
+    )));
+
+    final var status = status(commandId);
+
+    assertEquals(CommandState.PROCESSED, status.state());
+    final var stream = ArgumentCaptor.forClass(EventStream.class);
+    verify(eventStore).fetch(stream.capture());
+    assertEquals(List.of(commandId), stream.getValue().commandIds());
+    assertEquals(List.of(aggregateId), stream.getValue().aggregateIds());
+    assertEquals("default", stream.getValue().tenantId());
+  }
+
+  @Test
+  void commands_neither_held_nor_journaled_are_unknown() {
+    final var commandId = UUID.randomUUID().toString();
+
+    final var status = status(commandId);
+
+    assertEquals(CommandState.UNKNOWN, status.state());
+    assertEquals(commandId, status.commandId());
+    assertEquals(aggregateId, status.aggregateId());
+  }
+
+  private CommandStatus status(String commandId) {
+    return CommandOutcomes.get(eventStore, commandId, aggregateId, "default").await().indefinitely();
+  }
+
+}
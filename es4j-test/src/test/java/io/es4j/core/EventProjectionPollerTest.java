@@ -0,0 +1,262 @@
+package io.es4j.core;
+
+import io.es4j.Aggregate;
+import io.es4j.AsyncProjection;
+import io.es4j.core.objects.AggregateEvent;
+import io.es4j.core.objects.EventbusLiveStreams;
+import io.es4j.core.objects.Offset;
+import io.es4j.core.objects.OffsetKey;
+import io.es4j.core.tasks.EventProjectionPoller;
+import io.es4j.domain.FakeAggregate;
+import io.es4j.events.DataChanged;
+import io.es4j.infrastructure.EventStore;
+import io.es4j.infrastructure.OffsetStore;
+import io.es4j.infrastructure.models.Event;
+import io.es4j.infrastructure.models.EventStream;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EventProjectionPollerTest {
+
+  private static final Vertx vertx = Vertx.vertx();
+  private EventStore eventStore;
+  private OffsetStore offsetStore;
+  private List<Event> journal;
+  private Map<String, Offset> offsets;
+
+  @BeforeEach
+  void setup() {
+    journal = new CopyOnWriteArrayList<>();
+    offsets = new ConcurrentHashMap<>();
+    eventStore = mock(EventStore.class);
+    offsetStore = mock(OffsetStore.class);
+    when(eventStore.fetch(any(EventStream.class))).thenAnswer(invocation -> {
+        final EventStream stream = invocation.getArgument(0);
+        // journal reads include their offset
+        return Uni.createFrom().item(journal.stream()
+          .filter(event -> event.journalOffset() >= stream.offset())
+          .filter(event -> stream.shards() == null || shard(event.aggregateId(), stream.shards()) == stream.shard())
+          .limit(stream.batchSize())
+          .toList()
+        );
+      }
+    );
+    when(offsetStore.get(any())).thenAnswer(invocation -> {
+        final OffsetKey key = invocation.getArgument(0);
+        return Uni.createFrom().item(offsets.getOrDefault(key.consumer(), new Offset(key.consumer(), key.tenantId(), 0L, 0L, Instant.now(), Instant.now())));
+      }
+    );
+    when(offsetStore.put(any())).thenAnswer(invocation -> {
+        final Offset offset = invocation.getArgument(0);
+        offsets.put(offset.consumer(), offset);
+        return Uni.createFrom().item(offset);
+      }
+    );
+  }
+
+  @AfterAll
+  static void stop() {
+    vertx.closeAndAwait();
+  }
+
+  @Test
+  void every_append_is_pushed_to_the_projection_exactly_once() {
+    final var projection = new RecordingProjection();
+    final var poller = new EventProjectionPoller(vertx, FakeAggregate.class, projection, eventStore, offsetStore);
+    poller.listen();
+
+    append(1);
+    await(() -> projection.applied.size() == 1);
+    // bursts of signals are coalesced, events already applied are never read again
+    for (int burst = 0; burst < 5; burst++) {
+      append(20);
+    }
+    await(() -> projection.applied.size() == 101);
+    append(1);
+    await(() -> projection.applied.size() == 102);
+    // a late signal for events already applied finds nothing new
+    vertx.eventBus().publish(EventbusLiveStreams.journalLiveStream(FakeAggregate.class), 102L);
+    pause();
+
+    assertEquals(102, projection.applied.size());
+    assertEquals(102L, projection.applied.stream().map(AggregateEvent::journalOffset).distinct().count());
+    assertEquals(102L, offsets.get(projection.getClass().getName()).idOffSet());
+    poller.close().await().indefinitely();
+  }
+
+  @Test
+  void every_shard_is_drained_by_a_single_lease_holder() {
+    final var shards = 2;
+    final var nodes = List.of(new RecordingProjection(shards, Duration.ofMinutes(5)), new RecordingProjection(shards, Duration.ofMinutes(5)));
+    final var pollers = new ArrayList<EventProjectionPoller>();
+    nodes.forEach(node -> IntStream.range(0, shards).forEach(shard -> pollers.add(new EventProjectionPoller(vertx, FakeAggregate.class, node, shard, shards, eventStore, offsetStore))));
+    pollers.forEach(poller -> poller.start().await().indefinitely());
+    try {
+      append(40);
+      pollers.forEach(poller -> poller.performTask().await().indefinitely());
+      append(40);
+      pollers.forEach(poller -> poller.performTask().await().indefinitely());
+
+      // every event is applied once, by the one node holding the lease of its shard
+      final var applied = nodes.stream().flatMap(node -> node.applied.stream()).toList();
+      assertEquals(80, applied.size());
+      assertEquals(80L, applied.stream().map(AggregateEvent::journalOffset).distinct().count());
+      IntStream.range(0, shards).forEach(shard -> assertEquals(1L, nodes.stream()
+        .filter(node -> node.applied.stream().anyMatch(event -> shard(event.aggregateId(), shards) == shard))
+        .count()
+      ));
+      IntStream.range(0, shards).forEach(shard -> assertEquals(
+        applied.stream().filter(event -> shard(event.aggregateId(), shards) == shard).mapToLong(AggregateEvent::journalOffset).max().orElseThrow(),
+        offsets.get(RecordingProjection.class.getName() + "#" + shard + "/" + shards).idOffSet()
+      ));
+    } finally {
+      pollers.forEach(poller -> poller.close().await().indefinitely());
+    }
+  }
+
+  @Test
+  void an_expired_lease_is_taken_over_by_another_node() {
+    final var shards = 3;
+    final var holder = new RecordingProjection(shards, Duration.ofMillis(300));
+    final var standby = new RecordingProjection(shards, Duration.ofMillis(300));
+    final var held = new EventProjectionPoller(vertx, FakeAggregate.class, holder, 0, shards, eventStore, offsetStore);
+    final var waiting = new EventProjectionPoller(vertx, FakeAggregate.class, standby, 0, shards, eventStore, offsetStore);
+    held.start().await().indefinitely();
+    waiting.start().await().indefinitely();
+    try {
+      append(30);
+      held.performTask().await().indefinitely();
+      waiting.performTask().await().indefinitely();
+      final var firstDrain = holder.applied.size();
+      assertTrue(firstDrain > 0);
+      assertTrue(standby.applied.isEmpty());
+
+      pause();
+      append(30);
+      // the holder hands the lease back once it expired instead of draining again
+      held.performTask().await().indefinitely();
+      assertEquals(firstDrain, holder.applied.size());
+      waiting.performTask().await().indefinitely();
+
+      assertFalse(standby.applied.isEmpty());
+      assertTrue(standby.applied.stream().allMatch(event -> shard(event.aggregateId(), shards) == 0 && event.journalOffset() > 30));
+      assertEquals(
+        journal.stream().filter(event -> shard(event.aggregateId(), shards) == 0).count(),
+        holder.applied.size() + standby.applied.size()
+      );
+    } finally {
+      held.close().await().indefinitely();
+      waiting.close().await().indefinitely();
+    }
+  }
+
+  private static int shard(String aggregateId, int shards) {
+    return Math.floorMod(aggregateId.hashCode(), shards);
+  }
+
+  private void append(int events) {
+    final var from = journal.size() + 1L;
+    for (long offset = from; offset < from + events; offset++) {
+      journal.add(new Event(
+          offset,
+          "aggregate-" + offset % 10,
+          DataChanged.class.getName(),
+          offset,
+          JsonObject.mapFrom(new DataChanged(new HashMap<>())),
+          "default",
+          "command-" + offset,
+          List.of(),
+          0
+        )
+      );
+      vertx.eventBus().publish(EventbusLiveStreams.journalLiveStream(FakeAggregate.class), offset);
+    }
+  }
+
+  private static void await(BooleanSupplier condition) {
+    final var deadline = System.currentTimeMillis() + 10_000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+      pause(10);
+    }
+  }
+
+  private static void pause() {
+    pause(500);
+  }
+
+  private static void pause(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class RecordingProjection implements AsyncProjection {
+    private final List<AggregateEvent> applied = Collections.synchronizedList(new ArrayList<>());
+    private final int shards;
+    private final Duration leaseDuration;
+
+    private RecordingProjection() {
+      this(1, Duration.ofMinutes(5));
+    }
+
+    private RecordingProjection(int shards, Duration leaseDuration) {
+      this.shards = shards;
+      this.leaseDuration = leaseDuration;
+    }
+
+    @Override
+    public Uni<Void> apply(List<AggregateEvent> events) {
+      applied.addAll(events);
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public boolean pushUpdates() {
+      return true;
+    }
+
+    @Override
+    public int shards() {
+      return shards;
+    }
+
+    @Override
+    public Duration leaseDuration() {
+      return leaseDuration;
+    }
+
+    @Override
+    public Uni<Void> setup(Vertx vertx, JsonObject configuration) {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Class<? extends Aggregate> aggregateClass() {
+      return FakeAggregate.class;
+    }
+  }
+
+}
@@ -0,0 +1,252 @@
+package io.es4j.core;
+
+import io.es4j.Aggregate;
+import io.es4j.AsyncProjection;
+import io.es4j.core.objects.AggregateEvent;
+import io.es4j.core.objects.CatchUpPolicy;
+import io.es4j.core.objects.CheckpointPolicy;
+import io.es4j.core.objects.Offset;
+import io.es4j.core.tasks.ProjectionCatchUp;
+import io.es4j.domain.FakeAggregate;
+import io.es4j.events.DataChanged;
+import io.es4j.infrastructure.EventStore;
+import io.es4j.infrastructure.OffsetStore;
+import io.es4j.infrastructure.models.Event;
+import io.es4j.infrastructure.models.EventStream;
+import io.es4j.infrastructure.models.EventStreamBuilder;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ProjectionCatchUpTest {
+
+  private static final Vertx vertx = Vertx.vertx();
+  private static final int AGGREGATES = 10;
+  private EventStore eventStore;
+  private OffsetStore offsetStore;
+  // fetches and applies in the order they happened
+  private List<String> log;
+
+  @BeforeEach
+  void setup() {
+    eventStore = mock(EventStore.class);
+    offsetStore = mock(OffsetStore.class);
+    log = Collections.synchronizedList(new ArrayList<>());
+    when(offsetStore.put(any())).thenAnswer(invocation -> Uni.createFrom().item(invocation.<Offset>getArgument(0)));
+  }
+
+  @AfterAll
+  static void stop() {
+    vertx.closeAndAwait();
+  }
+
+  @Test
+  void live_drain_checkpoints_every_batch() {
+    journal(2500);
+    final var projection = new RecordingProjection(new CatchUpPolicy(ProjectionCatchUp.LIVE_BATCH_SIZE, 1, 1), CheckpointPolicy.everyBatch());
+
+    final var reached = catchUp(projection).drain(start()).await().indefinitely();
+
+    assertEquals(2500L, reached.idOffSet());
+    assertEquals(List.of("fetch 1/1000", "apply 1", "fetch 1001/1000", "apply 1001", "fetch 2001/1000", "apply 2001"), log);
+    assertEquals(List.of(1000L, 2000L, 2500L), storedOffsets());
+    assertEquals(2500L, projection.applied.stream().map(AggregateEvent::journalOffset).distinct().count());
+    assertEquals(2500, projection.applied.size());
+  }
+
+  @Test
+  void catch_up_reads_the_next_range_ahead() {
+    journal(7000);
+    final var projection = new RecordingProjection(new CatchUpPolicy(2000, 1, 1), CheckpointPolicy.everyBatch());
+
+    final var reached = catchUp(projection).drain(start()).await().indefinitely();
+
+    assertEquals(7000L, reached.idOffSet());
+    // a full live batch switches to ranges, every range is fetched before the previous one is applied
+    assertEquals(List.of(
+      "fetch 1/1000",
+      "fetch 1001/2000", "apply 1",
+      "fetch 3001/2000", "apply 1001",
+      "fetch 5001/2000", "apply 3001",
+      "fetch 7001/2000", "apply 5001"
+    ), log);
+    assertEquals(7000, projection.applied.size());
+    assertEquals(7000L, projection.applied.stream().map(AggregateEvent::journalOffset).distinct().count());
+  }
+
+  @Test
+  void failure_checkpoints_the_events_applied_so_far() {
+    journal(7000);
+    final var projection = new RecordingProjection(new CatchUpPolicy(2000, 1, 1), new CheckpointPolicy(1_000_000, Duration.ofHours(1)));
+    projection.failFrom = 5001L;
+
+    assertThrows(IllegalStateException.class, () -> catchUp(projection).drain(start()).await().indefinitely());
+
+    // only the range that failed checkpoints, the ranges it was nested in don't store the offset again
+    assertEquals(List.of(5000L), storedOffsets());
+    assertEquals(5000, projection.applied.size());
+  }
+
+  @Test
+  void slices_keep_the_events_of_an_aggregate_together_and_in_order() {
+    journal(6000);
+    final var parallelism = 3;
+    final var projection = new RecordingProjection(new CatchUpPolicy(2000, 2, parallelism), CheckpointPolicy.everyBatch());
+
+    final var reached = catchUp(projection).drain(start()).await().indefinitely();
+
+    assertEquals(6000L, reached.idOffSet());
+    assertEquals(6000, projection.applied.size());
+    assertEquals(6000L, projection.applied.stream().map(AggregateEvent::journalOffset).distinct().count());
+    // the full live batch switching to catch-up is already applied as a range, every range is applied per slice
+    assertEquals(4 * parallelism, projection.calls.size());
+    projection.calls.forEach(call -> assertEquals(
+      1L,
+      call.stream().map(event -> Math.floorMod(event.aggregateId().hashCode(), parallelism)).distinct().count(),
+      "slice mixes aggregates of several slices"
+    ));
+    final var versions = new HashMap<String, Long>();
+    projection.applied.forEach(event -> {
+        final var previous = versions.put(event.aggregateId(), event.aggregateOffset());
+        if (previous != null) {
+          assertEquals(previous + 1, event.aggregateOffset(), "events of " + event.aggregateId() + " out of order");
+        }
+      }
+    );
+  }
+
+  @Test
+  void transactional_projection_moves_the_offset_with_every_batch() {
+    journal(7000);
+    when(offsetStore.transactional(any())).thenReturn(true);
+    when(offsetStore.apply(any(), any(), any())).thenAnswer(invocation -> {
+        final List<AggregateEvent> events = invocation.getArgument(1);
+        log.add("apply " + events.get(0).journalOffset());
+        return Uni.createFrom().item(invocation.<Offset>getArgument(2));
+      }
+    );
+    final var projection = new RecordingProjection(new CatchUpPolicy(2000, 1, 4), new CheckpointPolicy(1_000_000, Duration.ofHours(1)));
+
+    final var reached = catchUp(projection).drain(start()).await().indefinitely();
+
+    assertEquals(7000L, reached.idOffSet());
+    // the offset store applies and stores every batch as a whole, the policies don't split or defer it
+    final var offsets = ArgumentCaptor.forClass(Offset.class);
+    verify(offsetStore, times(4)).apply(eq(projection), any(), offsets.capture());
+    assertEquals(List.of(1000L, 3000L, 5000L, 7000L), offsets.getAllValues().stream().map(Offset::idOffSet).toList());
+    verify(offsetStore, never()).put(any());
+    assertTrue(projection.calls.isEmpty());
+  }
+
+  private ProjectionCatchUp catchUp(AsyncProjection projection) {
+    return new ProjectionCatchUp(
+      vertx,
+      projection,
+      eventStore,
+      offsetStore,
+      "projection",
+      (offset, batchSize) -> EventStreamBuilder.builder().offset(offset.nextIdOffset()).batchSize(batchSize).build()
+    );
+  }
+
+  private void journal(int events) {
+    final var journal = LongStream.rangeClosed(1, events)
+      .mapToObj(offset -> new Event(
+          offset,
+          "aggregate-" + offset % AGGREGATES,
+          DataChanged.class.getName(),
+          (offset - 1) / AGGREGATES + 1,
+          JsonObject.mapFrom(new DataChanged(new HashMap<>())),
+          "default",
+          "command-" + offset,
+          List.of(),
+          0
+        )
+      )
+      .toList();
+    when(eventStore.fetch(any(EventStream.class))).thenAnswer(invocation -> {
+        final EventStream stream = invocation.getArgument(0);
+        log.add("fetch " + stream.offset() + "/" + stream.batchSize());
+        // journal reads include their offset
+        return Uni.createFrom().item(journal.stream()
+          .filter(event -> event.journalOffset() >= stream.offset())
+          .limit(stream.batchSize())
+          .toList()
+        );
+      }
+    );
+  }
+
+  private List<Long> storedOffsets() {
+    final var offsets = ArgumentCaptor.forClass(Offset.class);
+    verify(offsetStore, atLeast(0)).put(offsets.capture());
+    return offsets.getAllValues().stream().map(Offset::idOffSet).toList();
+  }
+
+  private static Offset start() {
+    return new Offset("projection", "default", 0L, null, Instant.now(), Instant.now());
+  }
+
+  private class RecordingProjection implements AsyncProjection {
+    private final CatchUpPolicy catchUpPolicy;
+    private final CheckpointPolicy checkpointPolicy;
+    private final List<AggregateEvent> applied = Collections.synchronizedList(new ArrayList<>());
+    private final List<List<AggregateEvent>> calls = Collections.synchronizedList(new ArrayList<>());
+    private Long failFrom = null;
+
+    private RecordingProjection(CatchUpPolicy catchUpPolicy, CheckpointPolicy checkpointPolicy) {
+      this.catchUpPolicy = catchUpPolicy;
+      this.checkpointPolicy = checkpointPolicy;
+    }
+
+    @Override
+    public Uni<Void> apply(List<AggregateEvent> events) {
+      if (failFrom != null && events.stream().anyMatch(event -> event.journalOffset() >= failFrom)) {
+        return Uni.createFrom().failure(new IllegalStateException("projection failed"));
+      }
+      if (catchUpPolicy.parallelism() == 1) {
+        log.add("apply " + events.get(0).journalOffset());
+      }
+      calls.add(events);
+      applied.addAll(events);
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public CatchUpPolicy catchUpPolicy() {
+      return catchUpPolicy;
+    }
+
+    @Override
+    public CheckpointPolicy checkpointPolicy() {
+      return checkpointPolicy;
+    }
+
+    @Override
+    public Uni<Void> setup(Vertx vertx, JsonObject configuration) {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Class<? extends Aggregate> aggregateClass() {
+      return FakeAggregate.class;
+    }
+  }
+
+}
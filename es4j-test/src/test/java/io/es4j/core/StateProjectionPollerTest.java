@@ -0,0 +1,256 @@
+package io.es4j.core;
+
+import io.es4j.AsyncStateTransfer;
+import io.es4j.behaviours.ChangeBehaviour;
+import io.es4j.behaviours.ChangedAggregator;
+import io.es4j.behaviours.CreateAggregator;
+import io.es4j.behaviours.CreateBehaviour;
+import io.es4j.core.objects.AggregateState;
+import io.es4j.core.objects.AggregatorWrap;
+import io.es4j.core.objects.BehaviourWrap;
+import io.es4j.core.objects.DispatchPlan;
+import io.es4j.core.objects.LoadAggregate;
+import io.es4j.core.objects.Offset;
+import io.es4j.core.objects.OffsetKey;
+import io.es4j.core.objects.StateProjectionWrapper;
+import io.es4j.core.tasks.StateProjectionPoller;
+import io.es4j.domain.FakeAggregate;
+import io.es4j.events.DataChanged;
+import io.es4j.events.DataCreated;
+import io.es4j.infrastructure.EventStore;
+import io.es4j.infrastructure.OffsetStore;
+import io.es4j.infrastructure.models.Event;
+import io.es4j.infrastructure.models.EventStream;
+import io.es4j.infrastructure.proxy.AggregateEventBusPoxy;
+import io.es4j.saga.commands.ChangeData;
+import io.es4j.saga.commands.CreateData;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StateProjectionPollerTest {
+
+  private EventStore eventStore;
+  private OffsetStore offsetStore;
+  private AggregateEventBusPoxy<FakeAggregate> proxy;
+  private List<Event> journal;
+  private Map<String, Offset> offsets;
+  private List<LoadAggregate> loads;
+  private Map<String, Long> ownerVersions;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() {
+    journal = new CopyOnWriteArrayList<>();
+    offsets = new ConcurrentHashMap<>();
+    loads = new CopyOnWriteArrayList<>();
+    ownerVersions = new ConcurrentHashMap<>();
+    eventStore = mock(EventStore.class);
+    offsetStore = mock(OffsetStore.class);
+    proxy = mock(AggregateEventBusPoxy.class);
+    when(eventStore.fetch(any(EventStream.class))).thenAnswer(invocation -> {
+        final EventStream stream = invocation.getArgument(0);
+        return Uni.createFrom().item(journal.stream()
+          .filter(event -> event.journalOffset() >= stream.offset())
+          .limit(stream.batchSize())
+          .toList()
+        );
+      }
+    );
+    when(offsetStore.get(any())).thenAnswer(invocation -> {
+        final OffsetKey key = invocation.getArgument(0);
+        return Uni.createFrom().item(offsets.getOrDefault(key.consumer(), new Offset(key.consumer(), key.tenantId(), 0L, 0L, Instant.now(), Instant.now())));
+      }
+    );
+    when(offsetStore.put(any())).thenAnswer(invocation -> {
+        final Offset offset = invocation.getArgument(0);
+        offsets.put(offset.consumer(), offset);
+        return Uni.createFrom().item(offset);
+      }
+    );
+    // owners answer with the state at the head of the journal
+    when(proxy.proxyCommand(any(LoadAggregate.class))).thenAnswer(invocation -> {
+        final LoadAggregate load = invocation.getArgument(0);
+        loads.add(load);
+        final var version = ownerVersions.get(load.aggregateId());
+        return Uni.createFrom().item(new AggregateState<>(FakeAggregate.class)
+          .setState(new FakeAggregate(load.aggregateId(), Map.of("loaded", version)))
+          .setCurrentVersion(version)
+        );
+      }
+    );
+  }
+
+  @Test
+  void new_events_are_folded_onto_the_projected_state() {
+    final var transfer = new RecordingTransfer();
+    final var poller = poller(transfer);
+    created("aggregate-1");
+    changed("aggregate-1", 2, 3);
+    created("aggregate-2");
+
+    poller.performTask().await().indefinitely();
+
+    assertTrue(loads.isEmpty());
+    assertEquals(1, transfer.batches.size());
+    assertEquals(Map.of("aggregate-1", 3L, "aggregate-2", 1L), versions(transfer.batches.get(0)));
+    assertEquals(Map.of("version", 3L), state(transfer.batches.get(0), "aggregate-1").data());
+    assertEquals(4L, offsets.get(RecordingTransfer.class.getName()).idOffSet());
+
+    changed("aggregate-1", 4, 5);
+    poller.performTask().await().indefinitely();
+
+    // the projected state is carried over, events already read are never folded again
+    assertTrue(loads.isEmpty());
+    assertEquals(2, transfer.batches.size());
+    assertEquals(Map.of("aggregate-1", 5L), versions(transfer.batches.get(1)));
+    assertEquals(Map.of("version", 5L), state(transfer.batches.get(1), "aggregate-1").data());
+    assertEquals(6L, offsets.get(RecordingTransfer.class.getName()).idOffSet());
+
+    poller.performTask().await().indefinitely();
+    assertEquals(2, transfer.batches.size());
+  }
+
+  @Test
+  void aggregates_without_a_projected_state_are_loaded_from_their_owner() {
+    created("aggregate-1");
+    changed("aggregate-1", 2, 3);
+    poller(new RecordingTransfer()).performTask().await().indefinitely();
+
+    // a restarted poller resumes from its offset without the states it projected
+    final var transfer = new RecordingTransfer();
+    final var restarted = poller(transfer);
+    changed("aggregate-1", 4, 5);
+    ownerVersions.put("aggregate-1", 5L);
+    restarted.performTask().await().indefinitely();
+
+    assertEquals(List.of(new LoadAggregate("aggregate-1", "default", null, null)), loads);
+    assertEquals(Map.of("aggregate-1", 5L), versions(transfer.batches.get(0)));
+    assertEquals(Map.of("loaded", 5L), state(transfer.batches.get(0), "aggregate-1").data());
+
+    // the loaded state is projected from then on
+    changed("aggregate-1", 6, 6);
+    restarted.performTask().await().indefinitely();
+    assertEquals(1, loads.size());
+    assertEquals(Map.of("version", 6L), state(transfer.batches.get(1), "aggregate-1").data());
+  }
+
+  @Test
+  void a_version_gap_falls_back_to_loading_the_aggregate() {
+    final var transfer = new RecordingTransfer();
+    final var poller = poller(transfer);
+    created("aggregate-1");
+    changed("aggregate-1", 2, 2);
+    poller.performTask().await().indefinitely();
+
+    // versions 3 and 4 never reached the poller
+    changed("aggregate-1", 5, 6);
+    ownerVersions.put("aggregate-1", 6L);
+    poller.performTask().await().indefinitely();
+
+    assertEquals(1, loads.size());
+    assertEquals(Map.of("aggregate-1", 6L), versions(transfer.batches.get(1)));
+    assertEquals(Map.of("loaded", 6L), state(transfer.batches.get(1), "aggregate-1").data());
+  }
+
+  @Test
+  void batches_default_to_one_update_per_aggregate() {
+    final var transfer = new SingleStateTransfer();
+    final var poller = poller(transfer);
+    created("aggregate-1");
+    changed("aggregate-1", 2, 4);
+    created("aggregate-2");
+    created("aggregate-3");
+
+    poller.performTask().await().indefinitely();
+
+    assertEquals(3, transfer.updates.size());
+    assertEquals(Map.of("aggregate-1", 4L, "aggregate-2", 1L, "aggregate-3", 1L), versions(transfer.updates));
+  }
+
+  private StateProjectionPoller<FakeAggregate> poller(AsyncStateTransfer<FakeAggregate> transfer) {
+    return new StateProjectionPoller<>(
+      FakeAggregate.class,
+      new StateProjectionWrapper<>(transfer, FakeAggregate.class, LoggerFactory.getLogger(transfer.getClass())),
+      proxy,
+      new EventFolder<>(DispatchPlan.compile(
+        FakeAggregate.class,
+        List.of(
+          new AggregatorWrap<>(new CreateAggregator(), FakeAggregate.class, DataCreated.class),
+          new AggregatorWrap<>(new ChangedAggregator(), FakeAggregate.class, DataChanged.class)
+        ),
+        List.of(
+          new BehaviourWrap<>(new CreateBehaviour(), FakeAggregate.class, CreateData.class),
+          new BehaviourWrap<>(new ChangeBehaviour(), FakeAggregate.class, ChangeData.class)
+        )
+      )),
+      eventStore,
+      offsetStore
+    );
+  }
+
+  private void created(String aggregateId) {
+    journal.add(event(aggregateId, 1L, "data-created", JsonObject.mapFrom(new DataCreated(aggregateId, Map.of("version", 1L)))));
+  }
+
+  private void changed(String aggregateId, long from, long to) {
+    LongStream.rangeClosed(from, to).forEach(version ->
+      journal.add(event(aggregateId, version, "data-changed", JsonObject.mapFrom(new DataChanged(Map.of("version", version)))))
+    );
+  }
+
+  private Event event(String aggregateId, long version, String eventType, JsonObject body) {
+    return new Event((long) journal.size() + 1, aggregateId, eventType, version, body, "default", "command-" + aggregateId + "-" + version, List.of(), 0);
+  }
+
+  private static Map<String, Long> versions(List<AggregateState<FakeAggregate>> states) {
+    final var versions = new ConcurrentHashMap<String, Long>();
+    states.forEach(state -> assertNull(versions.put(state.state().aggregateId(), state.currentVersion())));
+    return versions;
+  }
+
+  private static FakeAggregate state(List<AggregateState<FakeAggregate>> states, String aggregateId) {
+    return states.stream().map(AggregateState::state).filter(state -> state.aggregateId().equals(aggregateId)).findFirst().orElseThrow();
+  }
+
+  private static class RecordingTransfer implements AsyncStateTransfer<FakeAggregate> {
+    private final List<List<AggregateState<FakeAggregate>>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public Uni<Void> update(AggregateState<FakeAggregate> currentState) {
+      return Uni.createFrom().failure(new IllegalStateException("states are transferred in batches"));
+    }
+
+    @Override
+    public Uni<Void> update(List<AggregateState<FakeAggregate>> currentStates) {
+      batches.add(currentStates);
+      return Uni.createFrom().voidItem();
+    }
+  }
+
+  private static class SingleStateTransfer implements AsyncStateTransfer<FakeAggregate> {
+    private final List<AggregateState<FakeAggregate>> updates = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public Uni<Void> update(AggregateState<FakeAggregate> currentState) {
+      updates.add(currentState);
+      return Uni.createFrom().voidItem();
+    }
+  }
+
+}
@@ -0,0 +1,207 @@
+package io.es4j.infrastructure;
+
+import io.es4j.Es4jDeployment;
+import io.es4j.domain.FakeAggregate;
+import io.es4j.infra.pg.EventJournalPartitions;
+import io.es4j.infra.pg.PgEventStore;
+import io.es4j.infra.pg.mappers.AggregateStreamMapper;
+import io.es4j.infra.pg.models.AggregateStreamKey;
+import io.es4j.infra.pg.models.AggregateStreamRecord;
+import io.es4j.infrastructure.models.AggregateEventStreamBuilder;
+import io.es4j.infrastructure.models.AggregateKey;
+import io.es4j.infrastructure.models.AggregateStreamHead;
+import io.es4j.infrastructure.models.AppendInstruction;
+import io.es4j.infrastructure.models.ConcurrentAppend;
+import io.es4j.infrastructure.models.Event;
+import io.es4j.sql.LiquibaseHandler;
+import io.es4j.sql.Repository;
+import io.es4j.sql.RepositoryHandler;
+import io.es4j.sql.misc.Constants;
+import io.es4j.sql.models.EmptyQuery;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.sqlclient.Tuple;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+/**
+ * Stream heads are the only guard against conflicting appends on a hash partitioned journal, partitions can't declare
+ * (aggregate_id, tenant, event_version) unique.
+ */
+class AggregateStreamTest {
+
+  public static final String TENANT_ID = "default";
+  private static final Es4jDeployment ES_4_J_DEPLOYMENT = () -> FakeAggregate.class;
+  private static PostgreSQLContainer POSTGRES_CONTAINER;
+  private static final Vertx vertx = Vertx.vertx();
+  private static final JsonObject CONFIGURATION = new JsonObject()
+    .put("journalPartitioning", "id")
+    .put("journalPartitionsAhead", 1)
+    .put("journalHashPartitions", 4);
+  private static final Network NETWORK = Network.newNetwork();
+  private static PgEventStore eventStore;
+
+  @BeforeAll
+  static void setup() {
+    deployContainers();
+    eventStore = new PgEventStore();
+    eventStore.setup(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION).await().indefinitely();
+    eventStore.start(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION);
+  }
+
+  @AfterAll
+  static void stop() {
+    destroyContainers();
+  }
+
+  @Test
+  void heads_only_advance_from_their_current_version() {
+    final var aggregateId = UUID.randomUUID().toString();
+    final var repositoryHandler = RepositoryHandler.leasePool(CONFIGURATION, vertx);
+    final var heads = new Repository<>(AggregateStreamMapper.INSTANCE, repositoryHandler);
+    try {
+      Assertions.assertEquals(1, advance(heads, aggregateId, 0L, 3L).size());
+
+      // built on version 2 while the head already moved to 3
+      Assertions.assertTrue(advance(heads, aggregateId, 2L, 4L).isEmpty());
+      Assertions.assertEquals(3L, head(aggregateId).currentVersion());
+
+      final var advanced = advance(heads, aggregateId, 3L, 5L);
+      Assertions.assertEquals(1, advanced.size());
+      Assertions.assertEquals(5L, advanced.get(0).currentVersion());
+      Assertions.assertEquals(5L, head(aggregateId).currentVersion());
+    } finally {
+      repositoryHandler.close().await().indefinitely();
+    }
+  }
+
+  @Test
+  void appending_on_a_stale_head_is_a_concurrent_append_and_rolls_back() {
+    final var aggregateId = UUID.randomUUID().toString();
+    final var other = UUID.randomUUID().toString();
+    eventStore.append(instruction(aggregateId, 1, 3)).await().indefinitely();
+
+    // the journal takes a second version 3, only the head sees the conflict
+    Assertions.assertThrows(
+      ConcurrentAppend.class,
+      () -> eventStore.appendBatch(List.of(instruction(other, 1, 2), instruction(aggregateId, 3, 4))).await().indefinitely()
+    );
+
+    Assertions.assertEquals(3, fetch(aggregateId).size());
+    Assertions.assertTrue(fetch(other).isEmpty());
+    Assertions.assertEquals(3L, head(aggregateId).currentVersion());
+    Assertions.assertTrue(eventStore.head(new AggregateKey<>(FakeAggregate.class, other, TENANT_ID)).await().indefinitely().isEmpty());
+  }
+
+  @Test
+  void backfill_seeds_heads_from_an_existing_journal() {
+    final var schema = "backfilled-journal";
+    final var configuration = CONFIGURATION.copy().put("schema", schema);
+    EventJournalPartitions.from(schema, configuration).migrate(vertx, configuration).await().indefinitely();
+    final var snapshotted = UUID.randomUUID().toString();
+    final var plain = UUID.randomUUID().toString();
+    final var repositoryHandler = RepositoryHandler.leasePool(configuration, vertx);
+    try {
+      // a journal written before heads were maintained
+      insert(repositoryHandler, schema, snapshotted, 1, "data-created");
+      insert(repositoryHandler, schema, snapshotted, 2, "snapshot");
+      insert(repositoryHandler, schema, snapshotted, 3, "data-changed");
+      insert(repositoryHandler, schema, plain, 1, "data-created");
+
+      LiquibaseHandler.liquibaseString(vertx, configuration, "pg-aggregate-stream.xml", Map.of("schema", schema)).await().indefinitely();
+
+      final var rows = repositoryHandler.pgPool().preparedQuery(
+          "select h.aggregate_id, h.current_version, h.last_snapshot_version, h.journal_offset, (select max(id) from \"" + schema + "\".event_store e where e.aggregate_id = h.aggregate_id)" +
+            " from \"" + schema + "\".aggregate_stream h where h.tenant = $1"
+        )
+        .execute(Tuple.of(TENANT_ID)).await().indefinitely();
+      final var heads = new HashMap<String, List<Long>>();
+      rows.forEach(row -> heads.put(row.getString(0), List.of(row.getLong(1), row.getLong(2), row.getLong(3), row.getLong(4))));
+      Assertions.assertEquals(2, heads.size());
+      Assertions.assertEquals(List.of(3L, 2L), heads.get(snapshotted).subList(0, 2));
+      Assertions.assertEquals(List.of(1L, 0L), heads.get(plain).subList(0, 2));
+      heads.values().forEach(head -> Assertions.assertEquals(head.get(3), head.get(2)));
+    } finally {
+      repositoryHandler.close().await().indefinitely();
+    }
+  }
+
+  private static List<AggregateStreamRecord> advance(
+    Repository<AggregateStreamKey, AggregateStreamRecord, EmptyQuery> heads,
+    String aggregateId,
+    Long baseVersion,
+    Long currentVersion
+  ) {
+    final var params = new HashMap<String, Object>();
+    params.put(AggregateStreamMapper.AGGREGATE_ID, aggregateId);
+    params.put("tenant", TENANT_ID);
+    params.put(AggregateStreamMapper.CURRENT_VERSION, currentVersion);
+    params.put(AggregateStreamMapper.BASE_VERSION, baseVersion);
+    params.put(AggregateStreamMapper.LAST_SNAPSHOT_VERSION, 0L);
+    params.put(AggregateStreamMapper.JOURNAL_OFFSET, currentVersion);
+    return heads.transaction(connection -> heads.queryBatch(AggregateStreamMapper.ADVANCE_HEAD, List.of(params), connection))
+      .await().indefinitely();
+  }
+
+  private static void insert(RepositoryHandler repositoryHandler, String schema, String aggregateId, long version, String eventClass) {
+    repositoryHandler.pgPool().preparedQuery(
+      "insert into \"" + schema + "\".event_store (aggregate_id, event_class, event_version, schema_version, event, command_id, tenant)" +
+        " values ($1, $2, $3, 0, '{}', $4, $5)"
+    ).execute(Tuple.of(aggregateId, eventClass, version, "command-" + version, TENANT_ID)).await().indefinitely();
+  }
+
+  private static AppendInstruction<FakeAggregate> instruction(String aggregateId, long from, long to) {
+    return new AppendInstruction<>(
+      FakeAggregate.class,
+      aggregateId,
+      TENANT_ID,
+      LongStream.rangeClosed(from, to)
+        .mapToObj(version -> new Event(aggregateId, "test-event", version, new JsonObject(), TENANT_ID, UUID.randomUUID().toString(), List.of(), 0))
+        .toList()
+    );
+  }
+
+  private static List<Event> fetch(String aggregateId) {
+    return eventStore.fetch(AggregateEventStreamBuilder.builder()
+      .aggregateId(aggregateId)
+      .tenantId(TENANT_ID)
+      .build()
+    ).await().indefinitely();
+  }
+
+  private static AggregateStreamHead head(String aggregateId) {
+    return eventStore.head(new AggregateKey<>(FakeAggregate.class, aggregateId, TENANT_ID)).await().indefinitely().orElseThrow();
+  }
+
+  private static void deployContainers() {
+    POSTGRES_CONTAINER = new PostgreSQLContainer<>("postgres:latest")
+      .withNetwork(NETWORK)
+      .waitingFor(Wait.forListeningPort());
+    POSTGRES_CONTAINER.start();
+    CONFIGURATION.put(Constants.PG_HOST, POSTGRES_CONTAINER.getHost())
+      .put(Constants.PG_PORT, POSTGRES_CONTAINER.getFirstMappedPort())
+      .put(Constants.PG_USER, POSTGRES_CONTAINER.getUsername())
+      .put(Constants.PG_PASSWORD, POSTGRES_CONTAINER.getPassword())
+      .put(Constants.PG_DATABASE, POSTGRES_CONTAINER.getDatabaseName())
+      .put(Constants.JDBC_URL, POSTGRES_CONTAINER.getJdbcUrl());
+  }
+
+  private static void destroyContainers() {
+    eventStore.stop().await().indefinitely();
+    vertx.closeAndAwait();
+    POSTGRES_CONTAINER.stop();
+    POSTGRES_CONTAINER.close();
+  }
+
+}
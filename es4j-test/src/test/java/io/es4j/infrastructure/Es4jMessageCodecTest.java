@@ -0,0 +1,96 @@
+package io.es4j.infrastructure;
+
+import io.es4j.core.objects.AggregateState;
+import io.es4j.core.objects.CommandAck;
+import io.es4j.domain.FakeAggregate;
+import io.es4j.infrastructure.bus.BinaryBusSerializer;
+import io.es4j.infrastructure.bus.Es4jMessageCodec;
+import io.es4j.infrastructure.bus.JacksonBusSerializer;
+import io.es4j.saga.commands.ChangeData;
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+class Es4jMessageCodecTest {
+
+  private static final BinaryBusSerializer BINARY = new BinaryBusSerializer();
+
+  @Test
+  void binary_round_trip_keeps_every_value_type() {
+    final var data = new HashMap<String, Object>();
+    data.put("text", "héllo\tworld");
+    data.put("small", 42);
+    data.put("negative", -7);
+    data.put("long", Long.MAX_VALUE);
+    data.put("double", 3.25d);
+    data.put("flag", true);
+    data.put("nothing", null);
+    data.put("list", List.of(1, "two", false));
+    data.put("nested", Map.of("inner", List.of(Map.of("a", 1), Map.of("a", 2))));
+    final var command = new ChangeData(UUID.randomUUID().toString(), data);
+
+    Assertions.assertEquals(command, BINARY.deserialize(BINARY.serialize(command), ChangeData.class));
+  }
+
+  @Test
+  void binary_is_smaller_than_json_for_repeated_keys() {
+    final var eventTypes = IntStream.range(0, 50).mapToObj(index -> "data-changed").toList();
+    final var rows = IntStream.range(0, 50)
+      .mapToObj(index -> Map.<String, Object>of("version", index, "offset", 1_000_000 + index))
+      .toList();
+    final var command = new ChangeData(UUID.randomUUID().toString(), Map.of("rows", rows, "types", eventTypes));
+    final var binary = BINARY.serialize(command);
+
+    Assertions.assertTrue(binary.length < new JacksonBusSerializer().serialize(command).length);
+    Assertions.assertEquals(command, BINARY.deserialize(binary, ChangeData.class));
+  }
+
+  @Test
+  void command_ack_round_trip() {
+    final var ack = new CommandAck("id", "default", 12L, 3400L, List.of("created", "changed"));
+    Assertions.assertEquals(ack, BINARY.deserialize(BINARY.serialize(ack), CommandAck.class));
+  }
+
+  @Test
+  void clustered_state_keeps_versions_and_known_commands() {
+    final var codec = new Es4jMessageCodec(BINARY);
+    final var commandIds = IntStream.range(0, 20).mapToObj(index -> UUID.randomUUID().toString()).toList();
+    final var state = new AggregateState<>(FakeAggregate.class, 16)
+      .setState(new FakeAggregate("id", Map.of("key", "value")))
+      .setCurrentVersion(20L)
+      .setCurrentJournalOffset(900L)
+      .setLastSnapshotVersion(10L)
+      .addKnownCommands(commandIds);
+    final var buffer = Buffer.buffer().appendString("prefix");
+    codec.encodeToWire(buffer, state);
+
+    @SuppressWarnings("unchecked")
+    final var decoded = (AggregateState<FakeAggregate>) codec.decodeFromWire("prefix".length(), buffer);
+    Assertions.assertEquals(state.state(), decoded.state());
+    Assertions.assertEquals(20L, decoded.currentVersion());
+    Assertions.assertEquals(900L, decoded.currentJournalOffset());
+    Assertions.assertEquals(10L, decoded.lastSnapshotVersion());
+    Assertions.assertEquals(16, decoded.knownCommands().capacity());
+    Assertions.assertEquals(state.knownCommands().encode(), decoded.knownCommands().encode());
+    // the window keeps the last 16 ids
+    commandIds.subList(4, 20).forEach(commandId -> Assertions.assertTrue(decoded.isKnownCommand(commandId)));
+    commandIds.subList(0, 4).forEach(commandId -> Assertions.assertFalse(decoded.isKnownCommand(commandId)));
+  }
+
+  @Test
+  void clustered_command_decodes_into_its_class() {
+    final var codec = new Es4jMessageCodec(BINARY);
+    final var command = new ChangeData("id", Map.of("key", Arrays.asList(1, null, 3)));
+    final var buffer = Buffer.buffer();
+    codec.encodeToWire(buffer, command);
+    Assertions.assertEquals(command, codec.decodeFromWire(0, buffer));
+  }
+
+}
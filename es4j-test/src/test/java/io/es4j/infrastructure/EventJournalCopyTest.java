@@ -0,0 +1,210 @@
+package io.es4j.infrastructure;
+
+import io.es4j.Es4jDeployment;
+import io.es4j.domain.FakeAggregate;
+import io.es4j.infra.pg.PgEventStore;
+import io.es4j.infrastructure.models.AggregateEventStreamBuilder;
+import io.es4j.infrastructure.models.ConcurrentAppend;
+import io.es4j.infrastructure.models.Event;
+import io.es4j.sql.RepositoryHandler;
+import io.es4j.sql.misc.Constants;
+import io.smallrye.mutiny.Multi;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.sqlclient.Tuple;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+/**
+ * Bulk loads run against a hash partitioned journal, partitions don't enforce unique versions across the journal so
+ * the base version guard of the stream heads is what rejects conflicting loads.
+ */
+class EventJournalCopyTest {
+
+  public static final String TENANT_ID = "default";
+  private static final Es4jDeployment ES_4_J_DEPLOYMENT = () -> FakeAggregate.class;
+  private static PostgreSQLContainer POSTGRES_CONTAINER;
+  private static final Vertx vertx = Vertx.vertx();
+  private static final JsonObject CONFIGURATION = new JsonObject()
+    .put("journalPartitioning", "id")
+    .put("journalPartitionsAhead", 1)
+    .put("journalHashPartitions", 4)
+    .put("sslMode", "disable");
+  private static final Network NETWORK = Network.newNetwork();
+  private static PgEventStore eventStore;
+
+  @BeforeAll
+  static void setup() {
+    deployContainers();
+    eventStore = new PgEventStore();
+    eventStore.setup(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION).await().indefinitely();
+    eventStore.start(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION);
+  }
+
+  @AfterAll
+  static void stop() {
+    destroyContainers();
+  }
+
+  @Test
+  void load_writes_the_events_and_advances_the_heads() {
+    final var first = UUID.randomUUID().toString();
+    final var second = UUID.randomUUID().toString();
+    final var events = new ArrayList<>(events(first, 1, 25_000));
+    events.addAll(events(second, 1, 10));
+
+    final var report = eventStore.bulkLoad(Multi.createFrom().iterable(events)).await().indefinitely();
+
+    Assertions.assertEquals(25_010L, report.events());
+    Assertions.assertEquals(2L, report.aggregates());
+    Assertions.assertEquals(25_000, fetch(first).size());
+    Assertions.assertEquals(25_000L, headVersion(first));
+    Assertions.assertEquals(10L, headVersion(second));
+    Assertions.assertEquals(lastJournalId(first), headOffset(first));
+  }
+
+  @Test
+  void load_continues_a_stream_from_its_head() {
+    final var aggregateId = UUID.randomUUID().toString();
+    eventStore.bulkLoad(Multi.createFrom().iterable(events(aggregateId, 1, 5))).await().indefinitely();
+
+    eventStore.bulkLoad(Multi.createFrom().iterable(events(aggregateId, 6, 10))).await().indefinitely();
+
+    Assertions.assertEquals(10, fetch(aggregateId).size());
+    Assertions.assertEquals(10L, headVersion(aggregateId));
+  }
+
+  @Test
+  void loading_versions_already_in_the_stream_is_a_concurrent_append() {
+    final var aggregateId = UUID.randomUUID().toString();
+    final var untouched = UUID.randomUUID().toString();
+    eventStore.bulkLoad(Multi.createFrom().iterable(events(aggregateId, 1, 3))).await().indefinitely();
+
+    final var conflicting = new ArrayList<>(events(untouched, 1, 3));
+    conflicting.addAll(events(aggregateId, 1, 3));
+    Assertions.assertThrows(
+      ConcurrentAppend.class,
+      () -> eventStore.bulkLoad(Multi.createFrom().iterable(conflicting)).await().indefinitely()
+    );
+
+    // the load is a single transaction, neither stream kept any of it
+    Assertions.assertEquals(3, fetch(aggregateId).size());
+    Assertions.assertEquals(3L, headVersion(aggregateId));
+    Assertions.assertTrue(fetch(untouched).isEmpty());
+  }
+
+  @Test
+  void streams_without_a_head_must_start_at_their_first_version() {
+    final var aggregateId = UUID.randomUUID().toString();
+
+    Assertions.assertThrows(
+      ConcurrentAppend.class,
+      () -> eventStore.bulkLoad(Multi.createFrom().iterable(events(aggregateId, 4, 6))).await().indefinitely()
+    );
+
+    Assertions.assertTrue(fetch(aggregateId).isEmpty());
+  }
+
+  @Test
+  void copy_connection_uses_the_ssl_mode_of_the_pool() {
+    final var configuration = CONFIGURATION.copy().put("sslMode", "require");
+    final var requiringSsl = new PgEventStore();
+    requiringSsl.start(ES_4_J_DEPLOYMENT, vertx, configuration);
+    try {
+      // the container doesn't accept ssl, a copy connection ignoring the mode would go through
+      final var failure = Assertions.assertThrows(
+        RuntimeException.class,
+        () -> requiringSsl.bulkLoad(Multi.createFrom().iterable(events(UUID.randomUUID().toString(), 1, 1))).await().indefinitely()
+      );
+      Assertions.assertFalse(failure instanceof ConcurrentAppend);
+    } finally {
+      requiringSsl.stop().await().indefinitely();
+    }
+  }
+
+  private static List<Event> events(String aggregateId, long from, long to) {
+    return LongStream.rangeClosed(from, to)
+      .mapToObj(version -> new Event(
+          null,
+          aggregateId,
+          "test-event",
+          version,
+          new JsonObject().put("tab", "a\tb").put("newline", "a\nb").put("backslash", "a\\b"),
+          TENANT_ID,
+          "command-" + version,
+          List.of("tag-" + version % 2, "quoted \"tag\""),
+          0
+        )
+      )
+      .toList();
+  }
+
+  private static List<Event> fetch(String aggregateId) {
+    final var events = eventStore.fetch(AggregateEventStreamBuilder.builder()
+      .aggregateId(aggregateId)
+      .tenantId(TENANT_ID)
+      .build()
+    ).await().indefinitely();
+    events.forEach(event -> {
+        Assertions.assertEquals("a\tb", event.event().getString("tab"));
+        Assertions.assertEquals("a\nb", event.event().getString("newline"));
+        Assertions.assertEquals("a\\b", event.event().getString("backslash"));
+        Assertions.assertEquals(List.of("tag-" + event.eventVersion() % 2, "quoted \"tag\""), event.tags());
+      }
+    );
+    return events;
+  }
+
+  private static Long headVersion(String aggregateId) {
+    return scalar("select current_version from aggregate_stream where aggregate_id = $1 and tenant = $2", aggregateId);
+  }
+
+  private static Long headOffset(String aggregateId) {
+    return scalar("select journal_offset from aggregate_stream where aggregate_id = $1 and tenant = $2", aggregateId);
+  }
+
+  private static Long lastJournalId(String aggregateId) {
+    return scalar("select max(id) from event_store where aggregate_id = $1 and tenant = $2", aggregateId);
+  }
+
+  private static Long scalar(String query, String aggregateId) {
+    final var handler = RepositoryHandler.leasePool(CONFIGURATION, vertx);
+    try {
+      final var rows = handler.pgPool().preparedQuery(query).execute(Tuple.of(aggregateId, TENANT_ID)).await().indefinitely();
+      return rows.iterator().next().getLong(0);
+    } finally {
+      handler.close().await().indefinitely();
+    }
+  }
+
+  private static void deployContainers() {
+    POSTGRES_CONTAINER = new PostgreSQLContainer<>("postgres:latest")
+      .withNetwork(NETWORK)
+      .waitingFor(Wait.forListeningPort());
+    POSTGRES_CONTAINER.start();
+    CONFIGURATION.put(Constants.PG_HOST, POSTGRES_CONTAINER.getHost())
+      .put(Constants.PG_PORT, POSTGRES_CONTAINER.getFirstMappedPort())
+      .put(Constants.PG_USER, POSTGRES_CONTAINER.getUsername())
+      .put(Constants.PG_PASSWORD, POSTGRES_CONTAINER.getPassword())
+      .put(Constants.PG_DATABASE, POSTGRES_CONTAINER.getDatabaseName())
+      .put(Constants.JDBC_URL, POSTGRES_CONTAINER.getJdbcUrl());
+  }
+
+  private static void destroyContainers() {
+    eventStore.stop().await().indefinitely();
+    vertx.closeAndAwait();
+    POSTGRES_CONTAINER.stop();
+    POSTGRES_CONTAINER.close();
+  }
+
+}
@@ -0,0 +1,163 @@
+package io.es4j.infrastructure;
+
+import io.es4j.infra.pg.EventJournalPartitions;
+import io.es4j.sql.RepositoryHandler;
+import io.es4j.sql.misc.Constants;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+class EventJournalPartitionsTest {
+
+  private static PostgreSQLContainer POSTGRES_CONTAINER;
+  private static final Vertx vertx = Vertx.vertx();
+  private static final JsonObject CONFIGURATION = new JsonObject();
+  private static final Network NETWORK = Network.newNetwork();
+
+  @BeforeAll
+  static void setup() {
+    deployContainers();
+  }
+
+  @AfterAll
+  static void stop() {
+    destroyContainers();
+  }
+
+  @ParameterizedTest
+  @MethodSource("layouts")
+  void migrate_and_append(String schema, JsonObject layout, List<String> primaryKey, int leafPartitions) {
+    final var configuration = CONFIGURATION.copy().mergeIn(layout).put("schema", schema);
+    final var partitions = EventJournalPartitions.from(schema, configuration);
+    Assertions.assertDoesNotThrow(() -> partitions.migrate(vertx, configuration).await().indefinitely());
+    final var repositoryHandler = RepositoryHandler.leasePool(configuration, vertx);
+    try {
+      // maintenance ticks run the same statements against partitions already in place
+      Assertions.assertDoesNotThrow(() -> partitions.ensure(repositoryHandler).await().indefinitely());
+      Assertions.assertEquals(primaryKey, primaryKey(repositoryHandler, schema));
+      Assertions.assertEquals(leafPartitions, leafPartitions(repositoryHandler, schema));
+      final var aggregateId = UUID.randomUUID().toString();
+      repositoryHandler.pgPool().query(
+        "insert into \"" + schema + "\".event_store (aggregate_id, event_class, event_version, schema_version, event, command_id, tenant)" +
+          " values ('" + aggregateId + "', 'created', 1, 0, '{}', 'command', 'default')"
+      ).execute().await().indefinitely();
+      final var rows = repositoryHandler.pgPool().query(
+        "select count(*) from \"" + schema + "\".event_store where aggregate_id = '" + aggregateId + "'"
+      ).execute().await().indefinitely();
+      Assertions.assertEquals(1L, rows.iterator().next().getLong(0));
+    } finally {
+      repositoryHandler.close().await().indefinitely();
+    }
+  }
+
+  @Test
+  void time_partitions_follow_utc_whatever_the_session_time_zone() {
+    final var schema = "utc-journal";
+    final var configuration = CONFIGURATION.copy()
+      .put("journalPartitioning", "time")
+      .put("journalPartitionInterval", "days")
+      .put("journalPartitionsAhead", 0)
+      .put("schema", schema);
+    final var partitions = EventJournalPartitions.from(schema, configuration);
+    Assertions.assertDoesNotThrow(() -> partitions.migrate(vertx, configuration).await().indefinitely());
+    final var repositoryHandler = RepositoryHandler.leasePool(configuration, vertx);
+    try {
+      // a single partition for the current UTC day, sessions a day behind or ahead of UTC still land in it
+      for (final var timeZone : List.of("Etc/GMT+12", "Etc/GMT-14", "UTC")) {
+        final var aggregateId = UUID.randomUUID().toString();
+        Assertions.assertDoesNotThrow(() -> repositoryHandler.pgPool().withTransaction(connection -> connection
+            .query("set local time zone '" + timeZone + "'").execute()
+            .flatMap(avoid -> connection.query(
+              "insert into \"" + schema + "\".event_store (aggregate_id, event_class, event_version, schema_version, event, command_id, tenant)" +
+                " values ('" + aggregateId + "', 'created', 1, 0, '{}', 'command', 'default')"
+            ).execute())
+          ).await().indefinitely(),
+          "insert from a session in " + timeZone
+        );
+      }
+      Assertions.assertEquals(1, leafPartitions(repositoryHandler, schema));
+      final var rows = repositoryHandler.pgPool().query(
+        "select count(*) from \"" + schema + "\".event_store" +
+          " where inserted > (current_timestamp at time zone 'UTC') - interval '1 minute'" +
+          " and inserted <= current_timestamp at time zone 'UTC'"
+      ).execute().await().indefinitely();
+      Assertions.assertEquals(3L, rows.iterator().next().getLong(0));
+    } finally {
+      repositoryHandler.close().await().indefinitely();
+    }
+  }
+
+  private static List<String> primaryKey(RepositoryHandler repositoryHandler, String schema) {
+    final var rows = repositoryHandler.pgPool().query(
+      "select a.attname from pg_index i" +
+        " join pg_attribute a on a.attrelid = i.indrelid and a.attnum = any(i.indkey)" +
+        " where i.indrelid = '\"" + schema + "\".event_store'::regclass and i.indisprimary" +
+        " order by array_position(i.indkey::int2[], a.attnum)"
+    ).execute().await().indefinitely();
+    return StreamSupport.stream(rows.spliterator(), false).map(row -> row.getString(0)).toList();
+  }
+
+  private static int leafPartitions(RepositoryHandler repositoryHandler, String schema) {
+    final var rows = repositoryHandler.pgPool().query(
+      "select count(*) from pg_partition_tree('\"" + schema + "\".event_store') where isleaf"
+    ).execute().await().indefinitely();
+    return rows.iterator().next().getLong(0).intValue();
+  }
+
+  private static Stream<Arguments> layouts() {
+    return Stream.of(
+      Arguments.of(
+        "id-journal",
+        new JsonObject().put("journalPartitioning", "id").put("journalPartitionsAhead", 2),
+        List.of("id"),
+        3
+      ),
+      Arguments.of(
+        "time-journal",
+        new JsonObject().put("journalPartitioning", "time").put("journalPartitionInterval", "days").put("journalPartitionsAhead", 1),
+        List.of("id", "inserted"),
+        2
+      ),
+      Arguments.of(
+        "hash-journal",
+        new JsonObject().put("journalPartitioning", "id").put("journalPartitionsAhead", 1).put("journalHashPartitions", 4),
+        List.of("id", "aggregate_id"),
+        8
+      )
+    );
+  }
+
+  private static void deployContainers() {
+    POSTGRES_CONTAINER = new PostgreSQLContainer<>("postgres:latest")
+      .withNetwork(NETWORK)
+      .waitingFor(Wait.forListeningPort());
+    POSTGRES_CONTAINER.start();
+    CONFIGURATION.put(Constants.PG_HOST, POSTGRES_CONTAINER.getHost())
+      .put(Constants.PG_PORT, POSTGRES_CONTAINER.getFirstMappedPort())
+      .put(Constants.PG_USER, POSTGRES_CONTAINER.getUsername())
+      .put(Constants.PG_PASSWORD, POSTGRES_CONTAINER.getPassword())
+      .put(Constants.PG_DATABASE, POSTGRES_CONTAINER.getDatabaseName())
+      .put(Constants.JDBC_URL, POSTGRES_CONTAINER.getJdbcUrl());
+  }
+
+  private static void destroyContainers() {
+    vertx.closeAndAwait();
+    POSTGRES_CONTAINER.stop();
+    POSTGRES_CONTAINER.close();
+  }
+
+}
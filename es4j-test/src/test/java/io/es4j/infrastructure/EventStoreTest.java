@@ -5,8 +5,11 @@ import io.es4j.Es4jDeployment;
 import io.es4j.domain.FakeAggregate;
 import io.es4j.infra.pg.PgEventStore;
 import io.es4j.infrastructure.models.AggregateEventStreamBuilder;
+import io.es4j.infrastructure.models.AggregateKey;
 import io.es4j.infrastructure.models.AppendInstruction;
+import io.es4j.infrastructure.models.ConcurrentAppend;
 import io.es4j.infrastructure.models.Event;
+import io.es4j.infrastructure.models.EventStreamBuilder;
 import io.es4j.sql.misc.Constants;
 import io.vertx.core.json.JsonObject;
 import io.vertx.mutiny.core.Vertx;
@@ -20,10 +23,13 @@ import org.testcontainers.containers.Network;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.containers.wait.strategy.Wait;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 class EventStoreTest {
@@ -117,6 +123,109 @@ class EventStoreTest {
     Assertions.assertEquals(numberOfEvents, atomicInt.get());
   }
 
+  @ParameterizedTest
+  @MethodSource("eventStores")
+  void duplicate_version_is_a_concurrent_append(EventStore eventStore) {
+    eventStore.setup(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION).await().indefinitely();
+    eventStore.start(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION);
+    final var aggregateId = UUID.randomUUID().toString();
+    eventStore.append(appendInstruction(aggregateId, 1, 3)).await().indefinitely();
+
+    // the insert skips the version already taken, the row count tells the conflict apart
+    Assertions.assertThrows(
+      ConcurrentAppend.class,
+      () -> eventStore.append(appendInstruction(aggregateId, 3, 5)).await().indefinitely()
+    );
+
+    Assertions.assertEquals(List.of(1L, 2L, 3L), fetch(eventStore, aggregateId).stream().map(Event::eventVersion).toList());
+  }
+
+  @ParameterizedTest
+  @MethodSource("eventStores")
+  void partially_conflicting_batch_is_rolled_back(EventStore eventStore) {
+    eventStore.setup(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION).await().indefinitely();
+    eventStore.start(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION);
+    final var aggregateId = UUID.randomUUID().toString();
+    final var other = UUID.randomUUID().toString();
+    eventStore.append(appendInstruction(aggregateId, 1, 2)).await().indefinitely();
+
+    Assertions.assertThrows(
+      ConcurrentAppend.class,
+      () -> eventStore.appendBatch(List.of(
+        appendInstruction(other, 1, 2),
+        appendInstruction(aggregateId, 2, 3),
+        appendInstruction(aggregateId + "-new", 1, 1)
+      )).await().indefinitely()
+    );
+
+    Assertions.assertTrue(fetch(eventStore, other).isEmpty());
+    Assertions.assertTrue(fetch(eventStore, aggregateId + "-new").isEmpty());
+    Assertions.assertEquals(2, fetch(eventStore, aggregateId).size());
+    Assertions.assertEquals(2L, eventStore.head(new AggregateKey<>(FakeAggregate.class, aggregateId, TENANT_ID)).await().indefinitely().orElseThrow().currentVersion());
+    Assertions.assertTrue(eventStore.head(new AggregateKey<>(FakeAggregate.class, other, TENANT_ID)).await().indefinitely().isEmpty());
+
+    // the streams the batch was refused for are still free to append
+    Assertions.assertEquals(2, eventStore.append(appendInstruction(other, 1, 2)).await().indefinitely().size());
+  }
+
+  @ParameterizedTest
+  @MethodSource("eventStores")
+  void shards_cover_every_aggregate_exactly_once(EventStore eventStore) {
+    eventStore.setup(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION).await().indefinitely();
+    eventStore.start(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION);
+    final var eventClass = "sharded-" + UUID.randomUUID();
+    final var aggregateIds = IntStream.range(0, 200).mapToObj(i -> UUID.randomUUID().toString()).toList();
+    eventStore.appendBatch(aggregateIds.stream()
+      .<AppendInstruction<?>>map(aggregateId -> new AppendInstruction<>(
+          FakeAggregate.class,
+          aggregateId,
+          TENANT_ID,
+          LongStream.rangeClosed(1, 2)
+            .mapToObj(version -> new Event(null, aggregateId, eventClass, version, new JsonObject(), TENANT_ID, UUID.randomUUID().toString(), List.of(), 0))
+            .toList()
+        )
+      )
+      .toList()
+    ).await().indefinitely();
+
+    final var shards = 4;
+    final var covered = new HashMap<String, Integer>();
+    IntStream.range(0, shards).forEach(shard -> {
+        final var events = eventStore.fetch(EventStreamBuilder.builder()
+          .eventTypes(List.of(eventClass))
+          .tenantId(TENANT_ID)
+          .offset(0L)
+          .batchSize(1000)
+          .shard(shard)
+          .shards(shards)
+          .build()
+        ).await().indefinitely();
+        Assertions.assertFalse(events.isEmpty(), "shard " + shard + " is empty");
+        // both events of an aggregate land in the same shard, an aggregate never shows up in two shards
+        events.forEach(event -> Assertions.assertEquals(shard, covered.merge(event.aggregateId(), shard, (previous, current) -> {
+            Assertions.assertEquals(previous, current, event.aggregateId() + " is in shards " + previous + " and " + current);
+            return current;
+          }
+        )));
+        Assertions.assertEquals(events.size(), events.stream().map(Event::aggregateId).distinct().count() * 2);
+      }
+    );
+    Assertions.assertEquals(new HashSet<>(aggregateIds), covered.keySet());
+  }
+
+  private static List<Event> fetch(EventStore eventStore, String aggregateId) {
+    return eventStore.fetch(AggregateEventStreamBuilder.builder()
+      .aggregateId(aggregateId)
+      .tenantId(TENANT_ID)
+      .build()
+    ).await().indefinitely();
+  }
+
+  private static AppendInstruction<FakeAggregate> appendInstruction(String aggregateId, long from, long to) {
+    final var events = LongStream.rangeClosed(from, to).mapToObj(version -> createEvent(aggregateId, version)).toList();
+    return new AppendInstruction<>(FakeAggregate.class, aggregateId, TENANT_ID, events);
+  }
+
   private static AppendInstruction<FakeAggregate> createAppendInstruction(String aggregateId, int numberOfEvents) {
     Assertions.assertTrue(numberOfEvents > 0);
     final var events = IntStream.range(0, numberOfEvents).mapToObj(i -> createEvent(aggregateId, (long) i)).toList();
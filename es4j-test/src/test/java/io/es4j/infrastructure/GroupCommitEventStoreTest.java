@@ -0,0 +1,141 @@
+package io.es4j.infrastructure;
+
+import io.es4j.core.objects.AggregateConfiguration;
+import io.es4j.core.objects.AggregateConfigurationBuilder;
+import io.es4j.domain.FakeAggregate;
+import io.es4j.infrastructure.journal.GroupCommitEventStore;
+import io.es4j.infrastructure.models.AppendInstruction;
+import io.es4j.infrastructure.models.ConcurrentAppend;
+import io.es4j.infrastructure.models.Event;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.*;
+
+class GroupCommitEventStoreTest {
+
+  private static final Vertx vertx = Vertx.vertx();
+  private static final AggregateConfiguration GROUP_COMMIT = AggregateConfigurationBuilder.builder()
+    .appendBatchWindow(Duration.ofSeconds(30))
+    .appendBatchSize(10)
+    .build();
+  private EventStore delegate;
+  private CompletableFuture<List<Long>> firstWrite;
+  private AppendInstruction<FakeAggregate> first;
+
+  @BeforeEach
+  void setup() {
+    delegate = mock(EventStore.class);
+    when(delegate.atomicBatchAppend()).thenReturn(true);
+    when(delegate.stop()).thenReturn(Uni.createFrom().voidItem());
+    firstWrite = new CompletableFuture<>();
+    first = appendInstruction(1);
+    when(delegate.append(same(first))).thenReturn(Uni.createFrom().completionStage(firstWrite));
+  }
+
+  @AfterAll
+  static void stop() {
+    vertx.closeAndAwait();
+  }
+
+  @Test
+  void lone_append_is_written_right_away() {
+    final var store = new GroupCommitEventStore(vertx, delegate, GROUP_COMMIT);
+    final var written = store.append(first).subscribeAsCompletionStage();
+    verify(delegate).append(same(first));
+    firstWrite.complete(List.of(7L));
+    Assertions.assertEquals(List.of(7L), written.join());
+    verify(delegate, never()).appendBatch(anyList());
+  }
+
+  @Test
+  void appends_behind_a_write_are_group_committed_and_sliced_per_caller() {
+    final var store = new GroupCommitEventStore(vertx, delegate, GROUP_COMMIT);
+    when(delegate.appendBatch(anyList())).thenReturn(Uni.createFrom().item(LongStream.rangeClosed(10, 15).boxed().toList()));
+    store.append(first).subscribeAsCompletionStage();
+    final var second = store.append(appendInstruction(2)).subscribeAsCompletionStage();
+    final var third = store.append(appendInstruction(1)).subscribeAsCompletionStage();
+    final var fourth = store.append(appendInstruction(3)).subscribeAsCompletionStage();
+    verify(delegate, never()).appendBatch(anyList());
+
+    firstWrite.complete(List.of(9L));
+    verify(delegate).appendBatch(argThat(batch -> batch.size() == 3));
+    Assertions.assertEquals(List.of(10L, 11L), second.join());
+    Assertions.assertEquals(List.of(12L), third.join());
+    Assertions.assertEquals(List.of(13L, 14L, 15L), fourth.join());
+  }
+
+  @Test
+  void conflicting_batch_is_split_into_single_appends() {
+    final var store = new GroupCommitEventStore(vertx, delegate, GROUP_COMMIT);
+    final var secondInstruction = appendInstruction(1);
+    final var thirdInstruction = appendInstruction(1);
+    when(delegate.appendBatch(anyList())).thenReturn(Uni.createFrom().failure(new ConcurrentAppend("conflict")));
+    when(delegate.append(same(secondInstruction))).thenReturn(Uni.createFrom().item(List.of(20L)));
+    when(delegate.append(same(thirdInstruction))).thenReturn(Uni.createFrom().failure(new ConcurrentAppend("conflict")));
+    store.append(first).subscribeAsCompletionStage();
+    final var second = store.append(secondInstruction).subscribeAsCompletionStage();
+    final var third = store.append(thirdInstruction).subscribeAsCompletionStage();
+
+    firstWrite.complete(List.of(9L));
+    verify(delegate).append(same(secondInstruction));
+    verify(delegate).append(same(thirdInstruction));
+    Assertions.assertEquals(List.of(20L), second.join());
+    final var failure = Assertions.assertThrows(ExecutionException.class, () -> third.get());
+    Assertions.assertInstanceOf(ConcurrentAppend.class, failure.getCause());
+  }
+
+  @Test
+  void stop_waits_for_the_write_in_flight() {
+    final var store = new GroupCommitEventStore(vertx, delegate, GROUP_COMMIT);
+    final var next = appendInstruction(1);
+    when(delegate.append(same(next))).thenReturn(Uni.createFrom().item(List.of(10L)));
+    final var written = store.append(first).subscribeAsCompletionStage();
+    final var queued = store.append(next).subscribeAsCompletionStage();
+    final var stopped = store.stop().subscribeAsCompletionStage();
+    verify(delegate, never()).stop();
+
+    firstWrite.complete(List.of(9L));
+    Assertions.assertEquals(List.of(9L), written.join());
+    Assertions.assertEquals(List.of(10L), queued.join());
+    stopped.join();
+    verify(delegate).stop();
+  }
+
+  @Test
+  void group_commit_is_off_by_default() {
+    final var store = new GroupCommitEventStore(vertx, delegate, new AggregateConfiguration(Duration.ofMinutes(20), 100, 1000));
+    final var next = appendInstruction(1);
+    when(delegate.append(same(next))).thenReturn(Uni.createFrom().item(List.of(10L)));
+    store.append(first).subscribeAsCompletionStage();
+    Assertions.assertEquals(List.of(10L), store.append(next).await().indefinitely());
+    verify(delegate, never()).appendBatch(anyList());
+  }
+
+  private static AppendInstruction<FakeAggregate> appendInstruction(int events) {
+    final var aggregateId = UUID.randomUUID().toString();
+    return new AppendInstruction<>(
+      FakeAggregate.class,
+      aggregateId,
+      "default",
+      LongStream.rangeClosed(1, events)
+        .mapToObj(version -> new Event(aggregateId, "test-event", version, new JsonObject(), "default", "command", List.of(), 0))
+        .toList()
+    );
+  }
+
+}
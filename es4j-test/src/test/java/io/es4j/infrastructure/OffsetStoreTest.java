@@ -1,23 +1,32 @@
 package io.es4j.infrastructure;
 
+import io.es4j.Aggregate;
 import io.es4j.Es4jDeployment;
+import io.es4j.core.objects.AggregateEvent;
 import io.es4j.core.objects.Offset;
 import io.es4j.core.objects.OffsetBuilder;
 import io.es4j.core.objects.OffsetKeyBuilder;
 import io.es4j.domain.FakeAggregate;
+import io.es4j.infra.pg.PgAsyncProjection;
 import io.es4j.infra.pg.PgOffsetStore;
+import io.es4j.sql.RepositoryHandler;
 import io.es4j.sql.misc.Constants;
+import io.smallrye.mutiny.Uni;
 import io.vertx.core.json.JsonObject;
 import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import io.vertx.mutiny.sqlclient.Tuple;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.testcontainers.containers.Network;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.containers.wait.strategy.Wait;
 
+import java.util.List;
 import java.util.stream.Stream;
 
 class OffsetStoreTest {
@@ -63,6 +72,104 @@ class OffsetStoreTest {
     Assertions.assertEquals(1L, result2.eventVersionOffset());
   }
 
+  @Test
+  void upsert_updates_the_consumer_row_in_place() {
+    final var offsetStore = pgOffsetStore();
+    final var name = "upserted-consumer";
+    offsetStore.put(createOffset(name)).await().indefinitely();
+    offsetStore.put(OffsetBuilder.builder(createOffset(name)).idOffSet(5L).eventVersionOffset(5L).build()).await().indefinitely();
+    final var stored = offsetStore.put(OffsetBuilder.builder(createOffset(name)).idOffSet(7L).eventVersionOffset(6L).build()).await().indefinitely();
+    Assertions.assertEquals(7L, stored.idOffSet());
+    Assertions.assertEquals(6L, stored.eventVersionOffset());
+
+    final var rows = RepositoryHandler.bootstrapPgPool(CONFIGURATION, vertx)
+      .preparedQuery("select id_offset, rec_version from offset_store where consumer = $1 and tenant = $2")
+      .execute(Tuple.of(name, TENANT_ID))
+      .await().indefinitely();
+    Assertions.assertEquals(1, rows.size());
+    final var row = rows.iterator().next();
+    Assertions.assertEquals(7L, row.getLong("id_offset"));
+    Assertions.assertEquals(2, row.getInteger("rec_version"));
+  }
+
+  @Test
+  void transactional_apply_commits_the_read_model_with_the_offset() {
+    final var offsetStore = pgOffsetStore();
+    final var projection = new TableProjection(false);
+    Assertions.assertTrue(offsetStore.transactional(projection));
+
+    final var stored = offsetStore.apply(projection, events(1L, 2L, 3L), OffsetBuilder.builder(createOffset("table-projection")).idOffSet(3L).build())
+      .await().indefinitely();
+
+    Assertions.assertEquals(3L, stored.idOffSet());
+    Assertions.assertEquals(3L, projected("table-projection"));
+  }
+
+  @Test
+  void failed_transactional_apply_keeps_neither_the_read_model_nor_the_offset() {
+    final var offsetStore = pgOffsetStore();
+    final var name = "failing-table-projection";
+    offsetStore.put(createOffset(name)).await().indefinitely();
+
+    Assertions.assertThrows(
+      IllegalStateException.class,
+      () -> offsetStore.apply(new TableProjection(true), events(1L, 2L), OffsetBuilder.builder(createOffset(name)).idOffSet(2L).build()).await().indefinitely()
+    );
+
+    Assertions.assertEquals(0L, projected(name));
+    final var offset = offsetStore.get(OffsetKeyBuilder.builder().consumer(name).tenantId(TENANT_ID).build()).await().indefinitely();
+    Assertions.assertEquals(0L, offset.idOffSet());
+  }
+
+  private static PgOffsetStore pgOffsetStore() {
+    final var offsetStore = new PgOffsetStore();
+    offsetStore.setup(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION).await().indefinitely();
+    offsetStore.start(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION);
+    RepositoryHandler.bootstrapPgPool(CONFIGURATION, vertx)
+      .query("create table if not exists public.projected_events (consumer text, journal_offset bigint)")
+      .execute()
+      .await().indefinitely();
+    return offsetStore;
+  }
+
+  private static long projected(String consumer) {
+    return RepositoryHandler.bootstrapPgPool(CONFIGURATION, vertx)
+      .preparedQuery("select count(*) from public.projected_events where consumer = $1")
+      .execute(Tuple.of(consumer))
+      .await().indefinitely()
+      .iterator().next().getLong(0);
+  }
+
+  private static List<AggregateEvent> events(Long... journalOffsets) {
+    return Stream.of(journalOffsets)
+      .map(journalOffset -> new AggregateEvent("aggregate", TENANT_ID, journalOffset, journalOffset, null))
+      .toList();
+  }
+
+  private record TableProjection(boolean failAfterWrite) implements PgAsyncProjection {
+
+    @Override
+    public Uni<Void> apply(List<AggregateEvent> events, SqlConnection connection) {
+      final var consumer = failAfterWrite ? "failing-table-projection" : "table-projection";
+      return connection.preparedQuery("insert into public.projected_events (consumer, journal_offset) values ($1, $2)")
+        .executeBatch(events.stream().map(event -> Tuple.of(consumer, event.journalOffset())).toList())
+        .flatMap(rows -> failAfterWrite ?
+          Uni.createFrom().failure(new IllegalStateException("projection failed")) :
+          Uni.createFrom().voidItem()
+        );
+    }
+
+    @Override
+    public Uni<Void> setup(Vertx vertx, JsonObject configuration) {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Class<? extends Aggregate> aggregateClass() {
+      return FakeAggregate.class;
+    }
+  }
+
   private static Offset createOffset(String name) {
     return OffsetBuilder.builder()
       .consumer(name)
@@ -0,0 +1,51 @@
+package io.es4j.infrastructure;
+
+import io.es4j.infra.pg.mappers.SnapshotMapper;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotMapperTest {
+
+  @Test
+  void states_round_trip_through_compression() {
+    final var state = new JsonObject()
+      .put("aggregateId", "aggregate")
+      .put("unicode", "snapshot éè 中文")
+      .put("escapes", "a\tb\nc\\d\"e")
+      .put("nested", new JsonObject().put("numbers", new JsonArray().add(1).add(2.5).add(Long.MAX_VALUE)).putNull("missing"))
+      .put("empty", new JsonObject());
+
+    assertEquals(state, SnapshotMapper.inflate(SnapshotMapper.deflate(state)));
+    assertEquals(new JsonObject(), SnapshotMapper.inflate(SnapshotMapper.deflate(new JsonObject())));
+  }
+
+  @Test
+  void states_spanning_several_chunks_round_trip_and_shrink() {
+    final var lines = new JsonArray();
+    IntStream.range(0, 5_000).forEach(line -> lines.add(new JsonObject().put("line", line).put("sku", "sku-" + line % 50).put("quantity", line % 7)));
+    final var state = new JsonObject().put("aggregateId", "aggregate").put("lines", lines);
+
+    final var compressed = SnapshotMapper.deflate(state);
+
+    assertTrue(state.toBuffer().length() > 4096 * 10);
+    assertTrue(compressed.length() < state.toBuffer().length() / 4, "compressed to " + compressed.length());
+    assertEquals(state, SnapshotMapper.inflate(compressed));
+  }
+
+  @Test
+  void truncated_or_corrupted_states_fail() {
+    final var compressed = SnapshotMapper.deflate(new JsonObject().put("data", "x".repeat(10_000)));
+
+    final var truncated = assertThrows(IllegalStateException.class, () -> SnapshotMapper.inflate(compressed.getBuffer(0, compressed.length() / 2)));
+    assertEquals("Truncated snapshot state", truncated.getMessage());
+    final var corrupted = assertThrows(IllegalStateException.class, () -> SnapshotMapper.inflate(Buffer.buffer("not deflated")));
+    assertEquals("Corrupted snapshot state", corrupted.getMessage());
+  }
+
+}
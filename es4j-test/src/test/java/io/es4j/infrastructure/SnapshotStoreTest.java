@@ -0,0 +1,121 @@
+package io.es4j.infrastructure;
+
+import io.es4j.Es4jDeployment;
+import io.es4j.domain.FakeAggregate;
+import io.es4j.infra.pg.PgEventStore;
+import io.es4j.infra.pg.PgSnapshotStore;
+import io.es4j.infrastructure.models.AggregateKey;
+import io.es4j.infrastructure.models.AggregateSnapshot;
+import io.es4j.sql.RepositoryHandler;
+import io.es4j.sql.misc.Constants;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.sqlclient.Tuple;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+class SnapshotStoreTest {
+
+  public static final String TENANT_ID = "default";
+  private static final Es4jDeployment ES_4_J_DEPLOYMENT = () -> FakeAggregate.class;
+  private static PostgreSQLContainer POSTGRES_CONTAINER;
+  private static final Vertx vertx = Vertx.vertx();
+  private static final JsonObject CONFIGURATION = new JsonObject();
+  private static final Network NETWORK = Network.newNetwork();
+  private static PgEventStore eventStore;
+  private static PgSnapshotStore snapshotStore;
+
+  @BeforeAll
+  static void setup() {
+    deployContainers();
+    // snapshots move the stream heads kept by the event store
+    eventStore = new PgEventStore();
+    eventStore.setup(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION).await().indefinitely();
+    eventStore.start(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION);
+    snapshotStore = new PgSnapshotStore();
+    snapshotStore.setup(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION).await().indefinitely();
+    snapshotStore.start(ES_4_J_DEPLOYMENT, vertx, CONFIGURATION);
+  }
+
+  @AfterAll
+  static void stop() {
+    destroyContainers();
+  }
+
+  @Test
+  void stored_state_is_compressed_and_read_back_as_written() {
+    final var aggregateId = UUID.randomUUID().toString();
+    final var lines = new JsonArray();
+    IntStream.range(0, 2_000).forEach(line -> lines.add(new JsonObject().put("line", line).put("note", "a\tb\né")));
+    final var snapshot = snapshot(aggregateId, 10L, new JsonObject().put("aggregateId", aggregateId).put("lines", lines));
+
+    snapshotStore.put(snapshot).await().indefinitely();
+
+    Assertions.assertEquals(snapshot, latest(aggregateId));
+    final var stored = scalar("select length(state) from aggregate_snapshot where aggregate_id = $1 and tenant = $2", aggregateId);
+    Assertions.assertTrue(stored < snapshot.state().toBuffer().length(), "state stored with " + stored + " bytes");
+  }
+
+  @Test
+  void latest_is_the_highest_version_and_rewriting_a_version_is_a_no_op() {
+    final var aggregateId = UUID.randomUUID().toString();
+    Assertions.assertNull(latest(aggregateId));
+
+    snapshotStore.put(snapshot(aggregateId, 10L, new JsonObject().put("version", 10))).await().indefinitely();
+    snapshotStore.put(snapshot(aggregateId, 20L, new JsonObject().put("version", 20))).await().indefinitely();
+    snapshotStore.put(snapshot(aggregateId, 20L, new JsonObject().put("version", "rewritten"))).await().indefinitely();
+
+    Assertions.assertEquals(20L, latest(aggregateId).version());
+    Assertions.assertEquals(new JsonObject().put("version", 20), latest(aggregateId).state());
+    Assertions.assertEquals(20L, scalar("select last_snapshot_version from aggregate_stream where aggregate_id = $1 and tenant = $2", aggregateId));
+  }
+
+  private static AggregateSnapshot snapshot(String aggregateId, Long version, JsonObject state) {
+    return new AggregateSnapshot(aggregateId, TENANT_ID, version, version * 2, 0, state, "command-1,command-2");
+  }
+
+  private static AggregateSnapshot latest(String aggregateId) {
+    return snapshotStore.latest(new AggregateKey<>(FakeAggregate.class, aggregateId, TENANT_ID)).await().indefinitely().orElse(null);
+  }
+
+  private static Long scalar(String query, String aggregateId) {
+    final var handler = RepositoryHandler.leasePool(CONFIGURATION, vertx);
+    try {
+      final var rows = handler.pgPool().preparedQuery(query).execute(Tuple.of(aggregateId, TENANT_ID)).await().indefinitely();
+      return rows.iterator().next().getLong(0);
+    } finally {
+      handler.close().await().indefinitely();
+    }
+  }
+
+  private static void deployContainers() {
+    POSTGRES_CONTAINER = new PostgreSQLContainer<>("postgres:latest")
+      .withNetwork(NETWORK)
+      .waitingFor(Wait.forListeningPort());
+    POSTGRES_CONTAINER.start();
+    CONFIGURATION.put(Constants.PG_HOST, POSTGRES_CONTAINER.getHost())
+      .put(Constants.PG_PORT, POSTGRES_CONTAINER.getFirstMappedPort())
+      .put(Constants.PG_USER, POSTGRES_CONTAINER.getUsername())
+      .put(Constants.PG_PASSWORD, POSTGRES_CONTAINER.getPassword())
+      .put(Constants.PG_DATABASE, POSTGRES_CONTAINER.getDatabaseName())
+      .put(Constants.JDBC_URL, POSTGRES_CONTAINER.getJdbcUrl());
+  }
+
+  private static void destroyContainers() {
+    snapshotStore.stop().await().indefinitely();
+    eventStore.stop().await().indefinitely();
+    vertx.closeAndAwait();
+    POSTGRES_CONTAINER.stop();
+    POSTGRES_CONTAINER.close();
+  }
+
+}
@@ -0,0 +1,106 @@
+package io.es4j.infrastructure.cache;
+
+import io.es4j.Aggregate;
+import io.es4j.core.objects.AggregateConfiguration;
+import io.es4j.core.objects.AggregateState;
+import io.es4j.infrastructure.models.AggregatePlainKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.micrometer.MicrometerMetricsOptions;
+import io.vertx.micrometer.backends.BackendRegistries;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Caches are built once per aggregate class, every test runs on its own aggregate class.
+ */
+class CaffeineWrapperTest {
+
+  private static final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @BeforeAll
+  static void setup() {
+    BackendRegistries.setupBackend(new MicrometerMetricsOptions().setEnabled(true).setMicrometerRegistry(registry));
+  }
+
+  @AfterAll
+  static void stop() {
+    BackendRegistries.stop(MicrometerMetricsOptions.DEFAULT_REGISTRY_NAME);
+  }
+
+  @Test
+  void entries_are_evicted_once_their_weight_exceeds_the_bound() {
+    // about 2kb per entry, the bound holds a dozen of them
+    CaffeineWrapper.setUp(BoundedAggregate.class, configuration(32 * 1024L, 0L));
+    final var keys = IntStream.range(0, 100).mapToObj(i -> key(BoundedAggregate.class, "aggregate-" + i)).toList();
+    keys.forEach(key -> CaffeineWrapper.put(key, state(new BoundedAggregate(key.aggregateId(), "x".repeat(2_000)))));
+
+    await(() -> cached(keys) <= 16);
+    assertTrue(cached(keys) > 0);
+
+    // a single entry heavier than the whole bound isn't kept either
+    final var heavy = key(BoundedAggregate.class, "heavy");
+    CaffeineWrapper.put(heavy, state(new BoundedAggregate(heavy.aggregateId(), "x".repeat(64 * 1024))));
+    await(() -> CaffeineWrapper.get(heavy) == null);
+  }
+
+  @Test
+  void cache_and_off_heap_tier_publish_their_metrics() {
+    CaffeineWrapper.setUp(MeteredAggregate.class, configuration(AggregateConfiguration.DEFAULT_CACHE_MAX_WEIGHT, 1024 * 1024L));
+    final var key = key(MeteredAggregate.class, "cached");
+    CaffeineWrapper.put(key, state(new MeteredAggregate(key.aggregateId(), "data")));
+
+    assertNotNull(CaffeineWrapper.get(key));
+    assertNull(CaffeineWrapper.get(key(MeteredAggregate.class, "missing")));
+
+    assertEquals(1.0, registry.get("cache.gets").tag("cache", "metered-aggregate").tag("result", "hit").functionCounter().count());
+    assertEquals(1.0, registry.get("cache.gets").tag("cache", "metered-aggregate").tag("result", "miss").functionCounter().count());
+    assertNotNull(registry.get("cache.size").tag("cache", "metered-aggregate").gauge());
+    assertNotNull(registry.get("cache.evictions").tag("cache", "metered-aggregate").functionCounter());
+    assertEquals(1.0, registry.get("es4j.aggregate.offheap.misses").tag("cache", "metered-aggregate").functionCounter().count());
+    assertTrue(registry.get("es4j.aggregate.offheap.capacity").tag("cache", "metered-aggregate").gauge().value() > 0);
+  }
+
+  private static long cached(List<AggregatePlainKey> keys) {
+    return keys.stream().filter(key -> CaffeineWrapper.get(key) != null).count();
+  }
+
+  private static AggregateConfiguration configuration(Long cacheMaxWeight, Long offHeapCacheSize) {
+    return new AggregateConfiguration(Duration.ofHours(1), 100, 100, Duration.ZERO, 1, null, null, cacheMaxWeight, offHeapCacheSize, 1000);
+  }
+
+  private static AggregatePlainKey key(Class<? extends Aggregate> aggregateClass, String aggregateId) {
+    return new AggregatePlainKey(aggregateClass.getName(), aggregateId, "default");
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends Aggregate> AggregateState<T> state(T aggregate) {
+    return new AggregateState<>((Class<T>) aggregate.getClass()).setState(aggregate).setCurrentVersion(1L);
+  }
+
+  private static void await(BooleanSupplier condition) {
+    final var deadline = System.currentTimeMillis() + 10_000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  public record BoundedAggregate(String aggregateId, String data) implements Aggregate {
+  }
+
+  public record MeteredAggregate(String aggregateId, String data) implements Aggregate {
+  }
+
+}
@@ -0,0 +1,88 @@
+package io.es4j.infrastructure.cache;
+
+import io.es4j.core.objects.AggregateState;
+import io.es4j.domain.FakeAggregate;
+import io.es4j.infrastructure.models.AggregatePlainKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapAggregateTierTest {
+
+  private static AggregatePlainKey key() {
+    return new AggregatePlainKey(FakeAggregate.class.getName(), UUID.randomUUID().toString(), "default");
+  }
+
+  @Test
+  void promote_restores_versions_offsets_and_known_commands() {
+    final var tier = new OffHeapAggregateTier<>(FakeAggregate.class, 16, 64 * 1024);
+    final var key = key();
+    final var commandIds = IntStream.range(0, 20).mapToObj(index -> UUID.randomUUID().toString()).toList();
+    final var state = new AggregateState<>(FakeAggregate.class, 16)
+      .setState(new FakeAggregate(key.aggregateId(), Map.of("key", "value")))
+      .setCurrentVersion(42L)
+      .setCurrentJournalOffset(4200L)
+      .setLastSnapshotVersion(40L)
+      .addKnownCommands(commandIds);
+    tier.demote(key, state);
+
+    final var promoted = tier.promote(key);
+    assertEquals(state.state(), promoted.state());
+    assertEquals(42L, promoted.currentVersion());
+    assertEquals(4200L, promoted.currentJournalOffset());
+    assertEquals(40L, promoted.lastSnapshotVersion());
+    assertEquals(state.knownCommands().encode(), promoted.knownCommands().encode());
+    commandIds.subList(4, 20).forEach(commandId -> assertTrue(promoted.isKnownCommand(commandId)));
+    commandIds.subList(0, 4).forEach(commandId -> assertFalse(promoted.isKnownCommand(commandId)));
+
+    // promotion hands the entry back to the heap cache
+    assertNull(tier.promote(key));
+  }
+
+  @Test
+  void null_versions_and_empty_windows_round_trip() {
+    final var tier = new OffHeapAggregateTier<>(FakeAggregate.class, 16, 64 * 1024);
+    final var key = key();
+    tier.demote(key, new AggregateState<>(FakeAggregate.class, 16)
+      .setState(new FakeAggregate(key.aggregateId(), Map.of()))
+      .setCurrentVersion(null)
+    );
+
+    final var promoted = tier.promote(key);
+    assertNull(promoted.currentVersion());
+    assertTrue(promoted.knownCommands().isEmpty());
+    assertEquals(new FakeAggregate(key.aggregateId(), Map.of()), promoted.state());
+  }
+
+  @Test
+  void empty_and_oversize_states_are_not_demoted() {
+    final var tier = new OffHeapAggregateTier<>(FakeAggregate.class, 16, 1024);
+    final var empty = key();
+    tier.demote(empty, new AggregateState<>(FakeAggregate.class));
+    assertNull(tier.promote(empty));
+
+    final var large = key();
+    tier.demote(large, new AggregateState<>(FakeAggregate.class)
+      .setState(new FakeAggregate(large.aggregateId(), Map.of("blob", "x".repeat(2048))))
+      .setCurrentVersion(1L)
+    );
+    assertNull(tier.promote(large));
+  }
+
+  @Test
+  void invalidated_entries_are_not_promoted() {
+    final var tier = new OffHeapAggregateTier<>(FakeAggregate.class, 16, 64 * 1024);
+    final var key = key();
+    tier.demote(key, new AggregateState<>(FakeAggregate.class)
+      .setState(new FakeAggregate(key.aggregateId(), Map.of("key", "value")))
+      .setCurrentVersion(3L)
+    );
+    tier.invalidate(key);
+    assertNull(tier.promote(key));
+  }
+
+}
@@ -0,0 +1,79 @@
+package io.es4j.infrastructure.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapStateStoreTest {
+
+  // two segments of 500 bytes, five 100 byte entries (header included) fit in a segment
+  private static final long CAPACITY = 1000;
+  private static final int PAYLOAD = 96;
+
+  private static byte[] payload(int seed) {
+    final var payload = new byte[PAYLOAD];
+    Arrays.fill(payload, (byte) seed);
+    return payload;
+  }
+
+  @Test
+  void entries_round_trip() {
+    final var store = new OffHeapStateStore<String>(CAPACITY);
+    assertEquals(CAPACITY, store.capacity());
+    assertTrue(store.put("a", payload(1)));
+    assertTrue(store.put("b", new byte[0]));
+    assertArrayEquals(payload(1), store.get("a"));
+    assertArrayEquals(new byte[0], store.get("b"));
+    assertNull(store.get("c"));
+    assertEquals(2, store.hits());
+    assertEquals(1, store.misses());
+
+    assertArrayEquals(payload(1), store.remove("a"));
+    assertNull(store.get("a"));
+    store.invalidate("b");
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  void wrapping_reclaims_the_oldest_segment() {
+    final var store = new OffHeapStateStore<Integer>(CAPACITY);
+    IntStream.range(0, 10).forEach(key -> assertTrue(store.put(key, payload(key))));
+    assertEquals(10, store.size());
+    assertEquals(0, store.evictions());
+
+    // the first segment is full, the eleventh entry wraps around onto it
+    assertTrue(store.put(10, payload(10)));
+    assertEquals(5, store.evictions());
+    assertEquals(6, store.size());
+    IntStream.range(0, 5).forEach(key -> assertNull(store.get(key)));
+    IntStream.rangeClosed(5, 10).forEach(key -> assertArrayEquals(payload(key), store.get(key)));
+  }
+
+  @Test
+  void rewritten_entries_survive_the_reclaim_of_their_old_segment() {
+    final var store = new OffHeapStateStore<Integer>(CAPACITY);
+    IntStream.range(0, 5).forEach(key -> store.put(key, payload(key)));
+    // key 0 is written again in the second segment
+    store.put(0, payload(42));
+    IntStream.range(5, 9).forEach(key -> store.put(key, payload(key)));
+    store.put(9, payload(9));
+
+    assertEquals(4, store.evictions());
+    assertArrayEquals(payload(42), store.get(0));
+    IntStream.range(1, 5).forEach(key -> assertNull(store.get(key)));
+  }
+
+  @Test
+  void oversize_entries_are_refused_and_drop_the_previous_value() {
+    final var store = new OffHeapStateStore<String>(CAPACITY);
+    assertTrue(store.put("key", payload(1)));
+    assertTrue(store.put("fits", new byte[496]));
+    assertFalse(store.put("key", new byte[497]));
+    assertNull(store.get("key"));
+    assertEquals(496, store.get("fits").length);
+  }
+
+}
@@ -0,0 +1,102 @@
+package io.es4j.infrastructure.sql;
+
+import io.es4j.infra.pg.mappers.EventStoreMapper;
+import io.es4j.infra.pg.models.EventRecordQuery;
+import io.es4j.sql.commands.GenerateQueryStatement;
+import io.es4j.sql.models.QueryStatementType;
+import io.es4j.sql.generator.PostgresQueryGenerator;
+import io.es4j.sql.generator.filters.QueryBuilder;
+import io.es4j.sql.models.QueryFilters;
+import io.es4j.sql.models.QueryOptions;
+import io.smallrye.mutiny.tuples.Tuple2;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryBuilderTest {
+
+  private static final QueryOptions OPTIONS = new QueryOptions(null, false, null, null, null, null, null, null, null, "default");
+
+  @Test
+  void array_filters_bind_text_arrays_to_overlap_and_contains() {
+    final var query = select(new QueryBuilder()
+      .arrayOverlaps(new QueryFilters<>(String.class).filterColumn("tags").filterParams(List.of("red", "blue")))
+      .arrayContains(new QueryFilters<>(Object.class).filterColumn("labels").filterParams(List.of("urgent", 42)))
+    );
+
+    assertTrue(query.getItem1().contains(" tags && #{tags_overlap} "), query.getItem1());
+    assertTrue(query.getItem1().contains(" labels @> #{labels_contains} "), query.getItem1());
+    assertArrayEquals(new String[]{"red", "blue"}, (String[]) query.getItem2().get("tags_overlap"));
+    // the column is text[], every param is bound as text
+    assertArrayEquals(new String[]{"urgent", "42"}, (String[]) query.getItem2().get("labels_contains"));
+  }
+
+  @Test
+  void empty_filters_add_no_clause() {
+    final var query = select(new QueryBuilder()
+      .arrayOverlaps(new QueryFilters<>(String.class).filterColumn("tags").filterParams(List.of()))
+      .arrayContains(new QueryFilters<>(String.class).filterColumn("labels").filterParams((List<String>) null))
+      .eq(new QueryFilters<>(String.class).filterColumn("command_id").filterParams((List<String>) null))
+    );
+
+    assertFalse(query.getItem1().contains("&&"), query.getItem1());
+    assertFalse(query.getItem1().contains("@>"), query.getItem1());
+    assertFalse(query.getItem1().contains("command_id"), query.getItem1());
+    assertFalse(query.getItem2().containsKey("tags_overlap"));
+    assertFalse(query.getItem2().containsKey("labels_contains"));
+    assertFalse(query.getItem2().containsKey("command_id"));
+  }
+
+  @Test
+  void journal_queries_match_event_classes_and_command_ids_exactly() {
+    final var builder = new QueryBuilder();
+    EventStoreMapper.INSTANCE.queryBuilder(
+      new EventRecordQuery(
+        List.of("aggregate-*"),
+        List.of("data-changed", "data-*"),
+        null,
+        List.of("tag"),
+        List.of("command-1", "command-*"),
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        OPTIONS
+      ),
+      builder
+    );
+
+    final var query = select(builder);
+
+    assertTrue(query.getItem1().contains(" event_class = any(#{event_class}) "), query.getItem1());
+    assertTrue(query.getItem1().contains(" command_id = any(#{command_id}) "), query.getItem1());
+    assertTrue(query.getItem1().contains(" tags && #{tags_overlap} "), query.getItem1());
+    // wildcards only apply to like filters, equality binds the values untouched
+    assertArrayEquals(new String[]{"data-changed", "data-*"}, (String[]) query.getItem2().get("event_class"));
+    assertArrayEquals(new String[]{"command-1", "command-*"}, (String[]) query.getItem2().get("command_id"));
+    assertArrayEquals(new String[]{"aggregate-%"}, (String[]) query.getItem2().get("aggregate_id"));
+    assertFalse(query.getItem1().contains("hashtext"));
+  }
+
+  @Test
+  void shard_filter_binds_the_bucket_and_the_bucket_count() {
+    final var builder = new QueryBuilder();
+    EventStoreMapper.INSTANCE.queryBuilder(new EventRecordQuery(null, null, null, null, null, null, null, 10L, null, 2, 4, OPTIONS), builder);
+
+    final var query = select(builder);
+
+    assertTrue(query.getItem1().contains(" mod(hashtext(aggregate_id) & 2147483647, #{aggregate_id_buckets}) = #{aggregate_id_bucket} "), query.getItem1());
+    assertEquals(2, query.getItem2().get("aggregate_id_bucket"));
+    assertEquals(4, query.getItem2().get("aggregate_id_buckets"));
+  }
+
+  private static Tuple2<String, Map<String, Object>> select(QueryBuilder builder) {
+    return PostgresQueryGenerator.INSTANCE.query(new GenerateQueryStatement(EventStoreMapper.TABLE, QueryStatementType.SELECT, builder.filters(), OPTIONS));
+  }
+
+}